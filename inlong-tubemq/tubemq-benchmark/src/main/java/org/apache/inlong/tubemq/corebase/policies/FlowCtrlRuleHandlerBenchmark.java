@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.policies;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/***
+ * FlowCtrlRuleHandler benchmark, evaluates the rules checked on every
+ * get message request. The data limit rules cover the whole day, so the
+ * evaluation always walks the rule list whatever the time the benchmark runs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlowCtrlRuleHandlerBenchmark {
+
+    private static final String FLOW_CTRL_INFO =
+            "[{\"type\":0,\"rule\":[{\"start\":\"00:00\",\"end\":\"07:59\",\"dltInM\":1024,"
+            + "\"limitInM\":20,\"freqInMs\":1000},{\"start\":\"08:00\",\"end\":\"17:59\","
+            + "\"dltInM\":1024,\"limitInM\":20,\"freqInMs\":1000},{\"start\":\"18:00\","
+            + "\"end\":\"23:59\",\"dltInM\":1024,\"limitInM\":20,\"freqInMs\":5000}]},"
+            + "{\"type\":1,\"rule\":[{\"zeroCnt\":3,\"freqInMs\":300},{\"zeroCnt\":8,"
+            + "\"freqInMs\":1000}]},{\"type\":3,\"rule\":[{\"normFreqInMs\":0,"
+            + "\"filterFreqInMs\":100,\"minDataFilterFreqInMs\":400}]}]";
+
+    private FlowCtrlRuleHandler handler;
+    private int zeroCnt = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        handler = new FlowCtrlRuleHandler(true);
+        handler.updateFlowCtrlInfo(2, 10, FLOW_CTRL_INFO);
+    }
+
+    @Benchmark
+    public FlowCtrlResult getCurDataLimit() {
+        return handler.getCurDataLimit(2000);
+    }
+
+    @Benchmark
+    public FlowCtrlResult getCurDataLimitBelowDlt() {
+        return handler.getCurDataLimit(1000);
+    }
+
+    @Benchmark
+    public int getCurFreqLimitTime() {
+        zeroCnt = (zeroCnt + 1) & 15;
+        return handler.getCurFreqLimitTime(zeroCnt, 10);
+    }
+}
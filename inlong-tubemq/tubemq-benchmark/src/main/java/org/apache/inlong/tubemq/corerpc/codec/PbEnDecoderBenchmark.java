@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.codec;
+
+import com.google.protobuf.ByteString;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/***
+ * PbEnDecoder benchmark, encodes and decodes the send message request
+ * and the get message response, the two messages on the data path.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PbEnDecoderBenchmark {
+
+    @Param({"256", "4096"})
+    private int msgSize;
+
+    @Param({"32"})
+    private int msgCount;
+
+    private ClientBroker.SendMessageRequestP2B sendRequest;
+    private ClientBroker.GetMessageResponseB2C getResponse;
+    private byte[] sendRequestBytes;
+    private ByteString getResponseData;
+
+    @Setup
+    public void setup() throws Exception {
+        byte[] payload = new byte[msgSize];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        sendRequest = ClientBroker.SendMessageRequestP2B.newBuilder()
+                .setClientId("benchmark_producer")
+                .setTopicName("benchmark")
+                .setPartitionId(0)
+                .setData(ByteString.copyFrom(payload))
+                .setFlag(0)
+                .setCheckSum(-1)
+                .setSentAddr(0)
+                .build();
+        ClientBroker.GetMessageResponseB2C.Builder builder =
+                ClientBroker.GetMessageResponseB2C.newBuilder()
+                        .setSuccess(true)
+                        .setErrCode(200)
+                        .setCurrOffset(0L)
+                        .setMaxOffset(msgCount);
+        for (int i = 0; i < msgCount; i++) {
+            builder.addMessages(ClientBroker.TransferedMessage.newBuilder()
+                    .setMessageId(i)
+                    .setCheckSum(-1)
+                    .setFlag(0)
+                    .setPayLoadData(ByteString.copyFrom(payload)));
+        }
+        getResponse = builder.build();
+        sendRequestBytes = PbEnDecoder.pbEncode(sendRequest);
+        getResponseData = PbEnDecoder.pbEncodeToByteString(getResponse);
+    }
+
+    @Benchmark
+    public byte[] encodeSendRequest() throws Exception {
+        return PbEnDecoder.pbEncode(sendRequest);
+    }
+
+    @Benchmark
+    public Object decodeSendRequest() throws Exception {
+        return PbEnDecoder.pbDecode(true,
+                RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE, sendRequestBytes);
+    }
+
+    @Benchmark
+    public ByteString encodeGetResponse() throws Exception {
+        return PbEnDecoder.pbEncodeToByteString(getResponse);
+    }
+
+    @Benchmark
+    public Object decodeGetResponse() throws Exception {
+        return PbEnDecoder.pbDecode(false,
+                RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE, getResponseData);
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/***
+ * NettyProtocolEncoder and NettyProtocolDecoder benchmark. The pack has the
+ * segment layout of a rpc request: the connection header, the request header
+ * and the request body of the given size.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NettyProtocolCodecBenchmark {
+
+    @Param({"256", "65536"})
+    private int bodySize;
+
+    private EmbeddedChannel encodeChannel;
+    private EmbeddedChannel decodeChannel;
+    private RpcDataPack dataPack;
+    private ByteBuf frame;
+
+    @Setup
+    public void setup() {
+        encodeChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+        decodeChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        List<ByteBuffer> dataList = new ArrayList<>(3);
+        dataList.add(ByteBuffer.wrap(new byte[8]));
+        dataList.add(ByteBuffer.wrap(new byte[24]));
+        dataList.add(ByteBuffer.wrap(new byte[bodySize]));
+        dataPack = new RpcDataPack(1, dataList);
+        // a contiguous copy of the encoded frame, as it is read from a socket
+        ByteBuf encoded = encode();
+        try {
+            frame = Unpooled.directBuffer(encoded.readableBytes());
+            frame.writeBytes(encoded);
+        } finally {
+            encoded.release();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+        encodeChannel.finishAndReleaseAll();
+        decodeChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encodePack() {
+        ByteBuf encoded = encode();
+        try {
+            return encoded.readableBytes();
+        } finally {
+            encoded.release();
+        }
+    }
+
+    @Benchmark
+    public int decodePack() {
+        decodeChannel.writeInbound(frame.retainedDuplicate());
+        ReceivedRpcDataPack received = decodeChannel.readInbound();
+        try {
+            return received.getDataLst().size();
+        } finally {
+            received.release();
+        }
+    }
+
+    @Benchmark
+    public int encodeAndDecodePack() {
+        decodeChannel.writeInbound(encode());
+        ReceivedRpcDataPack received = decodeChannel.readInbound();
+        try {
+            return received.getDataLst().size();
+        } finally {
+            received.release();
+        }
+    }
+
+    private ByteBuf encode() {
+        encodeChannel.writeOutbound(dataPack);
+        return encodeChannel.readOutbound();
+    }
+}
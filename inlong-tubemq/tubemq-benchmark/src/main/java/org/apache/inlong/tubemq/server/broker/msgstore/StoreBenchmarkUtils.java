@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.metadata.BrokerDefMetadata;
+import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+/***
+ * Helpers shared by the message store benchmarks.
+ */
+public final class StoreBenchmarkUtils {
+
+    public static final String TOPIC_NAME = "benchmark";
+    // topic:partitions:publish:subscribe:unflushThreshold:unflushInterval:deleteWhen:
+    // deletePolicy:stores:status:unflushDataHold:memCacheMsgSize:memCacheMsgCnt:memCacheFlushIntvl
+    private static final String TOPIC_CONF_INFO =
+            TOPIC_NAME + ":4:true:true:1000:10000:0 0 6,18 * * ?:delete,168h:1:0:0:8:16:20000";
+
+    private StoreBenchmarkUtils() {
+    }
+
+    /***
+     * Build a message in the stored form, the same layout as MessageStore.createAppendEntry().
+     *
+     * @param partitionId
+     * @param keyCode
+     * @param messageId
+     * @param msgFlag
+     * @param payload
+     * @return the message buffer, ready to be read
+     */
+    public static ByteBuffer buildStoreMsg(int partitionId, int keyCode,
+                                           long messageId, int msgFlag,
+                                           byte[] payload) {
+        final ByteBuffer buffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + payload.length);
+        buffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + payload.length);
+        buffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        buffer.putInt(-1);
+        buffer.putInt(partitionId);
+        buffer.putLong(-1L);
+        buffer.putLong(System.currentTimeMillis());
+        buffer.putInt(0);
+        buffer.putInt(keyCode);
+        buffer.putLong(messageId);
+        buffer.putInt(msgFlag);
+        buffer.put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    public static byte[] buildPayload(int size) {
+        byte[] payload = new byte[size];
+        for (int i = 0; i < size; i++) {
+            payload[i] = (byte) i;
+        }
+        return payload;
+    }
+
+    /***
+     * Create a message store of the benchmark topic without a store manager,
+     * which is enough to host a MsgFileStore.
+     *
+     * @param tubeConfig
+     * @param storePath
+     * @return the message store
+     * @throws IOException
+     */
+    public static MessageStore createMessageStore(BrokerConfig tubeConfig,
+                                                  String storePath) throws IOException {
+        TopicMetadata topicMetadata =
+                new TopicMetadata(new BrokerDefMetadata(), TOPIC_CONF_INFO);
+        return new MessageStore(null, topicMetadata, 0,
+                storePath, tubeConfig, tubeConfig.getTransferSize());
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.StoreBenchmarkUtils;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStatisInfo;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/***
+ * MsgFileStore benchmark on a temporary directory. batchAppendMsg() is measured
+ * with the batches a full memory cache flushes, getMessages() reads the messages
+ * of a partition through the index, as a consumer lagging behind the cache does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MsgFileStoreBenchmark {
+
+    private static final int PARTITION_COUNT = 4;
+    private static final int BATCH_MSG_COUNT = 1000;
+    private static final int READ_BATCH_COUNT = 50;
+    private static final int MAX_TRANSFER_SIZE = 1024 * 1024;
+
+    /***
+     * A message store hosting the benchmarked file store, both under a new
+     * temporary directory which is removed on tear down.
+     */
+    public abstract static class FileStoreState {
+
+        @Param({"256", "1024"})
+        protected int msgSize;
+
+        protected File storeDir;
+        protected MessageStore messageStore;
+        protected MsgFileStore msgFileStore;
+        protected MsgMemStore msgMemStore;
+        protected final StringBuilder strBuffer = new StringBuilder(512);
+
+        protected void openStore() throws Exception {
+            storeDir = Files.createTempDirectory("tubemq-benchmark").toFile();
+            BrokerConfig tubeConfig = new BrokerConfig();
+            messageStore = StoreBenchmarkUtils.createMessageStore(tubeConfig,
+                    new File(storeDir, "store").getAbsolutePath());
+            msgFileStore = new MsgFileStore(messageStore, tubeConfig,
+                    new File(storeDir, "benchmark").getAbsolutePath(), 0L);
+            msgMemStore = new MsgMemStore(
+                    BATCH_MSG_COUNT * (DataStoreUtils.STORE_DATA_HEADER_LEN + msgSize),
+                    BATCH_MSG_COUNT, tubeConfig);
+        }
+
+        // fill the memory cache with a batch starting at the end of the file store
+        protected void fillMemStore() {
+            msgMemStore.resetStartPos(msgFileStore.getDataMaxOffset(),
+                    msgFileStore.getIndexMaxOffset());
+            MsgMemStatisInfo msgMemStatisInfo = new MsgMemStatisInfo();
+            AppendResult appendResult = new AppendResult();
+            byte[] payload = StoreBenchmarkUtils.buildPayload(msgSize);
+            for (int i = 0; i < BATCH_MSG_COUNT; i++) {
+                ByteBuffer message = StoreBenchmarkUtils.buildStoreMsg(
+                        i % PARTITION_COUNT, i % 8, i, 0, payload);
+                msgMemStore.appendMsg(msgMemStatisInfo, i % PARTITION_COUNT, i % 8,
+                        System.currentTimeMillis(), message.remaining(), message, appendResult);
+            }
+        }
+
+        protected void closeStore() throws Exception {
+            msgMemStore.close();
+            msgFileStore.close();
+            messageStore.close();
+            FileUtil.fullyDelete(storeDir);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AppendState extends FileStoreState {
+
+        // a new store for each iteration, which bounds the disk space in use
+        @Setup(Level.Iteration)
+        public void setup() throws Exception {
+            openStore();
+        }
+
+        @Setup(Level.Invocation)
+        public void prepareBatch() {
+            fillMemStore();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws Exception {
+            closeStore();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ReadState extends FileStoreState {
+
+        private final ByteBuffer indexBuffer =
+                ByteBuffer.allocate(BATCH_MSG_COUNT * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        private long readOffset = 0L;
+        private int partitionId = 0;
+
+        @Setup(Level.Trial)
+        public void setup() throws Throwable {
+            openStore();
+            for (int i = 0; i < READ_BATCH_COUNT; i++) {
+                fillMemStore();
+                msgMemStore.batchFlush(msgFileStore, strBuffer);
+            }
+            msgFileStore.flushDiskFile();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            closeStore();
+        }
+
+        // read the next partition from a later offset on each call
+        private void moveReadPosition() {
+            partitionId = (partitionId + 1) % PARTITION_COUNT;
+            readOffset += 100 * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            if (readOffset >= msgFileStore.getIndexMaxOffset()) {
+                readOffset = 0L;
+            }
+        }
+    }
+
+    @Benchmark
+    public long batchAppendMsg(AppendState state) throws Throwable {
+        state.msgMemStore.batchFlush(state.msgFileStore, state.strBuffer);
+        return state.msgFileStore.getDataMaxOffset();
+    }
+
+    @Benchmark
+    public GetMessageResult getMessages(ReadState state) throws Exception {
+        state.indexBuffer.clear();
+        Segment indexRecordView = state.msgFileStore.indexSlice(
+                state.readOffset, state.indexBuffer.capacity());
+        try {
+            indexRecordView.read(state.indexBuffer, state.readOffset);
+        } finally {
+            indexRecordView.relViewRef();
+        }
+        state.indexBuffer.flip();
+        GetMessageResult result = state.msgFileStore.getMessages(state.partitionId,
+                0L, state.readOffset, state.indexBuffer, false, null,
+                StoreBenchmarkUtils.TOPIC_NAME, MAX_TRANSFER_SIZE);
+        state.moveReadPosition();
+        return result;
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.mem;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.server.broker.msgstore.StoreBenchmarkUtils;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/***
+ * MsgMemStore benchmark, appends messages to the memory cache and reads
+ * the messages of a partition back from it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MsgMemStoreBenchmark {
+
+    private static final int PARTITION_COUNT = 4;
+    private static final int MAX_CACHE_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_MSG_COUNT = 64 * 1024;
+
+    @State(Scope.Thread)
+    public static class AppendState {
+
+        @Param({"256", "1024"})
+        private int msgSize;
+
+        private MsgMemStore msgMemStore;
+        private final MsgMemStatisInfo msgMemStatisInfo = new MsgMemStatisInfo();
+        private final AppendResult appendResult = new AppendResult();
+        private ByteBuffer[] messages;
+        private int msgIndex = 0;
+
+        @Setup
+        public void setup() {
+            msgMemStore = new MsgMemStore(MAX_CACHE_SIZE, MAX_MSG_COUNT, null);
+            msgMemStore.resetStartPos(0L, 0L);
+            byte[] payload = StoreBenchmarkUtils.buildPayload(msgSize);
+            messages = new ByteBuffer[PARTITION_COUNT];
+            for (int i = 0; i < messages.length; i++) {
+                messages[i] = StoreBenchmarkUtils.buildStoreMsg(i, i, i, 0, payload);
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            msgMemStore.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ReadState {
+
+        @Param({"256", "1024"})
+        private int msgSize;
+
+        private MsgMemStore msgMemStore;
+        // half of the key codes of each partition
+        private final Set<Integer> filterKeySet = new HashSet<>();
+        private long indexEndOffset;
+        private long readOffset = 0L;
+        private int partitionId = 0;
+
+        @Setup
+        public void setup() {
+            msgMemStore = new MsgMemStore(MAX_CACHE_SIZE, MAX_MSG_COUNT, null);
+            msgMemStore.resetStartPos(0L, 0L);
+            MsgMemStatisInfo msgMemStatisInfo = new MsgMemStatisInfo();
+            AppendResult appendResult = new AppendResult();
+            byte[] payload = StoreBenchmarkUtils.buildPayload(msgSize);
+            int msgCount = Math.min(MAX_MSG_COUNT,
+                    MAX_CACHE_SIZE / (DataStoreUtils.STORE_DATA_HEADER_LEN + msgSize));
+            for (int i = 0; i < msgCount; i++) {
+                ByteBuffer message = StoreBenchmarkUtils.buildStoreMsg(
+                        i % PARTITION_COUNT, i % 8, i, 0, payload);
+                msgMemStore.appendMsg(msgMemStatisInfo, i % PARTITION_COUNT, i % 8,
+                        System.currentTimeMillis(), message.remaining(), message, appendResult);
+            }
+            indexEndOffset = msgMemStore.getIndexLastWritePos();
+            for (int i = 0; i < PARTITION_COUNT; i++) {
+                filterKeySet.add(i);
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            msgMemStore.close();
+        }
+
+        // read the next partition from a later offset on each call
+        private void moveReadPosition() {
+            partitionId = (partitionId + 1) % PARTITION_COUNT;
+            readOffset += 100 * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            if (readOffset >= indexEndOffset) {
+                readOffset = 0L;
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean appendMsg(AppendState state) {
+        int partitionId = state.msgIndex++ & (PARTITION_COUNT - 1);
+        ByteBuffer message = state.messages[partitionId];
+        boolean appended = state.msgMemStore.appendMsg(state.msgMemStatisInfo,
+                partitionId, partitionId, System.currentTimeMillis(),
+                message.remaining(), message, state.appendResult);
+        if (!appended) {
+            // the cache is full, start over as the store does after a flush
+            state.msgMemStore.resetStartPos(0L, 0L);
+        }
+        return appended;
+    }
+
+    @Benchmark
+    public GetCacheMsgResult getMessages(ReadState state) {
+        GetCacheMsgResult result = state.msgMemStore.getMessages(0L, state.readOffset,
+                1024 * 1024, 1000, state.partitionId, false, false, null);
+        state.moveReadPosition();
+        return result;
+    }
+
+    @Benchmark
+    public GetCacheMsgResult getMessagesByFilter(ReadState state) {
+        GetCacheMsgResult result = state.msgMemStore.getMessages(0L, state.readOffset,
+                1024 * 1024, 1000, state.partitionId, false, true, state.filterKeySet);
+        state.moveReadPosition();
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.server.broker.msgstore.StoreBenchmarkUtils;
+import org.apache.inlong.tubemq.server.broker.stats.CountItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/***
+ * DataStoreUtils.getTransferMsg() benchmark, converts stored messages with and
+ * without attribute, from a heap buffer as read from file and from a read-only
+ * slice of a direct buffer as read from the memory cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataStoreUtilsBenchmark {
+
+    private static final String STATIS_KEY_BASE = "benchmark#127.0.0.1#0";
+
+    @Param({"256", "4096"})
+    private int msgSize;
+
+    private final HashMap<String, CountItem> countMap = new HashMap<>();
+    private final StringBuilder strBuffer = new StringBuilder(512);
+    private ByteBuffer heapMsg;
+    private ByteBuffer directMsg;
+    private ByteBuffer attrMsg;
+
+    @Setup
+    public void setup() {
+        heapMsg = StoreBenchmarkUtils.buildStoreMsg(0, 0, 1L, 0,
+                StoreBenchmarkUtils.buildPayload(msgSize));
+        ByteBuffer directBuffer = ByteBuffer.allocateDirect(heapMsg.remaining());
+        directBuffer.put(heapMsg.duplicate());
+        directBuffer.flip();
+        directMsg = directBuffer.asReadOnlyBuffer();
+        // payload with attribute: attribute length, attribute, message body
+        byte[] attribute = new StringBuilder(256)
+                .append(TokenConstants.TOKEN_MSG_TYPE).append(TokenConstants.EQ)
+                .append("benchmark").append(TokenConstants.ARRAY_SEP)
+                .append(TokenConstants.TOKEN_MSG_TIME).append(TokenConstants.EQ)
+                .append("202101011200").toString().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(4 + attribute.length + msgSize);
+        payload.putInt(attribute.length);
+        payload.put(attribute);
+        payload.put(StoreBenchmarkUtils.buildPayload(msgSize));
+        attrMsg = StoreBenchmarkUtils.buildStoreMsg(0, 0, 1L, 1, payload.array());
+    }
+
+    @Benchmark
+    public ClientBroker.TransferedMessage getTransferMsgFromHeap() {
+        return DataStoreUtils.getTransferMsg(heapMsg, 0,
+                heapMsg.remaining(), countMap, STATIS_KEY_BASE, strBuffer);
+    }
+
+    @Benchmark
+    public ClientBroker.TransferedMessage getTransferMsgFromDirect() {
+        return DataStoreUtils.getTransferMsg(directMsg, 0,
+                directMsg.remaining(), countMap, STATIS_KEY_BASE, strBuffer);
+    }
+
+    @Benchmark
+    public ClientBroker.TransferedMessage getTransferMsgWithAttribute() {
+        return DataStoreUtils.getTransferMsg(attrMsg, 0,
+                attrMsg.remaining(), countMap, STATIS_KEY_BASE, strBuffer);
+    }
+}
@@ -40,4 +40,9 @@ public class TClientConstants {
     public static final long CFG_DEFAULT_META_QUERY_WAIT_PERIOD_MS = 10000L;
     public static final long CFG_MIN_META_QUERY_WAIT_PERIOD_MS = 5000L;
 
+    public static final int CFG_DEFAULT_BATCH_SEND_MAX_SIZE = 256 * 1024;
+    public static final int CFG_DEFAULT_BATCH_SEND_MAX_MSG_COUNT = 500;
+    public static final long CFG_DEFAULT_BATCH_SEND_LINGER_MS = 10L;
+    public static final int CFG_DEFAULT_MSG_COMPRESS_MIN_SIZE = 512;
+
 }
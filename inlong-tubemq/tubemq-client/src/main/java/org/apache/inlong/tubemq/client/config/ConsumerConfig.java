@@ -41,6 +41,10 @@ public class ConsumerConfig extends TubeClientConfig {
             TClientConstants.MAX_SUBSCRIBE_REPORT_INTERVAL_TIMES;
     private long msgNotFoundWaitPeriodMs =
             TClientConstants.CFG_DEFAULT_MSG_NOTFOUND_WAIT_PERIOD_MS;
+    // max time the broker holds a get message request until new messages arrive,
+    // 0 means reply at once and wait msgNotFoundWaitPeriodMs on the client side;
+    // only used by pull and client-balance consumers, push consumers ignore it
+    private int longPollWaitTimeMs = 0;
     private long pullConsumeReadyWaitPeriodMs =
             TClientConstants.CFG_DEFAULT_CONSUME_READ_WAIT_PERIOD_MS;
     private long pullConsumeReadyChkSliceMs =
@@ -55,6 +59,9 @@ public class ConsumerConfig extends TubeClientConfig {
     private boolean pushListenerThrowedRollBack = false;
     private long pushListenerWaitPeriodMs =
             TClientConstants.CFG_DEFAULT_PUSH_LISTENER_WAIT_PERIOD_MS;
+    // max data size in bytes of the message batches fetched ahead of the listeners
+    // in push mode, 0 means each batch is processed by the thread that fetched it
+    private long pushPrefetchBufferSize = 0;
     private boolean pullRebConfirmTimeoutRollBack = true;
     private long pullRebConfirmWaitPeriodMs =
             TClientConstants.CFG_DEFAULT_PULL_REB_CONFIRM_WAIT_PERIOD_MS;
@@ -122,6 +129,22 @@ public class ConsumerConfig extends TubeClientConfig {
         this.msgNotFoundWaitPeriodMs = msgNotFoundWaitPeriodMs;
     }
 
+    public int getLongPollWaitTimeMs() {
+        return longPollWaitTimeMs;
+    }
+
+    /**
+     * Set the max time the broker holds a get message request when no message is
+     * available. Only applies to pull and client-balance consumers; a push consumer
+     * would block one of its fetch threads per parked request, so it keeps polling
+     * with msgNotFoundWaitPeriodMs.
+     *
+     * @param longPollWaitTimeMs  the max wait time in milliseconds, 0 disables long-poll
+     */
+    public void setLongPollWaitTimeMs(int longPollWaitTimeMs) {
+        this.longPollWaitTimeMs = Math.max(0, longPollWaitTimeMs);
+    }
+
     public long getPullConsumeReadyWaitPeriodMs() {
         return pullConsumeReadyWaitPeriodMs;
     }
@@ -208,6 +231,18 @@ public class ConsumerConfig extends TubeClientConfig {
         this.pushListenerWaitPeriodMs = pushListenerWaitPeriodMs;
     }
 
+    public long getPushPrefetchBufferSize() {
+        return pushPrefetchBufferSize;
+    }
+
+    public void setPushPrefetchBufferSize(long pushPrefetchBufferSize) {
+        this.pushPrefetchBufferSize = Math.max(0, pushPrefetchBufferSize);
+    }
+
+    public boolean isPushPrefetchEnable() {
+        return pushPrefetchBufferSize > 0;
+    }
+
     public boolean isPullRebConfirmTimeoutRollBack() {
         return pullRebConfirmTimeoutRollBack;
     }
@@ -274,11 +309,13 @@ public class ConsumerConfig extends TubeClientConfig {
                 .append("\",\"maxSubInfoReportIntvlTimes\":").append(this.maxSubInfoReportIntvlTimes)
                 .append(",\"consumePosition\":").append(this.consumePosition)
                 .append(",\"msgNotFoundWaitPeriodMs\":").append(this.msgNotFoundWaitPeriodMs)
+                .append(",\"longPollWaitTimeMs\":").append(this.longPollWaitTimeMs)
                 .append(",\"shutDownRebalanceWaitPeriodMs\":").append(this.shutDownRebalanceWaitPeriodMs)
                 .append(",\"pushFetchThreadCnt\":").append(this.pushFetchThreadCnt)
                 .append(",\"pushListenerWaitTimeoutRollBack\":").append(this.pushListenerWaitTimeoutRollBack)
                 .append(",\"pushListenerThrowedRollBack\":").append(this.pushListenerThrowedRollBack)
                 .append(",\"pushListenerWaitPeriodMs\":").append(this.pushListenerWaitPeriodMs)
+                .append(",\"pushPrefetchBufferSize\":").append(this.pushPrefetchBufferSize)
                 .append(",\"pullRebConfirmTimeoutRollBack\":").append(this.pullRebConfirmTimeoutRollBack)
                 .append(",\"pullConfirmWaitPeriodMs\":").append(this.pullRebConfirmWaitPeriodMs)
                 .append(",\"pullProtectConfirmTimeoutPeriodMs\":").append(this.pullProtectConfirmTimeoutMs)
@@ -21,6 +21,8 @@ import org.apache.inlong.tubemq.client.common.TClientConstants;
 import org.apache.inlong.tubemq.corebase.cluster.MasterInfo;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
+import org.apache.inlong.tubemq.corebase.utils.MessageCompressUtils;
+import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 
@@ -38,6 +40,15 @@ public class TubeClientConfig {
     private int rpcNettyWorkMemorySize = RpcConstants.CFG_DEFAULT_TOTAL_MEM_SIZE;
     // The size of the thread pool, which handles the call back response.
     private int rpcRspCallBackThreadCnt = RpcConstants.CFG_DEFAULT_RSP_CALLBACK_WORKER_COUNT;
+    // Whether to pipeline the requests of a connection, coalescing their writes.
+    private boolean rpcPipeliningEnable = false;
+    // Max in-flight request count of a connection in pipelining mode.
+    private int rpcMaxInflightRequests = RpcConstants.CFG_DEFAULT_CLIENT_MAX_INFLIGHT;
+    // Connection count to each broker.
+    private int rpcConnCntPerBroker = RpcConstants.CFG_DEFAULT_CLIENT_CONNECTIONS_PER_HOST;
+    // Whether to send a request on the connection with the least in-flight requests,
+    // otherwise the connections are used in turn.
+    private boolean rpcConnSelectLeastInflight = false;
     // High watermark of the netty write buffer.
     private long nettyWriteBufferHighWaterMark = RpcConstants.CFG_DEFAULT_NETTY_WRITEBUFFER_HIGH_MARK;
     // Low watermark of the netty write buffer.
@@ -83,6 +94,18 @@ public class TubeClientConfig {
     private long linkMaxAllowedDelayedMsgCount = 50000;
     // Max allowed delayed message number in a session.
     private long sessionMaxAllowedDelayedMsgCount = 500000;
+    // Max total data size of a batch in batch send, a full batch is sent at once.
+    private int batchSendMaxSize = TClientConstants.CFG_DEFAULT_BATCH_SEND_MAX_SIZE;
+    // Max message count of a batch in batch send.
+    private int batchSendMaxMsgCount = TClientConstants.CFG_DEFAULT_BATCH_SEND_MAX_MSG_COUNT;
+    // Max time a not full batch waits for more messages before being sent.
+    private long batchSendLingerMs = TClientConstants.CFG_DEFAULT_BATCH_SEND_LINGER_MS;
+    // Compress type of sent message payloads, see MessageFlagUtils.COMPRESS_TYPE_XXX.
+    // Consumers must be able to decompress the payloads before it is enabled.
+    private int msgCompressType = MessageFlagUtils.COMPRESS_TYPE_NONE;
+    // Payloads smaller than this size are sent without compression, for a batch
+    // the size of its messages packed together counts.
+    private int msgCompressMinSize = TClientConstants.CFG_DEFAULT_MSG_COMPRESS_MIN_SIZE;
     // Enable user auth.
     private boolean enableUserAuthentic = false;
     // User name.
@@ -205,6 +228,47 @@ public class TubeClientConfig {
         }
     }
 
+    public boolean isRpcPipeliningEnable() {
+        return rpcPipeliningEnable;
+    }
+
+    public void setRpcPipeliningEnable(boolean rpcPipeliningEnable) {
+        this.rpcPipeliningEnable = rpcPipeliningEnable;
+    }
+
+    public int getRpcMaxInflightRequests() {
+        return rpcMaxInflightRequests;
+    }
+
+    public void setRpcMaxInflightRequests(int rpcMaxInflightRequests) {
+        if (rpcMaxInflightRequests <= 0) {
+            this.rpcMaxInflightRequests = RpcConstants.CFG_DEFAULT_CLIENT_MAX_INFLIGHT;
+        } else {
+            this.rpcMaxInflightRequests = rpcMaxInflightRequests;
+        }
+    }
+
+    public int getRpcConnCntPerBroker() {
+        return rpcConnCntPerBroker;
+    }
+
+    public void setRpcConnCntPerBroker(int rpcConnCntPerBroker) {
+        if (rpcConnCntPerBroker <= 0) {
+            this.rpcConnCntPerBroker = RpcConstants.CFG_DEFAULT_CLIENT_CONNECTIONS_PER_HOST;
+        } else {
+            this.rpcConnCntPerBroker = Math.min(rpcConnCntPerBroker,
+                    RpcConstants.CFG_MAX_CLIENT_CONNECTIONS_PER_HOST);
+        }
+    }
+
+    public boolean isRpcConnSelectLeastInflight() {
+        return rpcConnSelectLeastInflight;
+    }
+
+    public void setRpcConnSelectLeastInflight(boolean rpcConnSelectLeastInflight) {
+        this.rpcConnSelectLeastInflight = rpcConnSelectLeastInflight;
+    }
+
     public long getNettyWriteBufferHighWaterMark() {
         return this.nettyWriteBufferHighWaterMark;
     }
@@ -364,6 +428,57 @@ public class TubeClientConfig {
         this.sessionMaxAllowedDelayedMsgCount = sessionMaxAllowedDelayedMsgCount;
     }
 
+    public int getBatchSendMaxSize() {
+        return batchSendMaxSize;
+    }
+
+    public void setBatchSendMaxSize(int batchSendMaxSize) {
+        if (batchSendMaxSize <= 0) {
+            throw new IllegalArgumentException("Illegal parameter: batchSendMaxSize must be positive!");
+        }
+        this.batchSendMaxSize = batchSendMaxSize;
+    }
+
+    public int getBatchSendMaxMsgCount() {
+        return batchSendMaxMsgCount;
+    }
+
+    public void setBatchSendMaxMsgCount(int batchSendMaxMsgCount) {
+        if (batchSendMaxMsgCount <= 0) {
+            throw new IllegalArgumentException("Illegal parameter: batchSendMaxMsgCount must be positive!");
+        }
+        this.batchSendMaxMsgCount = batchSendMaxMsgCount;
+    }
+
+    public long getBatchSendLingerMs() {
+        return batchSendLingerMs;
+    }
+
+    public void setBatchSendLingerMs(long batchSendLingerMs) {
+        this.batchSendLingerMs = Math.max(0L, batchSendLingerMs);
+    }
+
+    public int getMsgCompressType() {
+        return msgCompressType;
+    }
+
+    public void setMsgCompressType(int msgCompressType) {
+        if (!MessageCompressUtils.isSupported(msgCompressType)) {
+            throw new IllegalArgumentException(new StringBuilder(128)
+                    .append("Illegal parameter: unsupported msgCompressType ")
+                    .append(msgCompressType).toString());
+        }
+        this.msgCompressType = msgCompressType;
+    }
+
+    public int getMsgCompressMinSize() {
+        return msgCompressMinSize;
+    }
+
+    public void setMsgCompressMinSize(int msgCompressMinSize) {
+        this.msgCompressMinSize = Math.max(0, msgCompressMinSize);
+    }
+
     public void setAuthenticInfo(boolean needAuthentic,
                                  String usrName,
                                  String usrPassWord) {
@@ -472,6 +587,18 @@ public class TubeClientConfig {
         if (rpcRspCallBackThreadCnt != that.rpcRspCallBackThreadCnt) {
             return false;
         }
+        if (rpcPipeliningEnable != that.rpcPipeliningEnable) {
+            return false;
+        }
+        if (rpcMaxInflightRequests != that.rpcMaxInflightRequests) {
+            return false;
+        }
+        if (rpcConnCntPerBroker != that.rpcConnCntPerBroker) {
+            return false;
+        }
+        if (rpcConnSelectLeastInflight != that.rpcConnSelectLeastInflight) {
+            return false;
+        }
         if (nettyWriteBufferHighWaterMark != that.nettyWriteBufferHighWaterMark) {
             return false;
         }
@@ -529,6 +656,21 @@ public class TubeClientConfig {
         if (sessionMaxAllowedDelayedMsgCount != that.sessionMaxAllowedDelayedMsgCount) {
             return false;
         }
+        if (batchSendMaxSize != that.batchSendMaxSize) {
+            return false;
+        }
+        if (batchSendMaxMsgCount != that.batchSendMaxMsgCount) {
+            return false;
+        }
+        if (batchSendLingerMs != that.batchSendLingerMs) {
+            return false;
+        }
+        if (msgCompressType != that.msgCompressType) {
+            return false;
+        }
+        if (msgCompressMinSize != that.msgCompressMinSize) {
+            return false;
+        }
         if (enableUserAuthentic != that.enableUserAuthentic) {
             return false;
         }
@@ -564,6 +706,10 @@ public class TubeClientConfig {
             .append(",\"rpcConnProcessorCnt\":").append(this.rpcConnProcessorCnt)
             .append(",\"rpcNettyWorkMemorySize\":").append(this.rpcNettyWorkMemorySize)
             .append(",\"rpcRspCallBackThreadCnt\":").append(this.rpcRspCallBackThreadCnt)
+            .append(",\"rpcPipeliningEnable\":").append(this.rpcPipeliningEnable)
+            .append(",\"rpcMaxInflightRequests\":").append(this.rpcMaxInflightRequests)
+            .append(",\"rpcConnCntPerBroker\":").append(this.rpcConnCntPerBroker)
+            .append(",\"rpcConnSelectLeastInflight\":").append(this.rpcConnSelectLeastInflight)
             .append(",\"nettyWriteBufferHighWaterMark\":").append(this.nettyWriteBufferHighWaterMark)
             .append(",\"nettyWriteBufferLowWaterMark\":").append(this.nettyWriteBufferLowWaterMark)
             .append(",\"maxRegisterRetryTimes\":").append(this.maxRegisterRetryTimes)
@@ -582,6 +728,11 @@ public class TubeClientConfig {
             .append(",\"sessionWarnDelayedMsgCount\":").append(this.sessionWarnDelayedMsgCount)
             .append(",\"linkMaxAllowedDelayedMsgCount\":").append(this.linkMaxAllowedDelayedMsgCount)
             .append(",\"sessionMaxAllowedDelayedMsgCount\":").append(this.sessionMaxAllowedDelayedMsgCount)
+            .append(",\"batchSendMaxSize\":").append(this.batchSendMaxSize)
+            .append(",\"batchSendMaxMsgCount\":").append(this.batchSendMaxMsgCount)
+            .append(",\"batchSendLingerMs\":").append(this.batchSendLingerMs)
+            .append(",\"msgCompressType\":").append(this.msgCompressType)
+            .append(",\"msgCompressMinSize\":").append(this.msgCompressMinSize)
             .append(",\"unAvailableFbdDurationMs\":").append(this.unAvailableFbdDurationMs)
             .append(",\"enableUserAuthentic\":").append(this.enableUserAuthentic)
             .append(",\"usrName\":\"").append(this.usrName)
@@ -54,6 +54,14 @@ public class TubeClientConfigUtils {
         }
         config.put(RpcConstants.CALLBACK_WORKER_COUNT,
                 tubeClientConfig.getRpcRspCallBackThreadCnt());
+        config.put(RpcConstants.NETTY_CLIENT_PIPELINING_ENABLE,
+                tubeClientConfig.isRpcPipeliningEnable());
+        config.put(RpcConstants.NETTY_CLIENT_MAX_INFLIGHT,
+                tubeClientConfig.getRpcMaxInflightRequests());
+        config.put(RpcConstants.NETTY_CLIENT_CONNECTIONS_PER_HOST,
+                tubeClientConfig.getRpcConnCntPerBroker());
+        config.put(RpcConstants.NETTY_CLIENT_SELECT_LEAST_INFLIGHT,
+                tubeClientConfig.isRpcConnSelectLeastInflight());
         return config;
     }
 }
@@ -151,6 +151,10 @@ public class BaseMessageConsumer implements MessageConsumer {
                 "tube_consumer_netty_worker-");
         this.rpcConfig.put(RpcConstants.CALLBACK_WORKER_COUNT,
                 this.consumerConfig.getRpcRspCallBackThreadCnt());
+        this.rpcConfig.put(RpcConstants.NETTY_CLIENT_PIPELINING_ENABLE,
+                this.consumerConfig.isRpcPipeliningEnable());
+        this.rpcConfig.put(RpcConstants.NETTY_CLIENT_MAX_INFLIGHT,
+                this.consumerConfig.getRpcMaxInflightRequests());
         this.masterService =
                 rpcServiceFactory.getFailoverService(MasterService.class,
                         this.consumerConfig.getMasterInfo(), this.rpcConfig);
@@ -770,6 +774,11 @@ public class BaseMessageConsumer implements MessageConsumer {
         builder.setPartitionId(partition.getPartitionId());
         builder.setLastPackConsumed(isLastConsumed);
         builder.setManualCommitOffset(false);
+        // a push consumer fetches with the synchronous call on its fetch threads,
+        // a parked request would hold the fetch thread, so only pull consumers long-poll
+        if (this.isPullConsume && this.consumerConfig.getLongPollWaitTimeMs() > 0) {
+            builder.setMaxWaitTimeMs(this.consumerConfig.getLongPollWaitTimeMs());
+        }
         return builder.build();
     }
 
@@ -1306,7 +1315,9 @@ public class BaseMessageConsumer implements MessageConsumer {
                             break;
                         }
                         case TErrCodeConstants.NOT_FOUND: {
-                            limitDlt = consumerConfig.getMsgNotFoundWaitPeriodMs();
+                            // the broker has waited for new messages, request again at once
+                            limitDlt = (msgRspB2C.hasLongPolled() && msgRspB2C.getLongPolled())
+                                    ? 0 : consumerConfig.getMsgNotFoundWaitPeriodMs();
                             break;
                         }
                         default: {
@@ -28,11 +28,17 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Fetch messages with multiple threads.
+ *
+ * With a prefetch buffer, the fetch workers put the fetched batches into the
+ * buffer and go on fetching other partitions, while the process workers take
+ * the batches from the buffer and notify the listeners, so that the fetch round
+ * trips overlap with the processing of the messages.
  */
 public class MessageFetchManager {
 
     private static final Logger logger =
             LoggerFactory.getLogger(MessageFetchManager.class);
+    private static final long WAIT_SLICE_MS = 100L;
     private final ConcurrentHashMap<Long, Integer> fetchWorkerStatusMap =
             new ConcurrentHashMap<>();
     private final ConsumerConfig consumerConfig;
@@ -43,11 +49,19 @@ public class MessageFetchManager {
     // 1: Started
     private AtomicInteger managerStatus = new AtomicInteger(-1);
     private Thread[] fetchWorkerPool;
+    // the fetched batches waiting to be processed, null if prefetch is disabled
+    private final PrefetchBuffer prefetchBuffer;
 
     public MessageFetchManager(final ConsumerConfig consumerConfig,
                                final SimplePushMessageConsumer pushConsumer) {
         this.consumerConfig = consumerConfig;
         this.pushConsumer = pushConsumer;
+        if (consumerConfig.isPushPrefetchEnable()) {
+            this.prefetchBuffer =
+                    new PrefetchBuffer(consumerConfig.getPushPrefetchBufferSize());
+        } else {
+            this.prefetchBuffer = null;
+        }
     }
 
     /**
@@ -66,18 +80,25 @@ public class MessageFetchManager {
         }
         StringBuilder sBuilder = new StringBuilder(256);
         logger.info("Starting Fetch Worker Pool !");
-        this.fetchWorkerPool =
-                new Thread[this.consumerConfig.getPushFetchThreadCnt()];
+        final int fetchThreadCnt = this.consumerConfig.getPushFetchThreadCnt();
+        this.fetchWorkerPool = (prefetchBuffer == null)
+                ? new Thread[fetchThreadCnt] : new Thread[fetchThreadCnt * 2];
         logger.info(sBuilder
                 .append("Prepare to start Fetch Worker Pool, total count:")
                 .append(fetchWorkerPool.length).toString());
         sBuilder.delete(0, sBuilder.length());
         for (int i = 0; i < this.fetchWorkerPool.length; i++) {
-            this.fetchWorkerPool[i] = new Thread(new FetchTaskWorker());
+            if (i < fetchThreadCnt) {
+                this.fetchWorkerPool[i] = new Thread(new FetchTaskWorker());
+                sBuilder.append("Fetch_Worker_");
+            } else {
+                this.fetchWorkerPool[i] = new Thread(new ProcessTaskWorker());
+                sBuilder.append("Process_Worker_");
+            }
             this.fetchWorkerStatusMap.put(this.fetchWorkerPool[i].getId(), -1);
-            this.fetchWorkerPool[i].setName(sBuilder.append("Fetch_Worker_")
+            this.fetchWorkerPool[i].setName(sBuilder
                     .append(this.consumerConfig.getConsumerGroup())
-                    .append("-").append(i).toString());
+                    .append("-").append(i % fetchThreadCnt).toString());
             sBuilder.delete(0, sBuilder.length());
         }
         for (final Thread thread : this.fetchWorkerPool) {
@@ -133,6 +154,14 @@ public class MessageFetchManager {
                 }
             }
         }
+        // release the batches left in the buffer after all the workers exit
+        if (prefetchBuffer != null) {
+            FetchContext taskContext;
+            while ((taskContext = prefetchBuffer.poll(0)) != null) {
+                this.pushConsumer.processFetchedRequest(
+                        taskContext, System.currentTimeMillis(), sBuilder);
+            }
+        }
         this.pushConsumer
                 .getBaseConsumer().notifyAllMessageListenerStopped();
         Thread.sleep(200);
@@ -172,6 +201,11 @@ public class MessageFetchManager {
                     }
                     fetchWorkerStatusMap.put(curThreadId, 1);
                     MessageFetchManager.this.pushConsumer.allowConsumeWait();
+                    // stop fetching ahead while the buffer is full
+                    if (prefetchBuffer != null
+                            && !prefetchBuffer.waitForSpace(WAIT_SLICE_MS)) {
+                        continue;
+                    }
                     partSelectResult =
                             MessageFetchManager.this.pushConsumer
                                     .getBaseConsumer().pushSelectPartition();
@@ -215,8 +249,49 @@ public class MessageFetchManager {
                 }
                 fetchWorkerStatusMap.put(curThreadId, 2);
                 if (partSelectResult != null) {
-                    MessageFetchManager.this.pushConsumer.processRequest(
-                            partSelectResult, sBuilder);
+                    if (prefetchBuffer == null) {
+                        MessageFetchManager.this.pushConsumer.processRequest(
+                                partSelectResult, sBuilder);
+                    } else {
+                        FetchContext taskContext =
+                                MessageFetchManager.this.pushConsumer.fetchRequest(
+                                        partSelectResult, sBuilder);
+                        if (taskContext != null) {
+                            prefetchBuffer.put(taskContext);
+                        }
+                    }
+                }
+            }
+            fetchWorkerStatusMap.remove(curThreadId);
+        }
+    }
+
+    private class ProcessTaskWorker implements Runnable {
+        @Override
+        public void run() {
+            StringBuilder sBuilder = new StringBuilder(256);
+            final Long curThreadId = Thread.currentThread().getId();
+            fetchWorkerStatusMap.put(curThreadId, 0);
+            // the batches put after the process workers exit are released
+            // when the fetch workers are stopped
+            while (!isShutdown() || !prefetchBuffer.isEmpty()) {
+                FetchContext taskContext = null;
+                fetchWorkerStatusMap.put(curThreadId, 1);
+                try {
+                    if (!isShutdown()) {
+                        MessageFetchManager.this.pushConsumer.allowConsumeWait();
+                    }
+                    taskContext = prefetchBuffer.poll(WAIT_SLICE_MS);
+                } catch (Throwable e) {
+                    sBuilder.delete(0, sBuilder.length());
+                    logger.warn(sBuilder.append("Thread {} has been interrupted 4.")
+                            .append(Thread.currentThread().getName()).toString());
+                    sBuilder.delete(0, sBuilder.length());
+                }
+                fetchWorkerStatusMap.put(curThreadId, 2);
+                if (taskContext != null) {
+                    MessageFetchManager.this.pushConsumer.processFetchedRequest(
+                            taskContext, System.currentTimeMillis(), sBuilder);
                 }
             }
             fetchWorkerStatusMap.remove(curThreadId);
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.consumer;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.inlong.tubemq.corebase.Message;
+
+/**
+ * The fetched message batches waiting to be processed, bounded by their data size.
+ *
+ * A partition has at most one batch in the buffer, as the partition is only
+ * released to be fetched again after its batch has been processed.
+ */
+class PrefetchBuffer {
+
+    private final long maxBufferSize;
+    private final LinkedBlockingQueue<FetchContext> fetchedQueue =
+            new LinkedBlockingQueue<>();
+    private final AtomicLong bufferedSize = new AtomicLong(0);
+    private final Object spaceLock = new Object();
+
+    /**
+     * @param maxBufferSize  the max data size in bytes of the buffered batches
+     */
+    PrefetchBuffer(long maxBufferSize) {
+        this.maxBufferSize = maxBufferSize;
+    }
+
+    /**
+     * Wait until the buffered data size falls below the max size
+     *
+     * @param waitTimeMs  the max wait time in milliseconds
+     * @return true if there is free space
+     * @throws InterruptedException
+     */
+    boolean waitForSpace(long waitTimeMs) throws InterruptedException {
+        if (bufferedSize.get() < maxBufferSize) {
+            return true;
+        }
+        synchronized (spaceLock) {
+            if (bufferedSize.get() >= maxBufferSize) {
+                spaceLock.wait(waitTimeMs);
+            }
+        }
+        return bufferedSize.get() < maxBufferSize;
+    }
+
+    /**
+     * Add a fetched batch, the size of the buffer may exceed the max size
+     * by the batches fetched while waiting for space
+     *
+     * @param fetchContext  the fetched batch
+     */
+    void put(FetchContext fetchContext) {
+        bufferedSize.addAndGet(getDataSize(fetchContext));
+        fetchedQueue.offer(fetchContext);
+    }
+
+    /**
+     * Take the oldest fetched batch
+     *
+     * @param waitTimeMs  the max wait time in milliseconds
+     * @return the fetched batch, or null if there is none in the wait time
+     * @throws InterruptedException
+     */
+    FetchContext poll(long waitTimeMs) throws InterruptedException {
+        FetchContext fetchContext =
+                fetchedQueue.poll(waitTimeMs, TimeUnit.MILLISECONDS);
+        if (fetchContext != null
+                && bufferedSize.addAndGet(-getDataSize(fetchContext)) < maxBufferSize) {
+            synchronized (spaceLock) {
+                spaceLock.notifyAll();
+            }
+        }
+        return fetchContext;
+    }
+
+    boolean isEmpty() {
+        return fetchedQueue.isEmpty();
+    }
+
+    int size() {
+        return fetchedQueue.size();
+    }
+
+    long getBufferedSize() {
+        return bufferedSize.get();
+    }
+
+    private static long getDataSize(FetchContext fetchContext) {
+        long dataSize = 0;
+        if (fetchContext.getMessageList() != null) {
+            for (Message message : fetchContext.getMessageList()) {
+                dataSize += message.getData().length;
+            }
+        }
+        return dataSize;
+    }
+}
@@ -133,6 +133,10 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
                 "tube_consumer_netty_worker-");
         this.rpcConfig.put(RpcConstants.CALLBACK_WORKER_COUNT,
                 this.consumerConfig.getRpcRspCallBackThreadCnt());
+        this.rpcConfig.put(RpcConstants.NETTY_CLIENT_PIPELINING_ENABLE,
+                this.consumerConfig.isRpcPipeliningEnable());
+        this.rpcConfig.put(RpcConstants.NETTY_CLIENT_MAX_INFLIGHT,
+                this.consumerConfig.getRpcMaxInflightRequests());
         this.masterService =
                 rpcServiceFactory.getFailoverService(MasterService.class,
                         this.consumerConfig.getMasterInfo(), this.rpcConfig);
@@ -793,7 +797,9 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
                             break;
                         }
                         case TErrCodeConstants.NOT_FOUND: {
-                            limitDlt = consumerConfig.getMsgNotFoundWaitPeriodMs();
+                            // the broker has waited for new messages, request again at once
+                            limitDlt = (msgRspB2C.hasLongPolled() && msgRspB2C.getLongPolled())
+                                    ? 0 : consumerConfig.getMsgNotFoundWaitPeriodMs();
                             break;
                         }
                         default: {
@@ -1534,6 +1540,9 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
         builder.setPartitionId(partition.getPartitionId());
         builder.setLastPackConsumed(isLastConsumed);
         builder.setManualCommitOffset(false);
+        if (this.consumerConfig.getLongPollWaitTimeMs() > 0) {
+            builder.setMaxWaitTimeMs(this.consumerConfig.getLongPollWaitTimeMs());
+        }
         return builder.build();
     }
 
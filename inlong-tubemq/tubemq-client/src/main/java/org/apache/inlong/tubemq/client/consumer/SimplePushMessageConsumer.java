@@ -177,6 +177,22 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
      */
     protected void processRequest(PartitionSelectResult partSelectResult, final StringBuilder sBuilder) {
         final long startTime = System.currentTimeMillis();
+        FetchContext taskContext = fetchRequest(partSelectResult, sBuilder);
+        if (taskContext != null) {
+            processFetchedRequest(taskContext, startTime, sBuilder);
+        }
+    }
+
+    /**
+     * Fetch the messages of the selected partition.
+     *
+     * @param partSelectResult partition select result
+     * @param sBuilder         a string builder
+     * @return the fetch task context, or null if the fetch failed and
+     *         the partition has been released
+     */
+    protected FetchContext fetchRequest(PartitionSelectResult partSelectResult,
+                                        final StringBuilder sBuilder) {
         FetchContext taskContext =
                 baseConsumer.fetchMessage(partSelectResult, sBuilder);
         if (!taskContext.isSuccess()) {
@@ -186,8 +202,21 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
                         .append(taskContext.getErrMsg()).toString());
                 sBuilder.delete(0, sBuilder.length());
             }
-            return;
+            return null;
         }
+        return taskContext;
+    }
+
+    /**
+     * Notify the listener of the fetched messages, and release the partition
+     * with the consume result.
+     *
+     * @param taskContext fetch task context
+     * @param startTime   the time the processing of the request started
+     * @param sBuilder    a string builder
+     */
+    protected void processFetchedRequest(FetchContext taskContext,
+                                         long startTime, final StringBuilder sBuilder) {
         boolean isConsumed = false;
         if (!isShutdown()) {
             if (taskContext.getMessageList() == null
@@ -221,7 +250,7 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
             logger.info(sBuilder.append("Consuming Partition; current processing thread ")
                     .append(Thread.currentThread().getName())
                     .append("-->Process[")
-                    .append(partSelectResult.getPartition().toString())
+                    .append(taskContext.getPartition().toString())
                     .append("] cost:").append(cost).append(" Ms").toString());
             sBuilder.delete(0, sBuilder.length());
         }
@@ -0,0 +1,190 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+/**
+ * Accumulates messages into batches per partition. A batch is ready to be sent
+ * when it reaches the max size or message count, or has lingered for the linger time.
+ */
+public class MessageBatchAccumulator {
+    private final int maxBatchSize;
+    // capped by the max batch message count of the brokers
+    private int maxBatchMsgCount;
+    private final long lingerMs;
+    // partition key to the batch being accumulated
+    private final Map<String, MessageBatch> batchMap = new HashMap<>();
+
+    public MessageBatchAccumulator(int maxBatchSize, int maxBatchMsgCount, long lingerMs) {
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchMsgCount = maxBatchMsgCount;
+        this.lingerMs = lingerMs;
+    }
+
+    /**
+     * Add a message to the batch of its partition.
+     *
+     * @param partition  the partition the message is sent to
+     * @param message    the message
+     * @param msgSize    the encoded size of the message
+     * @param callback   the callback of the message
+     * @return the batches ready to be sent, empty if none
+     */
+    public synchronized List<MessageBatch> append(Partition partition, Message message,
+                                                  int msgSize, MessageSentCallback callback) {
+        List<MessageBatch> readyBatches = new ArrayList<>(2);
+        MessageBatch batch = batchMap.get(partition.getPartitionKey());
+        // the message can't join the current batch without exceeding the size
+        // or message count limit, the count limit may be capped by a broker after
+        // the batch was opened, so a batch over the capped count is split
+        if (batch != null
+                && (batch.getDataSize() + msgSize > maxBatchSize
+                        || batch.getMsgCount() >= maxBatchMsgCount)) {
+            batchMap.remove(partition.getPartitionKey());
+            splitByMsgCount(batch, readyBatches);
+            batch = null;
+        }
+        if (batch == null) {
+            batch = new MessageBatch(partition, System.currentTimeMillis());
+            batchMap.put(partition.getPartitionKey(), batch);
+        }
+        batch.add(message, msgSize, callback);
+        if (batch.getDataSize() >= maxBatchSize
+                || batch.getMsgCount() >= maxBatchMsgCount
+                || lingerMs <= 0) {
+            batchMap.remove(partition.getPartitionKey());
+            readyBatches.add(batch);
+        }
+        return readyBatches;
+    }
+
+    private void splitByMsgCount(MessageBatch batch, List<MessageBatch> readyBatches) {
+        if (batch.getMsgCount() <= maxBatchMsgCount) {
+            readyBatches.add(batch);
+            return;
+        }
+        MessageBatch subBatch = null;
+        for (int i = 0; i < batch.getMsgCount(); i++) {
+            if (subBatch == null || subBatch.getMsgCount() >= maxBatchMsgCount) {
+                subBatch = new MessageBatch(batch.getPartition(), batch.getCreateTime());
+                readyBatches.add(subBatch);
+            }
+            subBatch.add(batch.getMessages().get(i),
+                    batch.msgSizes.get(i), batch.getCallbacks().get(i));
+        }
+    }
+
+    /**
+     * Remove the batches that have lingered for the linger time.
+     *
+     * @param force  whether to remove all batches regardless of their age
+     * @return the batches ready to be sent
+     */
+    public synchronized List<MessageBatch> drainReady(boolean force) {
+        List<MessageBatch> readyBatches = new ArrayList<>();
+        long curTime = System.currentTimeMillis();
+        Iterator<MessageBatch> it = batchMap.values().iterator();
+        while (it.hasNext()) {
+            MessageBatch batch = it.next();
+            if (force || curTime - batch.getCreateTime() >= lingerMs) {
+                it.remove();
+                splitByMsgCount(batch, readyBatches);
+            }
+        }
+        return readyBatches;
+    }
+
+    /**
+     * Cap the max message count of a batch by the limit reported by a broker,
+     * the smallest limit of the brokers applies.
+     *
+     * @param brokerMaxMsgCount  the max message count of a batch allowed by a broker
+     */
+    public synchronized void capMaxBatchMsgCount(int brokerMaxMsgCount) {
+        if (brokerMaxMsgCount > 0 && brokerMaxMsgCount < maxBatchMsgCount) {
+            maxBatchMsgCount = brokerMaxMsgCount;
+        }
+    }
+
+    public synchronized int getMaxBatchMsgCount() {
+        return maxBatchMsgCount;
+    }
+
+    public synchronized int getBatchCount() {
+        return batchMap.size();
+    }
+
+    public long getLingerMs() {
+        return lingerMs;
+    }
+
+    /**
+     * Messages of a partition sent in one request.
+     */
+    public static class MessageBatch {
+        private final Partition partition;
+        private final long createTime;
+        private final List<Message> messages = new ArrayList<>();
+        private final List<MessageSentCallback> callbacks = new ArrayList<>();
+        private final List<Integer> msgSizes = new ArrayList<>();
+        private int dataSize = 0;
+
+        public MessageBatch(Partition partition, long createTime) {
+            this.partition = partition;
+            this.createTime = createTime;
+        }
+
+        public void add(Message message, int msgSize, MessageSentCallback callback) {
+            this.messages.add(message);
+            this.callbacks.add(callback);
+            this.msgSizes.add(msgSize);
+            this.dataSize += msgSize;
+        }
+
+        public Partition getPartition() {
+            return partition;
+        }
+
+        public long getCreateTime() {
+            return createTime;
+        }
+
+        public List<Message> getMessages() {
+            return messages;
+        }
+
+        public List<MessageSentCallback> getCallbacks() {
+            return callbacks;
+        }
+
+        public int getDataSize() {
+            return dataSize;
+        }
+
+        public int getMsgCount() {
+            return messages.size();
+        }
+    }
+}
@@ -38,6 +38,9 @@ public interface MessageProducer extends Shutdownable {
     void sendMessage(Message message, MessageSentCallback cb)
             throws TubeClientException, InterruptedException;
 
+    void sendMessageInBatch(Message message, MessageSentCallback cb)
+            throws TubeClientException, InterruptedException;
+
     @Override
     void shutdown() throws Throwable;
 }
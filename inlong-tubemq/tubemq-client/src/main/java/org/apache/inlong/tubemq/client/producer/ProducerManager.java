@@ -129,6 +129,10 @@ public class ProducerManager {
         rpcConfig.put(RpcConstants.WORKER_THREAD_NAME, "tube_netty_worker-");
         rpcConfig.put(RpcConstants.CALLBACK_WORKER_COUNT,
                 tubeClientConfig.getRpcRspCallBackThreadCnt());
+        rpcConfig.put(RpcConstants.NETTY_CLIENT_PIPELINING_ENABLE,
+                tubeClientConfig.isRpcPipeliningEnable());
+        rpcConfig.put(RpcConstants.NETTY_CLIENT_MAX_INFLIGHT,
+                tubeClientConfig.getRpcMaxInflightRequests());
         heartBeatStatus.set(0);
         this.masterService =
                 this.rpcServiceFactory.getFailoverService(MasterService.class,
@@ -337,6 +341,17 @@ public class ProducerManager {
      */
     public ClientBroker.SendMessageRequestP2B.Builder setAuthorizedTokenInfo(
             ClientBroker.SendMessageRequestP2B.Builder builder) {
+        builder.setAuthInfo(buildAuthorizedInfo());
+        return builder;
+    }
+
+    public ClientBroker.SendBatchMessageRequestP2B.Builder setAuthorizedTokenInfo(
+            ClientBroker.SendBatchMessageRequestP2B.Builder builder) {
+        builder.setAuthInfo(buildAuthorizedInfo());
+        return builder;
+    }
+
+    private ClientBroker.AuthorizedInfo buildAuthorizedInfo() {
         ClientBroker.AuthorizedInfo.Builder authInfoBuilder =
                 ClientBroker.AuthorizedInfo.newBuilder();
         authInfoBuilder.setVisitAuthorizedToken(this.visitToken.get());
@@ -344,8 +359,7 @@ public class ProducerManager {
         if (TStringUtils.isNotBlank(authAuthorizedToken)) {
             authInfoBuilder.setAuthAuthorizedToken(authAuthorizedToken);
         }
-        builder.setAuthInfo(authInfoBuilder.build());
-        return builder;
+        return authInfoBuilder.build();
     }
 
     /**
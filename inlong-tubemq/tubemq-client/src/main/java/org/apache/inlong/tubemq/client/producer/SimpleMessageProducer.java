@@ -24,11 +24,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.codec.binary.StringUtils;
 import org.apache.inlong.tubemq.client.config.TubeClientConfig;
 import org.apache.inlong.tubemq.client.exception.TubeClientException;
 import org.apache.inlong.tubemq.client.factory.InnerSessionFactory;
+import org.apache.inlong.tubemq.client.producer.MessageBatchAccumulator.MessageBatch;
 import org.apache.inlong.tubemq.client.producer.qltystats.DefaultBrokerRcvQltyStats;
 import org.apache.inlong.tubemq.corebase.Message;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
@@ -37,6 +42,7 @@ import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
+import org.apache.inlong.tubemq.corebase.utils.MessageCompressUtils;
 import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.corerpc.RpcConfig;
@@ -63,6 +69,9 @@ public class SimpleMessageProducer implements MessageProducer {
     private final PartitionRouter partitionRouter;
     private final DefaultBrokerRcvQltyStats brokerRcvQltyStats;
     private final RpcConfig rpcConfig = new RpcConfig();
+    private final MessageBatchAccumulator batchAccumulator;
+    // sends the batches that have lingered enough, started by the first batch send
+    private ScheduledExecutorService batchLingerExecutor = null;
     private AtomicBoolean isShutDown = new AtomicBoolean(false);
 
     public SimpleMessageProducer(final InnerSessionFactory sessionFactory,
@@ -79,6 +88,10 @@ public class SimpleMessageProducer implements MessageProducer {
         this.producerManager = this.sessionFactory.getProducerManager();
         this.brokerRcvQltyStats = sessionFactory.getBrokerRcvQltyStats();
         this.partitionRouter = new RoundRobinPartitionRouter();
+        this.batchAccumulator = new MessageBatchAccumulator(
+            tubeClientConfig.getBatchSendMaxSize(),
+            tubeClientConfig.getBatchSendMaxMsgCount(),
+            tubeClientConfig.getBatchSendLingerMs());
         this.rpcConfig.put(RpcConstants.CONNECT_TIMEOUT, 3000);
         this.rpcConfig.put(RpcConstants.REQUEST_TIMEOUT,
             tubeClientConfig.getRpcTimeoutMs());
@@ -94,6 +107,10 @@ public class SimpleMessageProducer implements MessageProducer {
             tubeClientConfig.getRpcNettyWorkMemorySize());
         this.rpcConfig.put(RpcConstants.CALLBACK_WORKER_COUNT,
             tubeClientConfig.getRpcRspCallBackThreadCnt());
+        this.rpcConfig.put(RpcConstants.NETTY_CLIENT_PIPELINING_ENABLE,
+            tubeClientConfig.isRpcPipeliningEnable());
+        this.rpcConfig.put(RpcConstants.NETTY_CLIENT_MAX_INFLIGHT,
+            tubeClientConfig.getRpcMaxInflightRequests());
     }
 
     /**
@@ -190,6 +207,15 @@ public class SimpleMessageProducer implements MessageProducer {
             return;
         }
         if (this.isShutDown.compareAndSet(false, true)) {
+            // send the messages still waiting in batches
+            synchronized (this) {
+                if (this.batchLingerExecutor != null) {
+                    this.batchLingerExecutor.shutdownNow();
+                }
+            }
+            for (MessageBatch batch : this.batchAccumulator.drainReady(true)) {
+                sendMessageBatch(batch);
+            }
             this.producerManager.removeTopic(publishTopicMap.keySet());
             this.publishTopicMap.clear();
             this.sessionFactory.removeClient(this);
@@ -277,6 +303,136 @@ public class SimpleMessageProducer implements MessageProducer {
         }
     }
 
+    /**
+     * Send a message asynchronously in batch mode. Messages to the same partition are
+     * accumulated and sent in one request when the batch reaches batchSendMaxSize or
+     * batchSendMaxMsgCount, or has waited for batchSendLingerMs.
+     *
+     * @param message  the message to send
+     * @param cb       the callback of the message's send result
+     * @throws TubeClientException
+     * @throws InterruptedException
+     */
+    @Override
+    public void sendMessageInBatch(final Message message,
+                                   final MessageSentCallback cb) throws TubeClientException,
+            InterruptedException {
+        checkMessageAndStatus(message);
+        if (cb == null) {
+            throw new TubeClientException("Illegal parameter: null callback!");
+        }
+        final Partition partition =
+                this.selectPartition(message, BrokerWriteService.AsyncService.class);
+        int msgSize = TStringUtils.isBlank(message.getAttribute())
+                ? message.getData().length : (message.getData().length + message.getAttribute().length());
+        startBatchLingerExecutor();
+        for (MessageBatch batch : this.batchAccumulator.append(partition, message, msgSize, cb)) {
+            sendMessageBatch(batch);
+        }
+    }
+
+    /**
+     * Send the messages accumulated in batches immediately.
+     */
+    public void flushMessageBatches() {
+        for (MessageBatch batch : this.batchAccumulator.drainReady(true)) {
+            sendMessageBatch(batch);
+        }
+    }
+
+    private void startBatchLingerExecutor() {
+        if (this.batchAccumulator.getLingerMs() <= 0) {
+            return;
+        }
+        synchronized (this) {
+            if (this.batchLingerExecutor != null || isShutDown.get()) {
+                return;
+            }
+            this.batchLingerExecutor =
+                    Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "tube_producer_batch_linger");
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            long checkPeriodMs = Math.max(1L, this.batchAccumulator.getLingerMs() / 2);
+            this.batchLingerExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (MessageBatch batch : batchAccumulator.drainReady(false)) {
+                            sendMessageBatch(batch);
+                        }
+                    } catch (Throwable e) {
+                        logger.warn("[Batch Send] send lingered message batches failure", e);
+                    }
+                }
+            }, checkPeriodMs, checkPeriodMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sendMessageBatch(final MessageBatch batch) {
+        final Partition partition = batch.getPartition();
+        final int brokerId = partition.getBrokerId();
+        try {
+            this.brokerRcvQltyStats.addSendStatistic(brokerId);
+            // the index of the request item each message is sent in
+            final int[] msgItemIndexes = new int[batch.getMessages().size()];
+            getAsyncBrokerService(partition.getBroker()).sendBatchMessageP2B(
+                    createSendBatchMessageRequest(batch, msgItemIndexes),
+                    AddressUtils.getLocalAddress(), producerConfig.isTlsEnable(),
+                    new Callback() {
+                        @Override
+                        public void handleResult(Object result) {
+                            if (!(result instanceof ClientBroker.SendBatchMessageResponseB2P)) {
+                                return;
+                            }
+                            final ClientBroker.SendBatchMessageResponseB2P responseB2P =
+                                    (ClientBroker.SendBatchMessageResponseB2P) result;
+                            partition.resetRetries();
+                            if (responseB2P.hasMaxBatchMsgCnt()) {
+                                batchAccumulator.capMaxBatchMsgCount(
+                                        responseB2P.getMaxBatchMsgCnt());
+                            }
+                            brokerRcvQltyStats.addReceiveStatistic(brokerId,
+                                    responseB2P.getSuccess());
+                            if (!responseB2P.getSuccess()
+                                && responseB2P.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
+                                rpcServiceFactory.addUnavailableBroker(brokerId);
+                            }
+                            List<Message> messages = batch.getMessages();
+                            List<MessageSentCallback> callbacks = batch.getCallbacks();
+                            for (int i = 0; i < messages.size(); i++) {
+                                callbacks.get(i).onMessageSent(
+                                        buildMsgSentResult(messages.get(i),
+                                                partition, responseB2P, msgItemIndexes[i]));
+                            }
+                        }
+
+                        @Override
+                        public void handleError(Throwable error) {
+                            partition.increRetries(1);
+                            brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+                            for (MessageSentCallback cb : batch.getCallbacks()) {
+                                cb.onException(error);
+                            }
+                        }
+                    });
+            rpcServiceFactory.resetRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+        } catch (final Throwable e) {
+            if (e instanceof LocalConnException) {
+                rpcServiceFactory.addRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+            }
+            partition.increRetries(1);
+            this.brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+            for (MessageSentCallback cb : batch.getCallbacks()) {
+                cb.onException(e);
+            }
+        }
+    }
+
     private void checkMessageAndStatus(final Message message) throws TubeClientException {
         if (message == null) {
             throw new TubeClientException("Illegal parameter: null message package!");
@@ -319,8 +475,12 @@ public class SimpleMessageProducer implements MessageProducer {
         builder.setClientId(this.producerManager.getProducerId());
         builder.setTopicName(partition.getTopic());
         builder.setPartitionId(partition.getPartitionId());
-        builder.setData(ByteString.copyFrom(encodePayload(message)));
-        builder.setFlag(MessageFlagUtils.getFlag(message));
+        final byte[] payload = encodePayload(message);
+        final byte[] sentPayload = compressPayload(payload);
+        builder.setData(ByteString.copyFrom(sentPayload));
+        builder.setFlag(sentPayload == payload ? MessageFlagUtils.getFlag(message)
+                : MessageFlagUtils.setCompressType(MessageFlagUtils.getFlag(message),
+                producerConfig.getMsgCompressType()));
         builder.setSentAddr(this.producerManager.getProducerAddrId());
         builder.setCheckSum(-1);
         if (TStringUtils.isNotBlank(message.getMsgType())) {
@@ -333,6 +493,137 @@ public class SimpleMessageProducer implements MessageProducer {
         return builder.build();
     }
 
+    /**
+     * Build the request of a batch. With compression enabled, the consecutive messages
+     * with the same message type and time are packed into one item and compressed
+     * together, as they are filtered together by the broker. The other messages are
+     * sent in their own items.
+     *
+     * @param batch           the batch to send
+     * @param msgItemIndexes  the index of the request item each message is sent in
+     * @return the request of the batch
+     */
+    private ClientBroker.SendBatchMessageRequestP2B createSendBatchMessageRequest(
+            final MessageBatch batch, final int[] msgItemIndexes) {
+        ClientBroker.SendBatchMessageRequestP2B.Builder builder =
+                ClientBroker.SendBatchMessageRequestP2B.newBuilder();
+        builder.setClientId(this.producerManager.getProducerId());
+        builder.setTopicName(batch.getPartition().getTopic());
+        builder.setPartitionId(batch.getPartition().getPartitionId());
+        builder.setSentAddr(this.producerManager.getProducerAddrId());
+        final List<Message> messages = batch.getMessages();
+        final int[] flags = new int[messages.size()];
+        final byte[][] payloads = new byte[messages.size()][];
+        for (int i = 0; i < messages.size(); i++) {
+            flags[i] = MessageFlagUtils.getFlag(messages.get(i));
+            payloads[i] = encodePayload(messages.get(i));
+        }
+        int startIndex = 0;
+        while (startIndex < messages.size()) {
+            int endIndex = getPackEndIndex(messages, payloads, startIndex);
+            if (endIndex - startIndex > 1) {
+                ClientBroker.BatchMessageItem.Builder itemBuilder =
+                        buildPackedBatchItem(messages.get(startIndex),
+                                flags, payloads, startIndex, endIndex);
+                if (itemBuilder != null) {
+                    for (int i = startIndex; i < endIndex; i++) {
+                        msgItemIndexes[i] = builder.getMessagesCount();
+                    }
+                    builder.addMessages(itemBuilder);
+                    startIndex = endIndex;
+                    continue;
+                }
+            }
+            for (int i = startIndex; i < endIndex; i++) {
+                final byte[] sentPayload = compressPayload(payloads[i]);
+                ClientBroker.BatchMessageItem.Builder itemBuilder =
+                        buildBatchItem(messages.get(i), sentPayload);
+                itemBuilder.setFlag(sentPayload == payloads[i] ? flags[i]
+                        : MessageFlagUtils.setCompressType(flags[i],
+                        producerConfig.getMsgCompressType()));
+                msgItemIndexes[i] = builder.getMessagesCount();
+                builder.addMessages(itemBuilder);
+            }
+            startIndex = endIndex;
+        }
+        builder = this.producerManager.setAuthorizedTokenInfo(builder);
+        return builder.build();
+    }
+
+    /**
+     * Get the end index of the messages which can be packed with the message at the
+     * start index, the packed size is limited by the max message size of the broker
+     *
+     * @param messages    the messages of the batch
+     * @param payloads    the encoded payloads of the messages
+     * @param startIndex  the index of the first message to pack
+     * @return the index after the last message to pack
+     */
+    private int getPackEndIndex(final List<Message> messages,
+                                final byte[][] payloads, final int startIndex) {
+        int endIndex = startIndex + 1;
+        if (producerConfig.getMsgCompressType() == MessageFlagUtils.COMPRESS_TYPE_NONE) {
+            return endIndex;
+        }
+        final Message startMsg = messages.get(startIndex);
+        int payloadLen = payloads[startIndex].length;
+        while (endIndex < messages.size()
+                && isSameFilterItem(startMsg.getMsgType(), messages.get(endIndex).getMsgType())
+                && isSameFilterItem(startMsg.getMsgTime(), messages.get(endIndex).getMsgTime())
+                && MessageCompressUtils.getPackedSize(endIndex - startIndex + 1,
+                payloadLen + payloads[endIndex].length) <= producerManager.getMaxMsgSize()) {
+            payloadLen += payloads[endIndex].length;
+            endIndex++;
+        }
+        return endIndex;
+    }
+
+    private boolean isSameFilterItem(final String item1, final String item2) {
+        if (TStringUtils.isBlank(item1)) {
+            return TStringUtils.isBlank(item2);
+        }
+        return item1.equals(item2);
+    }
+
+    /**
+     * Pack the messages into one item and compress it
+     *
+     * @return the packed item, or null if it's too small or not shrunk by compression
+     */
+    private ClientBroker.BatchMessageItem.Builder buildPackedBatchItem(
+            final Message startMsg, final int[] flags, final byte[][] payloads,
+            final int startIndex, final int endIndex) {
+        final byte[] packed =
+                MessageCompressUtils.packPayloads(flags, payloads, startIndex, endIndex);
+        if (packed.length < producerConfig.getMsgCompressMinSize()) {
+            return null;
+        }
+        final byte[] compressed = compressPayload(packed);
+        if (compressed == packed) {
+            return null;
+        }
+        ClientBroker.BatchMessageItem.Builder itemBuilder =
+                buildBatchItem(startMsg, compressed);
+        itemBuilder.setFlag(MessageFlagUtils.setCompressType(
+                MessageFlagUtils.setPackedBatch(0), producerConfig.getMsgCompressType()));
+        return itemBuilder;
+    }
+
+    private ClientBroker.BatchMessageItem.Builder buildBatchItem(final Message message,
+                                                                 final byte[] sentPayload) {
+        ClientBroker.BatchMessageItem.Builder itemBuilder =
+                ClientBroker.BatchMessageItem.newBuilder();
+        itemBuilder.setData(ByteString.copyFrom(sentPayload));
+        itemBuilder.setCheckSum(-1);
+        if (TStringUtils.isNotBlank(message.getMsgType())) {
+            itemBuilder.setMsgType(message.getMsgType());
+        }
+        if (TStringUtils.isNotBlank(message.getMsgTime())) {
+            itemBuilder.setMsgTime(message.getMsgTime());
+        }
+        return itemBuilder;
+    }
+
     private byte[] encodePayload(final Message message) {
         final byte[] payload = message.getData();
         final String attribute = message.getAttribute();
@@ -348,6 +639,29 @@ public class SimpleMessageProducer implements MessageProducer {
         return buffer.array();
     }
 
+    /**
+     * Compress the payload by the configured compress type. The broker stores
+     * the compressed payload as it is and the consumer decompresses it.
+     *
+     * @param payload  the encoded payload
+     * @return the compressed payload, or the payload itself if not compressed
+     */
+    private byte[] compressPayload(final byte[] payload) {
+        if (producerConfig.getMsgCompressType() == MessageFlagUtils.COMPRESS_TYPE_NONE
+                || payload.length < producerConfig.getMsgCompressMinSize()) {
+            return payload;
+        }
+        try {
+            byte[] compressed = MessageCompressUtils.compress(
+                    producerConfig.getMsgCompressType(), payload);
+            // not worth it for incompressible payloads
+            return compressed.length < payload.length ? compressed : payload;
+        } catch (Throwable e) {
+            logger.warn("[Compress] compress message payload failure, send it as it is", e);
+            return payload;
+        }
+    }
+
     private MessageSentResult buildMsgSentResult(final Message message,
                                                  final Partition partition,
                                                  final ClientBroker.SendMessageResponseB2P response) {
@@ -368,6 +682,23 @@ public class SimpleMessageProducer implements MessageProducer {
         }
     }
 
+    private MessageSentResult buildMsgSentResult(final Message message,
+                                                 final Partition partition,
+                                                 final ClientBroker.SendBatchMessageResponseB2P response,
+                                                 final int msgIndex) {
+        if (response.getErrCode() == TErrCodeConstants.SUCCESS
+                && msgIndex < response.getResultsCount()) {
+            ClientBroker.BatchMessageResult msgResult = response.getResults(msgIndex);
+            return new MessageSentResult(true, response.getErrCode(), "Ok!",
+                    message, msgResult.getMessageId(), partition,
+                    msgResult.getAppendTime(), msgResult.getAppendOffset());
+        }
+        int errCode = response.getErrCode() == TErrCodeConstants.SUCCESS
+                ? TErrCodeConstants.INTERNAL_SERVER_ERROR : response.getErrCode();
+        return new MessageSentResult(false, errCode, response.getErrMsg(),
+                message, TBaseConstants.META_VALUE_UNDEFINED, partition);
+    }
+
     private Partition selectPartition(final Message message,
                                       Class clazz) throws TubeClientException {
         String topic = message.getTopic();
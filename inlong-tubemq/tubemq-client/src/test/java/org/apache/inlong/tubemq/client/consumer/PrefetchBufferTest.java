@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrefetchBufferTest {
+
+    @Test
+    public void testBufferSize() throws Exception {
+        PrefetchBuffer buffer = new PrefetchBuffer(1000);
+        Assert.assertTrue(buffer.waitForSpace(0));
+        FetchContext context1 = buildFetchContext(1, 600);
+        FetchContext context2 = buildFetchContext(2, 600);
+        buffer.put(context1);
+        Assert.assertTrue(buffer.waitForSpace(0));
+        // the buffer may exceed the max size by the batch fetched last
+        buffer.put(context2);
+        Assert.assertEquals(1200, buffer.getBufferedSize());
+        Assert.assertFalse(buffer.waitForSpace(10));
+        Assert.assertSame(context1, buffer.poll(0));
+        Assert.assertEquals(600, buffer.getBufferedSize());
+        Assert.assertTrue(buffer.waitForSpace(0));
+        Assert.assertSame(context2, buffer.poll(0));
+        Assert.assertTrue(buffer.isEmpty());
+        Assert.assertEquals(0, buffer.getBufferedSize());
+        Assert.assertNull(buffer.poll(10));
+    }
+
+    @Test
+    public void testWaitForSpace() throws Exception {
+        final PrefetchBuffer buffer = new PrefetchBuffer(100);
+        buffer.put(buildFetchContext(1, 200));
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    buffer.poll(0);
+                } catch (InterruptedException e) {
+                    //
+                }
+            }
+        });
+        consumer.start();
+        // woken up by the poll before the wait time elapses
+        long startTime = System.currentTimeMillis();
+        Assert.assertTrue(buffer.waitForSpace(10000));
+        Assert.assertTrue(System.currentTimeMillis() - startTime < 10000);
+        consumer.join();
+    }
+
+    private FetchContext buildFetchContext(int partitionId, int dataSize) {
+        Partition partition =
+                new Partition(new BrokerInfo(1, "192.168.1.1", 18080), "test", partitionId);
+        FetchContext context =
+                new FetchContext(new PartitionSelectResult(partition, 0L, true));
+        List<Message> messages = new ArrayList<>();
+        messages.add(new Message("test", new byte[dataSize / 2]));
+        messages.add(new Message("test", new byte[dataSize - dataSize / 2]));
+        context.setSuccessProcessResult(0L, "", messages, 0L);
+        return context;
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.List;
+import org.apache.inlong.tubemq.client.producer.MessageBatchAccumulator.MessageBatch;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.junit.Test;
+
+public class MessageBatchAccumulatorTest {
+
+    private final MessageSentCallback callback = new MessageSentCallback() {
+        @Override
+        public void onMessageSent(MessageSentResult result) {
+        }
+
+        @Override
+        public void onException(Throwable e) {
+        }
+    };
+
+    @Test
+    public void testAppendBySizeAndCount() {
+        MessageBatchAccumulator accumulator =
+                new MessageBatchAccumulator(10, 3, 60000L);
+        Partition partition0 = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        Partition partition1 = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 1);
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        // batches are kept per partition
+        assertTrue(accumulator.append(partition0, message, 3, callback).isEmpty());
+        assertTrue(accumulator.append(partition1, message, 3, callback).isEmpty());
+        assertTrue(accumulator.append(partition0, message, 3, callback).isEmpty());
+        assertEquals(2, accumulator.getBatchCount());
+        // the batch of partition 0 is full by message count
+        List<MessageBatch> readyBatches =
+                accumulator.append(partition0, message, 3, callback);
+        assertEquals(1, readyBatches.size());
+        assertSame(partition0, readyBatches.get(0).getPartition());
+        assertEquals(3, readyBatches.get(0).getMsgCount());
+        assertEquals(9, readyBatches.get(0).getDataSize());
+        // a message exceeding the size limit closes the current batch of partition 1
+        readyBatches = accumulator.append(partition1, message, 8, callback);
+        assertEquals(1, readyBatches.size());
+        assertEquals(1, readyBatches.get(0).getMsgCount());
+        assertEquals(1, accumulator.getBatchCount());
+        // lingered batches are only drained when forced
+        assertTrue(accumulator.drainReady(false).isEmpty());
+        readyBatches = accumulator.drainReady(true);
+        assertEquals(1, readyBatches.size());
+        assertEquals(8, readyBatches.get(0).getDataSize());
+        assertEquals(0, accumulator.getBatchCount());
+    }
+
+    @Test
+    public void testCapMaxBatchMsgCount() {
+        MessageBatchAccumulator accumulator =
+                new MessageBatchAccumulator(1024, 100, 60000L);
+        Partition partition = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        // a larger or illegal broker limit keeps the configured count
+        accumulator.capMaxBatchMsgCount(1000);
+        accumulator.capMaxBatchMsgCount(0);
+        assertEquals(100, accumulator.getMaxBatchMsgCount());
+        accumulator.capMaxBatchMsgCount(2);
+        assertEquals(2, accumulator.getMaxBatchMsgCount());
+        assertTrue(accumulator.append(partition, message, 3, callback).isEmpty());
+        List<MessageBatch> readyBatches =
+                accumulator.append(partition, message, 3, callback);
+        assertEquals(1, readyBatches.size());
+        assertEquals(2, readyBatches.get(0).getMsgCount());
+    }
+
+    @Test
+    public void testCappedCountSplitsNextBatch() {
+        MessageBatchAccumulator accumulator =
+                new MessageBatchAccumulator(1024, 100, 60000L);
+        Partition partition = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        for (int i = 0; i < 5; i++) {
+            assertTrue(accumulator.append(partition, message, 3, callback).isEmpty());
+        }
+        // a broker caps the count while the batch is open
+        accumulator.capMaxBatchMsgCount(2);
+        List<MessageBatch> readyBatches =
+                accumulator.append(partition, message, 3, callback);
+        assertEquals(3, readyBatches.size());
+        assertEquals(2, readyBatches.get(0).getMsgCount());
+        assertEquals(6, readyBatches.get(0).getDataSize());
+        assertEquals(2, readyBatches.get(1).getMsgCount());
+        assertEquals(1, readyBatches.get(2).getMsgCount());
+        assertEquals(3, readyBatches.get(2).getDataSize());
+        // the new message opens the next batch
+        assertEquals(1, accumulator.getBatchCount());
+        readyBatches = accumulator.append(partition, message, 3, callback);
+        assertEquals(1, readyBatches.size());
+        assertEquals(2, readyBatches.get(0).getMsgCount());
+    }
+
+    @Test
+    public void testZeroLinger() {
+        MessageBatchAccumulator accumulator =
+                new MessageBatchAccumulator(1024, 100, 0L);
+        Partition partition = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        assertEquals(1, accumulator.append(partition, message, 3, callback).size());
+        assertEquals(0, accumulator.getBatchCount());
+    }
+}
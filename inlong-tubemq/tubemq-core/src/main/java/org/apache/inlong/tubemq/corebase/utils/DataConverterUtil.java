@@ -17,6 +17,7 @@
 
 package org.apache.inlong.tubemq.corebase.utils;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -34,12 +35,17 @@ import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.cluster.SubscribeInfo;
 import org.apache.inlong.tubemq.corebase.cluster.TopicInfo;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Tube meta info converter tools
  */
 public class DataConverterUtil {
 
+    private static final Logger logger =
+            LoggerFactory.getLogger(DataConverterUtil.class);
+
     /**
      * convert string info to @link SubscribeInfo
      *
@@ -194,45 +200,89 @@ public class DataConverterUtil {
         }
         List<Message> messageList = new ArrayList<>(transferedMessageList.size());
         for (ClientBroker.TransferedMessage trsMessage : transferedMessageList) {
-            final int flag = trsMessage.getFlag();
+            int flag = trsMessage.getFlag();
             int dataCheckSum = trsMessage.getCheckSum();
-            final ByteBuffer payloadData = ByteBuffer.allocate(trsMessage.getPayLoadData().size());
-            payloadData.put(trsMessage.getPayLoadData().toByteArray());
-            payloadData.flip();
-            int payloadDataLen = payloadData.array().length;
-            int currentChecksum = CheckSum.crc32(payloadData.array());
+            byte[] payloadData = trsMessage.getPayLoadData().toByteArray();
+            int currentChecksum = CheckSum.crc32(payloadData);
             if (dataCheckSum != currentChecksum) {
                 continue;
             }
-            int readPos = 0;
-            String attribute = null;
-            if (MessageFlagUtils.hasAttribute(flag)) {
-                if (payloadDataLen < 4) {
+            // the payload is stored as compressed by producer, decompress it here
+            if (MessageFlagUtils.isCompressed(flag)) {
+                try {
+                    payloadData = MessageCompressUtils.decompress(
+                            MessageFlagUtils.getCompressType(flag), payloadData);
+                } catch (final IOException e) {
+                    logger.warn(new StringBuilder(256)
+                            .append("Decompress message payload failure, topic=")
+                            .append(topicName).append(", messageId=")
+                            .append(trsMessage.getMessageId())
+                            .append(", the message is skipped").toString(), e);
                     continue;
                 }
-                final int attrLen = payloadData.getInt(0);
-                payloadDataLen -= 4;
-                readPos += 4;
-                if (attrLen > payloadDataLen) {
-                    continue;
+                flag = MessageFlagUtils.setCompressType(flag, MessageFlagUtils.COMPRESS_TYPE_NONE);
+            }
+            if (!MessageFlagUtils.isPackedBatch(flag)) {
+                Message message = toMessage(trsMessage.getMessageId(), topicName, flag, payloadData);
+                if (message != null) {
+                    messageList.add(message);
                 }
-                if (attrLen > 0) {
-                    final byte[] attrData = new byte[attrLen];
-                    System.arraycopy(payloadData.array(), readPos, attrData, 0, attrLen);
-                    try {
-                        attribute = new String(attrData, TBaseConstants.META_DEFAULT_CHARSET_NAME);
-                    } catch (final UnsupportedEncodingException e) {
-                        throw new RuntimeException(e);
-                    }
-                    readPos += attrLen;
-                    payloadDataLen -= attrLen;
+                continue;
+            }
+            // the messages of a batch packed by producer share the message id
+            List<Integer> packedFlags = new ArrayList<>();
+            List<byte[]> packedPayloads = new ArrayList<>();
+            try {
+                MessageCompressUtils.unpackPayloads(payloadData, packedFlags, packedPayloads);
+            } catch (final IOException e) {
+                logger.warn(new StringBuilder(256)
+                        .append("Unpack batch payload failure, topic=")
+                        .append(topicName).append(", messageId=")
+                        .append(trsMessage.getMessageId())
+                        .append(", the messages are skipped").toString(), e);
+                continue;
+            }
+            for (int i = 0; i < packedPayloads.size(); i++) {
+                Message message = toMessage(trsMessage.getMessageId(),
+                        topicName, packedFlags.get(i), packedPayloads.get(i));
+                if (message != null) {
+                    messageList.add(message);
                 }
             }
-            final byte[] payload = new byte[payloadDataLen];
-            System.arraycopy(payloadData.array(), readPos, payload, 0, payloadDataLen);
-            messageList.add(new MessageExt(trsMessage.getMessageId(), topicName, payload, attribute, flag));
         }
         return messageList;
     }
 
+    private static Message toMessage(final long messageId, final String topicName,
+                                     final int flag, final byte[] payloadData) {
+        int payloadDataLen = payloadData.length;
+        int readPos = 0;
+        String attribute = null;
+        if (MessageFlagUtils.hasAttribute(flag)) {
+            if (payloadDataLen < 4) {
+                return null;
+            }
+            final int attrLen = ByteBuffer.wrap(payloadData).getInt(0);
+            payloadDataLen -= 4;
+            readPos += 4;
+            if (attrLen > payloadDataLen) {
+                return null;
+            }
+            if (attrLen > 0) {
+                final byte[] attrData = new byte[attrLen];
+                System.arraycopy(payloadData, readPos, attrData, 0, attrLen);
+                try {
+                    attribute = new String(attrData, TBaseConstants.META_DEFAULT_CHARSET_NAME);
+                } catch (final UnsupportedEncodingException e) {
+                    throw new RuntimeException(e);
+                }
+                readPos += attrLen;
+                payloadDataLen -= attrLen;
+            }
+        }
+        final byte[] payload = new byte[payloadDataLen];
+        System.arraycopy(payloadData, readPos, payload, 0, payloadDataLen);
+        return new MessageExt(messageId, topicName, payload, attribute, flag);
+    }
+
 }
@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.xerial.snappy.Snappy;
+
+/**
+ * Compress and decompress message payloads by the compress type in the message flag.
+ *
+ * The messages of a batch can be packed into one payload and compressed together,
+ * the packed payload is the message count followed by the flag, the length and
+ * the encoded payload of each message.
+ */
+public class MessageCompressUtils {
+
+    public static boolean isSupported(final int compressType) {
+        return compressType == MessageFlagUtils.COMPRESS_TYPE_NONE
+                || compressType == MessageFlagUtils.COMPRESS_TYPE_SNAPPY;
+    }
+
+    public static byte[] compress(final int compressType,
+                                  final byte[] data) throws IOException {
+        switch (compressType) {
+            case MessageFlagUtils.COMPRESS_TYPE_NONE: {
+                return data;
+            }
+            case MessageFlagUtils.COMPRESS_TYPE_SNAPPY: {
+                return Snappy.compress(data);
+            }
+            default: {
+                throw new IOException("Unsupported compress type " + compressType);
+            }
+        }
+    }
+
+    public static byte[] decompress(final int compressType,
+                                    final byte[] data) throws IOException {
+        switch (compressType) {
+            case MessageFlagUtils.COMPRESS_TYPE_NONE: {
+                return data;
+            }
+            case MessageFlagUtils.COMPRESS_TYPE_SNAPPY: {
+                return Snappy.uncompress(data);
+            }
+            default: {
+                throw new IOException("Unsupported compress type " + compressType);
+            }
+        }
+    }
+
+    /**
+     * Get the size of the packed payload of messages
+     *
+     * @param msgCnt      the count of the messages
+     * @param payloadLen  the total length of the message payloads
+     * @return the size of the packed payload
+     */
+    public static int getPackedSize(final int msgCnt, final int payloadLen) {
+        return 4 + msgCnt * 8 + payloadLen;
+    }
+
+    /**
+     * Pack the payloads of messages into one payload
+     *
+     * @param flags     the flags of the messages
+     * @param payloads  the encoded payloads of the messages
+     * @param from      the index of the first message to pack
+     * @param to        the index after the last message to pack
+     * @return the packed payload
+     */
+    public static byte[] packPayloads(final int[] flags, final byte[][] payloads,
+                                      final int from, final int to) {
+        int payloadLen = 0;
+        for (int i = from; i < to; i++) {
+            payloadLen += payloads[i].length;
+        }
+        final ByteBuffer buffer =
+                ByteBuffer.allocate(getPackedSize(to - from, payloadLen));
+        buffer.putInt(to - from);
+        for (int i = from; i < to; i++) {
+            buffer.putInt(flags[i]);
+            buffer.putInt(payloads[i].length);
+            buffer.put(payloads[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Unpack the payloads of the messages packed by packPayloads
+     *
+     * @param packed    the packed payload
+     * @param flags     the flags of the unpacked messages
+     * @param payloads  the encoded payloads of the unpacked messages
+     * @throws IOException if the packed payload is malformed
+     */
+    public static void unpackPayloads(final byte[] packed, final List<Integer> flags,
+                                      final List<byte[]> payloads) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(packed);
+        if (buffer.remaining() < 4) {
+            throw new IOException("Malformed packed payload: missing message count");
+        }
+        final int msgCnt = buffer.getInt();
+        for (int i = 0; i < msgCnt; i++) {
+            if (buffer.remaining() < 8) {
+                throw new IOException("Malformed packed payload: missing message header");
+            }
+            final int flag = buffer.getInt();
+            final int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("Malformed packed payload: illegal message length");
+            }
+            final byte[] payload = new byte[length];
+            buffer.get(payload);
+            flags.add(flag);
+            payloads.add(payload);
+        }
+    }
+}
@@ -21,6 +21,14 @@ import org.apache.inlong.tubemq.corebase.Message;
 
 public class MessageFlagUtils {
 
+    // bit 1~3 of the flag: compress type of the message payload
+    public static final int COMPRESS_TYPE_NONE = 0;
+    public static final int COMPRESS_TYPE_SNAPPY = 1;
+    private static final int COMPRESS_TYPE_MASK = 0x7;
+    private static final int COMPRESS_TYPE_SHIFT = 1;
+    // bit 4 of the flag: the payload packs the messages of a batch
+    private static final int PACKED_BATCH_MASK = 0x10;
+
     public static int getFlag(final Message message) {
         int flag = 0;
         if (message != null && message.getAttribute() != null) {
@@ -33,4 +41,25 @@ public class MessageFlagUtils {
         return (flag & 0x1) == 1;
     }
 
+    public static int getCompressType(final int flag) {
+        return (flag >>> COMPRESS_TYPE_SHIFT) & COMPRESS_TYPE_MASK;
+    }
+
+    public static boolean isCompressed(final int flag) {
+        return getCompressType(flag) != COMPRESS_TYPE_NONE;
+    }
+
+    public static int setCompressType(final int flag, final int compressType) {
+        return (flag & ~(COMPRESS_TYPE_MASK << COMPRESS_TYPE_SHIFT))
+                | ((compressType & COMPRESS_TYPE_MASK) << COMPRESS_TYPE_SHIFT);
+    }
+
+    public static boolean isPackedBatch(final int flag) {
+        return (flag & PACKED_BATCH_MASK) != 0;
+    }
+
+    public static int setPackedBatch(final int flag) {
+        return flag | PACKED_BATCH_MASK;
+    }
+
 }
@@ -44,6 +44,12 @@ public final class RpcConstants {
     public static final String NETTY_WRITE_LOW_MARK = "rpc.netty.write.lowmark";
     public static final String NETTY_TCP_SENDBUF = "rpc.netty.send.buffer";
     public static final String NETTY_TCP_RECEIVEBUF = "rpc.netty.receive.buffer";
+    public static final String NETTY_EPOLL_ENABLE = "rpc.netty.epoll.enable";
+    public static final String NETTY_CLIENT_PIPELINING_ENABLE = "rpc.netty.client.pipelining.enable";
+    public static final String NETTY_CLIENT_MAX_INFLIGHT = "rpc.netty.client.max.inflight";
+    public static final String NETTY_CLIENT_TIMEOUT_SCAN_INTERVAL = "rpc.netty.client.timeout.scan.interval";
+    public static final String NETTY_CLIENT_CONNECTIONS_PER_HOST = "rpc.netty.client.connections.per.host";
+    public static final String NETTY_CLIENT_SELECT_LEAST_INFLIGHT = "rpc.netty.client.select.least.inflight";
 
     public static final String TCP_NODELAY = "rpc.tcp.nodelay";
     public static final String TCP_REUSEADDRESS = "rpc.tcp.reuseaddress";
@@ -105,6 +111,7 @@ public final class RpcConstants {
     public static final int RPC_MSG_MASTER_CONSUMER_REGISTER_V2 = 20;
     public static final int RPC_MSG_MASTER_CONSUMER_HEARTBEAT_V2 = 21;
     public static final int RPC_MSG_MASTER_CONSUMER_GET_PART_META = 22;
+    public static final int RPC_MSG_BROKER_PRODUCER_SENDBATCHMESSAGE = 23;
 
     public static final int MSG_OPTYPE_REGISTER = 31;
     public static final int MSG_OPTYPE_UNREGISTER = 32;
@@ -131,5 +138,9 @@ public final class RpcConstants {
     public static final long CFG_UNAVAILABLE_FORBIDDEN_DURATION_MS = 50000;
     public static final long CFG_DEFAULT_NETTY_WRITEBUFFER_HIGH_MARK = 50 * 1024 * 1024;
     public static final long CFG_DEFAULT_NETTY_WRITEBUFFER_LOW_MARK = 5 * 1024 * 1024;
+    public static final int CFG_DEFAULT_CLIENT_MAX_INFLIGHT = 4096;
+    public static final long CFG_DEFAULT_CLIENT_TIMEOUT_SCAN_INTERVAL_MS = 100;
+    public static final int CFG_DEFAULT_CLIENT_CONNECTIONS_PER_HOST = 1;
+    public static final int CFG_MAX_CLIENT_CONNECTIONS_PER_HOST = 64;
 
 }
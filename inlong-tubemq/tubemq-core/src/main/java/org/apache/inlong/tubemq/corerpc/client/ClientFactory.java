@@ -26,6 +26,8 @@ public interface ClientFactory {
 
     Client removeClient(NodeAddrInfo addressInfo);
 
+    boolean removeClient(Client client);
+
     void shutdown();
 
     boolean isShutdown();
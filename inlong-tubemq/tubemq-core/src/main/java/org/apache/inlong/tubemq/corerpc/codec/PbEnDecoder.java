@@ -18,6 +18,8 @@
 package org.apache.inlong.tubemq.corerpc.codec;
 
 import com.google.protobuf.AbstractMessageLite;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Parser;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
@@ -34,6 +36,10 @@ public class PbEnDecoder {
     // The set of services supported by RPC, only the services in the map are processed.
     private static final Map<String, Integer> rpcServiceMap =
             new HashMap<>();
+    // The pb message parsers of the methods, indexed by method id
+    private static final int MAX_METHOD_ID_BOUND = 32;
+    private static final Parser<?>[] requestParsers = new Parser<?>[MAX_METHOD_ID_BOUND];
+    private static final Parser<?>[] responseParsers = new Parser<?>[MAX_METHOD_ID_BOUND];
 
     static {
         // The MAP corresponding to the writing of these strings and constants when the system starts up
@@ -51,6 +57,8 @@ public class PbEnDecoder {
         rpcMethodMap.put("getMessagesC2B", RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE);
         rpcMethodMap.put("consumerCommitC2B", RpcConstants.RPC_MSG_BROKER_CONSUMER_COMMIT);
         rpcMethodMap.put("sendMessageP2B", RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE);
+        rpcMethodMap.put("sendBatchMessageP2B",
+                RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDBATCHMESSAGE);
         rpcMethodMap.put("consumerRegisterC2MV2",
                 RpcConstants.RPC_MSG_MASTER_CONSUMER_REGISTER_V2);
         rpcMethodMap.put("consumerHeartbeatC2MV2",
@@ -67,6 +75,43 @@ public class PbEnDecoder {
         rpcServiceMap.put("org.apache.inlong.tubemq.corerpc.service.BrokerWriteService$AsyncService",
                 RpcConstants.RPC_SERVICE_TYPE_BROKER_WRITE_SERVICE);
 
+        // The request and response parsers of the methods
+        registerParsers(RpcConstants.RPC_MSG_MASTER_PRODUCER_REGISTER,
+                ClientMaster.RegisterRequestP2M.PARSER, ClientMaster.RegisterResponseM2P.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_MASTER_PRODUCER_HEARTBEAT,
+                ClientMaster.HeartRequestP2M.PARSER, ClientMaster.HeartResponseM2P.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_MASTER_PRODUCER_CLOSECLIENT,
+                ClientMaster.CloseRequestP2M.PARSER, ClientMaster.CloseResponseM2P.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_MASTER_CONSUMER_REGISTER,
+                ClientMaster.RegisterRequestC2M.PARSER, ClientMaster.RegisterResponseM2C.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_MASTER_CONSUMER_HEARTBEAT,
+                ClientMaster.HeartRequestC2M.PARSER, ClientMaster.HeartResponseM2C.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_MASTER_CONSUMER_CLOSECLIENT,
+                ClientMaster.CloseRequestC2M.PARSER, ClientMaster.CloseResponseM2C.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_MASTER_BROKER_REGISTER,
+                ClientMaster.RegisterRequestB2M.PARSER, ClientMaster.RegisterResponseM2B.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_MASTER_BROKER_HEARTBEAT,
+                ClientMaster.HeartRequestB2M.PARSER, ClientMaster.HeartResponseM2B.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_MASTER_BROKER_CLOSECLIENT,
+                ClientMaster.CloseRequestB2M.PARSER, ClientMaster.CloseResponseM2B.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_MASTER_CONSUMER_REGISTER_V2,
+                ClientMaster.RegisterRequestC2MV2.PARSER, ClientMaster.RegisterResponseM2CV2.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_MASTER_CONSUMER_HEARTBEAT_V2,
+                ClientMaster.HeartRequestC2MV2.PARSER, ClientMaster.HeartResponseM2CV2.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_MASTER_CONSUMER_GET_PART_META,
+                ClientMaster.GetPartMetaRequestC2M.PARSER, ClientMaster.GetPartMetaResponseM2C.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE,
+                ClientBroker.SendMessageRequestP2B.PARSER, ClientBroker.SendMessageResponseB2P.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDBATCHMESSAGE,
+                ClientBroker.SendBatchMessageRequestP2B.PARSER, ClientBroker.SendBatchMessageResponseB2P.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER,
+                ClientBroker.RegisterRequestC2B.PARSER, ClientBroker.RegisterResponseB2C.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_BROKER_CONSUMER_HEARTBEAT,
+                ClientBroker.HeartBeatRequestC2B.PARSER, ClientBroker.HeartBeatResponseB2C.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE,
+                ClientBroker.GetMessageRequestC2B.PARSER, ClientBroker.GetMessageResponseB2C.PARSER);
+        registerParsers(RpcConstants.RPC_MSG_BROKER_CONSUMER_COMMIT,
+                ClientBroker.CommitOffsetRequestC2B.PARSER, ClientBroker.CommitOffsetResponseB2C.PARSER);
     }
 
     public static byte[] pbEncode(Object object) throws Exception {
@@ -74,145 +119,57 @@ public class PbEnDecoder {
         return rspDataMessage.toByteArray();
     }
 
+    public static ByteString pbEncodeToByteString(Object object) throws Exception {
+        AbstractMessageLite rspDataMessage = (AbstractMessageLite) object;
+        return rspDataMessage.toByteString();
+    }
+
     /**
-     * lizard forgives
+     * Decode the pb message of the method with the parser registered for the method id.
      *
-     * @param isRequest
-     * @param methodId
-     * @param bytes
-     * @return
-     * @throws Exception
+     * @param isRequest  whether the message is a request or a response
+     * @param methodId   the method id carried in the rpc message
+     * @param bytes      the pb message content
+     * @return the decoded pb message
+     * @throws Exception if the method id is unsupported or the content is invalid
      */
     public static Object pbDecode(boolean isRequest, int methodId, byte[] bytes) throws Exception {
-        // #lizard forgives
-        // According to the method ID carried in the pb message, the corresponding class is directly used for mapping.
-        if (isRequest) {
-            switch (methodId) {
-                case RpcConstants.RPC_MSG_MASTER_PRODUCER_REGISTER: {
-                    return ClientMaster.RegisterRequestP2M.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_PRODUCER_HEARTBEAT: {
-                    return ClientMaster.HeartRequestP2M.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_PRODUCER_CLOSECLIENT: {
-                    return ClientMaster.CloseRequestP2M.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_CONSUMER_REGISTER: {
-                    return ClientMaster.RegisterRequestC2M.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_CONSUMER_HEARTBEAT: {
-                    return ClientMaster.HeartRequestC2M.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_CONSUMER_CLOSECLIENT: {
-                    return ClientMaster.CloseRequestC2M.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_BROKER_REGISTER: {
-                    return ClientMaster.RegisterRequestB2M.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_BROKER_HEARTBEAT: {
-                    return ClientMaster.HeartRequestB2M.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_CONSUMER_REGISTER_V2: {
-                    return ClientMaster.RegisterRequestC2MV2.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_CONSUMER_HEARTBEAT_V2: {
-                    return ClientMaster.HeartRequestC2MV2.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_CONSUMER_GET_PART_META: {
-                    return ClientMaster.GetPartMetaRequestC2M.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_BROKER_CLOSECLIENT: {
-                    return ClientMaster.CloseRequestB2M.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE: {
-                    return ClientBroker.SendMessageRequestP2B.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER: {
-                    return ClientBroker.RegisterRequestC2B.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_BROKER_CONSUMER_HEARTBEAT: {
-                    return ClientBroker.HeartBeatRequestC2B.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE: {
-                    return ClientBroker.GetMessageRequestC2B.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_BROKER_CONSUMER_COMMIT: {
-                    return ClientBroker.CommitOffsetRequestC2B.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_BROKER_CONSUMER_CLOSE:
-                case RpcConstants.RPC_MSG_BROKER_PRODUCER_CLOSE:
-                case RpcConstants.RPC_MSG_BROKER_PRODUCER_REGISTER:
-                case RpcConstants.RPC_MSG_BROKER_PRODUCER_HEARTBEAT:
-                default: {
-                    throw new Exception(new StringBuilder(256)
-                            .append("Unsupported method ID :")
-                            .append(methodId).toString());
-                }
-            }
-        } else {
-            switch (methodId) {
-                case RpcConstants.RPC_MSG_MASTER_PRODUCER_REGISTER: {
-                    return ClientMaster.RegisterResponseM2P.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_PRODUCER_HEARTBEAT: {
-                    return ClientMaster.HeartResponseM2P.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_PRODUCER_CLOSECLIENT: {
-                    return ClientMaster.CloseResponseM2P.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_CONSUMER_REGISTER: {
-                    return ClientMaster.RegisterResponseM2C.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_CONSUMER_HEARTBEAT: {
-                    return ClientMaster.HeartResponseM2C.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_CONSUMER_CLOSECLIENT: {
-                    return ClientMaster.CloseResponseM2C.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_BROKER_REGISTER: {
-                    return ClientMaster.RegisterResponseM2B.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_BROKER_HEARTBEAT: {
-                    return ClientMaster.HeartResponseM2B.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_BROKER_CLOSECLIENT: {
-                    return ClientMaster.CloseResponseM2B.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_CONSUMER_REGISTER_V2: {
-                    return ClientMaster.RegisterResponseM2CV2.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_CONSUMER_HEARTBEAT_V2: {
-                    return ClientMaster.HeartResponseM2CV2.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_MASTER_CONSUMER_GET_PART_META: {
-                    return ClientMaster.GetPartMetaResponseM2C.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE: {
-                    return ClientBroker.SendMessageResponseB2P.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER: {
-                    return ClientBroker.RegisterResponseB2C.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_BROKER_CONSUMER_HEARTBEAT: {
-                    return ClientBroker.HeartBeatResponseB2C.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE: {
-                    return ClientBroker.GetMessageResponseB2C.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_BROKER_CONSUMER_COMMIT: {
-                    return ClientBroker.CommitOffsetResponseB2C.parseFrom(bytes);
-                }
-                case RpcConstants.RPC_MSG_BROKER_CONSUMER_CLOSE:
-                case RpcConstants.RPC_MSG_BROKER_PRODUCER_CLOSE:
-                case RpcConstants.RPC_MSG_BROKER_PRODUCER_REGISTER:
-                case RpcConstants.RPC_MSG_BROKER_PRODUCER_HEARTBEAT:
-                default: {
-                    throw new Exception(new StringBuilder(256)
-                            .append("Unsupported method ID :")
-                            .append(methodId).toString());
-                }
-            }
+        // According to the method ID carried in the pb message, the parser
+        // of the corresponding class is directly looked up by index.
+        Parser<?>[] parsers = isRequest ? requestParsers : responseParsers;
+        if (methodId < 0 || methodId >= parsers.length || parsers[methodId] == null) {
+            throw new Exception(new StringBuilder(256)
+                    .append("Unsupported method ID :")
+                    .append(methodId).toString());
+        }
+        return parsers[methodId].parseFrom(bytes);
+    }
+
+    /**
+     * Decode the pb message of the method directly from the field of the rpc message,
+     * without copying the content into a byte array first.
+     *
+     * @param isRequest  whether the message is a request or a response
+     * @param methodId   the method id carried in the rpc message
+     * @param data       the pb message content
+     * @return the decoded pb message
+     * @throws Exception if the method id is unsupported or the content is invalid
+     */
+    public static Object pbDecode(boolean isRequest, int methodId, ByteString data) throws Exception {
+        Parser<?>[] parsers = isRequest ? requestParsers : responseParsers;
+        if (methodId < 0 || methodId >= parsers.length || parsers[methodId] == null) {
+            throw new Exception(new StringBuilder(256)
+                    .append("Unsupported method ID :")
+                    .append(methodId).toString());
         }
+        return parsers[methodId].parseFrom(data);
+    }
+
+    private static void registerParsers(int methodId,
+                                        Parser<?> requestParser,
+                                        Parser<?> responseParser) {
+        requestParsers[methodId] = requestParser;
+        responseParsers[methodId] = responseParser;
     }
 
     public static int getMethIdByName(String methodName) throws Exception {
@@ -281,6 +238,7 @@ public class PbEnDecoder {
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_REGISTER:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_HEARTBEAT:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE:
+                    case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDBATCHMESSAGE:
                     case RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER:
                     case RpcConstants.RPC_MSG_BROKER_CONSUMER_HEARTBEAT:
                     case RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE:
@@ -303,6 +261,7 @@ public class PbEnDecoder {
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_REGISTER:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_HEARTBEAT:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE:
+                    case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDBATCHMESSAGE:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_CLOSE: {
                         return true;
                     }
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.apache.inlong.tubemq.corerpc.ResponseWrapper;
+import org.apache.inlong.tubemq.corerpc.client.Callback;
+
+/**
+ * Fixed-size ring of the in-flight calls of a connection. The slot of a call is
+ * given by the low bits of its serial number; when the slot is still taken by an
+ * earlier call, e.g. a long-poll pending for many round trips, the call is kept in
+ * an overflow map instead. The total count of calls is limited to the ring size.
+ */
+class InflightCallRing {
+
+    private final AtomicReferenceArray<InflightCall> slots;
+    private final int mask;
+    private final AtomicInteger count = new AtomicInteger(0);
+    // the calls whose slot was taken when they were added
+    private final ConcurrentHashMap<Integer, InflightCall> overflowCalls =
+            new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity  the max in-flight call count, rounded up to a power of 2
+     */
+    InflightCallRing(int capacity) {
+        int size = 2;
+        while (size < capacity && size < (1 << 30)) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Add a call to the ring
+     *
+     * @param serialNo  the serial number of the call
+     * @param callback  the callback of the call
+     * @param deadline  the time in milliseconds the call times out
+     * @return false if the count of in-flight calls reaches the ring size
+     */
+    boolean add(int serialNo, Callback<ResponseWrapper> callback, long deadline) {
+        if (count.incrementAndGet() > slots.length()) {
+            count.decrementAndGet();
+            return false;
+        }
+        InflightCall call = new InflightCall(serialNo, callback, deadline);
+        if (!slots.compareAndSet(serialNo & mask, null, call)) {
+            overflowCalls.put(serialNo, call);
+        }
+        return true;
+    }
+
+    /**
+     * Remove a call from the ring
+     *
+     * @param serialNo  the serial number of the call
+     * @return the callback of the call, or null if it has been removed
+     */
+    Callback<ResponseWrapper> remove(int serialNo) {
+        int index = serialNo & mask;
+        InflightCall call = slots.get(index);
+        if (call == null
+                || call.serialNo != serialNo
+                || !slots.compareAndSet(index, call, null)) {
+            call = overflowCalls.remove(serialNo);
+            if (call == null) {
+                return null;
+            }
+        }
+        count.decrementAndGet();
+        return call.callback;
+    }
+
+    /**
+     * Remove the calls whose deadline has passed
+     *
+     * @param curTime  the current time in milliseconds
+     * @return the callbacks of the removed calls
+     */
+    List<Callback<ResponseWrapper>> removeExpired(long curTime) {
+        List<Callback<ResponseWrapper>> expired = null;
+        for (int i = 0; i < slots.length(); i++) {
+            InflightCall call = slots.get(i);
+            if (call != null
+                    && call.deadline <= curTime
+                    && slots.compareAndSet(i, call, null)) {
+                count.decrementAndGet();
+                if (expired == null) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(call.callback);
+            }
+        }
+        for (Map.Entry<Integer, InflightCall> entry : overflowCalls.entrySet()) {
+            InflightCall call = entry.getValue();
+            if (call.deadline <= curTime
+                    && overflowCalls.remove(entry.getKey(), call)) {
+                count.decrementAndGet();
+                if (expired == null) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(call.callback);
+            }
+        }
+        if (expired == null) {
+            return Collections.emptyList();
+        }
+        return expired;
+    }
+
+    /**
+     * Remove all the calls
+     *
+     * @return the callbacks of the removed calls
+     */
+    List<Callback<ResponseWrapper>> removeAll() {
+        return removeExpired(Long.MAX_VALUE);
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+
+    int size() {
+        return count.get();
+    }
+
+    private static class InflightCall {
+        private final int serialNo;
+        private final Callback<ResponseWrapper> callback;
+        private final long deadline;
+
+        InflightCall(int serialNo, Callback<ResponseWrapper> callback, long deadline) {
+            this.serialNo = serialNo;
+            this.callback = callback;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -17,11 +17,24 @@
 
 package org.apache.inlong.tubemq.corerpc.netty;
 
-import com.google.protobuf.ByteString;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.channels.UnresolvedAddressException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -31,6 +44,8 @@ import org.apache.inlong.tubemq.corebase.cluster.NodeAddrInfo;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.RPCProtos;
 import org.apache.inlong.tubemq.corerpc.RequestWrapper;
 import org.apache.inlong.tubemq.corerpc.ResponseWrapper;
+import org.apache.inlong.tubemq.corerpc.RpcConfig;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
 import org.apache.inlong.tubemq.corerpc.client.CallFuture;
 import org.apache.inlong.tubemq.corerpc.client.Callback;
@@ -39,24 +54,18 @@ import org.apache.inlong.tubemq.corerpc.client.ClientFactory;
 import org.apache.inlong.tubemq.corerpc.codec.PbEnDecoder;
 import org.apache.inlong.tubemq.corerpc.exception.ClientClosedException;
 import org.apache.inlong.tubemq.corerpc.exception.NetworkException;
+import org.apache.inlong.tubemq.corerpc.exception.OverflowException;
 import org.apache.inlong.tubemq.corerpc.utils.MixUtils;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelHandler;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.ChannelStateEvent;
-import org.jboss.netty.channel.ExceptionEvent;
-import org.jboss.netty.channel.MessageEvent;
-import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
-import org.jboss.netty.handler.timeout.ReadTimeoutException;
-import org.jboss.netty.util.HashedWheelTimer;
-import org.jboss.netty.util.Timeout;
-import org.jboss.netty.util.Timer;
-import org.jboss.netty.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * The network Client for tube rpc service
+ *
+ * In pipelining mode, the requests written in the same event loop tick are
+ * flushed together, the in-flight calls are kept in a fixed-size ring instead
+ * of the request and timeout maps, and their timeouts are checked by a periodic
+ * scan of the ring instead of a timer task per request.
  */
 public class NettyClient implements Client {
 
@@ -76,14 +85,50 @@ public class NettyClient implements Client {
     private Channel channel;
     private long connectTimeout;
     private volatile AtomicBoolean closed = new AtomicBoolean(true);
+    // the in-flight calls in pipelining mode, null if pipelining is disabled
+    private final InflightCallRing inflightCalls;
+    private final long timeoutScanIntervalMs;
+    private ScheduledFuture<?> timeoutScanFuture;
+    // whether a flush has been scheduled, only accessed in the channel's event loop
+    private boolean flushScheduled = false;
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled = false;
+            Channel curChannel = channel;
+            if (curChannel != null) {
+                curChannel.flush();
+            }
+        }
+    };
 
     /**
      * @param clientFactory
      * @param connectTimeout
      */
     public NettyClient(ClientFactory clientFactory, long connectTimeout) {
+        this(clientFactory, connectTimeout, new RpcConfig());
+    }
+
+    /**
+     * @param clientFactory
+     * @param connectTimeout
+     * @param conf            the rpc config, which enables the pipelining mode
+     */
+    public NettyClient(ClientFactory clientFactory, long connectTimeout, RpcConfig conf) {
         this.clientFactory = clientFactory;
         this.connectTimeout = connectTimeout;
+        if (conf.getBoolean(RpcConstants.NETTY_CLIENT_PIPELINING_ENABLE, false)) {
+            this.inflightCalls = new InflightCallRing(
+                    conf.getInt(RpcConstants.NETTY_CLIENT_MAX_INFLIGHT,
+                            RpcConstants.CFG_DEFAULT_CLIENT_MAX_INFLIGHT));
+            this.timeoutScanIntervalMs = Math.max(10,
+                    conf.getLong(RpcConstants.NETTY_CLIENT_TIMEOUT_SCAN_INTERVAL,
+                            RpcConstants.CFG_DEFAULT_CLIENT_TIMEOUT_SCAN_INTERVAL_MS));
+        } else {
+            this.inflightCalls = null;
+            this.timeoutScanIntervalMs = 0;
+        }
         if (init.incrementAndGet() == 1) {
             timer = new HashedWheelTimer();
         }
@@ -101,6 +146,30 @@ public class NettyClient implements Client {
         this.channel = channel;
         this.addressInfo = addressInfo;
         this.closed.set(false);
+        if (inflightCalls != null) {
+            this.timeoutScanFuture = channel.eventLoop().scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    expireCalls();
+                }
+            }, timeoutScanIntervalMs, timeoutScanIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isPipelining() {
+        return inflightCalls != null;
+    }
+
+    /**
+     * Get the count of the calls waiting for their responses
+     *
+     * @return the in-flight call count
+     */
+    public int getInflightCount() {
+        if (inflightCalls != null) {
+            return inflightCalls.size();
+        }
+        return requests.size();
     }
 
     /* (non-Javadoc)
@@ -133,7 +202,7 @@ public class NettyClient implements Client {
         rpcBodyBuilder.setMethod(request.getMethodId());
         rpcBodyBuilder.setTimeout(request.getTimeout());
         rpcBodyBuilder
-                .setRequest(ByteString.copyFrom(PbEnDecoder.pbEncode(request.getRequestData())));
+                .setRequest(PbEnDecoder.pbEncodeToByteString(request.getRequestData()));
         RPCProtos.RequestBody rpcBodyRequest = rpcBodyBuilder.build();
         ByteBufferOutputStream bbo = new ByteBufferOutputStream();
         connectionHeader.writeDelimitedTo(bbo);
@@ -141,10 +210,13 @@ public class NettyClient implements Client {
         rpcBodyRequest.writeDelimitedTo(bbo);
         RpcDataPack pack = new RpcDataPack(request.getSerialNo(), bbo.getBufferList());
         CallFuture<ResponseWrapper> future = new CallFuture<ResponseWrapper>(callback);
+        if (inflightCalls != null) {
+            return pipelineCall(pack, future, callback == null, timeout, timeUnit);
+        }
         requests.put(request.getSerialNo(), future);
         if (callback == null) {
             try {
-                getChannel().write(pack);
+                getChannel().writeAndFlush(pack);
                 return future.get(timeout, timeUnit);
             } catch (Throwable e) {
                 Callback<ResponseWrapper> callback1 =
@@ -166,7 +238,7 @@ public class NettyClient implements Client {
                         timer.newTimeout(new TimeoutTask(request.getSerialNo()), timeout, timeUnit));
                 inserted = true;
                 //write data after build Timeout to avoid one request processed twice
-                getChannel().write(pack);
+                getChannel().writeAndFlush(pack);
             } catch (Throwable e) {
                 Callback<ResponseWrapper> callback1 =
                     requests.remove(request.getSerialNo());
@@ -190,6 +262,95 @@ public class NettyClient implements Client {
         return null;
     }
 
+    /**
+     * Send the request in pipelining mode
+     *
+     * @param pack       the request pack
+     * @param future     the future of the call
+     * @param isSync     whether to wait for the response
+     * @param timeout    the timeout of the call
+     * @param timeUnit   the time unit of the timeout
+     * @return the response if the call is sync, otherwise null
+     * @throws Exception
+     */
+    private ResponseWrapper pipelineCall(final RpcDataPack pack,
+                                         CallFuture<ResponseWrapper> future,
+                                         boolean isSync, long timeout,
+                                         TimeUnit timeUnit) throws Exception {
+        final int serialNo = pack.getSerialNo();
+        if (!inflightCalls.add(serialNo, future,
+                System.currentTimeMillis() + timeUnit.toMillis(timeout))) {
+            throw new OverflowException(new StringBuilder(256)
+                    .append("In-flight requests exceed the max count ")
+                    .append(inflightCalls.capacity()).toString());
+        }
+        try {
+            final Channel curChannel = getChannel();
+            // write in the event loop and flush once after all the pending writes
+            curChannel.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    // fail the call at once if the request can't be encoded or written
+                    curChannel.write(pack, curChannel.newPromise().addListener(
+                            new ChannelFutureListener() {
+                                @Override
+                                public void operationComplete(ChannelFuture wf) {
+                                    if (!wf.isSuccess()) {
+                                        Callback<ResponseWrapper> callback =
+                                                inflightCalls.remove(serialNo);
+                                        if (callback != null) {
+                                            callback.handleError(wf.cause());
+                                        }
+                                    }
+                                }
+                            }));
+                    if (!flushScheduled) {
+                        flushScheduled = true;
+                        curChannel.eventLoop().execute(flushTask);
+                    }
+                }
+            });
+            if (isSync) {
+                return future.get(timeout, timeUnit);
+            }
+        } catch (Throwable e) {
+            if (inflightCalls.remove(serialNo) != null) {
+                if (closed.get()) {
+                    throw new ClientClosedException("Netty client has bean closed!");
+                } else if (getChannel() == null) {
+                    throw new ClientClosedException("Send failure for channel is null!");
+                } else {
+                    throw e;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fail the in-flight calls that have timed out, called in the channel's event loop
+     */
+    private void expireCalls() {
+        for (Callback<ResponseWrapper> callback
+                : inflightCalls.removeExpired(System.currentTimeMillis())) {
+            callback.handleError(new TimeoutException("Request is timeout!"));
+        }
+    }
+
+    private Callback<ResponseWrapper> removeCall(int serialNo) {
+        if (inflightCalls != null) {
+            return inflightCalls.remove(serialNo);
+        }
+        Callback<ResponseWrapper> callback = requests.remove(serialNo);
+        if (callback != null) {
+            Timeout timeout = timeouts.remove(serialNo);
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+        return callback;
+    }
+
     @Override
     public NodeAddrInfo getServerAddressInfo() {
         return this.addressInfo;
@@ -205,8 +366,7 @@ public class NettyClient implements Client {
         return (!this.closed.get()
                 && channel != null
                 && channel.isOpen()
-                && channel.isBound()
-                && channel.isConnected());
+                && channel.isActive());
     }
 
     @Override
@@ -242,7 +402,17 @@ public class NettyClient implements Client {
                 clientStr = this.addressInfo.getHostPortStr();
             }
             if (removeParent) {
-                this.clientFactory.removeClient(this.getServerAddressInfo());
+                this.clientFactory.removeClient(this);
+            }
+            if (this.timeoutScanFuture != null) {
+                this.timeoutScanFuture.cancel(false);
+            }
+            if (inflightCalls != null) {
+                ClientClosedException exception =
+                        new ClientClosedException("Client has bean closed.");
+                for (Callback<ResponseWrapper> callback : inflightCalls.removeAll()) {
+                    callback.handleError(exception);
+                }
             }
             if (!requests.isEmpty()) {
                 ClientClosedException exception =
@@ -273,95 +443,131 @@ public class NettyClient implements Client {
     /**
      * tube NettyClientHandler
      */
-    public class NettyClientHandler extends SimpleChannelUpstreamHandler {
+    public class NettyClientHandler extends ChannelInboundHandlerAdapter {
+
+        private final Executor callbackExecutor;
 
-        @Override
         /**
-         * Invoked when a message object (e.g: {@link ChannelBuffer}) was received
+         * @param callbackExecutor  the executor the responses are processed in
+         */
+        public NettyClientHandler(Executor callbackExecutor) {
+            this.callbackExecutor = callbackExecutor;
+        }
+
+        /**
+         * Invoked when a message object (e.g: {@link RpcDataPack}) was received
          * from a remote peer.
+         *
+         * The response is decoded in the I/O thread and the received buffers are
+         * released before the callback is handed to the callback executor, so the
+         * queued callbacks never hold the pooled memory of the channel.
          */
-        public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
-            if (e.getMessage() instanceof RpcDataPack) {
-                RpcDataPack dataPack = (RpcDataPack) e.getMessage();
-                Callback callback = requests.remove(dataPack.getSerialNo());
-                if (callback != null) {
-                    Timeout timeout = timeouts.remove(dataPack.getSerialNo());
-                    if (timeout != null) {
-                        timeout.cancel();
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, final Object msg) throws Exception {
+            if (!(msg instanceof RpcDataPack)) {
+                return;
+            }
+            final Callback callback;
+            final ResponseWrapper responseWrapper;
+            try {
+                RpcDataPack dataPack = (RpcDataPack) msg;
+                callback = removeCall(dataPack.getSerialNo());
+                if (callback == null) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Missing previous call info, maybe it has been timeout.");
                     }
-                    ResponseWrapper responseWrapper;
-                    try {
-                        ByteBufferInputStream in = new ByteBufferInputStream(dataPack.getDataLst());
-                        RPCProtos.RpcConnHeader connHeader =
-                                RPCProtos.RpcConnHeader.parseDelimitedFrom(in);
-                        if (connHeader == null) {
-                            // When the stream is closed, protobuf doesn't raise an EOFException,
-                            // instead, it returns a null message object.
-                            throw new EOFException();
-                        }
-                        RPCProtos.ResponseHeader rpcResponse =
-                                RPCProtos.ResponseHeader.parseDelimitedFrom(in);
-                        if (rpcResponse == null) {
-                            // When the stream is closed, protobuf doesn't raise an EOFException,
-                            // instead, it returns a null message object.
-                            throw new EOFException();
-                        }
-                        RPCProtos.ResponseHeader.Status status = rpcResponse.getStatus();
-                        if (status == RPCProtos.ResponseHeader.Status.SUCCESS) {
-                            RPCProtos.RspResponseBody pbRpcResponse =
-                                    RPCProtos.RspResponseBody.parseDelimitedFrom(in);
-                            if (pbRpcResponse == null) {
-                                // When the RPCProtos parse failed , protobuf doesn't raise an Exception,
-                                // instead, it returns a null response object.
-                                throw new NetworkException("Not found PBRpcResponse data!");
-                            }
-                            Object responseResult =
-                                    PbEnDecoder.pbDecode(false, pbRpcResponse.getMethod(),
-                                            pbRpcResponse.getData().toByteArray());
-
-                            responseWrapper =
-                                    new ResponseWrapper(connHeader.getFlag(), dataPack.getSerialNo(),
-                                            rpcResponse.getServiceType(), rpcResponse.getProtocolVer(),
-                                            pbRpcResponse.getMethod(), responseResult);
-                        } else {
-                            RPCProtos.RspExceptionBody exceptionResponse =
-                                    RPCProtos.RspExceptionBody.parseDelimitedFrom(in);
-                            if (exceptionResponse == null) {
-                                // When the RPCProtos parse failed , protobuf doesn't raise an Exception,
-                                // instead, it returns a null response object.
-                                throw new NetworkException("Not found RpcException data!");
-                            }
-                            String exceptionName = exceptionResponse.getExceptionName();
-                            exceptionName = MixUtils.replaceClassNamePrefix(exceptionName,
-                                    false, rpcResponse.getProtocolVer());
-                            responseWrapper =
-                                    new ResponseWrapper(connHeader.getFlag(), dataPack.getSerialNo(),
-                                            rpcResponse.getServiceType(), rpcResponse.getProtocolVer(),
-                                            exceptionName, exceptionResponse.getStackTrace());
-                        }
-                        if (!responseWrapper.isSuccess()) {
-                            Throwable remote =
-                                    MixUtils.unwrapException(new StringBuilder(512)
-                                            .append(responseWrapper.getErrMsg()).append("#")
-                                            .append(responseWrapper.getStackTrace()).toString());
-                            if (IOException.class.isAssignableFrom(remote.getClass())) {
-                                NettyClient.this.close();
-                            }
-                        }
-                        callback.handleResult(responseWrapper);
-                    } catch (Throwable ee) {
-                        responseWrapper =
-                                new ResponseWrapper(-2, dataPack.getSerialNo(), -2, -2, -2, ee);
-                        if (ee instanceof EOFException) {
-                            NettyClient.this.close();
-                        }
+                    return;
+                }
+                responseWrapper = decodeResponse(dataPack);
+            } finally {
+                releaseDataPack(msg);
+            }
+            try {
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
                         callback.handleResult(responseWrapper);
                     }
+                });
+            } catch (RejectedExecutionException e) {
+                logger.warn("Callback executor is shutdown, discard the response.");
+            }
+        }
+
+        private void releaseDataPack(Object msg) {
+            if (msg instanceof ReceivedRpcDataPack) {
+                ((ReceivedRpcDataPack) msg).release();
+            }
+        }
+
+        private ResponseWrapper decodeResponse(RpcDataPack dataPack) {
+            ResponseWrapper responseWrapper;
+            try {
+                ByteBufferInputStream in = new ByteBufferInputStream(dataPack.getDataLst());
+                RPCProtos.RpcConnHeader connHeader =
+                        RPCProtos.RpcConnHeader.parseDelimitedFrom(in);
+                if (connHeader == null) {
+                    // When the stream is closed, protobuf doesn't raise an EOFException,
+                    // instead, it returns a null message object.
+                    throw new EOFException();
+                }
+                RPCProtos.ResponseHeader rpcResponse =
+                        RPCProtos.ResponseHeader.parseDelimitedFrom(in);
+                if (rpcResponse == null) {
+                    // When the stream is closed, protobuf doesn't raise an EOFException,
+                    // instead, it returns a null message object.
+                    throw new EOFException();
+                }
+                RPCProtos.ResponseHeader.Status status = rpcResponse.getStatus();
+                if (status == RPCProtos.ResponseHeader.Status.SUCCESS) {
+                    RPCProtos.RspResponseBody pbRpcResponse =
+                            RPCProtos.RspResponseBody.parseDelimitedFrom(in);
+                    if (pbRpcResponse == null) {
+                        // When the RPCProtos parse failed , protobuf doesn't raise an Exception,
+                        // instead, it returns a null response object.
+                        throw new NetworkException("Not found PBRpcResponse data!");
+                    }
+                    Object responseResult =
+                            PbEnDecoder.pbDecode(false, pbRpcResponse.getMethod(),
+                                    pbRpcResponse.getData());
+
+                    responseWrapper =
+                            new ResponseWrapper(connHeader.getFlag(), dataPack.getSerialNo(),
+                                    rpcResponse.getServiceType(), rpcResponse.getProtocolVer(),
+                                    pbRpcResponse.getMethod(), responseResult);
                 } else {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Missing previous call info, maybe it has been timeout.");
+                    RPCProtos.RspExceptionBody exceptionResponse =
+                            RPCProtos.RspExceptionBody.parseDelimitedFrom(in);
+                    if (exceptionResponse == null) {
+                        // When the RPCProtos parse failed , protobuf doesn't raise an Exception,
+                        // instead, it returns a null response object.
+                        throw new NetworkException("Not found RpcException data!");
                     }
+                    String exceptionName = exceptionResponse.getExceptionName();
+                    exceptionName = MixUtils.replaceClassNamePrefix(exceptionName,
+                            false, rpcResponse.getProtocolVer());
+                    responseWrapper =
+                            new ResponseWrapper(connHeader.getFlag(), dataPack.getSerialNo(),
+                                    rpcResponse.getServiceType(), rpcResponse.getProtocolVer(),
+                                    exceptionName, exceptionResponse.getStackTrace());
                 }
+                if (!responseWrapper.isSuccess()) {
+                    Throwable remote =
+                            MixUtils.unwrapException(new StringBuilder(512)
+                                    .append(responseWrapper.getErrMsg()).append("#")
+                                    .append(responseWrapper.getStackTrace()).toString());
+                    if (IOException.class.isAssignableFrom(remote.getClass())) {
+                        NettyClient.this.close();
+                    }
+                }
+                return responseWrapper;
+            } catch (Throwable ee) {
+                responseWrapper =
+                        new ResponseWrapper(-2, dataPack.getSerialNo(), -2, -2, -2, ee);
+                if (ee instanceof EOFException) {
+                    NettyClient.this.close();
+                }
+                return responseWrapper;
             }
         }
 
@@ -370,28 +576,27 @@ public class NettyClient implements Client {
          * {@link ChannelHandler}.
          */
         @Override
-        public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
-            Throwable t = e.getCause();
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable t) throws Exception {
             if ((t instanceof IOException || t instanceof ReadTimeoutException
                 || t instanceof UnresolvedAddressException)) {
                 if (t instanceof ReadTimeoutException) {
-                    logger.info("Close client {} due to idle.", e.getChannel());
+                    logger.info("Close client {} due to idle.", ctx.channel());
                 }
                 if (t instanceof UnresolvedAddressException) {
                     logger.info("UnresolvedAddressException for connect {} closed.", addressInfo.getHostPortStr());
                 }
                 NettyClient.this.close();
             } else {
-                logger.error("catch some exception not IOException", e.getCause());
+                logger.error("catch some exception not IOException", t);
             }
         }
 
-        @Override
         /**
          * Invoked when a {@link Channel} was closed and all its related resources
          * were released.
          */
-        public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
             NettyClient.this.close();
         }
     }
@@ -415,7 +620,12 @@ public class NettyClient implements Client {
             }
             final Callback callback = requests.remove(serialNo);
             if (callback != null) {
-                channel.getPipeline().execute(new Runnable() {
+                final Channel curChannel = channel;
+                if (curChannel == null) {
+                    callback.handleError(new TimeoutException("Request is timeout!"));
+                    return;
+                }
+                curChannel.eventLoop().execute(new Runnable() {
                     @Override
                     public void run() {
                         callback.handleError(new TimeoutException("Request is timeout!"));
@@ -17,10 +17,22 @@
 
 package org.apache.inlong.tubemq.corerpc.netty;
 
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.timeout.ReadTimeoutHandler;
 import java.net.InetSocketAddress;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -32,42 +44,34 @@ import org.apache.inlong.tubemq.corerpc.client.Client;
 import org.apache.inlong.tubemq.corerpc.client.ClientFactory;
 import org.apache.inlong.tubemq.corerpc.exception.LocalConnException;
 import org.apache.inlong.tubemq.corerpc.utils.TSSLEngineUtil;
-import org.jboss.netty.bootstrap.ClientBootstrap;
-import org.jboss.netty.channel.ChannelFactory;
-import org.jboss.netty.channel.ChannelFuture;
-import org.jboss.netty.channel.ChannelPipeline;
-import org.jboss.netty.channel.ChannelPipelineFactory;
-import org.jboss.netty.channel.Channels;
-import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
-import org.jboss.netty.channel.socket.nio.NioWorkerPool;
-import org.jboss.netty.handler.execution.ExecutionHandler;
-import org.jboss.netty.handler.execution.MemoryAwareThreadPoolExecutor;
-import org.jboss.netty.handler.ssl.SslHandler;
-import org.jboss.netty.util.HashedWheelTimer;
-import org.jboss.netty.util.ThreadNameDeterminer;
-import org.jboss.netty.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Network communication between service processes based on netty
  * see @link MessageSessionFactory Manage network connections
+ *
+ * Each remote address is served by a pool of connections, one by default,
+ * and the calls are spread over the pooled connections by round robin or
+ * by the least in-flight calls.
  */
 public class NettyClientFactory implements ClientFactory {
 
     private static final Logger logger =
             LoggerFactory.getLogger(NettyClientFactory.class);
-    protected final ConcurrentHashMap<String, Client> clients =
+    // the connections to each remote address
+    protected final ConcurrentHashMap<String, NettyClientPool> pools =
             new ConcurrentHashMap<>();
     protected AtomicBoolean shutdown = new AtomicBoolean(true);
-    private Timer timer = new HashedWheelTimer();
-    private volatile AtomicBoolean init = new AtomicBoolean(true);
-    private ChannelFactory channelFactory;
-    private MemoryAwareThreadPoolExecutor eventExecutor;
-    private ExecutorService bossExecutorService;
-    private ExecutorService workerExecutorService;
-    private AtomicInteger workerIdCounter = new AtomicInteger(0);
+    private boolean useEpoll = false;
+    private EventLoopGroup workerGroup;
+    // the executor the callbacks of the decoded responses are processed in
+    private ExecutorService callbackExecutor;
     private RpcConfig factoryConf;
+    private int connectionsPerHost = RpcConstants.CFG_DEFAULT_CLIENT_CONNECTIONS_PER_HOST;
+    private boolean selectLeastInflight = false;
+    private long linkStatsDurationMs = RpcConstants.CFG_LQ_STATS_DURATION_MS;
+    private int linkStatsMaxAllowedFailCount = RpcConstants.CFG_LQ_MAX_ALLOWED_FAIL_COUNT;
     // TSL encryption and need Two Way Authentic
     private boolean enableTLS = false;
     private boolean needTwoWayAuthentic = false;
@@ -87,9 +91,6 @@ public class NettyClientFactory implements ClientFactory {
      * @throws IllegalArgumentException
      */
     public void configure(final RpcConfig conf) throws IllegalArgumentException {
-        if (this.init.compareAndSet(false, true)) {
-            this.timer = new HashedWheelTimer();
-        }
         if (this.shutdown.compareAndSet(true, false)) {
             this.factoryConf = conf;
             enableTLS = conf.getBoolean(RpcConstants.TLS_OVER_TCP, false);
@@ -110,82 +111,84 @@ public class NettyClientFactory implements ClientFactory {
                 trustStorePath = null;
                 trustStorePassword = null;
             }
-            final int bossCount =
-                    conf.getInt(RpcConstants.BOSS_COUNT,
-                            RpcConstants.CFG_DEFAULT_BOSS_COUNT);
             final int workerCount =
                     conf.getInt(RpcConstants.WORKER_COUNT,
                             RpcConstants.CFG_DEFAULT_CLIENT_WORKER_COUNT);
             final int callbackCount =
                     conf.getInt(RpcConstants.CALLBACK_WORKER_COUNT, 3);
-            bossExecutorService = Executors.newCachedThreadPool();
-            workerExecutorService = Executors.newCachedThreadPool();
-            this.channelFactory = new NioClientSocketChannelFactory(bossExecutorService, bossCount,
-                    new NioWorkerPool(workerExecutorService, workerCount, new ThreadNameDeterminer() {
+            this.connectionsPerHost = Math.min(Math.max(1,
+                    conf.getInt(RpcConstants.NETTY_CLIENT_CONNECTIONS_PER_HOST,
+                            RpcConstants.CFG_DEFAULT_CLIENT_CONNECTIONS_PER_HOST)),
+                    RpcConstants.CFG_MAX_CLIENT_CONNECTIONS_PER_HOST);
+            this.selectLeastInflight =
+                    conf.getBoolean(RpcConstants.NETTY_CLIENT_SELECT_LEAST_INFLIGHT, false);
+            this.linkStatsDurationMs =
+                    conf.getLong(RpcConstants.RPC_LQ_STATS_DURATION,
+                            RpcConstants.CFG_LQ_STATS_DURATION_MS);
+            this.linkStatsMaxAllowedFailCount =
+                    conf.getInt(RpcConstants.RPC_LQ_MAX_ALLOWED_FAIL_COUNT,
+                            RpcConstants.CFG_LQ_MAX_ALLOWED_FAIL_COUNT);
+            this.useEpoll = NettyTransportUtils.useEpoll(conf);
+            this.workerGroup = NettyTransportUtils.newEventLoopGroup(useEpoll, workerCount,
+                    conf.getString(RpcConstants.WORKER_THREAD_NAME,
+                            RpcConstants.CFG_DEFAULT_WORKER_THREAD_NAME));
+            this.callbackExecutor = Executors.newFixedThreadPool(callbackCount,
+                    new ThreadFactory() {
+                        private final AtomicInteger threadIdCounter = new AtomicInteger(0);
+
                         @Override
-                        public String determineThreadName(String currentThreadName, String proposedThreadName)
-                                throws Exception {
-                            return new StringBuilder(256)
-                                    .append(conf.getString(RpcConstants.WORKER_THREAD_NAME,
-                                            RpcConstants.CFG_DEFAULT_WORKER_THREAD_NAME))
-                                    .append(workerIdCounter.incrementAndGet()).toString();
+                        public Thread newThread(Runnable r) {
+                            return new Thread(r, new StringBuilder(256)
+                                    .append("tube_rpc_callback-")
+                                    .append(threadIdCounter.incrementAndGet()).toString());
                         }
-                    }));
-            this.eventExecutor = new MemoryAwareThreadPoolExecutor(
-                    callbackCount,
-                    conf.getInt(RpcConstants.WORKER_MEM_SIZE,
-                            RpcConstants.CFG_DEFAULT_TOTAL_MEM_SIZE),
-                    conf.getInt(RpcConstants.WORKER_MEM_SIZE,
-                            RpcConstants.CFG_DEFAULT_TOTAL_MEM_SIZE));
+                    });
         }
     }
 
     @Override
     public Client getClient(NodeAddrInfo addressInfo, RpcConfig conf) throws Exception {
-        Client client = clients.get(addressInfo.getHostPortStr());
+        NettyClientPool pool = getClientPool(addressInfo.getHostPortStr());
+        int index = pool.select(System.currentTimeMillis());
+        NettyClient client = pool.get(index);
         // use the cache network client
         if (client != null && client.isReady()) {
             return client;
         }
-        synchronized (this) {
+        synchronized (pool) {
             // check client has been build already
-            client = clients.get(addressInfo.getHostPortStr());
+            client = pool.get(index);
             if (client != null && client.isReady()) {
                 return client;
             }
 
             // clean and build a new network client
             if (client != null) {
-                client = clients.remove(addressInfo.getHostPortStr());
-                if (client != null) {
-                    client.close();
+                if (pool.remove(client)) {
+                    client.close(false);
                 }
                 client = null;
             }
             int connectTimeout = conf.getInt(RpcConstants.CONNECT_TIMEOUT, 3000);
             try {
                 client = createClient(addressInfo, connectTimeout, conf);
-                Client existClient =
-                        clients.putIfAbsent(addressInfo.getHostPortStr(), client);
-                if (existClient != null) {
-                    client.close(false);
-                    client = existClient;
-                }
+                pool.set(index, client);
+                pool.onConnected(index);
             } catch (LocalConnException e) {
                 if (client != null) {
                     client.close(false);
                 }
-                throw e;
+                return getReadyClientOrThrow(pool, index, e);
             } catch (Exception e) {
                 if (client != null) {
                     client.close(false);
                 }
-                throw e;
+                return getReadyClientOrThrow(pool, index, e);
             } catch (Throwable ee) {
                 if (client != null) {
                     client.close(false);
                 }
-                throw new Exception(ee);
+                return getReadyClientOrThrow(pool, index, new Exception(ee));
             }
         }
         return client;
@@ -193,7 +196,30 @@ public class NettyClientFactory implements ClientFactory {
 
     @Override
     public Client removeClient(NodeAddrInfo addressInfo) {
-        return clients.remove(addressInfo.getHostPortStr());
+        NettyClientPool pool = pools.remove(addressInfo.getHostPortStr());
+        if (pool == null) {
+            return null;
+        }
+        Client removed = null;
+        for (NettyClient client : pool.removeAll()) {
+            if (removed == null) {
+                removed = client;
+            } else {
+                client.close(false);
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean removeClient(Client client) {
+        if (!(client instanceof NettyClient)
+                || client.getServerAddressInfo() == null) {
+            return false;
+        }
+        NettyClientPool pool =
+                pools.get(client.getServerAddressInfo().getHostPortStr());
+        return pool != null && pool.remove((NettyClient) client);
     }
 
     @Override
@@ -203,39 +229,69 @@ public class NettyClientFactory implements ClientFactory {
 
     @Override
     public void shutdown() {
-        // stop timer
-        if (this.init.compareAndSet(true, false)) {
-            timer.stop();
-        }
         // shutdown and release network resources
         if (this.shutdown.compareAndSet(false, true)) {
             try {
-                if (!clients.isEmpty()) {
-                    for (String key : clients.keySet()) {
+                if (!pools.isEmpty()) {
+                    for (String key : pools.keySet()) {
                         if (key != null) {
-                            Client client = clients.remove(key);
-                            if (client != null) {
-                                client.close();
+                            NettyClientPool pool = pools.remove(key);
+                            if (pool != null) {
+                                for (NettyClient client : pool.removeAll()) {
+                                    client.close(false);
+                                }
                             }
                         }
                     }
                 }
-                if (this.bossExecutorService != null) {
-                    this.bossExecutorService.shutdown();
-                }
-                if (this.workerExecutorService != null) {
-                    this.workerExecutorService.shutdown();
-                }
-                if (this.eventExecutor != null) {
-                    this.eventExecutor.shutdown();
+                if (this.callbackExecutor != null) {
+                    this.callbackExecutor.shutdown();
                 }
             } finally {
-                this.channelFactory.releaseExternalResources();
-                this.channelFactory.shutdown();
+                if (this.workerGroup != null) {
+                    this.workerGroup.shutdownGracefully();
+                }
             }
         }
     }
 
+    private NettyClientPool getClientPool(String hostPortStr) {
+        NettyClientPool pool = pools.get(hostPortStr);
+        if (pool == null) {
+            NettyClientPool newPool = new NettyClientPool(connectionsPerHost,
+                    selectLeastInflight, linkStatsDurationMs, linkStatsMaxAllowedFailCount);
+            pool = pools.putIfAbsent(hostPortStr, newPool);
+            if (pool == null) {
+                pool = newPool;
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * record the connection failure of the slot, and fall back
+     * to another connection of the pool if there is one
+     *
+     * @param pool
+     * @param index
+     * @param e
+     * @return
+     * @throws Exception
+     */
+    private Client getReadyClientOrThrow(NettyClientPool pool,
+                                         int index, Exception e) throws Exception {
+        if (pool.onConnectFailure(index, System.currentTimeMillis())) {
+            logger.warn(new StringBuilder(256).append("Connection ").append(index)
+                    .append(" of the pool is skipped for too many failures: ")
+                    .append(e.getMessage()).toString());
+        }
+        Client client = pool.getReadyClient(index);
+        if (client == null) {
+            throw e;
+        }
+        return client;
+    }
+
     /**
      * create a netty client
      *
@@ -245,29 +301,26 @@ public class NettyClientFactory implements ClientFactory {
      * @return
      * @throws Exception
      */
-    private Client createClient(final NodeAddrInfo addressInfo,
+    private NettyClient createClient(final NodeAddrInfo addressInfo,
                                 int connectTimeout, final RpcConfig conf) throws Exception {
         final NettyClient client =
-                new NettyClient(this, connectTimeout);
-        ClientBootstrap clientBootstrap = new ClientBootstrap();
-        clientBootstrap.setOption("tcpNoDelay", true);
-        clientBootstrap.setOption("reuseAddress", true);
-        clientBootstrap.setOption("connectTimeoutMillis", connectTimeout);
-        clientBootstrap.setFactory(this.channelFactory);
-        long nettyWriteHighMark =
-                conf.getLong(RpcConstants.NETTY_WRITE_HIGH_MARK, -1);
-        long nettyWriteLowMark =
-                conf.getLong(RpcConstants.NETTY_WRITE_LOW_MARK, -1);
-        if (nettyWriteHighMark > 0) {
-            clientBootstrap.setOption("writeBufferHighWaterMark", nettyWriteHighMark);
-        }
-        if (nettyWriteLowMark > 0) {
-            clientBootstrap.setOption("writeBufferLowWaterMark", nettyWriteLowMark);
+                new NettyClient(this, connectTimeout, conf);
+        Bootstrap clientBootstrap = new Bootstrap();
+        clientBootstrap.group(this.workerGroup)
+                .channel(NettyTransportUtils.getClientChannelClass(useEpoll));
+        clientBootstrap.option(ChannelOption.TCP_NODELAY, true);
+        clientBootstrap.option(ChannelOption.SO_REUSEADDR, true);
+        clientBootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout);
+        clientBootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+        WriteBufferWaterMark writeBufferWaterMark =
+                NettyTransportUtils.getWriteBufferWaterMark(conf);
+        if (writeBufferWaterMark != null) {
+            clientBootstrap.option(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark);
         }
-        clientBootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+        clientBootstrap.handler(new ChannelInitializer<SocketChannel>() {
             @Override
-            public ChannelPipeline getPipeline() throws Exception {
-                ChannelPipeline pipeline = Channels.pipeline();
+            protected void initChannel(SocketChannel ch) throws Exception {
+                ChannelPipeline pipeline = ch.pipeline();
                 if (enableTLS) {
                     try {
                         SSLEngine sslEngine =
@@ -285,22 +338,19 @@ public class NettyClientFactory implements ClientFactory {
                 pipeline.addLast("protocolEncoder", new NettyProtocolEncoder());
                 // Decode the bytes into a Rpc Data Pack
                 pipeline.addLast("protocolDecoder", new NettyProtocolDecoder());
-                // handle the time out requests
-                pipeline.addLast("readTimeoutHandler", new ReadTimeoutHandler(timer,
+                // close the idle connection
+                pipeline.addLast("readTimeoutHandler", new ReadTimeoutHandler(
                         conf.getLong(RpcConstants.CONNECT_READ_IDLE_DURATION,
                                 RpcConstants.CFG_CONNECT_READ_IDLE_TIME), TimeUnit.MILLISECONDS));
-                // execution handler
-                pipeline.addLast("execution", new ExecutionHandler(eventExecutor));
-                // tube netty client handler
-                pipeline.addLast("clientHandler", client.new NettyClientHandler());
-                return pipeline;
+                // tube netty client handler, the responses are processed in the callback executor
+                pipeline.addLast("clientHandler", client.new NettyClientHandler(callbackExecutor));
             }
         });
         ChannelFuture future =
                 clientBootstrap.connect(new InetSocketAddress(addressInfo.getHost(), addressInfo.getPort()));
         future.awaitUninterruptibly(connectTimeout);
         if (!future.isDone()) {
-            future.cancel();
+            future.cancel(true);
             throw new LocalConnException(new StringBuilder(256).append("Create connection to ")
                     .append(addressInfo.getHostPortStr()).append(" timeout!").toString());
         }
@@ -310,9 +360,9 @@ public class NettyClientFactory implements ClientFactory {
         }
         if (!future.isSuccess()) {
             throw new LocalConnException(new StringBuilder(256).append("Create connection to ")
-                    .append(addressInfo.getHostPortStr()).append(" error").toString(), future.getCause());
+                    .append(addressInfo.getHostPortStr()).append(" error").toString(), future.cause());
         }
-        client.setChannel(future.getChannel(), addressInfo);
+        client.setChannel(future.channel(), addressInfo);
         return client;
     }
 
@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.apache.inlong.tubemq.corerpc.RemoteConErrStats;
+
+/**
+ * The connections to a remote address. Each slot of the pool holds at most one
+ * connection, and a call is sent on the slot selected by round robin or by the
+ * least in-flight calls. A slot whose connection keeps failing is skipped for a
+ * while, as long as there are other slots to use.
+ */
+class NettyClientPool {
+
+    private final AtomicReferenceArray<NettyClient> clients;
+    // the connection error statistics of each slot
+    private final RemoteConErrStats[] errStats;
+    // the time each slot is skipped until
+    private final AtomicLongArray forbiddenTimes;
+    private final boolean selectLeastInflight;
+    private final long forbiddenDurationMs;
+    private final AtomicInteger selectIndex = new AtomicInteger(0);
+
+    /**
+     * @param connectionCount      the slot count of the pool
+     * @param selectLeastInflight  whether to select the slot with the least in-flight calls
+     * @param statsDurationMs      the statistic duration of the connection errors
+     * @param maxAllowedFailCount  the max allowed connection errors of a slot in the duration
+     */
+    NettyClientPool(int connectionCount, boolean selectLeastInflight,
+                    long statsDurationMs, int maxAllowedFailCount) {
+        this.clients = new AtomicReferenceArray<>(connectionCount);
+        this.errStats = new RemoteConErrStats[connectionCount];
+        for (int i = 0; i < connectionCount; i++) {
+            this.errStats[i] = new RemoteConErrStats(statsDurationMs, maxAllowedFailCount);
+        }
+        this.forbiddenTimes = new AtomicLongArray(connectionCount);
+        this.selectLeastInflight = selectLeastInflight;
+        this.forbiddenDurationMs = statsDurationMs;
+    }
+
+    /**
+     * Select the slot to send a call on
+     *
+     * @param curTime  the current time in milliseconds
+     * @return the slot index
+     */
+    int select(long curTime) {
+        int size = clients.length();
+        if (size == 1) {
+            return 0;
+        }
+        int start = (selectIndex.getAndIncrement() & Integer.MAX_VALUE) % size;
+        int selected = -1;
+        int minInflight = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            if (forbiddenTimes.get(index) > curTime) {
+                continue;
+            }
+            if (!selectLeastInflight) {
+                return index;
+            }
+            // an empty slot counts as idle, it will be connected when selected
+            NettyClient client = clients.get(index);
+            int inflight = 0;
+            if (client != null && client.isReady()) {
+                inflight = client.isWritable()
+                        ? client.getInflightCount() : Integer.MAX_VALUE - 1;
+            }
+            if (inflight < minInflight) {
+                minInflight = inflight;
+                selected = index;
+            }
+        }
+        // all the slots are skipped, use the slot in turn
+        return selected < 0 ? start : selected;
+    }
+
+    NettyClient get(int index) {
+        return clients.get(index);
+    }
+
+    /**
+     * Get a ready client other than the one of the slot
+     *
+     * @param excludeIndex  the slot to exclude
+     * @return a ready client, or null if there is none
+     */
+    NettyClient getReadyClient(int excludeIndex) {
+        for (int i = 0; i < clients.length(); i++) {
+            if (i == excludeIndex) {
+                continue;
+            }
+            NettyClient client = clients.get(i);
+            if (client != null && client.isReady()) {
+                return client;
+            }
+        }
+        return null;
+    }
+
+    void set(int index, NettyClient client) {
+        clients.set(index, client);
+    }
+
+    /**
+     * Remove a client from its slot
+     *
+     * @param client  the client to remove
+     * @return true if the client was in the pool
+     */
+    boolean remove(NettyClient client) {
+        for (int i = 0; i < clients.length(); i++) {
+            if (clients.compareAndSet(i, client, null)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove all the clients
+     *
+     * @return the removed clients
+     */
+    List<NettyClient> removeAll() {
+        List<NettyClient> removed = new ArrayList<>();
+        for (int i = 0; i < clients.length(); i++) {
+            NettyClient client = clients.getAndSet(i, null);
+            if (client != null) {
+                removed.add(client);
+            }
+        }
+        return removed;
+    }
+
+    void onConnected(int index) {
+        errStats[index].resetErrCount();
+        forbiddenTimes.set(index, 0L);
+    }
+
+    /**
+     * Record a connection failure of the slot, the slot is skipped when
+     * its failures exceed the max allowed count
+     *
+     * @param index    the slot index
+     * @param curTime  the current time in milliseconds
+     * @return true if the slot is skipped
+     */
+    boolean onConnectFailure(int index, long curTime) {
+        if (errStats[index].increErrCount()) {
+            forbiddenTimes.set(index, curTime + forbiddenDurationMs);
+            return true;
+        }
+        return false;
+    }
+
+    int size() {
+        return clients.length();
+    }
+}
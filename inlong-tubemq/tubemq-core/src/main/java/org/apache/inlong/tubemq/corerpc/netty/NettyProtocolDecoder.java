@@ -18,21 +18,21 @@
 package org.apache.inlong.tubemq.corerpc.netty;
 
 import static org.apache.inlong.tubemq.corebase.utils.AddressUtils.getRemoteAddressIP;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
-import org.apache.inlong.tubemq.corerpc.RpcDataPack;
 import org.apache.inlong.tubemq.corerpc.exception.UnknownProtocolException;
-import org.jboss.netty.buffer.ChannelBuffer;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.handler.codec.frame.FrameDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class NettyProtocolDecoder extends FrameDecoder {
+public class NettyProtocolDecoder extends ByteToMessageDecoder {
     private static final Logger logger =
             LoggerFactory.getLogger(NettyProtocolDecoder.class);
     private static final ConcurrentHashMap<String, AtomicLong> errProtolAddrMap =
@@ -43,29 +43,34 @@ public class NettyProtocolDecoder extends FrameDecoder {
     private static AtomicLong lastSizeTime = new AtomicLong(0);
     private boolean packHeaderRead = false;
     private int listSize;
-    private RpcDataPack dataPack;
+    private int serialNo;
+    private List<ByteBuf> segments;
+    private List<ByteBuffer> dataLst;
 
     @Override
-    protected Object decode(ChannelHandlerContext ctx, Channel channel,
-                            ChannelBuffer buffer) throws Exception {
+    protected void decode(ChannelHandlerContext ctx,
+                          ByteBuf buffer, List<Object> out) throws Exception {
+        Channel channel = ctx.channel();
         if (!packHeaderRead) {
             if (buffer.readableBytes() < 12) {
-                return null;
+                return;
             }
             int frameToken = buffer.readInt();
             filterIllegalPkgToken(frameToken,
                     RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN, channel);
-            int serialNo = buffer.readInt();
+            int tmpSerialNo = buffer.readInt();
             int tmpListSize = buffer.readInt();
             filterIllegalPackageSize(true, tmpListSize,
                     RpcConstants.MAX_FRAME_MAX_LIST_SIZE, channel);
+            this.serialNo = tmpSerialNo;
             this.listSize = tmpListSize;
-            this.dataPack = new RpcDataPack(serialNo, new ArrayList<ByteBuffer>(this.listSize));
+            this.segments = new ArrayList<>(this.listSize);
+            this.dataLst = new ArrayList<>(this.listSize);
             this.packHeaderRead = true;
         }
         // get PackBody
         if (buffer.readableBytes() < 4) {
-            return null;
+            return;
         }
         buffer.markReaderIndex();
         int length = buffer.readInt();
@@ -73,20 +78,34 @@ public class NettyProtocolDecoder extends FrameDecoder {
                 RpcConstants.RPC_MAX_BUFFER_SIZE, channel);
         if (buffer.readableBytes() < length) {
             buffer.resetReaderIndex();
-            return null;
+            return;
         }
-        ByteBuffer bb = ByteBuffer.allocate(length);
-        buffer.readBytes(bb);
-        bb.flip();
-        dataPack.getDataLst().add(bb);
-        if (dataPack.getDataLst().size() == listSize) {
+        // keep a retained slice of the received buffer instead of copying the
+        // segment out, the cumulation is never overwritten while it is shared
+        ByteBuf segment = buffer.readRetainedSlice(length);
+        segments.add(segment);
+        dataLst.add(segment.nioBuffer());
+        if (dataLst.size() == listSize) {
+            out.add(new ReceivedRpcDataPack(serialNo, dataLst, segments));
             packHeaderRead = false;
-            return dataPack;
-        } else {
-            return null;
+            segments = null;
+            dataLst = null;
         }
     }
 
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        // release the segments of the incomplete pack
+        if (segments != null) {
+            for (ByteBuf segment : segments) {
+                segment.release();
+            }
+            segments = null;
+            dataLst = null;
+        }
+        packHeaderRead = false;
+    }
+
     private void filterIllegalPkgToken(int inParamValue,
                                        int allowTokenVal, Channel channel) throws UnknownProtocolException {
         if (inParamValue != allowTokenVal) {
@@ -112,7 +131,7 @@ public class NettyProtocolDecoder extends FrameDecoder {
             }
             throw new UnknownProtocolException(new StringBuilder(256)
                     .append("Unknown protocol exception for message frame, channel.address = ")
-                    .append(channel.getRemoteAddress().toString()).toString());
+                    .append(channel.remoteAddress().toString()).toString());
         }
     }
 
@@ -141,7 +160,7 @@ public class NettyProtocolDecoder extends FrameDecoder {
             }
             StringBuilder sBuilder = new StringBuilder(256)
                     .append("Unknown protocol exception for message listSize! channel.address = ")
-                    .append(channel.getRemoteAddress().toString());
+                    .append(channel.remoteAddress().toString());
             if (isFrameSize) {
                 sBuilder.append(", Max list size=").append(allowSize)
                         .append(", request's list size=").append(inParamValue);
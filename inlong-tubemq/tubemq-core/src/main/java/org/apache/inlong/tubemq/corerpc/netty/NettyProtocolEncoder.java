@@ -17,45 +17,44 @@
 
 package org.apache.inlong.tubemq.corerpc.netty;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
 import java.util.List;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
-import org.jboss.netty.buffer.ChannelBuffers;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
 
-public class NettyProtocolEncoder extends OneToOneEncoder {
+public class NettyProtocolEncoder extends MessageToMessageEncoder<RpcDataPack> {
 
     @Override
-    protected Object encode(ChannelHandlerContext ctx,
-                            Channel channel, Object msg) throws Exception {
-        RpcDataPack dataPack = (RpcDataPack) msg;
+    protected void encode(ChannelHandlerContext ctx,
+                          RpcDataPack dataPack, List<Object> out) throws Exception {
         List<ByteBuffer> origs = dataPack.getDataLst();
-        List<ByteBuffer> bbs = new ArrayList<>(origs.size() * 2 + 1);
-        bbs.add(getPackHeader(dataPack));
-        for (ByteBuffer b : origs) {
-            bbs.add(getLengthHeader(b));
-            bbs.add(b);
+        // the pack header and all the length headers are written into one
+        // pooled direct buffer, whose slices are composed with the data
+        // segments without copying them
+        ByteBuf headers = ctx.alloc().directBuffer(12 + 4 * origs.size());
+        CompositeByteBuf frame = ctx.alloc().compositeBuffer(origs.size() * 2 + 1);
+        try {
+            headers.writeInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
+            headers.writeInt(dataPack.getSerialNo());
+            headers.writeInt(origs.size());
+            frame.addComponent(true, headers.retainedSlice(0, 12));
+            for (ByteBuffer b : origs) {
+                int index = headers.writerIndex();
+                headers.writeInt(b.limit());
+                frame.addComponent(true, headers.retainedSlice(index, 4));
+                frame.addComponent(true, Unpooled.wrappedBuffer(b));
+            }
+            out.add(frame);
+        } catch (Throwable e) {
+            frame.release();
+            throw e;
+        } finally {
+            headers.release();
         }
-        return ChannelBuffers.wrappedBuffer(bbs.toArray(new ByteBuffer[bbs.size()]));
-    }
-
-    private ByteBuffer getPackHeader(RpcDataPack dataPack) {
-        ByteBuffer header = ByteBuffer.allocate(12);
-        header.putInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
-        header.putInt(dataPack.getSerialNo());
-        header.putInt(dataPack.getDataLst().size());
-        header.flip();
-        return header;
-    }
-
-    private ByteBuffer getLengthHeader(ByteBuffer buf) {
-        ByteBuffer header = ByteBuffer.allocate(4);
-        header.putInt(buf.limit());
-        header.flip();
-        return header;
     }
 }
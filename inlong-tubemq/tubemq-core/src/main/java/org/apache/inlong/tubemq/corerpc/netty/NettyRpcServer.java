@@ -19,6 +19,20 @@ package org.apache.inlong.tubemq.corerpc.netty;
 
 import static org.apache.inlong.tubemq.corebase.utils.AddressUtils.getRemoteAddressIP;
 import com.google.protobuf.Message;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.handler.ssl.SslHandler;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -26,7 +40,6 @@ import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.net.ssl.SSLEngine;
@@ -44,19 +57,6 @@ import org.apache.inlong.tubemq.corerpc.server.RequestContext;
 import org.apache.inlong.tubemq.corerpc.server.ServiceRpcServer;
 import org.apache.inlong.tubemq.corerpc.utils.MixUtils;
 import org.apache.inlong.tubemq.corerpc.utils.TSSLEngineUtil;
-import org.jboss.netty.bootstrap.ServerBootstrap;
-import org.jboss.netty.buffer.ChannelBuffer;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelHandler;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.ChannelPipeline;
-import org.jboss.netty.channel.ChannelPipelineFactory;
-import org.jboss.netty.channel.DefaultChannelPipeline;
-import org.jboss.netty.channel.ExceptionEvent;
-import org.jboss.netty.channel.MessageEvent;
-import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
-import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
-import org.jboss.netty.handler.ssl.SslHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -73,7 +73,9 @@ public class NettyRpcServer implements ServiceRpcServer {
     private final ConcurrentHashMap<Integer, Protocol> protocols =
             new ConcurrentHashMap<>();
     private ServerBootstrap bootstrap;
-    private NioServerSocketChannelFactory channelFactory = null;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private Channel serverChannel;
     private AtomicBoolean started = new AtomicBoolean(false);
     private int protocolType = RpcProtocol.RPC_PROTOCOL_TCP;
     private boolean isOverTLS;
@@ -119,30 +121,31 @@ public class NettyRpcServer implements ServiceRpcServer {
         int workerCount =
                 conf.getInt(RpcConstants.WORKER_COUNT,
                         RpcConstants.CFG_DEFAULT_SERVER_WORKER_COUNT);
-        this.bootstrap =
-                new ServerBootstrap(new NioServerSocketChannelFactory(Executors.newCachedThreadPool(),
-                        bossCount, Executors.newCachedThreadPool(), workerCount));
-        bootstrap.setOption("tcpNoDelay",
-                conf.getBoolean(RpcConstants.TCP_NODELAY, true));
-        bootstrap.setOption("reuseAddress",
+        boolean useEpoll = NettyTransportUtils.useEpoll(conf);
+        this.bossGroup = NettyTransportUtils.newEventLoopGroup(useEpoll,
+                bossCount, "tube_rpc_server_boss-");
+        this.workerGroup = NettyTransportUtils.newEventLoopGroup(useEpoll,
+                workerCount, "tube_rpc_server_worker-");
+        this.bootstrap = new ServerBootstrap();
+        bootstrap.group(bossGroup, workerGroup)
+                .channel(NettyTransportUtils.getServerChannelClass(useEpoll));
+        bootstrap.option(ChannelOption.SO_REUSEADDR,
                 conf.getBoolean(RpcConstants.TCP_REUSEADDRESS, true));
-        long nettyWriteHighMark =
-                conf.getLong(RpcConstants.NETTY_WRITE_HIGH_MARK, -1);
-        if (nettyWriteHighMark > 0) {
-            bootstrap.setOption("writeBufferHighWaterMark", nettyWriteHighMark);
-        }
-        long nettyWriteLowMark =
-                conf.getLong(RpcConstants.NETTY_WRITE_LOW_MARK, -1);
-        if (nettyWriteLowMark > 0) {
-            bootstrap.setOption("writeBufferLowWaterMark", nettyWriteLowMark);
+        bootstrap.childOption(ChannelOption.TCP_NODELAY,
+                conf.getBoolean(RpcConstants.TCP_NODELAY, true));
+        bootstrap.childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+        WriteBufferWaterMark writeBufferWaterMark =
+                NettyTransportUtils.getWriteBufferWaterMark(conf);
+        if (writeBufferWaterMark != null) {
+            bootstrap.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark);
         }
         long nettySendBuf = conf.getLong(RpcConstants.NETTY_TCP_SENDBUF, -1);
         if (nettySendBuf > 0) {
-            bootstrap.setOption("sendBufferSize", nettySendBuf);
+            bootstrap.childOption(ChannelOption.SO_SNDBUF, (int) nettySendBuf);
         }
         long nettyRecvBuf = conf.getLong(RpcConstants.NETTY_TCP_RECEIVEBUF, -1);
         if (nettyRecvBuf > 0) {
-            bootstrap.setOption("receiveBufferSize", nettyRecvBuf);
+            bootstrap.childOption(ChannelOption.SO_RCVBUF, (int) nettyRecvBuf);
         }
     }
 
@@ -151,10 +154,12 @@ public class NettyRpcServer implements ServiceRpcServer {
         if (this.started.get()) {
             return;
         }
-        bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+        bootstrap.childHandler(new ChannelInitializer<SocketChannel>() {
             @Override
-            public ChannelPipeline getPipeline() throws Exception {
-                ChannelPipeline pipeline = new DefaultChannelPipeline();
+            protected void initChannel(SocketChannel ch) throws Exception {
+                ChannelPipeline pipeline = ch.pipeline();
+                // merge the flushes of the responses written while reading
+                pipeline.addLast("flushConsolidation", new FlushConsolidationHandler());
                 if (isOverTLS) {
                     try {
                         SSLEngine sslEngine =
@@ -168,15 +173,15 @@ public class NettyRpcServer implements ServiceRpcServer {
                     }
                 }
                 // Encode the data handler
-                pipeline.addLast("protocolEncoder", new NettyProtocolDecoder());
+                pipeline.addLast("protocolEncoder", new NettyProtocolEncoder());
                 // Decode the bytes into a Rpc Data Pack
-                pipeline.addLast("protocolDecoder", new NettyProtocolEncoder());
+                pipeline.addLast("protocolDecoder", new NettyProtocolDecoder());
                 // tube netty Server handler
                 pipeline.addLast("serverHandler", new NettyServerHandler(protocolType));
-                return pipeline;
             }
         });
-        bootstrap.bind(new InetSocketAddress(listenPort));
+        this.serverChannel =
+                bootstrap.bind(new InetSocketAddress(listenPort)).sync().channel();
         this.started.set(true);
         if (isOverTLS) {
             logger.info(new StringBuilder(256)
@@ -233,7 +238,11 @@ public class NettyRpcServer implements ServiceRpcServer {
         }
         if (this.started.compareAndSet(true, false)) {
             logger.info("Stopping RpcServer...");
-            bootstrap.releaseExternalResources();
+            if (serverChannel != null) {
+                serverChannel.close().awaitUninterruptibly();
+            }
+            bossGroup.shutdownGracefully();
+            workerGroup.shutdownGracefully();
             logger.info("RpcServer stop successfully.");
         }
     }
@@ -241,7 +250,7 @@ public class NettyRpcServer implements ServiceRpcServer {
     /**
      * Netty Server Handler
      */
-    private class NettyServerHandler extends SimpleChannelUpstreamHandler {
+    private class NettyServerHandler extends ChannelInboundHandlerAdapter {
 
         private int protocolType = RpcProtocol.RPC_PROTOCOL_TCP;
 
@@ -254,28 +263,39 @@ public class NettyRpcServer implements ServiceRpcServer {
          * {@link ChannelHandler}.
          */
         @Override
-        public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
-            if (!(e.getCause() instanceof IOException)) {
-                logger.error("catch some exception not IOException", e.getCause());
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            if (!(cause instanceof IOException)) {
+                logger.error("catch some exception not IOException", cause);
             }
         }
 
         /**
-         * Invoked when a message object (e.g: {@link ChannelBuffer}) was received
+         * Invoked when a message object (e.g: {@link RpcDataPack}) was received
          * from a remote peer.
          */
         @Override
-        public void messageReceived(final ChannelHandlerContext ctx,
-                                    MessageEvent e) throws Exception {
-            if (!(e.getMessage() instanceof RpcDataPack)) {
+        public void channelRead(final ChannelHandlerContext ctx,
+                                Object msg) throws Exception {
+            if (!(msg instanceof RpcDataPack)) {
                 return;
             }
-            RpcDataPack dataPack = (RpcDataPack) e.getMessage();
+            RpcDataPack dataPack = (RpcDataPack) msg;
+            try {
+                processRequest(ctx, dataPack);
+            } finally {
+                if (dataPack instanceof ReceivedRpcDataPack) {
+                    ((ReceivedRpcDataPack) dataPack).release();
+                }
+            }
+        }
+
+        private void processRequest(final ChannelHandlerContext ctx,
+                                    RpcDataPack dataPack) throws Exception {
             RPCProtos.RpcConnHeader connHeader;
             RPCProtos.RequestHeader requestHeader;
             RPCProtos.RequestBody rpcRequestBody;
             int rmtVersion = RpcProtocol.RPC_PROTOCOL_VERSION;
-            Channel channel = ctx.getChannel();
+            Channel channel = ctx.channel();
             if (channel == null) {
                 return;
             }
@@ -320,8 +340,7 @@ public class NettyRpcServer implements ServiceRpcServer {
                                         .append("IPC server unable to read call parameters:")
                                         .append(e1.getMessage()).toString());
                 if (res != null) {
-                    dataPack.setDataLst(res);
-                    channel.write(dataPack);
+                    channel.writeAndFlush(new RpcDataPack(dataPack.getSerialNo(), res));
                 }
                 return;
             }
@@ -332,7 +351,7 @@ public class NettyRpcServer implements ServiceRpcServer {
                                 connHeader.getFlag(), rpcRequestBody.getTimeout());
                 requestWrapper.setMethodId(rpcRequestBody.getMethod());
                 requestWrapper.setRequestData(PbEnDecoder.pbDecode(true,
-                        rpcRequestBody.getMethod(), rpcRequestBody.getRequest().toByteArray()));
+                        rpcRequestBody.getMethod(), rpcRequestBody.getRequest()));
                 requestWrapper.setSerialNo(dataPack.getSerialNo());
                 RequestContext context =
                         new NettyRequestContext(requestWrapper, ctx, System.currentTimeMillis());
@@ -344,8 +363,7 @@ public class NettyRpcServer implements ServiceRpcServer {
                                         .append("IPC server handle request error :")
                                         .append(ee.getMessage()).toString());
                 if (res != null) {
-                    dataPack.setDataLst(res);
-                    ctx.getChannel().write(dataPack);
+                    ctx.channel().writeAndFlush(new RpcDataPack(dataPack.getSerialNo(), res));
                 }
                 return;
             }
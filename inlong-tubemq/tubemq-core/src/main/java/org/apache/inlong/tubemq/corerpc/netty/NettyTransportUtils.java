@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.FastThreadLocalThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.inlong.tubemq.corerpc.RpcConfig;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Netty transport selection shared by the rpc server and client factory.
+ * The native epoll transport is used only when it is enabled in the config
+ * and available on the running platform, otherwise the NIO transport is used.
+ */
+public final class NettyTransportUtils {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(NettyTransportUtils.class);
+    // netty default water marks, used when only one of them is configured
+    private static final int DEFAULT_WRITE_LOW_MARK = 32 * 1024;
+    private static final int DEFAULT_WRITE_HIGH_MARK = 64 * 1024;
+
+    private NettyTransportUtils() {
+    }
+
+    /**
+     * Check whether the native epoll transport should be used
+     *
+     * @param conf  the rpc config
+     * @return true if epoll is enabled and available
+     */
+    public static boolean useEpoll(RpcConfig conf) {
+        if (!conf.getBoolean(RpcConstants.NETTY_EPOLL_ENABLE, false)) {
+            return false;
+        }
+        if (Epoll.isAvailable()) {
+            return true;
+        }
+        logger.warn("Native epoll transport is unavailable, use NIO transport instead",
+                Epoll.unavailabilityCause());
+        return false;
+    }
+
+    /**
+     * Create an event loop group whose threads are named with the given prefix
+     *
+     * @param useEpoll          whether to use the native epoll transport
+     * @param threadCnt         the thread count
+     * @param threadNamePrefix  the thread name prefix
+     * @return the event loop group
+     */
+    public static EventLoopGroup newEventLoopGroup(boolean useEpoll, int threadCnt,
+                                                   final String threadNamePrefix) {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger threadIdCounter = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new FastThreadLocalThread(r, new StringBuilder(256)
+                        .append(threadNamePrefix)
+                        .append(threadIdCounter.incrementAndGet()).toString());
+            }
+        };
+        if (useEpoll) {
+            return new EpollEventLoopGroup(threadCnt, threadFactory);
+        }
+        return new NioEventLoopGroup(threadCnt, threadFactory);
+    }
+
+    public static Class<? extends ServerChannel> getServerChannelClass(boolean useEpoll) {
+        return useEpoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public static Class<? extends SocketChannel> getClientChannelClass(boolean useEpoll) {
+        return useEpoll ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    /**
+     * Build the write buffer water mark from the configured high and low marks
+     *
+     * @param conf  the rpc config
+     * @return the water mark, or null if neither mark is configured
+     */
+    public static WriteBufferWaterMark getWriteBufferWaterMark(RpcConfig conf) {
+        long highMark = conf.getLong(RpcConstants.NETTY_WRITE_HIGH_MARK, -1);
+        long lowMark = conf.getLong(RpcConstants.NETTY_WRITE_LOW_MARK, -1);
+        if (highMark <= 0 && lowMark <= 0) {
+            return null;
+        }
+        int high = highMark > 0
+                ? (int) Math.min(highMark, Integer.MAX_VALUE) : DEFAULT_WRITE_HIGH_MARK;
+        int low = lowMark > 0
+                ? (int) Math.min(lowMark, Integer.MAX_VALUE) : DEFAULT_WRITE_LOW_MARK;
+        if (low > high) {
+            if (highMark > 0) {
+                low = high;
+            } else {
+                high = low;
+            }
+        }
+        return new WriteBufferWaterMark(low, high);
+    }
+}
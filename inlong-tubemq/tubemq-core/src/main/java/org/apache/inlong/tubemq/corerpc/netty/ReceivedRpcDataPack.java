@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+
+/**
+ * Rpc data pack decoded from a channel. Its segments are slices of the
+ * received buffers, which must be released once the pack has been parsed.
+ */
+class ReceivedRpcDataPack extends RpcDataPack {
+
+    private List<ByteBuf> segments;
+
+    ReceivedRpcDataPack(int serialNo, List<ByteBuffer> dataLst, List<ByteBuf> segments) {
+        super(serialNo, dataLst);
+        this.segments = segments;
+    }
+
+    /**
+     * Release the received buffers, the data list is invalid after this call
+     */
+    public void release() {
+        if (segments == null) {
+            return;
+        }
+        for (ByteBuf segment : segments) {
+            segment.release();
+        }
+        segments = null;
+    }
+}
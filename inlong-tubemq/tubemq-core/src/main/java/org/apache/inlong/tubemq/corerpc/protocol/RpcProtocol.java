@@ -17,7 +17,12 @@
 
 package org.apache.inlong.tubemq.corerpc.protocol;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -29,6 +34,7 @@ import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.codec.PbEnDecoder;
 import org.apache.inlong.tubemq.corerpc.exception.ServiceStoppingException;
 import org.apache.inlong.tubemq.corerpc.exception.StandbyException;
+import org.apache.inlong.tubemq.corerpc.server.DeferredResponse;
 import org.apache.inlong.tubemq.corerpc.server.RequestContext;
 import org.apache.inlong.tubemq.corerpc.utils.MixUtils;
 import org.slf4j.Logger;
@@ -46,53 +52,69 @@ public class RpcProtocol implements Protocol {
             LoggerFactory.getLogger(RpcProtocol.class);
     private final Map<Integer, Object> processors =
             new HashMap<>();
-    private final Map<Integer, Method> cacheMethods =
-            new HashMap<>();
+    // the type every service method handle is adapted to:
+    // (request, rmtAddress, overtls) -> response
+    private static final MethodType SERVICE_METHOD_TYPE =
+            MethodType.methodType(Object.class, Object.class, String.class, boolean.class);
+    // dispatch table: service id -> method id -> method handle bound to the service
+    // instance, replaced as a whole when services are registered or removed
+    private volatile MethodHandle[][] methodTable = new MethodHandle[0][];
     private final Map<Integer, ExecutorService> threadPools =
             new HashMap<>();
     private boolean isOverTLS = false;
 
     @Override
-    public void registerService(boolean isOverTLS, String serviceName,
-                                Object instance, ExecutorService threadPool) throws Exception {
+    public synchronized void registerService(boolean isOverTLS, String serviceName,
+                                             Object instance, ExecutorService threadPool) throws Exception {
         this.isOverTLS = isOverTLS;
         int serviceId = PbEnDecoder.getServiceIdByServiceName(serviceName);
         processors.put(serviceId, instance);
         threadPools.put(serviceId, threadPool);
+        MethodHandle[] serviceMethods = new MethodHandle[0];
         Class<?> instanceClass = instance.getClass();
         Method[] methods = instanceClass.getMethods();
         for (Method method : methods) {
+            Class<?>[] paramTypes = method.getParameterTypes();
+            if (paramTypes.length != 3
+                    || paramTypes[1] != String.class
+                    || paramTypes[2] != boolean.class) {
+                continue;
+            }
+            int methodId;
             try {
-                String methodName = method.getName();
-                int methodId = PbEnDecoder.getMethIdByName(methodName);
-                cacheMethods.put(methodId, method);
+                methodId = PbEnDecoder.getMethIdByName(method.getName());
             } catch (Throwable e) {
-                //
+                continue;
             }
+            // the implementation class may be not public
+            method.setAccessible(true);
+            if (methodId >= serviceMethods.length) {
+                serviceMethods = Arrays.copyOf(serviceMethods, methodId + 1);
+            }
+            serviceMethods[methodId] = MethodHandles.lookup().unreflect(method)
+                    .bindTo(instance).asType(SERVICE_METHOD_TYPE);
         }
+        MethodHandle[][] newTable = Arrays.copyOf(this.methodTable,
+                Math.max(this.methodTable.length, serviceId + 1));
+        newTable[serviceId] = serviceMethods;
+        this.methodTable = newTable;
     }
 
     @Override
-    public void removeService(String serviceName) throws Exception {
+    public synchronized void removeService(String serviceName) throws Exception {
         int serviceId = PbEnDecoder.getServiceIdByServiceName(serviceName);
-        Object instance = processors.remove(serviceId);
-        Class<?> instanceClass = instance.getClass();
-        Method[] methods = instanceClass.getMethods();
-        for (Method method : methods) {
-            try {
-                String methodName = method.getName();
-                int methodId = PbEnDecoder.getMethIdByName(methodName);
-                cacheMethods.remove(methodId);
-            } catch (Throwable e) {
-                //
-            }
+        processors.remove(serviceId);
+        if (serviceId < this.methodTable.length) {
+            MethodHandle[][] newTable = this.methodTable.clone();
+            newTable[serviceId] = null;
+            this.methodTable = newTable;
         }
     }
 
     @Override
-    public void removeAllService() {
+    public synchronized void removeAllService() {
         processors.clear();
-        cacheMethods.clear();
+        this.methodTable = new MethodHandle[0][];
         for (ExecutorService executorService : threadPools.values()) {
             if (executorService != null) {
                 executorService.shutdown();
@@ -124,34 +146,51 @@ public class RpcProtocol implements Protocol {
                     requestWrapper.getSerialNo(), requestWrapper.getServiceType(), requestWrapper.getProtocolVersion(),
                     RPC_PROTOCOL_VERSION, new ServiceStoppingException("service is stopping...")));
         }
-        Method method = null;
         StringBuilder sBuilder = new StringBuilder(512);
+        DeferredResponse deferredResponse = DeferredResponse.attach(context);
         try {
             if (!PbEnDecoder.isValidServiceTypeAndMethod(requestWrapper.getServiceType(),
                     requestWrapper.getMethodId(), sBuilder)) {
                 throw new Exception(sBuilder.toString());
             }
-            Object processor = processors.get(requestWrapper.getServiceType());
-            if (processor == null) {
+            final MethodHandle[][] curMethodTable = this.methodTable;
+            final int serviceId = requestWrapper.getServiceType();
+            final int methodId = requestWrapper.getMethodId();
+            if (serviceId < 0 || serviceId >= curMethodTable.length
+                    || curMethodTable[serviceId] == null) {
                 throw new Exception(sBuilder.append("No service ")
-                        .append(requestWrapper.getServiceType())
+                        .append(serviceId)
                         .append(" found on the server").toString());
             }
-            method = cacheMethods.get(requestWrapper.getMethodId());
-            if (method == null) {
+            final MethodHandle[] serviceMethods = curMethodTable[serviceId];
+            if (methodId < 0 || methodId >= serviceMethods.length
+                    || serviceMethods[methodId] == null) {
                 throw new Exception(sBuilder.append("No method ")
-                        .append(requestWrapper.getMethodId())
+                        .append(methodId)
                         .append(" in service ")
-                        .append(requestWrapper.getServiceType())
+                        .append(serviceId)
                         .append(" found on the server").toString());
             }
-            Object result =
-                    method.invoke(processor, requestWrapper.getRequestData(), rmtAddress, isOverTLS);
+            Object result;
+            try {
+                result = (Object) serviceMethods[methodId].invokeExact(
+                        requestWrapper.getRequestData(), rmtAddress, isOverTLS);
+            } catch (Throwable e) {
+                // keep the error response the same as the reflective invocation
+                throw new InvocationTargetException(e);
+            }
+            if (deferredResponse.isDeferred()) {
+                // the service will complete the response later
+                return;
+            }
             responseWrapper =
                     new ResponseWrapper(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE,
                             requestWrapper.getSerialNo(), requestWrapper.getServiceType(),
                             RPC_PROTOCOL_VERSION, requestWrapper.getMethodId(), result);
         } catch (Throwable e2) {
+            if (deferredResponse.isDeferred() && !deferredResponse.takeOver()) {
+                return;
+            }
             String errorClass = null;
             String errorInfo = null;
             if (e2.getCause() != null && e2.getCause() instanceof StandbyException) {
@@ -167,6 +206,8 @@ public class RpcProtocol implements Protocol {
                     new ResponseWrapper(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE,
                             requestWrapper.getSerialNo(), requestWrapper.getServiceType(),
                             RPC_PROTOCOL_VERSION, errorClass, errorInfo);
+        } finally {
+            DeferredResponse.detach();
         }
         try {
             context.write(responseWrapper);
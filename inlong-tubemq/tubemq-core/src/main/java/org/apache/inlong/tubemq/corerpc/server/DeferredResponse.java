@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.server;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.inlong.tubemq.corerpc.RequestWrapper;
+import org.apache.inlong.tubemq.corerpc.ResponseWrapper;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.protocol.RpcProtocol;
+
+/**
+ * Deferred response of the request being handled by the current thread.
+ * A service method calls current().defer() to return without response, and completes
+ * the response later from another thread, such as a long-poll get message request.
+ */
+public class DeferredResponse {
+
+    private static final ThreadLocal<DeferredResponse> current = new ThreadLocal<>();
+    private final RequestContext context;
+    private final AtomicBoolean deferred = new AtomicBoolean(false);
+    private final AtomicBoolean responded = new AtomicBoolean(false);
+
+    private DeferredResponse(RequestContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Bind the request context to the current thread, called by protocol before
+     * the service method is invoked.
+     *
+     * @param context  the request context
+     * @return the deferred response of the request
+     */
+    public static DeferredResponse attach(RequestContext context) {
+        DeferredResponse deferredResponse = new DeferredResponse(context);
+        current.set(deferredResponse);
+        return deferredResponse;
+    }
+
+    /**
+     * Unbind the request context from the current thread.
+     */
+    public static void detach() {
+        current.remove();
+    }
+
+    /**
+     * Get the deferred response of the request handled by the current thread.
+     *
+     * @return the deferred response, or null if not called in request handling
+     */
+    public static DeferredResponse current() {
+        return current.get();
+    }
+
+    /**
+     * Defer the response, the return value of the service method will be ignored.
+     */
+    public void defer() {
+        deferred.set(true);
+    }
+
+    public boolean isDeferred() {
+        return deferred.get();
+    }
+
+    /**
+     * Get the remaining time before the request is timeout on the client side.
+     *
+     * @return the remaining time in milliseconds
+     */
+    public long getRemainingTimeMs() {
+        return context.getRequest().getTimeout()
+                - (System.currentTimeMillis() - context.getReceiveTime());
+    }
+
+    /**
+     * Write the result as response of the request, only the first call takes effect.
+     *
+     * @param result  the result of the service method
+     * @return whether the response is written
+     * @throws Exception
+     */
+    public boolean complete(Object result) throws Exception {
+        if (!responded.compareAndSet(false, true)) {
+            return false;
+        }
+        RequestWrapper requestWrapper = context.getRequest();
+        context.write(new ResponseWrapper(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE,
+                requestWrapper.getSerialNo(), requestWrapper.getServiceType(),
+                RpcProtocol.RPC_PROTOCOL_VERSION, requestWrapper.getMethodId(), result));
+        return true;
+    }
+
+    /**
+     * Take over the response, called by protocol when the service method failed.
+     *
+     * @return false if the response has been completed
+     */
+    public boolean takeOver() {
+        return responded.compareAndSet(false, true);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MessageCompressUtilsTest {
+
+    @Test
+    public void testCompressFlag() {
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        message.setAttrKeyVal("key", "value");
+        int flag = MessageFlagUtils.getFlag(message);
+        Assert.assertTrue(MessageFlagUtils.hasAttribute(flag));
+        Assert.assertFalse(MessageFlagUtils.isCompressed(flag));
+        flag = MessageFlagUtils.setCompressType(flag, MessageFlagUtils.COMPRESS_TYPE_SNAPPY);
+        Assert.assertTrue(MessageFlagUtils.hasAttribute(flag));
+        Assert.assertTrue(MessageFlagUtils.isCompressed(flag));
+        Assert.assertEquals(MessageFlagUtils.COMPRESS_TYPE_SNAPPY,
+                MessageFlagUtils.getCompressType(flag));
+        flag = MessageFlagUtils.setCompressType(flag, MessageFlagUtils.COMPRESS_TYPE_NONE);
+        Assert.assertTrue(MessageFlagUtils.hasAttribute(flag));
+        Assert.assertFalse(MessageFlagUtils.isCompressed(flag));
+    }
+
+    @Test
+    public void testSnappyCompress() throws Exception {
+        byte[] data = new byte[4096];
+        Arrays.fill(data, (byte) 'a');
+        byte[] compressed =
+                MessageCompressUtils.compress(MessageFlagUtils.COMPRESS_TYPE_SNAPPY, data);
+        Assert.assertTrue(compressed.length < data.length);
+        Assert.assertArrayEquals(data,
+                MessageCompressUtils.decompress(MessageFlagUtils.COMPRESS_TYPE_SNAPPY, compressed));
+        Assert.assertSame(data,
+                MessageCompressUtils.compress(MessageFlagUtils.COMPRESS_TYPE_NONE, data));
+        Assert.assertFalse(MessageCompressUtils.isSupported(7));
+    }
+
+    @Test
+    public void testPackPayloads() throws Exception {
+        int flag = MessageFlagUtils.setPackedBatch(0);
+        Assert.assertTrue(MessageFlagUtils.isPackedBatch(flag));
+        Assert.assertFalse(MessageFlagUtils.hasAttribute(flag));
+        flag = MessageFlagUtils.setCompressType(flag, MessageFlagUtils.COMPRESS_TYPE_SNAPPY);
+        Assert.assertTrue(MessageFlagUtils.isPackedBatch(flag));
+        Assert.assertEquals(MessageFlagUtils.COMPRESS_TYPE_SNAPPY,
+                MessageFlagUtils.getCompressType(flag));
+        int[] flags = {0, 1, 0};
+        byte[][] payloads = {{1}, {2, 3}, {4, 5, 6}};
+        byte[] packed = MessageCompressUtils.packPayloads(flags, payloads, 1, 3);
+        Assert.assertEquals(MessageCompressUtils.getPackedSize(2, 5), packed.length);
+        List<Integer> unpackedFlags = new ArrayList<>();
+        List<byte[]> unpackedPayloads = new ArrayList<>();
+        MessageCompressUtils.unpackPayloads(packed, unpackedFlags, unpackedPayloads);
+        Assert.assertEquals(Arrays.asList(1, 0), unpackedFlags);
+        Assert.assertEquals(2, unpackedPayloads.size());
+        Assert.assertArrayEquals(payloads[1], unpackedPayloads.get(0));
+        Assert.assertArrayEquals(payloads[2], unpackedPayloads.get(1));
+        try {
+            MessageCompressUtils.unpackPayloads(Arrays.copyOf(packed, packed.length - 1),
+                    new ArrayList<Integer>(), new ArrayList<byte[]>());
+            Assert.fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -18,6 +18,8 @@
 package org.apache.inlong.tubemq.corerpc.codec;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientMaster;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.junit.Test;
@@ -42,6 +44,28 @@ public class PbEnDecoderTest {
         assertEquals(decodeObject.getClientId(), object.getClientId());
         assertEquals(decodeObject.getBrokerCheckSum(), object.getBrokerCheckSum());
         assertEquals(decodeObject.getHostName(), object.getHostName());
+
+        // decode response
+        ClientMaster.RegisterResponseM2P response = ClientMaster.RegisterResponseM2P.newBuilder()
+                .setSuccess(true).setErrCode(200).setErrMsg("OK").setBrokerCheckSum(99).build();
+        ClientMaster.RegisterResponseM2P decodeResponse = (ClientMaster.RegisterResponseM2P)
+                PbEnDecoder.pbDecode(false, RpcConstants.RPC_MSG_MASTER_PRODUCER_REGISTER,
+                        PbEnDecoder.pbEncode(response));
+        assertEquals(decodeResponse.getErrMsg(), response.getErrMsg());
+        assertEquals(decodeResponse.getBrokerCheckSum(), response.getBrokerCheckSum());
+    }
+
+    @Test
+    public void testDecodeUnsupportedMethod() {
+        int[] methodIds = {-1, RpcConstants.RPC_MSG_BROKER_PRODUCER_REGISTER, 1024};
+        for (int methodId : methodIds) {
+            try {
+                PbEnDecoder.pbDecode(true, methodId, new byte[0]);
+                fail("Unsupported method ID should be rejected: " + methodId);
+            } catch (Exception e) {
+                assertTrue(e.getMessage().startsWith("Unsupported method ID :"));
+            }
+        }
     }
 
 }
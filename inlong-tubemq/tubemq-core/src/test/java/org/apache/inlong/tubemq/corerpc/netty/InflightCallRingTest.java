@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import java.util.List;
+import org.apache.inlong.tubemq.corerpc.ResponseWrapper;
+import org.apache.inlong.tubemq.corerpc.client.Callback;
+import org.junit.Assert;
+import org.junit.Test;
+
+/***
+ * InflightCallRing test.
+ */
+public class InflightCallRingTest {
+
+    private final Callback<ResponseWrapper> callback1 = new TestCallback();
+    private final Callback<ResponseWrapper> callback2 = new TestCallback();
+
+    @Test
+    public void addAndRemove() {
+        InflightCallRing ring = new InflightCallRing(3);
+        Assert.assertEquals(4, ring.capacity());
+        Assert.assertTrue(ring.add(1, callback1, Long.MAX_VALUE));
+        Assert.assertTrue(ring.add(2, callback2, Long.MAX_VALUE));
+        Assert.assertEquals(2, ring.size());
+        // a stale serial number doesn't remove the call in its slot
+        Assert.assertNull(ring.remove(5));
+        Assert.assertSame(callback1, ring.remove(1));
+        Assert.assertNull(ring.remove(1));
+        Assert.assertTrue(ring.add(5, callback1, Long.MAX_VALUE));
+        Assert.assertSame(callback1, ring.remove(5));
+        // negative serial numbers after the generator wraps around
+        Assert.assertTrue(ring.add(Integer.MIN_VALUE, callback1, Long.MAX_VALUE));
+        Assert.assertSame(callback1, ring.remove(Integer.MIN_VALUE));
+        Assert.assertSame(callback2, ring.remove(2));
+        Assert.assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void slotTakenByPendingCall() {
+        InflightCallRing ring = new InflightCallRing(4);
+        // serial number 1 stays pending, like a long-poll request
+        Assert.assertTrue(ring.add(1, callback1, 1000L));
+        // the slot of serial numbers 5 and 9 is still taken by serial number 1
+        Assert.assertTrue(ring.add(5, callback2, 2000L));
+        Assert.assertTrue(ring.add(9, callback2, 2000L));
+        Assert.assertTrue(ring.add(2, callback2, 2000L));
+        Assert.assertEquals(4, ring.size());
+        // the ring is full
+        Assert.assertFalse(ring.add(3, callback2, 2000L));
+        Assert.assertSame(callback2, ring.remove(5));
+        Assert.assertNull(ring.remove(5));
+        Assert.assertTrue(ring.add(13, callback2, 2000L));
+        List<Callback<ResponseWrapper>> expired = ring.removeExpired(1500L);
+        Assert.assertEquals(1, expired.size());
+        Assert.assertSame(callback1, expired.get(0));
+        Assert.assertSame(callback2, ring.remove(9));
+        Assert.assertSame(callback2, ring.remove(13));
+        Assert.assertEquals(1, ring.size());
+        Assert.assertEquals(1, ring.removeAll().size());
+        Assert.assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void removeExpired() {
+        InflightCallRing ring = new InflightCallRing(16);
+        Assert.assertTrue(ring.add(1, callback1, 1000L));
+        Assert.assertTrue(ring.add(2, callback2, 2000L));
+        Assert.assertTrue(ring.removeExpired(999L).isEmpty());
+        List<Callback<ResponseWrapper>> expired = ring.removeExpired(1500L);
+        Assert.assertEquals(1, expired.size());
+        Assert.assertSame(callback1, expired.get(0));
+        Assert.assertNull(ring.remove(1));
+        expired = ring.removeAll();
+        Assert.assertEquals(1, expired.size());
+        Assert.assertSame(callback2, expired.get(0));
+        Assert.assertTrue(ring.removeAll().isEmpty());
+        Assert.assertEquals(0, ring.size());
+    }
+
+    private static class TestCallback implements Callback<ResponseWrapper> {
+        @Override
+        public void handleResult(ResponseWrapper result) {
+        }
+
+        @Override
+        public void handleError(Throwable error) {
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/***
+ * NettyClientPool test.
+ */
+public class NettyClientPoolTest {
+
+    @Test
+    public void selectInTurn() {
+        NettyClientPool pool = new NettyClientPool(3, false, 60000L, 1);
+        Assert.assertEquals(0, pool.select(0L));
+        Assert.assertEquals(1, pool.select(0L));
+        Assert.assertEquals(2, pool.select(0L));
+        Assert.assertEquals(0, pool.select(0L));
+    }
+
+    @Test
+    public void skipFailedSlot() {
+        NettyClientPool pool = new NettyClientPool(2, false, 60000L, 1);
+        // the first failure is allowed, the second one skips the slot
+        Assert.assertFalse(pool.onConnectFailure(0, 1000L));
+        Assert.assertTrue(pool.onConnectFailure(0, 1000L));
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(1, pool.select(2000L));
+        }
+        // the slot is used again after the forbidden duration
+        Assert.assertEquals(0, pool.select(61001L));
+        Assert.assertFalse(pool.onConnectFailure(1, 2000L));
+        Assert.assertTrue(pool.onConnectFailure(1, 2000L));
+        // all the slots are skipped, they are used in turn
+        int first = pool.select(3000L);
+        Assert.assertNotEquals(first, pool.select(3000L));
+        pool.onConnected(0);
+        Assert.assertEquals(0, pool.select(3000L));
+        Assert.assertEquals(0, pool.select(3000L));
+    }
+
+    @Test
+    public void selectLeastInflight() {
+        NettyClientPool pool = new NettyClientPool(4, true, 60000L, 1);
+        Assert.assertFalse(pool.onConnectFailure(0, 1000L));
+        Assert.assertTrue(pool.onConnectFailure(0, 1000L));
+        // the empty slots are idle, the skipped slot is never selected
+        for (int i = 0; i < 8; i++) {
+            Assert.assertNotEquals(0, pool.select(2000L));
+        }
+        Assert.assertNull(pool.getReadyClient(0));
+        Assert.assertTrue(pool.removeAll().isEmpty());
+    }
+}
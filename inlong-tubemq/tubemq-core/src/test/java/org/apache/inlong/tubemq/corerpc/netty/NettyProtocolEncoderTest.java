@@ -17,11 +17,13 @@
 
 package org.apache.inlong.tubemq.corerpc.netty;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
 import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.List;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
-import org.jboss.netty.buffer.ChannelBuffer;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -32,7 +34,7 @@ public class NettyProtocolEncoderTest {
 
     @Test
     public void encode() {
-        NettyProtocolEncoder nettyProtocolEncoder = new NettyProtocolEncoder();
+        EmbeddedChannel channel = new EmbeddedChannel(new NettyProtocolEncoder());
         // build RpcDataPack
         RpcDataPack obj = new RpcDataPack();
         // set serial number
@@ -42,16 +44,46 @@ public class NettyProtocolEncoderTest {
         dataList.add(ByteBuffer.wrap("def".getBytes()));
         // append data list.
         obj.setDataLst(dataList);
+        // encode data
+        Assert.assertTrue(channel.writeOutbound(obj));
+        ByteBuf buf = channel.readOutbound();
         try {
-            // encode data
-            Object result = nettyProtocolEncoder.encode(null, null, obj);
-            ChannelBuffer buf = (ChannelBuffer) result;
             // read data.
-            int i = buf.readInt();
-            i = buf.readInt();
-            Assert.assertEquals(123, i);
-        } catch (Exception e) {
-            e.printStackTrace();
+            Assert.assertEquals(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN, buf.readInt());
+            Assert.assertEquals(123, buf.readInt());
+            Assert.assertEquals(2, buf.readInt());
+            Assert.assertEquals(3, buf.readInt());
+        } finally {
+            buf.release();
         }
+        channel.finish();
+    }
+
+    @Test
+    public void encodeAndDecode() {
+        EmbeddedChannel encodeChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+        EmbeddedChannel decodeChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        List<ByteBuffer> dataList = new LinkedList<>();
+        dataList.add(ByteBuffer.wrap("abc".getBytes()));
+        dataList.add(ByteBuffer.wrap("defgh".getBytes()));
+        encodeChannel.writeOutbound(new RpcDataPack(456, dataList));
+        ByteBuf buf = encodeChannel.readOutbound();
+        Assert.assertEquals(12 + 4 + 3 + 4 + 5, buf.readableBytes());
+        // feed the frame in two parts, the pack is output once all the segments are read
+        Assert.assertFalse(decodeChannel.writeInbound(buf.readRetainedSlice(14)));
+        Assert.assertTrue(decodeChannel.writeInbound(buf));
+        ReceivedRpcDataPack dataPack = decodeChannel.readInbound();
+        Assert.assertNotNull(dataPack);
+        Assert.assertEquals(456, dataPack.getSerialNo());
+        Assert.assertEquals(2, dataPack.getDataLst().size());
+        ByteBuffer segment = dataPack.getDataLst().get(1);
+        Assert.assertEquals(0, segment.position());
+        Assert.assertEquals(5, segment.remaining());
+        byte[] content = new byte[segment.remaining()];
+        segment.get(content);
+        Assert.assertEquals("defgh", new String(content));
+        dataPack.release();
+        Assert.assertFalse(decodeChannel.finish());
+        encodeChannel.finish();
     }
 }
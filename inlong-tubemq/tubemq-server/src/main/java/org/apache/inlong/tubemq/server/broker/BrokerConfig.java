@@ -18,6 +18,8 @@
 package org.apache.inlong.tubemq.server.broker;
 
 import static java.lang.Math.abs;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
@@ -52,6 +54,8 @@ public class BrokerConfig extends AbstractFileConfig {
     // master service address
     private String masterAddressList;
     private String primaryPath;
+    // data directories of message stores, the first one is primaryPath
+    private List<String> dataPathList = new ArrayList<>();
     // tcp write service thread count
     private int tcpWriteServiceThread =
             Runtime.getRuntime().availableProcessors() * 2;
@@ -64,6 +68,8 @@ public class BrokerConfig extends AbstractFileConfig {
     // tls read service thread count
     private int tlsReadServiceThread =
             Runtime.getRuntime().availableProcessors() * 2;
+    // whether to use the native epoll transport for the rpc services if available
+    private boolean rpcEpollEnable = false;
     private long defaultDeduceReadSize = 7 * 1024 * 1024 * 1024L;
     private long defaultDoubleDeduceReadSize = this.defaultDeduceReadSize * 2;
     // max data segment size
@@ -74,6 +80,32 @@ public class BrokerConfig extends AbstractFileConfig {
     private int transferSize = 512 * 1024;
     // transfer index count
     private int indexTransCount = 1000;
+    // whether to read contiguous matched messages from data file in one batch
+    private boolean fileBatchReadEnable = true;
+    // whether to read immutable segments through memory mapping
+    private boolean segmentMmapReadEnable = false;
+    // max total size of memory-mapped segments
+    private long maxSegmentMmapSize = 4 * 1024 * 1024 * 1024L;
+    // whether to build keyCode index of index segments for filter consume
+    private boolean filterKeyIndexEnable = true;
+    // whether to gather concurrent appends of a store into one batch insertion
+    private boolean groupAppendEnable = true;
+    // max count of full memory caches waiting for flush while another is being flushed
+    private int maxPendingFlushCacheCnt = 1;
+    // flush thread count of each data directory
+    private int flushThreadCntPerDir = 4;
+    // cold storage directory of aged segments, blank means disabled
+    private String coldStorePath = "";
+    // valid duration of segments in cold storage after they are aged out of data directory
+    private long coldStoreValidDurMs = 7 * 24 * 3600 * 1000L;
+    // max total size of decompressed cold segment blocks cached in memory
+    private long coldStoreCacheSize = 256 * 1024 * 1024L;
+    // max wait time of long-poll get message request, 0 means long-poll disabled
+    private long maxLongPollWaitMs = 5000;
+    // thread count of processing timeout and woken up long-poll requests
+    private int longPollThreadCnt = 4;
+    // max message count in one batch send message request
+    private int maxBatchMsgCnt = 1000;
     // rpc read timeout in milliseconds
     private long rpcReadTimeoutMs = 10 * 1000;
     // consumer register timeout in milliseconds
@@ -204,7 +236,17 @@ public class BrokerConfig extends AbstractFileConfig {
         if (TStringUtils.isBlank(brokerSect.get("primaryPath"))) {
             throw new IllegalArgumentException("Require primaryPath not Blank!");
         }
-        this.primaryPath = brokerSect.get("primaryPath").trim();
+        // primaryPath supports a comma separated directory list, stores are spread over them
+        for (String dataPath : brokerSect.get("primaryPath").split(",")) {
+            if (TStringUtils.isNotBlank(dataPath)
+                    && !this.dataPathList.contains(dataPath.trim())) {
+                this.dataPathList.add(dataPath.trim());
+            }
+        }
+        if (this.dataPathList.isEmpty()) {
+            throw new IllegalArgumentException("Require primaryPath not Blank!");
+        }
+        this.primaryPath = this.dataPathList.get(0);
         if (TStringUtils.isBlank(brokerSect.get("hostName"))) {
             throw new IllegalArgumentException(new StringBuilder(256).append("hostName is null or Blank in ")
                     .append(SECT_TOKEN_BROKER).append(" section!").toString());
@@ -236,6 +278,52 @@ public class BrokerConfig extends AbstractFileConfig {
         if (TStringUtils.isNotBlank(brokerSect.get("indexTransCount"))) {
             this.indexTransCount = this.getInt(brokerSect, "indexTransCount");
         }
+        if (TStringUtils.isNotBlank(brokerSect.get("fileBatchReadEnable"))) {
+            this.fileBatchReadEnable = getBoolean(brokerSect, "fileBatchReadEnable");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("segmentMmapReadEnable"))) {
+            this.segmentMmapReadEnable = getBoolean(brokerSect, "segmentMmapReadEnable");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("maxSegmentMmapSize"))) {
+            this.maxSegmentMmapSize = getLong(brokerSect, "maxSegmentMmapSize");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("filterKeyIndexEnable"))) {
+            this.filterKeyIndexEnable = getBoolean(brokerSect, "filterKeyIndexEnable");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("groupAppendEnable"))) {
+            this.groupAppendEnable = getBoolean(brokerSect, "groupAppendEnable");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("maxPendingFlushCacheCnt"))) {
+            this.maxPendingFlushCacheCnt =
+                    Math.max(0, this.getInt(brokerSect, "maxPendingFlushCacheCnt"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("flushThreadCntPerDir"))) {
+            this.flushThreadCntPerDir =
+                    Math.max(1, this.getInt(brokerSect, "flushThreadCntPerDir"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("coldStorePath"))) {
+            this.coldStorePath = brokerSect.get("coldStorePath").trim();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("coldStoreValidDurMs"))) {
+            this.coldStoreValidDurMs =
+                    Math.max(0L, getLong(brokerSect, "coldStoreValidDurMs"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("coldStoreCacheSize"))) {
+            this.coldStoreCacheSize =
+                    Math.max(0L, getLong(brokerSect, "coldStoreCacheSize"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("maxLongPollWaitMs"))) {
+            this.maxLongPollWaitMs =
+                    Math.max(0L, getLong(brokerSect, "maxLongPollWaitMs"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("longPollThreadCnt"))) {
+            this.longPollThreadCnt =
+                    Math.max(1, this.getInt(brokerSect, "longPollThreadCnt"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("maxBatchMsgCnt"))) {
+            this.maxBatchMsgCnt =
+                    Math.max(1, this.getInt(brokerSect, "maxBatchMsgCnt"));
+        }
         if (TStringUtils.isNotBlank(brokerSect.get("logClearupDurationMs"))) {
             this.logClearupDurationMs = getLong(brokerSect, "logClearupDurationMs");
             if (this.logClearupDurationMs < 1 * 60 * 1000) {
@@ -301,6 +389,9 @@ public class BrokerConfig extends AbstractFileConfig {
         if (TStringUtils.isNotBlank(brokerSect.get("tlsReadServiceThread"))) {
             this.tlsReadServiceThread = getInt(brokerSect, "tlsReadServiceThread");
         }
+        if (TStringUtils.isNotBlank(brokerSect.get("rpcEpollEnable"))) {
+            this.rpcEpollEnable = getBoolean(brokerSect, "rpcEpollEnable");
+        }
         if (TStringUtils.isNotBlank(brokerSect.get("consumerRegTimeoutMs"))) {
             this.consumerRegTimeoutMs = getInt(brokerSect, "consumerRegTimeoutMs");
             if (this.consumerRegTimeoutMs < 20000) {
@@ -409,6 +500,10 @@ public class BrokerConfig extends AbstractFileConfig {
         return tcpReadServiceThread;
     }
 
+    public boolean isRpcEpollEnable() {
+        return rpcEpollEnable;
+    }
+
     public int getTransferSize() {
         return transferSize;
     }
@@ -417,6 +512,62 @@ public class BrokerConfig extends AbstractFileConfig {
         return this.indexTransCount;
     }
 
+    public boolean isFileBatchReadEnable() {
+        return fileBatchReadEnable;
+    }
+
+    public boolean isSegmentMmapReadEnable() {
+        return segmentMmapReadEnable;
+    }
+
+    public long getMaxSegmentMmapSize() {
+        return maxSegmentMmapSize;
+    }
+
+    public boolean isFilterKeyIndexEnable() {
+        return filterKeyIndexEnable;
+    }
+
+    public boolean isGroupAppendEnable() {
+        return groupAppendEnable;
+    }
+
+    public int getMaxPendingFlushCacheCnt() {
+        return maxPendingFlushCacheCnt;
+    }
+
+    public int getFlushThreadCntPerDir() {
+        return flushThreadCntPerDir;
+    }
+
+    public boolean isColdStoreEnable() {
+        return TStringUtils.isNotBlank(coldStorePath);
+    }
+
+    public String getColdStorePath() {
+        return coldStorePath;
+    }
+
+    public long getColdStoreValidDurMs() {
+        return coldStoreValidDurMs;
+    }
+
+    public long getColdStoreCacheSize() {
+        return coldStoreCacheSize;
+    }
+
+    public long getMaxLongPollWaitMs() {
+        return maxLongPollWaitMs;
+    }
+
+    public int getLongPollThreadCnt() {
+        return longPollThreadCnt;
+    }
+
+    public int getMaxBatchMsgCnt() {
+        return maxBatchMsgCnt;
+    }
+
     public int getMaxSegmentSize() {
         return this.maxSegmentSize;
     }
@@ -450,6 +601,10 @@ public class BrokerConfig extends AbstractFileConfig {
         return this.primaryPath;
     }
 
+    public List<String> getDataPathList() {
+        return this.dataPathList;
+    }
+
     public int getWebPort() {
         return webPort;
     }
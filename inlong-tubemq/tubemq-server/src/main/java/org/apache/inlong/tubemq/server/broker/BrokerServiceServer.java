@@ -25,7 +25,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.binary.StringUtils;
 import org.apache.inlong.tubemq.corebase.Message;
@@ -34,6 +40,8 @@ import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.TokenConstants;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.BatchMessageItem;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.BatchMessageResult;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.CommitOffsetRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.CommitOffsetResponseB2C;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageRequestC2B;
@@ -42,6 +50,8 @@ import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.HeartBe
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.HeartBeatResponseB2C;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterResponseB2C;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendBatchMessageRequestP2B;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendBatchMessageResponseB2P;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageRequestP2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageResponseB2P;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.TransferedMessage;
@@ -53,6 +63,7 @@ import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.corerpc.RpcConfig;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.server.DeferredResponse;
 import org.apache.inlong.tubemq.corerpc.service.BrokerReadService;
 import org.apache.inlong.tubemq.corerpc.service.BrokerWriteService;
 import org.apache.inlong.tubemq.server.Server;
@@ -60,7 +71,9 @@ import org.apache.inlong.tubemq.server.broker.metadata.MetadataManager;
 import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStoreManager;
+import org.apache.inlong.tubemq.server.broker.msgstore.MsgWaiterRegistry;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgAppendEntry;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetService;
 import org.apache.inlong.tubemq.server.broker.stats.CountService;
@@ -87,6 +100,8 @@ import org.slf4j.LoggerFactory;
 public class BrokerServiceServer implements BrokerReadService, BrokerWriteService, Server {
     private static final Logger logger =
             LoggerFactory.getLogger(BrokerServiceServer.class);
+    // time reserved to reply a parked request before the client side timeout
+    static final long LONG_POLL_REPLY_RESERVE_MS = 500;
     private final TubeBroker tubeBroker;
     private final BrokerConfig tubeConfig;
     // registered consumers. format : consumer group - topic - partition id  --> consumer info
@@ -111,6 +126,8 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
     // consumer timeout listener.
     private final ConsumerTimeoutListener consumerListener =
             new ConsumerTimeoutListener();
+    // timer and executor of parked long-poll get message requests.
+    private final ScheduledThreadPoolExecutor longPollExecutor;
     // status of broker service.
     private AtomicBoolean started = new AtomicBoolean(false);
 
@@ -131,6 +148,19 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                 new RowLock("Broker-RowLock", this.tubeConfig.getRowLockWaitDurMs());
         heartbeatManager.regConsumerCheckBusiness(
                 this.tubeConfig.getConsumerRegTimeoutMs(), consumerListener);
+        this.longPollExecutor = new ScheduledThreadPoolExecutor(
+                this.tubeConfig.getLongPollThreadCnt(), new ThreadFactory() {
+                    private final AtomicInteger threadNum = new AtomicInteger(0);
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "Broker Long Poll Thread-"
+                                + threadNum.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        this.longPollExecutor.setRemoveOnCancelPolicy(true);
     }
 
     /***
@@ -141,6 +171,8 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
     @Override
     public void start() throws Exception {
         RpcConfig rpcWriteConfig = new RpcConfig();
+        rpcWriteConfig.put(RpcConstants.NETTY_EPOLL_ENABLE,
+                this.tubeConfig.isRpcEpollEnable());
         rpcWriteConfig.put(RpcConstants.NETTY_TCP_SENDBUF,
                 this.tubeConfig.getSocketSendBuffer());
         rpcWriteConfig.put(RpcConstants.NETTY_TCP_RECEIVEBUF,
@@ -149,6 +181,8 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         tubeBroker.getRpcServiceFactory().publishService(BrokerWriteService.class,
                 this, tubeConfig.getPort(), rpcWriteConfig);
         RpcConfig rpcReadConfig = new RpcConfig();
+        rpcReadConfig.put(RpcConstants.NETTY_EPOLL_ENABLE,
+                this.tubeConfig.isRpcEpollEnable());
         rpcReadConfig.put(RpcConstants.NETTY_TCP_SENDBUF,
                 this.tubeConfig.getSocketSendBuffer());
         rpcReadConfig.put(RpcConstants.NETTY_TCP_RECEIVEBUF,
@@ -160,6 +194,8 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             // add tls config if enable tls. support tcp and tls in different port.
             TLSConfig tlsConfig = this.tubeConfig.getTlsConfig();
             RpcConfig rpcTLSWriteConfig = new RpcConfig();
+            rpcTLSWriteConfig.put(RpcConstants.NETTY_EPOLL_ENABLE,
+                    this.tubeConfig.isRpcEpollEnable());
             rpcTLSWriteConfig.put(RpcConstants.TLS_OVER_TCP, true);
             rpcTLSWriteConfig.put(RpcConstants.NETTY_TCP_SENDBUF,
                     this.tubeConfig.getSocketSendBuffer());
@@ -183,6 +219,8 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             tubeBroker.getRpcServiceFactory().publishService(BrokerWriteService.class,
                     this, tubeConfig.getTlsPort(), rpcTLSWriteConfig);
             RpcConfig rpcTLSReadConfig = new RpcConfig();
+            rpcTLSReadConfig.put(RpcConstants.NETTY_EPOLL_ENABLE,
+                    this.tubeConfig.isRpcEpollEnable());
             rpcTLSReadConfig.put(RpcConstants.WORKER_COUNT,
                     this.tubeConfig.getTlsReadServiceThread());
             rpcTLSReadConfig.put(RpcConstants.TLS_OVER_TCP, true);
@@ -217,6 +255,7 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             return;
         }
         heartbeatManager.stop();
+        longPollExecutor.shutdownNow();
         putCounterGroup.close(-1);
         getCounterGroup.close(-1);
         logger.info("BrokerService server stopped");
@@ -271,13 +310,7 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
     public GetMessageResponseB2C getMessagesC2B(GetMessageRequestC2B request,
                                                 final String rmtAddress,
                                                 boolean overtls) throws Throwable {
-        final GetMessageResponseB2C.Builder builder =
-                GetMessageResponseB2C.newBuilder();
-        builder.setSuccess(false);
-        builder.setCurrOffset(-1);
-        builder.setEscFlowCtrl(false);
-        builder.setCurrDataDlt(-1);
-        builder.setMinLimitTime(0);
+        final GetMessageResponseB2C.Builder builder = createGetMessageRspBuilder();
         if (!this.started.get()
                 || ServiceStatusHolder.isReadServiceStop()) {
             builder.setErrCode(TErrCodeConstants.SERVICE_UNAVAILABLE);
@@ -371,27 +404,14 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                     getMessages(dataStore, consumerNodeInfo, groupName, topicName, partitionId,
                             request.getLastPackConsumed(), request.getManualCommitOffset(),
                             clientId, this.tubeConfig.getHostName(), rmtAddrInfo, isEscFlowCtrl, strBuffer);
-            if (msgResult.isSuccess) {
-                consumerNodeInfo.setLastProcInfo(System.currentTimeMillis(),
-                        msgResult.lastRdDataOffset,
-                        msgResult.totalMsgSize);
-                getCounterGroup.add(msgResult.tmpCounters);
-                builder.setEscFlowCtrl(false);
-                builder.setRequireSlow(msgResult.isSlowFreq);
-                builder.setSuccess(true);
-                builder.setErrCode(TErrCodeConstants.SUCCESS);
-                builder.setCurrOffset(msgResult.reqOffset);
-                builder.setCurrDataDlt(msgResult.waitTime);
-                builder.setErrMsg("OK!");
-                builder.addAllMessages(msgResult.transferedMessageList);
-                builder.setMaxOffset(msgResult.getMaxOffset());
-                return builder.build();
-            } else {
-                builder.setErrCode(msgResult.getRetCode());
-                builder.setErrMsg(msgResult.getErrInfo());
-                builder.setMinLimitTime((int) msgResult.waitTime);
-                return builder.build();
+            if (!msgResult.isSuccess
+                    && msgResult.getRetCode() == TErrCodeConstants.NOT_FOUND
+                    && parkGetMessageRequest(request, dataStore, consumerNodeInfo, groupName,
+                    topicName, partitionId, clientId, partStr, rmtAddrInfo, isEscFlowCtrl, msgResult)) {
+                // the response will be written when new messages arrive or wait timeout
+                return null;
             }
+            return buildGetMessageResponse(builder, consumerNodeInfo, msgResult);
         } catch (Throwable ee) {
             strBuffer.delete(0, strBuffer.length());
             builder.setErrCode(TErrCodeConstants.INTERNAL_SERVER_ERROR);
@@ -412,6 +432,210 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         }
     }
 
+    private GetMessageResponseB2C.Builder createGetMessageRspBuilder() {
+        final GetMessageResponseB2C.Builder builder =
+                GetMessageResponseB2C.newBuilder();
+        builder.setSuccess(false);
+        builder.setCurrOffset(-1);
+        builder.setEscFlowCtrl(false);
+        builder.setCurrDataDlt(-1);
+        builder.setMinLimitTime(0);
+        return builder;
+    }
+
+    private GetMessageResponseB2C buildGetMessageResponse(final GetMessageResponseB2C.Builder builder,
+                                                          final ConsumerNodeInfo consumerNodeInfo,
+                                                          final GetMessageResult msgResult) {
+        if (msgResult.isSuccess) {
+            consumerNodeInfo.setLastProcInfo(System.currentTimeMillis(),
+                    msgResult.lastRdDataOffset,
+                    msgResult.totalMsgSize);
+            getCounterGroup.add(msgResult.tmpCounters);
+            builder.setEscFlowCtrl(false);
+            builder.setRequireSlow(msgResult.isSlowFreq);
+            builder.setSuccess(true);
+            builder.setErrCode(TErrCodeConstants.SUCCESS);
+            builder.setCurrOffset(msgResult.reqOffset);
+            builder.setCurrDataDlt(msgResult.waitTime);
+            builder.setErrMsg("OK!");
+            builder.addAllMessages(msgResult.transferedMessageList);
+            builder.setMaxOffset(msgResult.getMaxOffset());
+        } else {
+            builder.setErrCode(msgResult.getRetCode());
+            builder.setErrMsg(msgResult.getErrInfo());
+            builder.setMinLimitTime((int) msgResult.waitTime);
+        }
+        return builder.build();
+    }
+
+    /***
+     * Park the get message request which has read all messages of the partition,
+     * until new messages of the partition arrive or the wait time is up.
+     *
+     * @return whether the request is parked
+     */
+    private boolean parkGetMessageRequest(final GetMessageRequestC2B request,
+                                          final MessageStore dataStore,
+                                          final ConsumerNodeInfo consumerNodeInfo,
+                                          final String groupName, final String topicName,
+                                          final int partitionId, final String clientId,
+                                          final String partStr, final String rmtAddrInfo,
+                                          final boolean isEscFlowCtrl,
+                                          final GetMessageResult notFoundResult) {
+        if (!request.hasMaxWaitTimeMs()) {
+            return false;
+        }
+        final DeferredResponse deferredResponse = DeferredResponse.current();
+        if (deferredResponse == null) {
+            return false;
+        }
+        final long readOffset =
+                notFoundResult.reqOffset + Math.max(0, notFoundResult.lastReadOffset);
+        final long waitTimeMs = calcLongPollWaitMs(request.getMaxWaitTimeMs(),
+                tubeConfig.getMaxLongPollWaitMs(), readOffset,
+                dataStore.getIndexMaxOffset(), deferredResponse.getRemainingTimeMs());
+        if (waitTimeMs <= 0) {
+            return false;
+        }
+        final LongPollWaiter waiter = new LongPollWaiter(deferredResponse, request, dataStore,
+                consumerNodeInfo, groupName, topicName, partitionId, clientId, partStr,
+                rmtAddrInfo, isEscFlowCtrl, notFoundResult);
+        deferredResponse.defer();
+        final MsgWaiterRegistry waiterRegistry = dataStore.getMsgWaiterRegistry();
+        waiterRegistry.register(waiter);
+        try {
+            waiter.timeoutFuture = longPollExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    waiterRegistry.unregister(waiter);
+                    if (waiter.fire()) {
+                        waiter.reply(notFoundResult);
+                    }
+                }
+            }, waitTimeMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            waiterRegistry.unregister(waiter);
+            if (waiter.fire()) {
+                waiter.reply(notFoundResult);
+            }
+            return true;
+        }
+        // messages appended before the waiter registered
+        if (dataStore.getIndexMaxOffset() > readOffset
+                && waiterRegistry.unregister(waiter)) {
+            waiter.wakeup();
+        }
+        return true;
+    }
+
+    /***
+     * Calculate how long a get message request can be parked.
+     *
+     * @param reqMaxWaitTimeMs   the max wait time of the request
+     * @param maxLongPollWaitMs  the max wait time allowed by the broker
+     * @param readOffset         the index offset the consumer has read to
+     * @param indexMaxOffset     the max index offset of the store
+     * @param remainingTimeMs    the remaining time before the client side timeout
+     * @return the wait time in milliseconds, not park the request if not positive
+     */
+    static long calcLongPollWaitMs(final int reqMaxWaitTimeMs, final long maxLongPollWaitMs,
+                                   final long readOffset, final long indexMaxOffset,
+                                   final long remainingTimeMs) {
+        if (reqMaxWaitTimeMs <= 0 || maxLongPollWaitMs <= 0) {
+            return 0;
+        }
+        // only park when the consumer has read to the end of the store
+        if (readOffset < indexMaxOffset) {
+            return 0;
+        }
+        // reply before the client side timeout
+        return Math.min(Math.min(reqMaxWaitTimeMs, maxLongPollWaitMs),
+                remainingTimeMs - LONG_POLL_REPLY_RESERVE_MS);
+    }
+
+    /***
+     * Parked get message request, reads messages again when woken up by new messages,
+     * or replies the not found result when the wait time is up.
+     */
+    private class LongPollWaiter extends MsgWaiterRegistry.MsgWaiter implements Runnable {
+        private final DeferredResponse deferredResponse;
+        private final GetMessageRequestC2B request;
+        private final MessageStore dataStore;
+        private final ConsumerNodeInfo consumerNodeInfo;
+        private final String groupName;
+        private final String topicName;
+        private final String clientId;
+        private final String partStr;
+        private final String rmtAddrInfo;
+        private final boolean isEscFlowCtrl;
+        private final GetMessageResult notFoundResult;
+        private volatile ScheduledFuture<?> timeoutFuture;
+
+        LongPollWaiter(DeferredResponse deferredResponse, GetMessageRequestC2B request,
+                       MessageStore dataStore, ConsumerNodeInfo consumerNodeInfo,
+                       String groupName, String topicName, int partitionId,
+                       String clientId, String partStr, String rmtAddrInfo,
+                       boolean isEscFlowCtrl, GetMessageResult notFoundResult) {
+            super(partitionId, consumerNodeInfo.isFilterConsume()
+                    ? consumerNodeInfo.getFilterCondCodeSet() : null);
+            this.deferredResponse = deferredResponse;
+            this.request = request;
+            this.dataStore = dataStore;
+            this.consumerNodeInfo = consumerNodeInfo;
+            this.groupName = groupName;
+            this.topicName = topicName;
+            this.clientId = clientId;
+            this.partStr = partStr;
+            this.rmtAddrInfo = rmtAddrInfo;
+            this.isEscFlowCtrl = isEscFlowCtrl;
+            this.notFoundResult = notFoundResult;
+        }
+
+        @Override
+        protected void onWakeup() {
+            ScheduledFuture<?> future = timeoutFuture;
+            if (future != null) {
+                future.cancel(false);
+            }
+            // read messages in long-poll thread instead of the appending thread
+            try {
+                longPollExecutor.execute(this);
+            } catch (RejectedExecutionException e) {
+                reply(notFoundResult);
+            }
+        }
+
+        @Override
+        public void run() {
+            GetMessageResult msgResult = notFoundResult;
+            if (started.get()
+                    && !ServiceStatusHolder.isReadServiceStop()
+                    && consumerRegisterMap.get(partStr) == consumerNodeInfo) {
+                StringBuilder strBuffer = new StringBuilder(512);
+                try {
+                    msgResult = getMessages(dataStore, consumerNodeInfo, groupName, topicName,
+                            getPartitionId(), false, request.getManualCommitOffset(), clientId,
+                            tubeConfig.getHostName(), rmtAddrInfo, isEscFlowCtrl, strBuffer);
+                } catch (Throwable e) {
+                    logger.warn(strBuffer.append("[Long Poll] get message failure, partition=")
+                            .append(partStr).toString(), e);
+                }
+            }
+            reply(msgResult);
+        }
+
+        void reply(final GetMessageResult msgResult) {
+            final GetMessageResponseB2C.Builder builder = createGetMessageRspBuilder();
+            builder.setLongPolled(true);
+            try {
+                deferredResponse.complete(
+                        buildGetMessageResponse(builder, consumerNodeInfo, msgResult));
+            } catch (Throwable e) {
+                logger.warn("[Long Poll] reply get message response failure", e);
+            }
+        }
+    }
+
     /***
      * Query offset, then read data.
      *
@@ -700,6 +924,173 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         }
     }
 
+    /***
+     * Handle producer's batch sendMessage request, the messages of the batch are
+     * appended to store as one unit.
+     *
+     * @param request
+     * @param rmtAddress
+     * @param overtls
+     * @return
+     * @throws Throwable
+     */
+    @Override
+    public SendBatchMessageResponseB2P sendBatchMessageP2B(SendBatchMessageRequestP2B request,
+                                                           final String rmtAddress,
+                                                           boolean overtls) throws Throwable {
+        ProcessResult result = new ProcessResult();
+        final StringBuilder strBuffer = new StringBuilder(512);
+        SendBatchMessageResponseB2P.Builder builder = SendBatchMessageResponseB2P.newBuilder();
+        builder.setSuccess(false);
+        // the producers cap their batch message count by this limit
+        builder.setMaxBatchMsgCnt(tubeConfig.getMaxBatchMsgCnt());
+        if (!this.started.get()
+                || ServiceStatusHolder.isWriteServiceStop()) {
+            builder.setErrCode(TErrCodeConstants.SERVICE_UNAVAILABLE);
+            builder.setErrMsg("Write StoreService temporary unavailable!");
+            return builder.build();
+        }
+        CertifiedResult certResult =
+                serverAuthHandler.identityValidUserInfo(request.getAuthInfo(), true);
+        if (!certResult.result) {
+            builder.setErrCode(certResult.errCode);
+            builder.setErrMsg(certResult.errInfo);
+            return builder.build();
+        }
+        // get and check clientId field
+        if (!PBParameterUtils.getStringParameter(WebFieldDef.CLIENTID,
+                request.getClientId(), strBuffer, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        // get and check topicName and partitionId field
+        final int partitionId = request.getPartitionId();
+        if (!PBParameterUtils.getTopicNamePartIdInfo(request.getTopicName(),
+                partitionId, this.metadataManager, strBuffer, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        final TopicMetadata topicMetadata = (TopicMetadata) result.getRetData();
+        final String topicName = topicMetadata.getTopic();
+        final int msgCount = request.getMessagesCount();
+        if (msgCount <= 0 || msgCount > tubeConfig.getMaxBatchMsgCnt()) {
+            builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+            builder.setErrMsg(strBuffer.append("message count in batch must be in [1, ")
+                    .append(tubeConfig.getMaxBatchMsgCnt()).append("], current count is ")
+                    .append(msgCount).toString());
+            return builder.build();
+        }
+        // check all messages before append any of them
+        final byte[][] msgDataArr = new byte[msgCount][];
+        final int[] checkSumArr = new int[msgCount];
+        final int[] msgTypeCodeArr = new int[msgCount];
+        long totalDataLength = 0L;
+        Set<String> authorizedMsgTypes = new HashSet<>();
+        for (int i = 0; i < msgCount; i++) {
+            BatchMessageItem msgItem = request.getMessages(i);
+            String msgType = null;
+            msgTypeCodeArr[i] = -1;
+            if (TStringUtils.isNotBlank(msgItem.getMsgType())) {
+                msgType = msgItem.getMsgType().trim();
+                msgTypeCodeArr[i] = msgType.hashCode();
+            }
+            final byte[] msgData = msgItem.getData().toByteArray();
+            if (msgData.length <= 0) {
+                builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+                builder.setErrMsg(strBuffer.append("data length is zero in message ")
+                        .append(i).append(" of batch!").toString());
+                return builder.build();
+            }
+            if (msgData.length > topicMetadata.getMaxMsgSize()) {
+                builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+                builder.setErrMsg(strBuffer.append("data length over max length in message ")
+                        .append(i).append(" of batch, allowed max length is ")
+                        .append(topicMetadata.getMaxMsgSize())
+                        .append(", data length is ").append(msgData.length).toString());
+                return builder.build();
+            }
+            checkSumArr[i] = CheckSum.crc32(msgData);
+            if (msgItem.getCheckSum() != -1 && checkSumArr[i] != msgItem.getCheckSum()) {
+                builder.setErrCode(TErrCodeConstants.FORBIDDEN);
+                builder.setErrMsg(strBuffer.append("Checksum msg data failure: ")
+                        .append(msgItem.getCheckSum()).append(" of ").append(topicName)
+                        .append(" not equal to the data's checksum of ")
+                        .append(checkSumArr[i]).toString());
+                return builder.build();
+            }
+            if (authorizedMsgTypes.add(String.valueOf(msgType))) {
+                CertifiedResult authorizeResult =
+                        serverAuthHandler.validProduceAuthorizeInfo(
+                                certResult.userName, topicName, msgType, rmtAddress);
+                if (!authorizeResult.result) {
+                    builder.setErrCode(authorizeResult.errCode);
+                    builder.setErrMsg(authorizeResult.errInfo);
+                    return builder.build();
+                }
+            }
+            msgDataArr[i] = msgData;
+            totalDataLength += msgData.length;
+        }
+        try {
+            final MessageStore store =
+                    this.storeManager.getOrCreateMessageStore(topicName, partitionId);
+            // the batch is appended as one unit, it can never be stored if too large
+            if (!store.isUnitFitCache(msgCount, totalDataLength)) {
+                builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+                builder.setErrMsg(strBuffer.append("batch of ").append(msgCount)
+                        .append(" messages and ").append(totalDataLength)
+                        .append(" bytes exceeds the memory cache of the store,")
+                        .append(" please send it in smaller batches").toString());
+                return builder.build();
+            }
+            final List<MsgAppendEntry> appendEntries = new ArrayList<>(msgCount);
+            for (int i = 0; i < msgCount; i++) {
+                appendEntries.add(store.createAppendEntry(new AppendResult(),
+                        msgDataArr[i].length, checkSumArr[i], msgDataArr[i],
+                        msgTypeCodeArr[i], request.getMessages(i).getFlag(),
+                        partitionId, request.getSentAddr()));
+            }
+            if (store.appendMsgUnit(appendEntries)) {
+                for (int i = 0; i < msgCount; i++) {
+                    final AppendResult appendResult = appendEntries.get(i).appendResult;
+                    String baseKey = strBuffer.append(topicName)
+                            .append("#").append(AddressUtils.intToIp(request.getSentAddr()))
+                            .append("#").append(tubeConfig.getHostName())
+                            .append("#").append(partitionId)
+                            .append("#").append(request.getMessages(i).getMsgTime()).toString();
+                    strBuffer.delete(0, strBuffer.length());
+                    putCounterGroup.add(baseKey, 1L, msgDataArr[i].length);
+                    builder.addResults(BatchMessageResult.newBuilder()
+                            .setMessageId(appendResult.getMsgId())
+                            .setAppendTime(appendResult.getAppendTime())
+                            .setAppendOffset(appendResult.getAppendIndexOffset()));
+                }
+                builder.setSuccess(true);
+                builder.setRequireAuth(certResult.reAuth);
+                builder.setErrCode(TErrCodeConstants.SUCCESS);
+                builder.setErrMsg("Ok!");
+                return builder.build();
+            } else {
+                builder.setErrCode(TErrCodeConstants.SERVER_RECEIVE_OVERFLOW);
+                builder.setErrMsg(strBuffer.append("Put batch message failed from ")
+                        .append(tubeConfig.getHostName())
+                        .append(", server receive message overflow!").toString());
+                return builder.build();
+            }
+        } catch (final Throwable ex) {
+            logger.error("Put batch message failed ", ex);
+            strBuffer.delete(0, strBuffer.length());
+            builder.setSuccess(false);
+            builder.setErrCode(TErrCodeConstants.INTERNAL_SERVER_ERROR);
+            builder.setErrMsg(strBuffer.append("Put batch message failed from ")
+                    .append(tubeConfig.getHostName()).append(" ")
+                    .append((ex.getMessage() != null ? ex.getMessage() : " ")).toString());
+            return builder.build();
+        }
+    }
+
     /***
      * Handle consumer register request.
      *
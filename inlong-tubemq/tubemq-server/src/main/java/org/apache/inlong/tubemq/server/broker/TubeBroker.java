@@ -51,6 +51,7 @@ import org.apache.inlong.tubemq.server.broker.msgstore.MessageStoreManager;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
 import org.apache.inlong.tubemq.server.broker.offset.DefaultOffsetManager;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetService;
+import org.apache.inlong.tubemq.server.broker.stats.PartitionLoadCollector;
 import org.apache.inlong.tubemq.server.broker.utils.BrokerSamplePrint;
 import org.apache.inlong.tubemq.server.broker.web.WebServer;
 import org.apache.inlong.tubemq.server.common.TubeServerVersion;
@@ -80,6 +81,9 @@ public class TubeBroker implements Stoppable {
     // tube broker's offset manager
     private final OffsetService offsetManager;
     private final BrokerServiceServer brokerServiceServer;
+    // partition load reported to master
+    private final PartitionLoadCollector partLoadCollector =
+            new PartitionLoadCollector();
     private final BrokerSamplePrint samplePrintCtrl =
             new BrokerSamplePrint(logger);
     private final ScheduledExecutorService scheduledExecutorService;
@@ -567,6 +571,10 @@ public class TubeBroker implements Stoppable {
             builder.setAuthInfo(authInfoBuilder.build());
         }
         builder.setClsConfig(buildClusterConfig());
+        builder.addAllPartLoadInfo(partLoadCollector.buildPartLoadInfo(
+                storeManager.getTopicPublishInfos(null),
+                brokerServiceServer.getConsumerRegisterMap(),
+                System.currentTimeMillis()));
         if (metadataManager.isBrokerMetadataChanged() || requireReportConf) {
             builder.setTakeConfInfo(true);
             builder.setBrokerDefaultConfInfo(metadataManager.getBrokerDefMetaConfInfo());
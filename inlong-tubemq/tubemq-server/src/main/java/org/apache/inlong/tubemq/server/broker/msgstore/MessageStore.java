@@ -20,11 +20,11 @@ package org.apache.inlong.tubemq.server.broker.msgstore;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -44,6 +44,7 @@ import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStatisInfo;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.Segment;
 import org.apache.inlong.tubemq.server.broker.msgstore.mem.GetCacheMsgResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgAppendEntry;
 import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStatisInfo;
 import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
@@ -77,7 +78,11 @@ public class MessageStore implements Closeable {
     private final ReentrantReadWriteLock writeCacheMutex = new ReentrantReadWriteLock();
     private final Condition flushWriteCacheCondition = writeCacheMutex.writeLock().newCondition();
     private final AtomicBoolean isFlushOngoing = new AtomicBoolean(false);
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // whether a disk flush task of this store is queued in flush scheduler
+    private final AtomicBoolean isFileFlushQueued = new AtomicBoolean(false);
+    // whether a cleanup task of this store is queued in flush scheduler
+    private final AtomicBoolean isClearupQueued = new AtomicBoolean(false);
+    private final AtomicBoolean isOffloadQueued = new AtomicBoolean(false);
     private final AtomicBoolean closed = new AtomicBoolean(false);
     private volatile int partitionNum;
     private AtomicInteger unflushInterval = new AtomicInteger(0);
@@ -102,20 +107,31 @@ public class MessageStore implements Closeable {
             = new AtomicInteger(this.fileMaxFilterIndexReadCnt.get() * DataStoreUtils.STORE_INDEX_HEAD_LEN);
     private AtomicInteger fileLowReqMaxFilterIndexReadSize
             = new AtomicInteger(this.fileLowReqMaxFilterIndexReadCnt.get() * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+    // group append of concurrent producers: appenders queue their messages, and the
+    // holder of appendMutex inserts all queued messages into memory in one batch.
+    private final ReentrantLock appendMutex = new ReentrantLock();
+    private final ConcurrentLinkedQueue<MsgAppendEntry> appendQueue =
+            new ConcurrentLinkedQueue<>();
     private MsgMemStore msgMemStore;
     private MsgMemStore msgMemStoreBeingFlush;
+    // full memory caches queued while msgMemStoreBeingFlush is still being flushed,
+    // in offset order, guarded by writeCacheMutex.
+    private final ArrayDeque<MsgMemStore> pendingFlushStores = new ArrayDeque<>();
+    private MsgMemStore spareMemStore = null;
+    // get message requests waiting for new messages
+    private final MsgWaiterRegistry msgWaiterRegistry = new MsgWaiterRegistry();
 
     public MessageStore(final MessageStoreManager messageStoreManager,
                         final TopicMetadata topicMetadata, final int storeId,
-                        final BrokerConfig tubeConfig,
+                        final String storePath, final BrokerConfig tubeConfig,
                         final int maxMsgRDSize) throws IOException {
-        this(messageStoreManager, topicMetadata, storeId, tubeConfig, 0, maxMsgRDSize);
+        this(messageStoreManager, topicMetadata, storeId, storePath, tubeConfig, 0, maxMsgRDSize);
     }
 
     public MessageStore(final MessageStoreManager messageStoreManager,
                         final TopicMetadata topicMetadata, final int storeId,
-                        final BrokerConfig tubeConfig, final long offsetIfCreate,
-                        final int maxMsgRDSize) throws IOException {
+                        final String storePath, final BrokerConfig tubeConfig,
+                        final long offsetIfCreate, final int maxMsgRDSize) throws IOException {
         this.topicMetadata = topicMetadata;
         this.storeId = storeId;
         this.tubeConfig = tubeConfig;
@@ -123,7 +139,7 @@ public class MessageStore implements Closeable {
         this.maxAllowRdSize = (int) (maxMsgRDSize * 0.5);
         this.storeKey = topicMetadata.getTopic() + "-" + this.storeId;
         this.idWorker = new IdWorker(0);
-        this.primStorePath = this.tubeConfig.getPrimaryPath();
+        this.primStorePath = storePath;
         this.partitionNum = topicMetadata.getNumPartitions();
         this.unflushInterval.set(topicMetadata.getUnflushInterval());
         this.maxFileValidDurMs.set(parseDeletePolicy(topicMetadata.getDeletePolicy()));
@@ -177,6 +193,8 @@ public class MessageStore implements Closeable {
         }
         int result = 0;
         boolean inMemCache = false;
+        HashMap<String, CountItem> countMap = new HashMap<>();
+        List<ClientBroker.TransferedMessage> transferedMessageList = new ArrayList<>();
         int maxIndexReadLength = memMaxIndexReadCnt.get();
         GetCacheMsgResult memMsgRlt = new GetCacheMsgResult(false, TErrCodeConstants.NOT_FOUND,
                 requestOffset, "Can't found Message by index in cache");
@@ -191,6 +209,16 @@ public class MessageStore implements Closeable {
                 try {
                     maxIndexOffset = this.msgMemStore.getIndexLastWritePos();
                     result = this.msgMemStoreBeingFlush.isOffsetInHold(requestOffset);
+                    MsgMemStore holdMemStore = this.msgMemStoreBeingFlush;
+                    if (result > 0) {
+                        for (MsgMemStore pendingStore : this.pendingFlushStores) {
+                            if (pendingStore.isOffsetInHold(requestOffset) == 0) {
+                                holdMemStore = pendingStore;
+                                result = 0;
+                                break;
+                            }
+                        }
+                    }
                     if (result >= 0) {
                         inMemCache = true;
                         if (result > 0) {
@@ -206,36 +234,36 @@ public class MessageStore implements Closeable {
                         } else {
                             // read from backup memory.
                             memMsgRlt =
-                                    msgMemStoreBeingFlush.getMessages(consumerNodeInfo.getLastDataRdOffset(),
+                                    holdMemStore.getMessages(consumerNodeInfo.getLastDataRdOffset(),
                                             requestOffset, msgStoreMgr.getMaxMsgTransferSize(),
                                             maxIndexReadLength, partitionId, true,
                                             consumerNodeInfo.isFilterConsume(),
                                             consumerNodeInfo.getFilterCondCodeSet());
                         }
                     }
-                } finally {
-                    this.writeCacheMutex.readLock().unlock();
-                }
-            }
-            if (inMemCache) {
-                // return not found when data is under memory sink operation.
-                if (memMsgRlt.isSuccess) {
-                    HashMap<String, CountItem> countMap =
-                            new HashMap<>();
-                    List<ClientBroker.TransferedMessage> transferedMessageList =
-                            new ArrayList<>();
-                    if (!memMsgRlt.cacheMsgList.isEmpty()) {
+                    // the cached messages are slices of memory cache, so convert them
+                    // before the cache can be swapped and cleared.
+                    if (inMemCache
+                            && memMsgRlt.isSuccess
+                            && !memMsgRlt.cacheMsgList.isEmpty()) {
                         final StringBuilder strBuffer = new StringBuilder(512);
                         for (ByteBuffer dataBuffer : memMsgRlt.cacheMsgList) {
                             ClientBroker.TransferedMessage transferedMessage =
-                                    DataStoreUtils.getTransferMsg(dataBuffer,
-                                            dataBuffer.array().length,
+                                    DataStoreUtils.getTransferMsg(dataBuffer, 0,
+                                            dataBuffer.remaining(),
                                             countMap, statisKeyBase, strBuffer);
                             if (transferedMessage != null) {
                                 transferedMessageList.add(transferedMessage);
                             }
                         }
                     }
+                } finally {
+                    this.writeCacheMutex.readLock().unlock();
+                }
+            }
+            if (inMemCache) {
+                // return not found when data is under memory sink operation.
+                if (memMsgRlt.isSuccess) {
                     GetMessageResult getResult =
                         new GetMessageResult(true, 0, memMsgRlt.errInfo, requestOffset,
                             memMsgRlt.dltOffset, memMsgRlt.lastRdDataOff,
@@ -254,13 +282,20 @@ public class MessageStore implements Closeable {
             return new GetMessageResult(false, TErrCodeConstants.NOT_FOUND,
                     reqNewOffset, 0, "current offset is exceed max file offset");
         }
+        // for filter consume, skip index ranges without any matched keyCode,
+        // the skipped size is counted in the result's read offset.
+        long rdIndexOffset = reqNewOffset;
+        if (consumerNodeInfo.isFilterConsume()) {
+            rdIndexOffset = this.msgFileStore.getFilterStartOffset(reqNewOffset,
+                    consumerNodeInfo.getFilterCondCodeSet());
+        }
         maxIndexReadLength = consumerNodeInfo.isFilterConsume()
                 ? fileMaxFilterIndexReadSize.get() : fileMaxIndexReadSize.get();
         final ByteBuffer indexBuffer = ByteBuffer.allocate(maxIndexReadLength);
         Segment indexRecordView =
-                this.msgFileStore.indexSlice(reqNewOffset, maxIndexReadLength);
+                this.msgFileStore.indexSlice(rdIndexOffset, maxIndexReadLength);
         if (indexRecordView == null) {
-            if (reqNewOffset < this.msgFileStore.getIndexMinOffset()) {
+            if (rdIndexOffset < this.msgFileStore.getIndexMinOffset()) {
                 return new GetMessageResult(false, TErrCodeConstants.MOVED,
                         reqNewOffset, 0, "current offset is exceed min offset!");
             } else {
@@ -268,9 +303,12 @@ public class MessageStore implements Closeable {
                         reqNewOffset, 0, "current offset is exceed max offset!");
             }
         }
-        indexRecordView.read(indexBuffer, reqNewOffset);
+        try {
+            indexRecordView.read(indexBuffer, rdIndexOffset);
+        } finally {
+            indexRecordView.relViewRef();
+        }
         indexBuffer.flip();
-        indexRecordView.relViewRef();
         if ((msgFileStore.getDataHighMaxOffset() - consumerNodeInfo.getLastDataRdOffset()
             >= this.tubeConfig.getDoubleDefaultDeduceReadSize())
             && msgSizeLimit > this.maxAllowRdSize) {
@@ -278,10 +316,15 @@ public class MessageStore implements Closeable {
         }
         GetMessageResult retResult =
             msgFileStore.getMessages(partitionId,
-                consumerNodeInfo.getLastDataRdOffset(), reqNewOffset,
+                consumerNodeInfo.getLastDataRdOffset(), rdIndexOffset,
                 indexBuffer, consumerNodeInfo.isFilterConsume(),
                 consumerNodeInfo.getFilterCondCodeSet(),
                 statisKeyBase, msgSizeLimit);
+        if (rdIndexOffset > reqNewOffset) {
+            retResult.setReqOffset(reqNewOffset);
+            retResult.setLastReadOffset(retResult.getLastReadOffset()
+                    + (int) (rdIndexOffset - reqNewOffset));
+        }
         if (reqSwitch <= 1) {
             retResult.setMaxOffset(getFileIndexMaxOffset());
         } else {
@@ -317,11 +360,91 @@ public class MessageStore implements Closeable {
                              final int dataCheckSum, final byte[] data,
                              final int msgTypeCode, final int msgFlag,
                              final int partitionId, final int sentAddr) throws IOException {
-        if (this.closed.get()) {
-            throw new IllegalStateException(new StringBuilder(512)
-                    .append("[Data Store] Closed MessageStore for storeKey ")
-                    .append(this.storeKey).toString());
+        checkStoreOpened();
+        final MsgAppendEntry appendEntry = createAppendEntry(appendResult, dataLength,
+                dataCheckSum, data, msgTypeCode, msgFlag, partitionId, sentAddr);
+        if (this.tubeConfig.isGroupAppendEnable()
+                && groupAppendMsg(appendEntry)) {
+            this.msgWaiterRegistry.notifyArrival(partitionId, msgTypeCode);
+            return true;
         }
+        return appendEntryMsg(appendEntry);
+    }
+
+    /***
+     * Append a batch of messages to store as one unit: the messages get contiguous
+     * offsets in the order of the list, without interleaving with other producers.
+     * Either all the messages are appended or none of them, a batch larger than the
+     * whole memory cache is never appended, see isUnitFitCache().
+     *
+     * @param appendEntries  the messages built by createAppendEntry()
+     * @return whether all messages are appended
+     * @throws IOException
+     */
+    public boolean appendMsgUnit(final List<MsgAppendEntry> appendEntries) throws IOException {
+        checkStoreOpened();
+        if (appendEntries.isEmpty()) {
+            return true;
+        }
+        long totalLength = 0;
+        for (MsgAppendEntry entry : appendEntries) {
+            totalLength += entry.entryLength;
+        }
+        if (!this.msgMemStore.isUnitFitCache(appendEntries.size(), totalLength)) {
+            msgMemStatisInfo.addWriteFailCount();
+            return false;
+        }
+        int count = 3;
+        do {
+            boolean appended = false;
+            this.writeCacheMutex.readLock().lock();
+            try {
+                appended = this.msgMemStore.appendMsgUnit(msgMemStatisInfo, appendEntries);
+            } finally {
+                this.writeCacheMutex.readLock().unlock();
+            }
+            if (appended || triggerFlushAndAddUnit(appendEntries)) {
+                for (MsgAppendEntry entry : appendEntries) {
+                    this.msgWaiterRegistry.notifyArrival(entry.partitionId, entry.keyCode);
+                }
+                return true;
+            }
+            ThreadUtils.sleep(1);
+        } while (count-- >= 0);
+        msgMemStatisInfo.addWriteFailCount();
+        return false;
+    }
+
+    /***
+     * Check whether a batch of messages could be appended as one unit, that is
+     * whether it fits in an empty memory cache of the store.
+     *
+     * @param msgCnt           the message count of the batch
+     * @param totalDataLength  the total data length of the messages
+     * @return whether the batch fits
+     */
+    public boolean isUnitFitCache(final int msgCnt, final long totalDataLength) {
+        return this.msgMemStore.isUnitFitCache(msgCnt,
+                totalDataLength + (long) msgCnt * DataStoreUtils.STORE_DATA_HEADER_LEN);
+    }
+
+    /***
+     * Build the stored form of a message, assign its message id and received time.
+     *
+     * @param appendResult
+     * @param dataLength
+     * @param dataCheckSum
+     * @param data
+     * @param msgTypeCode
+     * @param msgFlag
+     * @param partitionId
+     * @param sentAddr
+     * @return the message waiting to be appended
+     */
+    public MsgAppendEntry createAppendEntry(final AppendResult appendResult, final int dataLength,
+                                            final int dataCheckSum, final byte[] data,
+                                            final int msgTypeCode, final int msgFlag,
+                                            final int partitionId, final int sentAddr) {
         long messageId = this.idWorker.nextId();
         int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + dataLength;
         final long receivedTime = System.currentTimeMillis();
@@ -339,27 +462,8 @@ public class MessageStore implements Closeable {
         buffer.put(data);
         buffer.flip();
         appendResult.putReceivedInfo(messageId, receivedTime);
-        int count = 3;
-        do {
-            this.writeCacheMutex.readLock().lock();
-            try {
-                if (this.msgMemStore.appendMsg(msgMemStatisInfo,
-                        partitionId, msgTypeCode, receivedTime,
-                        msgBufLen, buffer, appendResult)) {
-                    return true;
-                }
-            } finally {
-                this.writeCacheMutex.readLock().unlock();
-            }
-            if (triggerFlushAndAddMsg(partitionId, msgTypeCode,
-                    receivedTime, msgBufLen, true,
-                    buffer, false, appendResult)) {
-                return true;
-            }
-            ThreadUtils.sleep(1);
-        } while (count-- >= 0);
-        msgMemStatisInfo.addWriteFailCount();
-        return false;
+        return new MsgAppendEntry(partitionId, msgTypeCode,
+                receivedTime, msgBufLen, buffer, appendResult);
     }
 
     public String getCurMemMsgSizeStatisInfo(boolean needRefresh) {
@@ -389,6 +493,65 @@ public class MessageStore implements Closeable {
         return msgFileStore.runClearupPolicy(onlyCheck);
     }
 
+    /***
+     * Queue a cleanup task in flush scheduler, run by the executor of the store's data directory.
+     */
+    public void scheduleClearup() {
+        if (this.closed.get()
+                || !isClearupQueued.compareAndSet(false, true)) {
+            return;
+        }
+        if (!msgStoreMgr.getFlushScheduler().submitCleanup(primStorePath, new Runnable() {
+            @Override
+            public void run() {
+                isClearupQueued.set(false);
+                if (closed.get()) {
+                    return;
+                }
+                try {
+                    msgFileStore.runClearupPolicy(false);
+                } catch (Throwable e) {
+                    logger.error(new StringBuilder(512)
+                            .append("[Data Store] Try to run delete policy with ").append(storeKey)
+                            .append("'s log file failed").toString(), e);
+                }
+            }
+        })) {
+            isClearupQueued.set(false);
+        }
+        scheduleOffload();
+    }
+
+    /***
+     * Queue a cold storage offload task, run by the offload executor of the store's
+     * data directory, so the slow segment compression doesn't hold the flush threads.
+     */
+    private void scheduleOffload() {
+        if (this.closed.get()
+                || !msgFileStore.runOffloadPolicy(true)
+                || !isOffloadQueued.compareAndSet(false, true)) {
+            return;
+        }
+        if (!msgStoreMgr.getFlushScheduler().submitOffload(primStorePath, new Runnable() {
+            @Override
+            public void run() {
+                isOffloadQueued.set(false);
+                if (closed.get()) {
+                    return;
+                }
+                try {
+                    msgFileStore.runOffloadPolicy(false);
+                } catch (Throwable e) {
+                    logger.error(new StringBuilder(512)
+                            .append("[Data Store] Try to offload ").append(storeKey)
+                            .append("'s log file to cold storage failed").toString(), e);
+                }
+            }
+        })) {
+            isOffloadQueued.set(false);
+        }
+    }
+
     /***
      * Refresh unflush threshold
      *
@@ -439,6 +602,36 @@ public class MessageStore implements Closeable {
         msgFileStore.flushDiskFile();
     }
 
+    /***
+     * Queue a disk flush task in flush scheduler if the file store requires flush.
+     */
+    public void scheduleFlushFile() {
+        if (this.closed.get()
+                || !msgFileStore.isFlushRequired()
+                || !isFileFlushQueued.compareAndSet(false, true)) {
+            return;
+        }
+        if (!msgStoreMgr.getFlushScheduler().submit(primStorePath, false,
+                msgFileStore.getUnflushedSize(), msgFileStore.getLastFlushTime(), new Runnable() {
+                    @Override
+                    public void run() {
+                        isFileFlushQueued.set(false);
+                        if (closed.get()) {
+                            return;
+                        }
+                        try {
+                            msgFileStore.flushDiskFile();
+                        } catch (Throwable e) {
+                            logger.error(new StringBuilder(512)
+                                    .append("[Data Store] Try to flush ").append(storeKey)
+                                    .append("'s file-store failed").toString(), e);
+                        }
+                    }
+                })) {
+            isFileFlushQueued.set(false);
+        }
+    }
+
     /***
      * Flush memory store to file.
      *
@@ -464,11 +657,17 @@ public class MessageStore implements Closeable {
             logger.info(strBuffer.append("[Data Store] Stop current Message store ")
                     .append(this.storeKey).toString());
             strBuffer.delete(0, strBuffer.length());
+            this.msgWaiterRegistry.wakeupAll();
             ThreadUtils.sleep(100);
             flush(strBuffer);
             this.msgMemStore.close();
             this.msgMemStoreBeingFlush.close();
-            this.executor.shutdown();
+            for (MsgMemStore pendingStore : this.pendingFlushStores) {
+                pendingStore.close();
+            }
+            if (this.spareMemStore != null) {
+                this.spareMemStore.close();
+            }
             this.msgFileStore.close();
             logger.info(strBuffer.append("[Data Store] Message store stopped")
                     .append(this.storeKey).toString());
@@ -487,6 +686,10 @@ public class MessageStore implements Closeable {
         return this.storeKey;
     }
 
+    public MsgWaiterRegistry getMsgWaiterRegistry() {
+        return this.msgWaiterRegistry;
+    }
+
     public int getPartitionNum() {
         return this.partitionNum;
     }
@@ -555,6 +758,9 @@ public class MessageStore implements Closeable {
             if (this.msgMemStoreBeingFlush.getCurMsgCount() > 0) {
                 totalSize += this.msgMemStoreBeingFlush.getIndexCacheSize();
             }
+            for (MsgMemStore pendingStore : this.pendingFlushStores) {
+                totalSize += pendingStore.getIndexCacheSize();
+            }
         } finally {
             this.writeCacheMutex.readLock().unlock();
         }
@@ -572,6 +778,9 @@ public class MessageStore implements Closeable {
             if (this.msgMemStoreBeingFlush.getCurMsgCount() > 0) {
                 totalSize += this.msgMemStoreBeingFlush.getCurDataCacheSize();
             }
+            for (MsgMemStore pendingStore : this.pendingFlushStores) {
+                totalSize += pendingStore.getCurDataCacheSize();
+            }
         } finally {
             this.writeCacheMutex.readLock().unlock();
         }
@@ -628,32 +837,28 @@ public class MessageStore implements Closeable {
                                           final AppendResult appendResult) throws IOException {
         writeCacheMutex.writeLock().lock();
         try {
-            if (!isFlushOngoing.get() && hasFlushBeenTriggered.compareAndSet(false, true)) {
-                this.executor.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            final StringBuilder strBuffer = new StringBuilder(512);
-                            flush(strBuffer);
-                        } catch (Throwable e) {
-                            logger.error("[Data Store] Error during flush", e);
-                        }
-                    }
-                });
-                msgMemStatisInfo.addMemFlushCount(isTimeTrigger);
-            }
-            long startTime = System.currentTimeMillis();
-            long timeoutNs = TimeUnit.MILLISECONDS.toNanos(100);
-            while (hasFlushBeenTriggered.get()) {
-                flushWriteCacheCondition.awaitNanos(timeoutNs);
-                if (System.currentTimeMillis() - startTime > 2000) {
-                    logger.warn(new StringBuilder(512)
-                            .append("[Data Store] StoreKey=").append(storeKey)
-                            .append(" Wait Cache flush write too long! wait time is ")
-                            .append(System.currentTimeMillis() - startTime).toString());
-                    break;
+            if (needAdd) {
+                // the cache may have been switched by other writers
+                if (msgMemStore.appendMsg(msgMemStatisInfo,
+                        partitionId, keyCode, receivedTime,
+                        entryLength, entry, appendResult)) {
+                    return true;
+                }
+                // the previous cache is still being flushed, queue the full cache
+                // for flush and switch to a new one instead of waiting for it.
+                if (isFlushOngoing.get()
+                        && pendingFlushStores.size() < tubeConfig.getMaxPendingFlushCacheCnt()) {
+                    long lastDataPos = msgMemStore.getDataLastWritePos();
+                    long lastIndexPos = msgMemStore.getIndexLastWritePos();
+                    pendingFlushStores.offer(msgMemStore);
+                    msgMemStore = takeSpareMemStore();
+                    msgMemStore.resetStartPos(lastDataPos, lastIndexPos);
+                    return msgMemStore.appendMsg(msgMemStatisInfo,
+                            partitionId, keyCode, receivedTime,
+                            entryLength, entry, appendResult);
                 }
             }
+            triggerFlushAndWait(isTimeTrigger);
             if (needAdd) {
                 return msgMemStore.appendMsg(msgMemStatisInfo,
                         partitionId, keyCode, receivedTime,
@@ -671,12 +876,86 @@ public class MessageStore implements Closeable {
         return false;
     }
 
+    /***
+     * Append a batch of messages as one unit, switch or flush the full cache if needed.
+     *
+     * @param appendEntries
+     * @return whether the batch is appended
+     * @throws IOException
+     */
+    private boolean triggerFlushAndAddUnit(final List<MsgAppendEntry> appendEntries) throws IOException {
+        writeCacheMutex.writeLock().lock();
+        try {
+            // the cache may have been switched by other writers
+            if (msgMemStore.appendMsgUnit(msgMemStatisInfo, appendEntries)) {
+                return true;
+            }
+            if (isFlushOngoing.get()
+                    && pendingFlushStores.size() < tubeConfig.getMaxPendingFlushCacheCnt()) {
+                long lastDataPos = msgMemStore.getDataLastWritePos();
+                long lastIndexPos = msgMemStore.getIndexLastWritePos();
+                pendingFlushStores.offer(msgMemStore);
+                msgMemStore = takeSpareMemStore();
+                msgMemStore.resetStartPos(lastDataPos, lastIndexPos);
+                return msgMemStore.appendMsgUnit(msgMemStatisInfo, appendEntries);
+            }
+            triggerFlushAndWait(false);
+            return msgMemStore.appendMsgUnit(msgMemStatisInfo, appendEntries);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(new StringBuilder(512)
+                    .append("[Data Store] StoreKey=").append(storeKey)
+                    .append(" Interrupted when triggerFlushAndAddUnit process for storekey ")
+                    .append(storeKey).toString());
+        } finally {
+            writeCacheMutex.writeLock().unlock();
+        }
+    }
+
+    // must be called under the write lock of writeCacheMutex
+    private void triggerFlushAndWait(final boolean isTimeTrigger) throws InterruptedException {
+        if (!isFlushOngoing.get() && hasFlushBeenTriggered.compareAndSet(false, true)) {
+            if (msgStoreMgr.getFlushScheduler().submit(primStorePath, true,
+                    msgMemStore.getCurDataCacheSize(), lastMemFlushTime.get(), new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                final StringBuilder strBuffer = new StringBuilder(512);
+                                flush(strBuffer);
+                            } catch (Throwable e) {
+                                logger.error("[Data Store] Error during flush", e);
+                            }
+                        }
+                    })) {
+                msgMemStatisInfo.addMemFlushCount(isTimeTrigger);
+            } else {
+                hasFlushBeenTriggered.set(false);
+            }
+        }
+        long startTime = System.currentTimeMillis();
+        long timeoutNs = TimeUnit.MILLISECONDS.toNanos(100);
+        while (hasFlushBeenTriggered.get()) {
+            flushWriteCacheCondition.awaitNanos(timeoutNs);
+            if (System.currentTimeMillis() - startTime > 2000) {
+                logger.warn(new StringBuilder(512)
+                        .append("[Data Store] StoreKey=").append(storeKey)
+                        .append(" Wait Cache flush write too long! wait time is ")
+                        .append(System.currentTimeMillis() - startTime).toString());
+                break;
+            }
+        }
+    }
+
     private void flush(final StringBuilder strBuffer) throws IOException {
         long startTime = System.currentTimeMillis();
         flushMutex.lock();
         this.lastMemFlushTime.set(System.currentTimeMillis());
         try {
             swapWriteCache(strBuffer);
+            // flush the caches queued during flushing
+            while (flushPendingWriteCache(strBuffer)) {
+                msgMemStatisInfo.addMemFlushCount(false);
+            }
             if (logger.isDebugEnabled()) {
                 logger.debug(strBuffer.append("[Data Store] StoreKey=").append(storeKey)
                         .append(" Flushing entries.count:")
@@ -711,25 +990,32 @@ public class MessageStore implements Closeable {
     private void swapWriteCache(final StringBuilder strBuffer) throws Throwable {
         writeCacheMutex.writeLock().lock();
         try {
-            long lastDataPos = msgMemStore.getDataLastWritePos();
-            long lastIndexPos = msgMemStore.getIndexLastWritePos();
-            MsgMemStore tmp = msgMemStoreBeingFlush;
-            msgMemStoreBeingFlush = msgMemStore;
-            if (tmp.getMaxAllowedMsgCount() == writeCacheMaxCnt
-                    && tmp.getMaxDataCacheSize() == writeCacheMaxSize) {
-                msgMemStore = tmp;
-                msgMemStore.clear();
+            MsgMemStore pendingStore = pendingFlushStores.poll();
+            if (pendingStore != null) {
+                // queued caches hold smaller offsets, flush them first
+                recycleMemStore(msgMemStoreBeingFlush);
+                msgMemStoreBeingFlush = pendingStore;
             } else {
-                tmp.close();
-                msgMemStore =
-                        new MsgMemStore(writeCacheMaxSize, writeCacheMaxCnt, tubeConfig);
-                logger.info(strBuffer.append("[Data Store] Found ").append(getStoreKey())
-                        .append(" Cache capacity change, new MemSize=")
-                        .append(writeCacheMaxSize).append(", new CacheCnt=")
-                        .append(writeCacheMaxCnt).toString());
-                strBuffer.delete(0, strBuffer.length());
+                long lastDataPos = msgMemStore.getDataLastWritePos();
+                long lastIndexPos = msgMemStore.getIndexLastWritePos();
+                MsgMemStore tmp = msgMemStoreBeingFlush;
+                msgMemStoreBeingFlush = msgMemStore;
+                if (tmp.getMaxAllowedMsgCount() == writeCacheMaxCnt
+                        && tmp.getMaxDataCacheSize() == writeCacheMaxSize) {
+                    msgMemStore = tmp;
+                    msgMemStore.clear();
+                } else {
+                    tmp.close();
+                    msgMemStore =
+                            new MsgMemStore(writeCacheMaxSize, writeCacheMaxCnt, tubeConfig);
+                    logger.info(strBuffer.append("[Data Store] Found ").append(getStoreKey())
+                            .append(" Cache capacity change, new MemSize=")
+                            .append(writeCacheMaxSize).append(", new CacheCnt=")
+                            .append(writeCacheMaxCnt).toString());
+                    strBuffer.delete(0, strBuffer.length());
+                }
+                msgMemStore.resetStartPos(lastDataPos, lastIndexPos);
             }
-            msgMemStore.resetStartPos(lastDataPos, lastIndexPos);
             hasFlushBeenTriggered.set(false);
             flushWriteCacheCondition.signalAll();
         } finally {
@@ -742,4 +1028,117 @@ public class MessageStore implements Closeable {
         msgMemStoreBeingFlush.batchFlush(msgFileStore, strBuffer);
     }
 
+    /***
+     * Flush the next memory cache queued during flushing.
+     *
+     * @param strBuffer
+     * @return whether a queued cache has been flushed
+     * @throws Throwable
+     */
+    private boolean flushPendingWriteCache(final StringBuilder strBuffer) throws Throwable {
+        writeCacheMutex.writeLock().lock();
+        try {
+            MsgMemStore pendingStore = pendingFlushStores.poll();
+            if (pendingStore == null) {
+                // reset under lock, so no writer can queue a cache after the last check
+                isFlushOngoing.set(false);
+                return false;
+            }
+            recycleMemStore(msgMemStoreBeingFlush);
+            msgMemStoreBeingFlush = pendingStore;
+        } finally {
+            writeCacheMutex.writeLock().unlock();
+        }
+        msgMemStoreBeingFlush.batchFlush(msgFileStore, strBuffer);
+        return true;
+    }
+
+    private void checkStoreOpened() {
+        if (this.closed.get()) {
+            throw new IllegalStateException(new StringBuilder(512)
+                    .append("[Data Store] Closed MessageStore for storeKey ")
+                    .append(this.storeKey).toString());
+        }
+    }
+
+    private boolean appendEntryMsg(final MsgAppendEntry appendEntry) throws IOException {
+        int count = 3;
+        do {
+            boolean appended = false;
+            this.writeCacheMutex.readLock().lock();
+            try {
+                appended = this.msgMemStore.appendMsg(msgMemStatisInfo,
+                        appendEntry.partitionId, appendEntry.keyCode, appendEntry.timeRecv,
+                        appendEntry.entryLength, appendEntry.entry, appendEntry.appendResult);
+            } finally {
+                this.writeCacheMutex.readLock().unlock();
+            }
+            if (appended || triggerFlushAndAddMsg(appendEntry.partitionId,
+                    appendEntry.keyCode, appendEntry.timeRecv, appendEntry.entryLength,
+                    true, appendEntry.entry, false, appendEntry.appendResult)) {
+                this.msgWaiterRegistry.notifyArrival(appendEntry.partitionId, appendEntry.keyCode);
+                return true;
+            }
+            ThreadUtils.sleep(1);
+        } while (count-- >= 0);
+        msgMemStatisInfo.addWriteFailCount();
+        return false;
+    }
+
+    /***
+     * Append message by group: queue the message, then the thread that gets appendMutex
+     * appends all queued messages to memory in one batch.
+     *
+     * @param appendEntry
+     * @return whether the message is appended
+     */
+    private boolean groupAppendMsg(final MsgAppendEntry appendEntry) {
+        this.appendQueue.offer(appendEntry);
+        this.appendMutex.lock();
+        try {
+            if (!appendEntry.processed) {
+                MsgAppendEntry item;
+                List<MsgAppendEntry> appendEntries = new ArrayList<>();
+                while ((item = this.appendQueue.poll()) != null) {
+                    appendEntries.add(item);
+                }
+                this.writeCacheMutex.readLock().lock();
+                try {
+                    this.msgMemStore.batchAppendMsg(msgMemStatisInfo, appendEntries);
+                } finally {
+                    this.writeCacheMutex.readLock().unlock();
+                    for (MsgAppendEntry entry : appendEntries) {
+                        entry.processed = true;
+                    }
+                }
+            }
+        } finally {
+            this.appendMutex.unlock();
+        }
+        return appendEntry.appended;
+    }
+
+    // must be called under the write lock of writeCacheMutex
+    private MsgMemStore takeSpareMemStore() {
+        MsgMemStore memStore = this.spareMemStore;
+        this.spareMemStore = null;
+        if (memStore != null
+                && memStore.getMaxAllowedMsgCount() == writeCacheMaxCnt
+                && memStore.getMaxDataCacheSize() == writeCacheMaxSize) {
+            return memStore;
+        }
+        if (memStore != null) {
+            memStore.close();
+        }
+        return new MsgMemStore(writeCacheMaxSize, writeCacheMaxCnt, tubeConfig);
+    }
+
+    // must be called under the write lock of writeCacheMutex
+    private void recycleMemStore(final MsgMemStore memStore) {
+        if (this.spareMemStore == null) {
+            this.spareMemStore = memStore;
+        } else {
+            memStore.close();
+        }
+    }
 }
@@ -26,6 +26,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -49,7 +50,9 @@ import org.apache.inlong.tubemq.server.broker.TubeBroker;
 import org.apache.inlong.tubemq.server.broker.exception.StartupException;
 import org.apache.inlong.tubemq.server.broker.metadata.MetadataManager;
 import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.ColdSegmentCache;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.SegmentMmapHolder;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.broker.utils.TopicPubStoreInfo;
@@ -76,6 +79,10 @@ public class MessageStoreManager implements StoreService {
     private final ScheduledExecutorService logClearScheduler;
     // flush operation scheduler.
     private final ScheduledExecutorService unFlushDiskScheduler;
+    // shared flush executors of data directories.
+    private final StoreFlushScheduler flushScheduler;
+    // data directory placement of stores.
+    private final StorePathManager storePathManager;
     // message on memory sink to disk operation scheduler.
     private final ScheduledExecutorService unFlushMemScheduler;
     // max transfer size.
@@ -92,6 +99,12 @@ public class MessageStoreManager implements StoreService {
         this.isRemovingTopic.set(false);
         this.maxMsgTransferSize =
                 Math.min(tubeConfig.getTransferSize(), DataStoreUtils.MAX_MSG_TRANSFER_SIZE);
+        SegmentMmapHolder.setMmapReadConfig(tubeConfig.isSegmentMmapReadEnable(),
+                tubeConfig.getMaxSegmentMmapSize());
+        ColdSegmentCache.setMaxCacheSize(tubeConfig.getColdStoreCacheSize());
+        this.flushScheduler = new StoreFlushScheduler(tubeConfig.getFlushThreadCntPerDir());
+        this.storePathManager =
+                new StorePathManager(tubeConfig.getDataPathList(), this.flushScheduler);
         this.metadataManager.addPropertyChangeListener("topicConfigMap", new PropertyChangeListener() {
             @Override
             public void propertyChange(final PropertyChangeEvent evt) {
@@ -182,6 +195,7 @@ public class MessageStoreManager implements StoreService {
                 }
             }
             this.dataStores.clear();
+            this.flushScheduler.close();
             logger.info("[Store Manager] Store Manager stopped!");
         }
     }
@@ -237,12 +251,22 @@ public class MessageStoreManager implements StoreService {
                 if (tmpTopicConf != null) {
                     StringBuilder sBuilder = new StringBuilder(512);
                     for (int storeId = 0; storeId < tmpTopicConf.getNumTopicStores(); storeId++) {
-                        String storeDir = sBuilder.append(tmpTopicConf.getDataPath())
-                                .append(File.separator).append(tmpTopic).append("-")
-                                .append(storeId).toString();
+                        String storeKey = sBuilder.append(tmpTopic)
+                                .append("-").append(storeId).toString();
                         sBuilder.delete(0, sBuilder.length());
+                        String storePath = storePathManager.getStorePath(storeKey);
+                        String storeDir = sBuilder.append(storePath == null
+                                ? tmpTopicConf.getDataPath() : storePath)
+                                .append(File.separator).append(storeKey).toString();
+                        sBuilder.delete(0, sBuilder.length());
+                        storePathManager.removeStorePath(storeKey);
                         try {
                             delTopicFiles(storeDir);
+                            if (tubeConfig.isColdStoreEnable()) {
+                                delTopicFiles(sBuilder.append(tubeConfig.getColdStorePath())
+                                        .append(File.separator).append(storeKey).toString());
+                                sBuilder.delete(0, sBuilder.length());
+                            }
                         } catch (Throwable e) {
                             logger.error("[Remove Topic] Remove topic data error : ", e);
                         }
@@ -315,9 +339,12 @@ public class MessageStoreManager implements StoreService {
                 if (messageStore == null) {
                     TopicMetadata topicMetadata =
                             metadataManager.getTopicMetadata(topic);
+                    String storePath = storePathManager.selectStorePath(
+                            sBuilder.append(topic).append("-").append(storeId).toString());
+                    sBuilder.delete(0, sBuilder.length());
                     MessageStore tmpMessageStore =
                             new MessageStore(this, topicMetadata, storeId,
-                                    tubeConfig, 0, maxMsgTransferSize);
+                                    storePath, tubeConfig, 0, maxMsgTransferSize);
                     messageStore = dataMap.putIfAbsent(storeId, tmpMessageStore);
                     if (messageStore == null) {
                         messageStore = tmpMessageStore;
@@ -377,6 +404,14 @@ public class MessageStoreManager implements StoreService {
         return tubeBroker.getMetadataManager();
     }
 
+    public StoreFlushScheduler getFlushScheduler() {
+        return flushScheduler;
+    }
+
+    public StorePathManager getStorePathManager() {
+        return storePathManager;
+    }
+
     public int getMaxMsgTransferSize() {
         return maxMsgTransferSize;
     }
@@ -444,8 +479,8 @@ public class MessageStoreManager implements StoreService {
 
     private Set<File> getLogDirSet(final BrokerConfig tubeConfig) throws IOException {
         TopicMetadata topicMetadata = null;
-        final Set<String> paths = new HashSet<>();
-        paths.add(tubeConfig.getPrimaryPath());
+        // configured data paths first, so stores in them take precedence
+        final Set<String> paths = new LinkedHashSet<>(storePathManager.getStorePaths());
         for (final String topic : metadataManager.getTopics()) {
             topicMetadata = metadataManager.getTopicMetadata(topic);
             if (topicMetadata != null
@@ -453,7 +488,7 @@ public class MessageStoreManager implements StoreService {
                 paths.add(topicMetadata.getDataPath());
             }
         }
-        final Set<File> fileSet = new HashSet<>();
+        final Set<File> fileSet = new LinkedHashSet<>();
         for (final String path : paths) {
             final File dir = new File(path);
             if (!dir.exists() && !dir.mkdirs()) {
@@ -482,12 +517,13 @@ public class MessageStoreManager implements StoreService {
             throws IOException, InterruptedException {
         StringBuilder sBuilder = new StringBuilder(512);
         logger.info(sBuilder.append("[Store Manager] Begin to load message stores from path ")
-                .append(tubeConfig.getPrimaryPath()).toString());
+                .append(storePathManager.getStorePaths()).toString());
         sBuilder.delete(0, sBuilder.length());
         final long start = System.currentTimeMillis();
         final AtomicInteger errCnt = new AtomicInteger(0);
         final AtomicInteger finishCnt = new AtomicInteger(0);
         List<Callable<MessageStore>> tasks = new ArrayList<>();
+        final Map<String, String> foundPlacements = new HashMap<>();
         for (final File dir : this.getLogDirSet(tubeConfig)) {
             if (dir == null) {
                 continue;
@@ -521,14 +557,35 @@ public class MessageStoreManager implements StoreService {
                     continue;
                 }
                 final int storeId = Integer.parseInt(name.substring(index + 1));
+                // open the store from its recorded data directory, a store found in
+                // other directories is only recorded if it has no placement yet.
+                final String recordPath = storePathManager.getStorePath(name);
+                final String storePath;
+                if (recordPath != null) {
+                    if (!recordPath.equals(dir.getPath())) {
+                        logger.warn(sBuilder.append("[Store Manager] Ignore store directory ")
+                                .append(subDir.getAbsolutePath()).append(", recorded data path is ")
+                                .append(recordPath).toString());
+                        sBuilder.delete(0, sBuilder.length());
+                        continue;
+                    }
+                    storePath = recordPath;
+                } else {
+                    storePath = storePathManager.isStorePath(dir.getPath())
+                            ? dir.getPath() : tubeConfig.getPrimaryPath();
+                    if (foundPlacements.containsKey(name)) {
+                        continue;
+                    }
+                    foundPlacements.put(name, storePath);
+                }
                 final MessageStoreManager messageStoreManager = this;
                 tasks.add(new Callable<MessageStore>() {
                     @Override
                     public MessageStore call() throws Exception {
                         MessageStore msgStore = null;
                         try {
-                            msgStore = new MessageStore(messageStoreManager,
-                                    topicMetadata, storeId, tubeConfig, maxMsgTransferSize);
+                            msgStore = new MessageStore(messageStoreManager, topicMetadata,
+                                    storeId, storePath, tubeConfig, maxMsgTransferSize);
                             ConcurrentHashMap<Integer, MessageStore> map =
                                     dataStores.get(msgStore.getTopic());
                             if (map == null) {
@@ -564,6 +621,7 @@ public class MessageStoreManager implements StoreService {
                 });
             }
         }
+        this.storePathManager.recordStorePaths(foundPlacements);
         this.loadStoresInParallel(tasks);
         tasks.clear();
         if (errCnt.get() > 0) {
@@ -675,7 +733,8 @@ public class MessageStoreManager implements StoreService {
                             continue;
                         }
                         try {
-                            entry.getValue().runClearupPolicy(false);
+                            // run by the executor of the store's data directory
+                            entry.getValue().scheduleClearup();
                         } catch (final Throwable e) {
                             logger.error(sBuilder.append("Try to run delete policy with ")
                                     .append(entry.getValue().getStoreKey())
@@ -739,7 +798,8 @@ public class MessageStoreManager implements StoreService {
                         continue;
                     }
                     try {
-                        msgStore.flushFile();
+                        // queue the flush in the store's data directory executor
+                        msgStore.scheduleFlushFile();
                     } catch (final Throwable e) {
                         logger.error(sBuilder.append("[Store Manager] Try to flush ")
                                 .append(msgStore.getStoreKey())
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * Registry of get message requests waiting for new messages of a store.
+ * Waiters are registered by partition, and woken up once when a message of the
+ * partition with matched keyCode is appended, or removed by the caller on timeout.
+ */
+public class MsgWaiterRegistry {
+    private final ConcurrentHashMap<Integer, ConcurrentLinkedQueue<MsgWaiter>> partWaiters =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger waiterCnt = new AtomicInteger(0);
+
+    public void register(final MsgWaiter waiter) {
+        ConcurrentLinkedQueue<MsgWaiter> waiters = partWaiters.get(waiter.getPartitionId());
+        if (waiters == null) {
+            ConcurrentLinkedQueue<MsgWaiter> tmpWaiters = new ConcurrentLinkedQueue<>();
+            waiters = partWaiters.putIfAbsent(waiter.getPartitionId(), tmpWaiters);
+            if (waiters == null) {
+                waiters = tmpWaiters;
+            }
+        }
+        waiters.add(waiter);
+        waiterCnt.incrementAndGet();
+    }
+
+    public boolean unregister(final MsgWaiter waiter) {
+        ConcurrentLinkedQueue<MsgWaiter> waiters = partWaiters.get(waiter.getPartitionId());
+        if (waiters != null && waiters.remove(waiter)) {
+            waiterCnt.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /***
+     * Wake up the waiters of the partition that match the keyCode.
+     *
+     * @param partitionId   partition id of the appended message
+     * @param keyCode       keyCode of the appended message
+     */
+    public void notifyArrival(final int partitionId, final int keyCode) {
+        if (waiterCnt.get() == 0) {
+            return;
+        }
+        ConcurrentLinkedQueue<MsgWaiter> waiters = partWaiters.get(partitionId);
+        if (waiters == null) {
+            return;
+        }
+        Iterator<MsgWaiter> it = waiters.iterator();
+        while (it.hasNext()) {
+            MsgWaiter waiter = it.next();
+            if (waiter.isMatched(keyCode) && waiters.remove(waiter)) {
+                waiterCnt.decrementAndGet();
+                waiter.wakeup();
+            }
+        }
+    }
+
+    /***
+     * Wake up all waiters, called when the store is closed.
+     */
+    public void wakeupAll() {
+        for (ConcurrentLinkedQueue<MsgWaiter> waiters : partWaiters.values()) {
+            MsgWaiter waiter;
+            while ((waiter = waiters.poll()) != null) {
+                waiterCnt.decrementAndGet();
+                waiter.wakeup();
+            }
+        }
+    }
+
+    public int getWaiterCount() {
+        return waiterCnt.get();
+    }
+
+    /***
+     * A waiting get message request, woken up at most once.
+     */
+    public abstract static class MsgWaiter {
+        private final int partitionId;
+        // keyCodes of filter consume, null or empty means all messages
+        private final Set<Integer> filterKeySet;
+        private final AtomicBoolean fired = new AtomicBoolean(false);
+
+        protected MsgWaiter(final int partitionId, final Set<Integer> filterKeySet) {
+            this.partitionId = partitionId;
+            this.filterKeySet = filterKeySet;
+        }
+
+        public int getPartitionId() {
+            return partitionId;
+        }
+
+        public boolean isMatched(final int keyCode) {
+            return filterKeySet == null
+                    || filterKeySet.isEmpty()
+                    || filterKeySet.contains(keyCode);
+        }
+
+        /***
+         * Mark the waiter fired, only the first caller gets true.
+         *
+         * @return whether the caller should process the waiter
+         */
+        public boolean fire() {
+            return fired.compareAndSet(false, true);
+        }
+
+        public void wakeup() {
+            if (fire()) {
+                onWakeup();
+            }
+        }
+
+        protected abstract void onWakeup();
+    }
+}
@@ -0,0 +1,312 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/***
+ * Flush scheduler shared by all message stores. Each data directory has a bounded
+ * flush thread pool, the queued tasks are executed in priority order:
+ * memory flushes, disk flushes, then expired file cleanups; tasks of the same
+ * type with more unflushed bytes and older unflushed data first.
+ *
+ * Offloading segments to cold storage compresses whole files, so it runs in a
+ * separate low priority thread of each data directory and never holds the flush
+ * threads, one offload at a time per data directory.
+ */
+public class StoreFlushScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(StoreFlushScheduler.class);
+    private static final int TASK_TYPE_MEM_FLUSH = 0;
+    private static final int TASK_TYPE_DISK_FLUSH = 1;
+    private static final int TASK_TYPE_CLEANUP = 2;
+    private final int threadCntPerDir;
+    private final AtomicInteger dirIndex = new AtomicInteger(0);
+    private final AtomicInteger offloadDirIndex = new AtomicInteger(0);
+    private final AtomicLong taskSeq = new AtomicLong(0);
+    // data directory to flush executor
+    private final ConcurrentHashMap<String, DirFlushExecutor> dirExecutors =
+            new ConcurrentHashMap<>();
+    // data directory to offload executor
+    private final ConcurrentHashMap<String, ThreadPoolExecutor> offloadExecutors =
+            new ConcurrentHashMap<>();
+    private volatile boolean stopped = false;
+
+    public StoreFlushScheduler(int threadCntPerDir) {
+        this.threadCntPerDir = Math.max(1, threadCntPerDir);
+    }
+
+    /***
+     * Submit a flush task to the executor of the data directory.
+     *
+     * @param dataDir          data directory of the store
+     * @param isMemFlush       memory flush or disk flush
+     * @param unflushedSize    unflushed bytes of the store
+     * @param unflushedTime    time of the oldest unflushed data
+     * @param runnable         flush operation
+     * @return whether the task is accepted
+     */
+    public boolean submit(final String dataDir, final boolean isMemFlush,
+                          final long unflushedSize, final long unflushedTime,
+                          final Runnable runnable) {
+        return submitTask(dataDir, isMemFlush ? TASK_TYPE_MEM_FLUSH : TASK_TYPE_DISK_FLUSH,
+                unflushedSize, unflushedTime, runnable);
+    }
+
+    /***
+     * Submit an expired file cleanup task to the executor of the data directory,
+     * it runs after all queued flush tasks.
+     *
+     * @param dataDir     data directory of the store
+     * @param runnable    cleanup operation
+     * @return whether the task is accepted
+     */
+    public boolean submitCleanup(final String dataDir, final Runnable runnable) {
+        return submitTask(dataDir, TASK_TYPE_CLEANUP, 0L, 0L, runnable);
+    }
+
+    /***
+     * Submit a cold storage offload task to the offload executor of the data directory.
+     *
+     * @param dataDir     data directory of the store
+     * @param runnable    offload operation
+     * @return whether the task is accepted
+     */
+    public boolean submitOffload(final String dataDir, final Runnable runnable) {
+        if (stopped) {
+            return false;
+        }
+        ThreadPoolExecutor offloadExecutor = offloadExecutors.get(dataDir);
+        if (offloadExecutor == null) {
+            ThreadPoolExecutor newExecutor =
+                    newOffloadExecutor(offloadDirIndex.getAndIncrement());
+            offloadExecutor = offloadExecutors.putIfAbsent(dataDir, newExecutor);
+            if (offloadExecutor == null) {
+                offloadExecutor = newExecutor;
+            } else {
+                newExecutor.shutdown();
+            }
+        }
+        try {
+            offloadExecutor.execute(runnable);
+            return true;
+        } catch (RejectedExecutionException e) {
+            logger.warn(new StringBuilder(256)
+                    .append("[Store Flush] reject offload task of ")
+                    .append(dataDir).toString());
+            return false;
+        }
+    }
+
+    private ThreadPoolExecutor newOffloadExecutor(final int index) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, new StringBuilder(64)
+                                .append("Broker Store Offload Thread-")
+                                .append(index).toString());
+                        t.setDaemon(true);
+                        t.setPriority(Thread.MIN_PRIORITY);
+                        return t;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private boolean submitTask(final String dataDir, final int taskType,
+                               final long unflushedSize, final long unflushedTime,
+                               final Runnable runnable) {
+        if (stopped) {
+            return false;
+        }
+        DirFlushExecutor dirExecutor = dirExecutors.get(dataDir);
+        if (dirExecutor == null) {
+            DirFlushExecutor newExecutor =
+                    new DirFlushExecutor(dataDir, dirIndex.getAndIncrement());
+            dirExecutor = dirExecutors.putIfAbsent(dataDir, newExecutor);
+            if (dirExecutor == null) {
+                dirExecutor = newExecutor;
+            } else {
+                newExecutor.shutdown();
+            }
+        }
+        try {
+            dirExecutor.execute(new FlushTask(dirExecutor, taskType, unflushedSize,
+                    unflushedTime, taskSeq.getAndIncrement(), runnable));
+            return true;
+        } catch (RejectedExecutionException e) {
+            logger.warn(new StringBuilder(256)
+                    .append("[Store Flush] reject flush task of ")
+                    .append(dataDir).toString());
+            return false;
+        }
+    }
+
+    public int getQueueDepth(final String dataDir) {
+        DirFlushExecutor dirExecutor = dirExecutors.get(dataDir);
+        return dirExecutor == null ? 0 : dirExecutor.getQueue().size();
+    }
+
+    /***
+     * Get flush statistics of each data directory.
+     *
+     * @param needRefresh    whether to reset the max wait time
+     * @return statistics in json format
+     */
+    public String getFlushStatisInfo(boolean needRefresh) {
+        int index = 0;
+        StringBuilder sBuilder = new StringBuilder(512).append("[");
+        for (DirFlushExecutor dirExecutor : dirExecutors.values()) {
+            if (index++ > 0) {
+                sBuilder.append(",");
+            }
+            sBuilder.append("{\"dataDir\":\"").append(dirExecutor.dataDir)
+                    .append("\",\"threadCnt\":").append(dirExecutor.getPoolSize())
+                    .append(",\"activeCnt\":").append(dirExecutor.getActiveCount())
+                    .append(",\"queueDepth\":").append(dirExecutor.getQueue().size())
+                    .append(",\"memFlushCnt\":").append(dirExecutor.memFlushCnt.get())
+                    .append(",\"diskFlushCnt\":").append(dirExecutor.diskFlushCnt.get())
+                    .append(",\"cleanupCnt\":").append(dirExecutor.cleanupCnt.get())
+                    .append(",\"offloadQueueDepth\":").append(getOffloadQueueDepth(dirExecutor.dataDir))
+                    .append(",\"maxWaitTime\":").append(needRefresh
+                            ? dirExecutor.maxWaitTime.getAndSet(0) : dirExecutor.maxWaitTime.get())
+                    .append(",\"maxExecTime\":").append(needRefresh
+                            ? dirExecutor.maxExecTime.getAndSet(0) : dirExecutor.maxExecTime.get())
+                    .append("}");
+        }
+        return sBuilder.append("]").toString();
+    }
+
+    private int getOffloadQueueDepth(final String dataDir) {
+        ThreadPoolExecutor offloadExecutor = offloadExecutors.get(dataDir);
+        return offloadExecutor == null ? 0 : offloadExecutor.getQueue().size();
+    }
+
+    public void close() {
+        this.stopped = true;
+        for (Map.Entry<String, DirFlushExecutor> entry : dirExecutors.entrySet()) {
+            entry.getValue().shutdownNow();
+        }
+        for (Map.Entry<String, ThreadPoolExecutor> entry : offloadExecutors.entrySet()) {
+            entry.getValue().shutdownNow();
+        }
+    }
+
+    private class DirFlushExecutor extends ThreadPoolExecutor {
+        private final String dataDir;
+        private final AtomicLong memFlushCnt = new AtomicLong(0);
+        private final AtomicLong diskFlushCnt = new AtomicLong(0);
+        private final AtomicLong cleanupCnt = new AtomicLong(0);
+        private final AtomicLong maxWaitTime = new AtomicLong(0);
+        private final AtomicLong maxExecTime = new AtomicLong(0);
+
+        DirFlushExecutor(final String dataDir, final int dirIndex) {
+            super(threadCntPerDir, threadCntPerDir, 60L, TimeUnit.SECONDS,
+                    new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private final AtomicInteger threadIndex = new AtomicInteger(0);
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, new StringBuilder(64)
+                                    .append("Broker Store Flush Thread-").append(dirIndex)
+                                    .append("-").append(threadIndex.incrementAndGet()).toString());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            this.dataDir = dataDir;
+            this.allowCoreThreadTimeOut(true);
+        }
+
+        private void updateMax(final AtomicLong maxValue, final long value) {
+            long curValue = maxValue.get();
+            while (value > curValue) {
+                if (maxValue.compareAndSet(curValue, value)) {
+                    break;
+                }
+                curValue = maxValue.get();
+            }
+        }
+    }
+
+    private static class FlushTask implements Runnable, Comparable<FlushTask> {
+        private final DirFlushExecutor executor;
+        private final int taskType;
+        private final long unflushedSize;
+        private final long unflushedTime;
+        private final long seq;
+        private final long submitTime;
+        private final Runnable runnable;
+
+        FlushTask(final DirFlushExecutor executor, final int taskType,
+                  final long unflushedSize, final long unflushedTime,
+                  final long seq, final Runnable runnable) {
+            this.executor = executor;
+            this.taskType = taskType;
+            this.unflushedSize = unflushedSize;
+            this.unflushedTime = unflushedTime;
+            this.seq = seq;
+            this.submitTime = System.currentTimeMillis();
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            long startTime = System.currentTimeMillis();
+            executor.updateMax(executor.maxWaitTime, startTime - submitTime);
+            try {
+                runnable.run();
+            } finally {
+                if (taskType == TASK_TYPE_MEM_FLUSH) {
+                    executor.memFlushCnt.incrementAndGet();
+                } else if (taskType == TASK_TYPE_DISK_FLUSH) {
+                    executor.diskFlushCnt.incrementAndGet();
+                } else {
+                    executor.cleanupCnt.incrementAndGet();
+                }
+                executor.updateMax(executor.maxExecTime, System.currentTimeMillis() - startTime);
+            }
+        }
+
+        @Override
+        public int compareTo(FlushTask other) {
+            if (this.taskType != other.taskType) {
+                return this.taskType < other.taskType ? -1 : 1;
+            }
+            if (this.unflushedSize != other.unflushedSize) {
+                return this.unflushedSize > other.unflushedSize ? -1 : 1;
+            }
+            if (this.unflushedTime != other.unflushedTime) {
+                return this.unflushedTime < other.unflushedTime ? -1 : 1;
+            }
+            return Long.compare(this.seq, other.seq);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/***
+ * Data directory placement of message stores. A new store is placed on the directory
+ * with the most free space per unit of current load(stores placed and queued flush
+ * tasks), and the placement is recorded in a file under the primary directory so the
+ * store is opened from the same directory after restart.
+ */
+public class StorePathManager {
+    private static final Logger logger = LoggerFactory.getLogger(StorePathManager.class);
+    public static final String PLACEMENT_FILE_NAME = "store_placement.properties";
+    private final List<String> storePaths = new ArrayList<>();
+    private final StoreFlushScheduler flushScheduler;
+    private final File placementFile;
+    // storeKey to data directory
+    private final ConcurrentHashMap<String, String> storePlacements =
+            new ConcurrentHashMap<>();
+
+    public StorePathManager(final List<String> dataPathList,
+                            final StoreFlushScheduler flushScheduler) throws IOException {
+        for (String dataPath : dataPathList) {
+            String storePath = new File(dataPath).getPath();
+            if (!this.storePaths.contains(storePath)) {
+                this.storePaths.add(storePath);
+            }
+        }
+        this.flushScheduler = flushScheduler;
+        this.placementFile = new File(this.storePaths.get(0), PLACEMENT_FILE_NAME);
+        loadPlacements();
+    }
+
+    public List<String> getStorePaths() {
+        return Collections.unmodifiableList(storePaths);
+    }
+
+    public boolean isStorePath(final String storePath) {
+        return storePaths.contains(new File(storePath).getPath());
+    }
+
+    /***
+     * Get the recorded data directory of the store.
+     *
+     * @param storeKey
+     * @return the data directory, or null if not recorded
+     */
+    public String getStorePath(final String storeKey) {
+        return storePlacements.get(storeKey);
+    }
+
+    /***
+     * Get the data directory of the store, select and record one if not placed yet.
+     *
+     * @param storeKey
+     * @return the data directory
+     * @throws IOException
+     */
+    public synchronized String selectStorePath(final String storeKey) throws IOException {
+        String storePath = storePlacements.get(storeKey);
+        if (storePath != null) {
+            return storePath;
+        }
+        storePath = storePaths.get(0);
+        if (storePaths.size() > 1) {
+            double maxScore = -1;
+            Map<String, Integer> storeCnts = getStoreCntByPath();
+            for (String dataPath : storePaths) {
+                Integer storeCnt = storeCnts.get(dataPath);
+                long load = 1L + (storeCnt == null ? 0 : storeCnt)
+                        + flushScheduler.getQueueDepth(dataPath);
+                double score = new File(dataPath).getUsableSpace() / (double) load;
+                if (score > maxScore) {
+                    maxScore = score;
+                    storePath = dataPath;
+                }
+            }
+        }
+        recordStorePath(storeKey, storePath);
+        return storePath;
+    }
+
+    /***
+     * Record the data directory of the store.
+     *
+     * @param storeKey
+     * @param storePath
+     * @throws IOException
+     */
+    public synchronized void recordStorePath(final String storeKey,
+                                             final String storePath) throws IOException {
+        String normPath = new File(storePath).getPath();
+        if (!normPath.equals(storePlacements.put(storeKey, normPath))) {
+            storePlacements();
+        }
+    }
+
+    /***
+     * Record the data directories of stores in batch.
+     *
+     * @param placements   storeKey to data directory
+     * @throws IOException
+     */
+    public synchronized void recordStorePaths(final Map<String, String> placements) throws IOException {
+        boolean changed = false;
+        for (Map.Entry<String, String> entry : placements.entrySet()) {
+            String normPath = new File(entry.getValue()).getPath();
+            if (!normPath.equals(storePlacements.put(entry.getKey(), normPath))) {
+                changed = true;
+            }
+        }
+        if (changed) {
+            storePlacements();
+        }
+    }
+
+    /***
+     * Remove the placement record of the store.
+     *
+     * @param storeKey
+     */
+    public synchronized void removeStorePath(final String storeKey) {
+        if (storePlacements.remove(storeKey) != null) {
+            try {
+                storePlacements();
+            } catch (Throwable e) {
+                logger.error("[Store Manager] Store placement file failure", e);
+            }
+        }
+    }
+
+    private Map<String, Integer> getStoreCntByPath() {
+        Map<String, Integer> storeCnts = new HashMap<>();
+        for (String storePath : storePlacements.values()) {
+            Integer storeCnt = storeCnts.get(storePath);
+            storeCnts.put(storePath, storeCnt == null ? 1 : storeCnt + 1);
+        }
+        return storeCnts;
+    }
+
+    private void loadPlacements() throws IOException {
+        if (!placementFile.exists()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(placementFile)) {
+            properties.load(in);
+        }
+        for (String storeKey : properties.stringPropertyNames()) {
+            String storePath = properties.getProperty(storeKey);
+            if (isStorePath(storePath)) {
+                storePlacements.put(storeKey, new File(storePath).getPath());
+            } else {
+                logger.warn(new StringBuilder(512)
+                        .append("[Store Manager] Ignore placement of ").append(storeKey)
+                        .append(", directory ").append(storePath)
+                        .append(" is not in configured data paths").toString());
+            }
+        }
+    }
+
+    // write to a temporary file first then rename it
+    private void storePlacements() throws IOException {
+        Properties properties = new Properties();
+        properties.putAll(storePlacements);
+        File parentDir = placementFile.getParentFile();
+        if (parentDir != null && !parentDir.exists() && !parentDir.mkdirs()) {
+            throw new IOException(new StringBuilder(512)
+                    .append("Could not make directory ")
+                    .append(parentDir.getAbsolutePath()).toString());
+        }
+        File tmpFile = new File(placementFile.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmpFile)) {
+            properties.store(out, "message store placement, storeKey=dataPath");
+        }
+        if (!tmpFile.renameTo(placementFile)) {
+            tmpFile.delete();
+            throw new IOException(new StringBuilder(512)
+                    .append("Rename store placement file failure: ")
+                    .append(placementFile.getAbsolutePath()).toString());
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/***
+ * Read-only segment offloaded to cold storage directory. The content of the original
+ * FileSegment is compressed in blocks, and blocks are decompressed on read through
+ * ColdSegmentCache.
+ *
+ * File layout: header(magic, version, start, raw size, block size, block count),
+ * block table(position and length of each compressed block), compressed blocks.
+ */
+public class ColdFileSegment implements Segment {
+    private static final Logger logger =
+            LoggerFactory.getLogger(ColdFileSegment.class);
+    public static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int COLD_FILE_MAGIC = 0x2C99C3B;
+    private static final int COLD_FILE_VERSION = 1;
+    private static final int HEADER_LEN = 32;
+    private static final int BLOCK_ENTRY_LEN = 12;
+    private final long start;
+    private final File file;
+    private final SegmentType segmentType;
+    private final RandomAccessFile randFile;
+    private final FileChannel channel;
+    private final long rawSize;
+    private final int blockSize;
+    private final long[] blockPositions;
+    private final int[] blockLengths;
+    private long expiredTime = 0;
+    private final AtomicBoolean expired = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    public ColdFileSegment(final long start, final File file,
+                           final SegmentType type) throws IOException {
+        this.start = start;
+        this.file = file;
+        this.segmentType = type;
+        this.randFile = new RandomAccessFile(file, "r");
+        this.channel = this.randFile.getChannel();
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LEN);
+            readFully(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_LEN
+                    || header.getInt() != COLD_FILE_MAGIC
+                    || header.getInt() != COLD_FILE_VERSION
+                    || header.getLong() != start) {
+                throw new IOException(new StringBuilder(512)
+                        .append("Invalid cold segment file ")
+                        .append(file.getAbsolutePath()).toString());
+            }
+            this.rawSize = header.getLong();
+            this.blockSize = header.getInt();
+            final int blockCnt = header.getInt();
+            ByteBuffer table = ByteBuffer.allocate(blockCnt * BLOCK_ENTRY_LEN);
+            readFully(table, HEADER_LEN);
+            table.flip();
+            this.blockPositions = new long[blockCnt];
+            this.blockLengths = new int[blockCnt];
+            for (int i = 0; i < blockCnt; i++) {
+                this.blockPositions[i] = table.getLong();
+                this.blockLengths[i] = table.getInt();
+            }
+        } catch (IOException e) {
+            this.randFile.close();
+            throw e;
+        }
+    }
+
+    /***
+     * Compress the immutable segment to cold storage file, write to a temporary file
+     * first then rename it. The cold file keeps the modify time of the segment file.
+     *
+     * @param segment     the immutable segment
+     * @param coldFile    the cold storage file
+     * @return the cold segment
+     * @throws IOException
+     */
+    public static ColdFileSegment offload(final Segment segment, final SegmentType type,
+                                          final File coldFile) throws IOException {
+        final long rawSize = segment.getCachedSize();
+        final int blockCnt = (int) ((rawSize + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        final File tmpFile = new File(coldFile.getPath() + ".tmp");
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (RandomAccessFile out = new RandomAccessFile(tmpFile, "rw")) {
+            out.setLength(0);
+            final FileChannel outChannel = out.getChannel();
+            final ByteBuffer table = ByteBuffer.allocate(blockCnt * BLOCK_ENTRY_LEN);
+            final ByteBuffer rawBuf = ByteBuffer.allocate(BLOCK_SIZE);
+            final ByteArrayOutputStream compOut = new ByteArrayOutputStream(BLOCK_SIZE);
+            final byte[] compBuf = new byte[64 * 1024];
+            long writePos = HEADER_LEN + (long) blockCnt * BLOCK_ENTRY_LEN;
+            for (int i = 0; i < blockCnt; i++) {
+                final long blockStart = (long) i * BLOCK_SIZE;
+                rawBuf.clear();
+                rawBuf.limit((int) Math.min(BLOCK_SIZE, rawSize - blockStart));
+                segment.read(rawBuf, segment.getStart() + blockStart);
+                if (rawBuf.hasRemaining()) {
+                    throw new IOException(new StringBuilder(512)
+                            .append("Read segment ").append(segment.getFile().getAbsolutePath())
+                            .append(" incomplete at ").append(blockStart).toString());
+                }
+                compOut.reset();
+                deflater.reset();
+                deflater.setInput(rawBuf.array(), 0, rawBuf.limit());
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int len = deflater.deflate(compBuf);
+                    compOut.write(compBuf, 0, len);
+                }
+                table.putLong(writePos);
+                table.putInt(compOut.size());
+                writeFully(outChannel, ByteBuffer.wrap(compOut.toByteArray()), writePos);
+                writePos += compOut.size();
+            }
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_LEN);
+            header.putInt(COLD_FILE_MAGIC);
+            header.putInt(COLD_FILE_VERSION);
+            header.putLong(segment.getStart());
+            header.putLong(rawSize);
+            header.putInt(BLOCK_SIZE);
+            header.putInt(blockCnt);
+            header.flip();
+            table.flip();
+            writeFully(outChannel, header, 0);
+            writeFully(outChannel, table, HEADER_LEN);
+            outChannel.force(true);
+        } catch (IOException e) {
+            tmpFile.delete();
+            throw e;
+        } finally {
+            deflater.end();
+        }
+        if (!tmpFile.renameTo(coldFile)) {
+            tmpFile.delete();
+            throw new IOException(new StringBuilder(512)
+                    .append("Rename cold segment file failure: ")
+                    .append(coldFile.getAbsolutePath()).toString());
+        }
+        coldFile.setLastModified(segment.getFile().lastModified());
+        return new ColdFileSegment(segment.getStart(), coldFile, type);
+    }
+
+    /***
+     * Read and decompress a block of this segment, called by ColdSegmentCache.
+     *
+     * @param blockIndex   block index
+     * @return decompressed block
+     * @throws IOException
+     */
+    byte[] loadBlock(final int blockIndex) throws IOException {
+        final int rawLen =
+                (int) Math.min(blockSize, rawSize - (long) blockIndex * blockSize);
+        final ByteBuffer compBuf = ByteBuffer.allocate(blockLengths[blockIndex]);
+        readFully(compBuf, blockPositions[blockIndex]);
+        final byte[] block = new byte[rawLen];
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compBuf.array(), 0, compBuf.position());
+            int size = 0;
+            while (size < rawLen && !inflater.finished()) {
+                int len = inflater.inflate(block, size, rawLen - size);
+                if (len == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                size += len;
+            }
+            if (size != rawLen) {
+                throw new IOException(new StringBuilder(512)
+                        .append("Decompress block ").append(blockIndex).append(" of ")
+                        .append(file.getAbsolutePath()).append(" incomplete").toString());
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+        return block;
+    }
+
+    @Override
+    public void read(final ByteBuffer bf, final long reqOffset) throws IOException {
+        long readPos = reqOffset - start;
+        while (bf.hasRemaining() && readPos >= 0 && readPos < rawSize) {
+            final int blockIndex = (int) (readPos / blockSize);
+            final int blockOffset = (int) (readPos % blockSize);
+            final byte[] block = ColdSegmentCache.getBlock(this, blockIndex);
+            final int len = Math.min(bf.remaining(), block.length - blockOffset);
+            bf.put(block, blockOffset, len);
+            readPos += len;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.closed.compareAndSet(false, true)) {
+            try {
+                this.randFile.close();
+            } catch (Throwable e) {
+                if (e instanceof IOException) {
+                    ServiceStatusHolder.addReadIOErrCnt();
+                }
+                logger.error(new StringBuilder(512).append("[File Store] Close cold ")
+                        .append(segmentType).append(" file ")
+                        .append(this.file.getAbsolutePath()).append(" failure").toString(), e);
+            }
+        }
+    }
+
+    @Override
+    public void deleteFile() {
+        close();
+        ColdSegmentCache.invalidate(this);
+        logger.info(new StringBuilder(512)
+                .append("[File Store] delete cold file ")
+                .append(file.getAbsoluteFile()).toString());
+        if (!this.file.delete()) {
+            logger.warn(new StringBuilder(512)
+                    .append("[File Store] failure to delete cold file ")
+                    .append(file.getAbsoluteFile()).toString());
+        }
+    }
+
+    @Override
+    public long append(final ByteBuffer buf) throws IOException {
+        throw new UnsupportedOperationException("[File Store] Cold Segment is immutable!");
+    }
+
+    @Override
+    public long flush(boolean force) throws IOException {
+        return getCommitLast();
+    }
+
+    /***
+     * Check whether this segment is expired, and set expire status.
+     *
+     * @param checkTimestamp check timestamp.
+     * @param maxValidTimeMs the max expire interval in milliseconds.
+     * @return -1 means already expired, 0 means not expired, 1 means expired.
+     */
+    @Override
+    public int checkAndSetExpired(final long checkTimestamp, final long maxValidTimeMs) {
+        if (expired.get()) {
+            return -1;
+        }
+        if (closed.get()) {
+            return 0;
+        }
+        if (checkTimestamp - file.lastModified() > maxValidTimeMs) {
+            if (expired.compareAndSet(false, true)) {
+                expiredTime = System.currentTimeMillis();
+            }
+            return 1;
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    @Override
+    public boolean needDelete() {
+        return (expired.get() && (System.currentTimeMillis() - expiredTime > 120000));
+    }
+
+    @Override
+    public long getStart() {
+        return start;
+    }
+
+    @Override
+    public long getLast() {
+        return start + rawSize;
+    }
+
+    @Override
+    public long getCommitLast() {
+        return start + rawSize;
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public long getCachedSize() {
+        return rawSize;
+    }
+
+    @Override
+    public long getCommitSize() {
+        return rawSize;
+    }
+
+    @Override
+    public boolean isExpired() {
+        return expired.get();
+    }
+
+    @Override
+    public boolean contains(final long offset) {
+        return (rawSize == 0 && offset == start
+                || rawSize > 0 && offset >= start && offset <= start + rawSize - 1);
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public void setMutable(boolean mutable) {
+        // cold segment is always immutable
+    }
+
+    @Override
+    public void addViewRef() {
+        // blocks are read through cache, no reference needed
+    }
+
+    @Override
+    public void relViewRef() {
+        // blocks are read through cache, no reference needed
+    }
+
+    private void readFully(final ByteBuffer bf, final long position) throws IOException {
+        int size = 0;
+        while (bf.hasRemaining()) {
+            final int l = this.channel.read(bf, position + size);
+            if (l < 0) {
+                break;
+            }
+            size += l;
+        }
+    }
+
+    private static void writeFully(final FileChannel outChannel,
+                                   final ByteBuffer bf, final long position) throws IOException {
+        long writePos = position;
+        while (bf.hasRemaining()) {
+            writePos += outChannel.write(bf, writePos);
+        }
+    }
+}
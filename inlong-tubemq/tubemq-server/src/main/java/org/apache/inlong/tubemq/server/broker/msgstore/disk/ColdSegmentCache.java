@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/***
+ * Read-through cache of decompressed cold segment blocks, shared by all cold segments
+ * on the broker. Blocks are evicted in LRU order when the cached size exceeds the limit.
+ */
+public class ColdSegmentCache {
+    // max total size of cached blocks
+    private static volatile long maxCacheSize = 256 * 1024 * 1024L;
+    private static long curCacheSize = 0L;
+    private static final LinkedHashMap<BlockKey, byte[]> blockCache =
+            new LinkedHashMap<>(256, 0.75f, true);
+
+    private ColdSegmentCache() {
+
+    }
+
+    public static void setMaxCacheSize(long maxSize) {
+        maxCacheSize = Math.max(0L, maxSize);
+    }
+
+    public static long getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    public static synchronized long getCurCacheSize() {
+        return curCacheSize;
+    }
+
+    /***
+     * Get the decompressed block of cold segment, load it from file if not cached.
+     *
+     * @param segment     the cold segment
+     * @param blockIndex  block index in the segment
+     * @return the decompressed block
+     * @throws IOException
+     */
+    public static byte[] getBlock(final ColdFileSegment segment,
+                                  final int blockIndex) throws IOException {
+        final BlockKey blockKey = new BlockKey(segment, blockIndex);
+        synchronized (ColdSegmentCache.class) {
+            byte[] block = blockCache.get(blockKey);
+            if (block != null) {
+                return block;
+            }
+        }
+        // decompress outside the lock, concurrent loads of the same block are harmless
+        final byte[] block = segment.loadBlock(blockIndex);
+        synchronized (ColdSegmentCache.class) {
+            if (block.length <= maxCacheSize) {
+                byte[] oldBlock = blockCache.put(blockKey, block);
+                if (oldBlock != null) {
+                    curCacheSize -= oldBlock.length;
+                }
+                curCacheSize += block.length;
+                evict();
+            }
+        }
+        return block;
+    }
+
+    /***
+     * Remove all cached blocks of the segment.
+     *
+     * @param segment    the cold segment
+     */
+    public static synchronized void invalidate(final ColdFileSegment segment) {
+        Iterator<Map.Entry<BlockKey, byte[]>> it = blockCache.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<BlockKey, byte[]> entry = it.next();
+            if (entry.getKey().segment == segment) {
+                curCacheSize -= entry.getValue().length;
+                it.remove();
+            }
+        }
+    }
+
+    private static void evict() {
+        Iterator<Map.Entry<BlockKey, byte[]>> it = blockCache.entrySet().iterator();
+        while (curCacheSize > maxCacheSize && it.hasNext()) {
+            curCacheSize -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    private static class BlockKey {
+        private final ColdFileSegment segment;
+        private final int blockIndex;
+
+        BlockKey(ColdFileSegment segment, int blockIndex) {
+            this.segment = segment;
+            this.blockIndex = blockIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BlockKey)) {
+                return false;
+            }
+            BlockKey other = (BlockKey) o;
+            return segment == other.segment && blockIndex == other.blockIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(segment) + blockIndex;
+        }
+    }
+}
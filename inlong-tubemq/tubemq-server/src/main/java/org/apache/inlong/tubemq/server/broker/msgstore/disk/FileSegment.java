@@ -21,14 +21,18 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.inlong.tubemq.corebase.utils.CheckSum;
 import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sun.nio.ch.DirectBuffer;
 
 /***
  * Segment file. Topic contains multi FileSegments. Each FileSegment contains data file and index file.
@@ -48,6 +52,11 @@ public class FileSegment implements Segment {
     private long expiredTime = 0;
     private AtomicBoolean expired = new AtomicBoolean(false);
     private AtomicBoolean closed = new AtomicBoolean(false);
+    // reference count of readers holding this segment
+    private final AtomicInteger viewRefCnt = new AtomicInteger(0);
+    // memory-mapped view of immutable segment
+    private final AtomicReference<MappedByteBuffer> mappedBuffer =
+            new AtomicReference<>();
 
     public FileSegment(final long start, final File file, SegmentType type) throws IOException {
         this(start, file, true, type, Long.MAX_VALUE);
@@ -135,6 +144,9 @@ public class FileSegment implements Segment {
                     this.channel.close();
                 }
                 this.randFile.close();
+                if (this.viewRefCnt.get() <= 0) {
+                    releaseMappedBuffer();
+                }
             } catch (Throwable ee) {
                 if (ee instanceof IOException) {
                     ServiceStatusHolder.addReadIOErrCnt();
@@ -157,6 +169,9 @@ public class FileSegment implements Segment {
                 this.channel.close();
             }
             this.randFile.close();
+            if (this.viewRefCnt.get() <= 0) {
+                releaseMappedBuffer();
+            }
         } catch (Throwable e1) {
             if (e1 instanceof IOException) {
                 ServiceStatusHolder.addReadIOErrCnt();
@@ -244,11 +259,29 @@ public class FileSegment implements Segment {
     }
 
     /***
-     * Release reference to this FileSegment. File's channel will be closed when the reference decreased to 0.
+     * Add reference to this FileSegment.
      */
     @Override
-    public void relViewRef() {
+    public void addViewRef() {
+        this.viewRefCnt.incrementAndGet();
+    }
 
+    /***
+     * Release reference to this FileSegment. The mapped buffer of a closed FileSegment
+     * will be unmapped when the reference decreased to 0.
+     */
+    @Override
+    public void relViewRef() {
+        int curRefCnt;
+        do {
+            curRefCnt = this.viewRefCnt.get();
+            if (curRefCnt <= 0) {
+                return;
+            }
+        } while (!this.viewRefCnt.compareAndSet(curRefCnt, curRefCnt - 1));
+        if (curRefCnt == 1 && this.closed.get()) {
+            releaseMappedBuffer();
+        }
     }
 
     @Override
@@ -306,6 +339,11 @@ public class FileSegment implements Segment {
         if (this.isExpired()) {
             //Todo: conduct file closed and expired cases.
         }
+        if (!this.mutable
+                && SegmentMmapHolder.isMmapReadEnable()
+                && readFromMappedBuffer(bf, reqOffset)) {
+            return;
+        }
         int size = 0;
         while (bf.hasRemaining()) {
             final int l = this.channel.read(bf, reqOffset - start + size);
@@ -316,6 +354,85 @@ public class FileSegment implements Segment {
         }
     }
 
+    /***
+     * Read from the memory-mapped view of this immutable FileSegment,
+     * the view is mapped at the first read if the mapped size budget allows.
+     *
+     * @param bf
+     * @param reqOffset
+     * @return false if the mapped view is unavailable
+     * @throws IOException
+     */
+    private boolean readFromMappedBuffer(final ByteBuffer bf, final long reqOffset) throws IOException {
+        final long readPos = reqOffset - start;
+        if (readPos < 0) {
+            return false;
+        }
+        this.viewRefCnt.incrementAndGet();
+        try {
+            if (this.closed.get()) {
+                return false;
+            }
+            MappedByteBuffer mapped = this.mappedBuffer.get();
+            if (mapped == null) {
+                mapped = mapSegment();
+                if (mapped == null) {
+                    return false;
+                }
+            }
+            if (readPos >= mapped.capacity()) {
+                return true;
+            }
+            final ByteBuffer readView = mapped.duplicate();
+            readView.position((int) readPos);
+            readView.limit((int) Math.min(mapped.capacity(), readPos + bf.remaining()));
+            bf.put(readView);
+            return true;
+        } finally {
+            relViewRef();
+        }
+    }
+
+    private MappedByteBuffer mapSegment() throws IOException {
+        final long mapSize = this.cachedSize.get();
+        if (mapSize <= 0
+                || mapSize > Integer.MAX_VALUE
+                || !SegmentMmapHolder.tryAcquire(mapSize)) {
+            return null;
+        }
+        MappedByteBuffer mapped;
+        try {
+            mapped = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, mapSize);
+        } catch (IOException e) {
+            SegmentMmapHolder.release(mapSize);
+            throw e;
+        }
+        if (!this.mappedBuffer.compareAndSet(null, mapped)) {
+            unmapBuffer(mapped);
+            return this.mappedBuffer.get();
+        }
+        return mapped;
+    }
+
+    private void releaseMappedBuffer() {
+        final MappedByteBuffer mapped = this.mappedBuffer.getAndSet(null);
+        if (mapped != null) {
+            unmapBuffer(mapped);
+        }
+    }
+
+    private void unmapBuffer(final MappedByteBuffer mapped) {
+        try {
+            ((DirectBuffer) mapped).cleaner().clean();
+        } catch (Throwable e) {
+            logger.warn(new StringBuilder(512).append("[File Store] Unmap ")
+                    .append(this.file.getAbsoluteFile().toString())
+                    .append("'s ").append(segmentType).append(" file failure").toString(), e);
+        } finally {
+            SegmentMmapHolder.release(mapped.capacity());
+        }
+    }
+
     /***
      * Check whether this FileSegment is expired, and set expire status. The last FileSegment cannot be marked expired.
      *
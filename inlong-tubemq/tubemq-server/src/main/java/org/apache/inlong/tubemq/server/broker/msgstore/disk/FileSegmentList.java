@@ -57,7 +57,7 @@ public class FileSegmentList implements SegmentList {
     }
 
     /***
-     * Return segment by the given offset.
+     * Return segment by the given offset, the caller must call relViewRef() after use.
      *
      * @param offset
      * @return
@@ -66,9 +66,10 @@ public class FileSegmentList implements SegmentList {
     @Override
     public Segment getRecordSeg(final long offset) throws IOException {
         Segment tmpSeg = this.findSegment(offset);
-        if (tmpSeg != null && tmpSeg.isExpired()) {
+        if (tmpSeg == null || tmpSeg.isExpired()) {
             return null;
         }
+        tmpSeg.addViewRef();
         return tmpSeg;
     }
 
@@ -152,6 +153,36 @@ public class FileSegmentList implements SegmentList {
         }
     }
 
+    /***
+     * Replace the segment with a new segment that covers the same offset range.
+     *
+     * @param oldSegment    the segment to be replaced
+     * @param newSegment    the new segment
+     * @return whether the segment is replaced
+     */
+    @Override
+    public boolean replace(final Segment oldSegment, final Segment newSegment) {
+        while (true) {
+            int index = -1;
+            final Segment[] curViews = segmentList.get();
+            for (int i = 0; i < curViews.length; i++) {
+                if (curViews[i] == oldSegment) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index == -1) {
+                return false;
+            }
+            final Segment[] update = new Segment[curViews.length];
+            System.arraycopy(curViews, 0, update, 0, curViews.length);
+            update[index] = newSegment;
+            if (this.segmentList.compareAndSet(curViews, update)) {
+                return true;
+            }
+        }
+    }
+
     @Override
     public void flushLast(boolean force) throws IOException {
         final Segment[] curViews = segmentList.get();
@@ -25,8 +25,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -50,6 +53,8 @@ import org.slf4j.LoggerFactory;
 public class MsgFileStore implements Closeable {
     private static final Logger logger = LoggerFactory.getLogger(MsgFileStore.class);
     private static final int MAX_META_REFRESH_DUR = 1000 * 60 * 60;
+    // max index size skipped by keyCode index in one read, keep the read delta in int range
+    private static final long MAX_FILTER_SKIP_SIZE = Integer.MAX_VALUE / 2;
     private static final DiskSamplePrint samplePrintCtrl =
         new DiskSamplePrint(logger);
     // storage ID
@@ -58,6 +63,12 @@ public class MsgFileStore implements Closeable {
     private final File dataDir;
     // index file storage directory
     private final File indexDir;
+    // cold storage directories of aged data and index files, null if disabled
+    private final File coldDataDir;
+    private final File coldIndexDir;
+    // segments replaced by cold segments, deleted after the expire delay
+    private final ConcurrentLinkedQueue<Segment> retiredSegments =
+            new ConcurrentLinkedQueue<>();
     // disk flush parameters: current unflushed message count
     private final AtomicInteger curUnflushed = new AtomicInteger(0);
     // current unflushed message size
@@ -77,6 +88,11 @@ public class MsgFileStore implements Closeable {
     private SegmentList dataSegments;
     // index file segment list
     private SegmentList indexSegments;
+    // keyCode index of immutable index segments, keyed by segment start offset
+    private final ConcurrentHashMap<Long, SegmentKeyIndex> keyIndexMap =
+            new ConcurrentHashMap<>();
+    // keyCode index of the last(mutable) index segment, null if disabled
+    private SegmentKeyIndex curKeyIndex;
     // close status
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
@@ -97,6 +113,17 @@ public class MsgFileStore implements Closeable {
         sBuilder.delete(0, sBuilder.length());
         FileUtil.checkDir(this.dataDir);
         FileUtil.checkDir(this.indexDir);
+        if (tubeConfig.isColdStoreEnable()) {
+            this.coldDataDir = new File(sBuilder.append(tubeConfig.getColdStorePath())
+                    .append(File.separator).append(this.storeKey).toString());
+            sBuilder.delete(0, sBuilder.length());
+            this.coldIndexDir = new File(this.coldDataDir, "index");
+            FileUtil.checkDir(this.coldDataDir);
+            FileUtil.checkDir(this.coldIndexDir);
+        } else {
+            this.coldDataDir = null;
+            this.coldIndexDir = null;
+        }
         loadSegments(SegmentType.DATA, offsetIfCreate, sBuilder);
         loadSegments(SegmentType.INDEX, offsetIfCreate, sBuilder);
         this.lastFlushTime.set(System.currentTimeMillis());
@@ -151,6 +178,9 @@ public class MsgFileStore implements Closeable {
             // filling index data.
             final long inDataOffset = indexBuffer.getLong(DataStoreUtils.INDEX_POS_DATAOFFSET);
             final Segment curIndexSeg = this.indexSegments.last();
+            if (this.curKeyIndex != null) {
+                this.curKeyIndex.addIndexItems(indexBuffer, curIndexSeg.getCachedSize());
+            }
             final long indexOffset = curIndexSeg.append(indexBuffer);
             // judge whether need to create a new index segment.
             if (curIndexSeg.getCachedSize()
@@ -161,6 +191,7 @@ public class MsgFileStore implements Closeable {
                     new File(this.indexDir,
                         DataStoreUtils.nameFromOffset(newIndexOffset, DataStoreUtils.INDEX_FILE_SUFFIX));
                 curIndexSeg.setMutable(false);
+                storeKeyIndex(curIndexSeg, sb);
                 logger.info(sb.append("[File Store] Created index segment ")
                     .append(newIndexFile.getAbsolutePath()).toString());
                 sb.delete(0, sb.length());
@@ -252,6 +283,9 @@ public class MsgFileStore implements Closeable {
         long recvTimeInMillsec = 0L;
         long maxDataLimitOffset = 0L;
         long lastRdDataOffset = 0L;
+        // data range currently held in dataBuffer
+        long bufDataStart = -1L;
+        long bufDataEnd = -1L;
         final StringBuilder sBuilder = new StringBuilder(512);
         final long curDataMaxOffset = getDataMaxOffset();
         final long curDataMinOffset = getDataMinOffset();
@@ -301,6 +335,7 @@ public class MsgFileStore implements Closeable {
                         recordSeg = null;
                     }
                     recordSeg = dataSegments.getRecordSeg(curIndexDataOffset);
+                    bufDataStart = bufDataEnd = -1L;
                     if (recordSeg == null) {
                         continue;
                     }
@@ -308,18 +343,30 @@ public class MsgFileStore implements Closeable {
                         throw new Exception("Read Service has closed!");
                     }
                 }
-                if (dataBuffer.capacity() < curIndexDataSize) {
-                    dataBuffer = ByteBuffer.allocate(curIndexDataSize);
-                }
-                dataBuffer.clear();
-                dataBuffer.limit(curIndexDataSize);
-                recordSeg.read(dataBuffer, curIndexDataOffset);
-                dataBuffer.flip();
-                dataRealLimit = dataBuffer.limit();
-                if (dataRealLimit < curIndexDataSize) {
-                    lastRdDataOffset = curIndexDataOffset;
-                    readedOffset = curIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN;
-                    continue;
+                if (curIndexDataOffset < bufDataStart
+                        || maxDataLimitOffset > bufDataEnd) {
+                    // load the contiguous run of matched messages with one read
+                    final int readSize = this.tubeConfig.isFileBatchReadEnable()
+                            ? getMatchedRunSize(indexBuffer, partitionId, isFilterConsume,
+                            filterKeySet, curIndexDataOffset, maxDataLimitOffset,
+                            recordSeg.getStart() + recordSeg.getCommitSize(),
+                            maxMsgTransferSize - totalSize) : curIndexDataSize;
+                    if (dataBuffer.capacity() < readSize) {
+                        dataBuffer = ByteBuffer.allocate(readSize);
+                    }
+                    dataBuffer.clear();
+                    dataBuffer.limit(readSize);
+                    recordSeg.read(dataBuffer, curIndexDataOffset);
+                    dataBuffer.flip();
+                    dataRealLimit = dataBuffer.limit();
+                    bufDataStart = curIndexDataOffset;
+                    bufDataEnd = curIndexDataOffset + dataRealLimit;
+                    if (dataRealLimit < curIndexDataSize) {
+                        bufDataStart = bufDataEnd = -1L;
+                        lastRdDataOffset = curIndexDataOffset;
+                        readedOffset = curIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                        continue;
+                    }
                 }
             } catch (Throwable e2) {
                 if (e2 instanceof IOException) {
@@ -340,6 +387,7 @@ public class MsgFileStore implements Closeable {
             lastRdDataOffset = maxDataLimitOffset;
             ClientBroker.TransferedMessage transferedMessage =
                     DataStoreUtils.getTransferMsg(dataBuffer,
+                            (int) (curIndexDataOffset - bufDataStart),
                             curIndexDataSize, countMap, statisKeyBase, sBuilder);
             if (transferedMessage == null) {
                 continue;
@@ -370,6 +418,50 @@ public class MsgFileStore implements Closeable {
                 totalSize, countMap, transferedMessageList);
     }
 
+    /***
+     * Get the read size covering the current message and the following matched messages
+     * that are stored contiguously with it in the same data segment.
+     *
+     * @param indexBuffer      index buffer, positioned after the current index item
+     * @param partitionId
+     * @param isFilterConsume
+     * @param filterKeySet
+     * @param runStartOffset   data offset of the current message
+     * @param runEndOffset     data end offset of the current message
+     * @param segCommitOffset  committed end offset of the current data segment
+     * @param maxRunSize       max bytes allowed to read
+     * @return
+     */
+    private int getMatchedRunSize(final ByteBuffer indexBuffer, final int partitionId,
+                                  final boolean isFilterConsume,
+                                  final Set<Integer> filterKeySet,
+                                  final long runStartOffset, long runEndOffset,
+                                  final long segCommitOffset, final int maxRunSize) {
+        int itemPartitionId;
+        long itemDataOffset;
+        int itemDataSize;
+        int itemKeyCode;
+        for (int pos = indexBuffer.position();
+             pos + DataStoreUtils.STORE_INDEX_HEAD_LEN <= indexBuffer.limit();
+             pos += DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+            itemPartitionId = indexBuffer.getInt(pos + DataStoreUtils.INDEX_POS_PARTITIONID);
+            itemDataOffset = indexBuffer.getLong(pos + DataStoreUtils.INDEX_POS_DATAOFFSET);
+            itemDataSize = indexBuffer.getInt(pos + DataStoreUtils.INDEX_POS_MSG_SIZE);
+            itemKeyCode = indexBuffer.getInt(pos + DataStoreUtils.INDEX_POS_KEY_CODE);
+            if (itemDataOffset != runEndOffset
+                    || itemDataSize <= 0
+                    || itemDataSize > DataStoreUtils.STORE_MAX_MESSAGE_STORE_LEN
+                    || itemPartitionId != partitionId
+                    || (isFilterConsume && !filterKeySet.contains(itemKeyCode))
+                    || itemDataOffset + itemDataSize > segCommitOffset
+                    || itemDataOffset + itemDataSize - runStartOffset > maxRunSize) {
+                break;
+            }
+            runEndOffset = itemDataOffset + itemDataSize;
+        }
+        return (int) (runEndOffset - runStartOffset);
+    }
+
     @Override
     public void close() throws IOException {
         if (this.closed.compareAndSet(false, true)) {
@@ -377,6 +469,10 @@ public class MsgFileStore implements Closeable {
             try {
                 this.indexSegments.close();
                 this.dataSegments.close();
+                Segment retired;
+                while ((retired = this.retiredSegments.poll()) != null) {
+                    retired.deleteFile();
+                }
             } finally {
                 this.writeLock.unlock();
             }
@@ -392,20 +488,123 @@ public class MsgFileStore implements Closeable {
     public boolean runClearupPolicy(boolean onlyCheck) {
         final StringBuilder sBuilder = new StringBuilder(512);
         final long start = System.currentTimeMillis();
+        long fileValidDurMs = messageStore.getMaxFileValidDurMs();
+        boolean hasOffloadSegs = false;
+        if (this.coldDataDir != null) {
+            // aged segments move to cold storage first by runOffloadPolicy,
+            // and expire after cold valid duration
+            hasOffloadSegs = offloadSegments(dataSegments, SegmentType.DATA,
+                    start, true, sBuilder);
+            hasOffloadSegs |= offloadSegments(indexSegments, SegmentType.INDEX,
+                    start, true, sBuilder);
+            fileValidDurMs += tubeConfig.getColdStoreValidDurMs();
+        }
         boolean hasExpiredDataSegs =
-                dataSegments.checkExpiredSegments(start, messageStore.getMaxFileValidDurMs());
+                dataSegments.checkExpiredSegments(start, fileValidDurMs);
         boolean hasExpiredIndexSegs =
-                indexSegments.checkExpiredSegments(start, messageStore.getMaxFileValidDurMs());
+                indexSegments.checkExpiredSegments(start, fileValidDurMs);
         if (onlyCheck) {
-            return (hasExpiredDataSegs || hasExpiredIndexSegs);
+            return (hasOffloadSegs || hasExpiredDataSegs || hasExpiredIndexSegs);
         }
+        delRetiredSegments();
         if (hasExpiredDataSegs) {
             dataSegments.delExpiredSegments(sBuilder);
         }
         if (hasExpiredIndexSegs) {
             indexSegments.delExpiredSegments(sBuilder);
+            delExpiredKeyIndexes();
+        }
+        return (hasOffloadSegs || hasExpiredDataSegs || hasExpiredIndexSegs);
+    }
+
+    /***
+     * Offload the aged segments to cold storage if the cold storage is configured.
+     *
+     * @param onlyCheck    only check whether exist segments need offload
+     * @return whether exist segments need offload
+     */
+    public boolean runOffloadPolicy(boolean onlyCheck) {
+        if (this.coldDataDir == null) {
+            return false;
+        }
+        final StringBuilder sBuilder = new StringBuilder(512);
+        final long start = System.currentTimeMillis();
+        boolean hasOffloadSegs = offloadSegments(dataSegments, SegmentType.DATA,
+                start, onlyCheck, sBuilder);
+        hasOffloadSegs |= offloadSegments(indexSegments, SegmentType.INDEX,
+                start, onlyCheck, sBuilder);
+        return hasOffloadSegs;
+    }
+
+    /***
+     * Offload the immutable segments exceeding the max valid duration to cold storage,
+     * the replaced segments are retired and deleted after the expire delay.
+     *
+     * @param segments     the segment list
+     * @param segType      the segment type
+     * @param checkTime    check timestamp
+     * @param onlyCheck    only check whether exist segments need offload
+     * @param sBuilder     string buffer
+     * @return whether exist segments need offload
+     */
+    private boolean offloadSegments(final SegmentList segments, final SegmentType segType,
+                                    final long checkTime, final boolean onlyCheck,
+                                    final StringBuilder sBuilder) {
+        boolean hasOffloadSegs = false;
+        final File coldDir =
+                (segType == SegmentType.DATA) ? this.coldDataDir : this.coldIndexDir;
+        final String coldSuffix = (segType == SegmentType.DATA)
+                ? DataStoreUtils.DATA_FILE_SUFFIX + DataStoreUtils.COLD_FILE_SUFFIX
+                : DataStoreUtils.INDEX_FILE_SUFFIX + DataStoreUtils.COLD_FILE_SUFFIX;
+        for (Segment segment : segments.getView()) {
+            if (segment == null
+                    || segment.isExpired()
+                    || segment instanceof ColdFileSegment) {
+                continue;
+            }
+            if (segment.isMutable()
+                    || checkTime - segment.getFile().lastModified()
+                    <= messageStore.getMaxFileValidDurMs()) {
+                break;
+            }
+            hasOffloadSegs = true;
+            if (onlyCheck || this.closed.get()) {
+                break;
+            }
+            final File coldFile = new File(coldDir,
+                    DataStoreUtils.nameFromOffset(segment.getStart(), coldSuffix));
+            try {
+                final ColdFileSegment coldSeg =
+                        ColdFileSegment.offload(segment, segType, coldFile);
+                if (!segments.replace(segment, coldSeg)) {
+                    coldSeg.deleteFile();
+                    continue;
+                }
+                segment.checkAndSetExpired(checkTime, -1);
+                this.retiredSegments.add(segment);
+                logger.info(sBuilder.append("[File Store] Offloaded ").append(segType)
+                        .append(" segment ").append(segment.getFile().getAbsolutePath())
+                        .append(" to ").append(coldFile.getAbsolutePath()).toString());
+                sBuilder.delete(0, sBuilder.length());
+            } catch (Throwable e) {
+                ServiceStatusHolder.addWriteIOErrCnt();
+                logger.warn(sBuilder.append("[File Store] Offload ").append(segType)
+                        .append(" segment ").append(segment.getFile().getAbsolutePath())
+                        .append(" failure").toString(), e);
+                sBuilder.delete(0, sBuilder.length());
+                break;
+            }
+        }
+        return hasOffloadSegs;
+    }
+
+    private void delRetiredSegments() {
+        for (Segment segment : this.retiredSegments) {
+            if (segment.needDelete()) {
+                this.retiredSegments.remove(segment);
+                segment.deleteFile();
+            }
         }
-        return (hasExpiredDataSegs || hasExpiredIndexSegs);
     }
 
     /***
@@ -443,6 +642,19 @@ public class MsgFileStore implements Closeable {
         return;
     }
 
+    public boolean isFlushRequired() {
+        return curUnflushed.get() > 0
+                && (System.currentTimeMillis() - lastFlushTime.get() >= messageStore.getUnflushInterval());
+    }
+
+    public long getUnflushedSize() {
+        return curUnflushSize.get();
+    }
+
+    public long getLastFlushTime() {
+        return lastFlushTime.get();
+    }
+
     public long getDataSizeInBytes() {
         return dataSegments.getSizeInBytes();
     }
@@ -479,14 +691,161 @@ public class MsgFileStore implements Closeable {
         return indexSegments.getRecordSeg(offset);
     }
 
+    /***
+     * Get the start index offset for filter consume, skip the ranges of immutable
+     * index segments that contain no index item matching the filter keyCodes.
+     *
+     * @param reqOffset
+     * @param filterKeySet
+     * @return the adjusted offset, not less than reqOffset
+     *         and not more than MAX_FILTER_SKIP_SIZE beyond it
+     */
+    public long getFilterStartOffset(final long reqOffset, final Set<Integer> filterKeySet) {
+        if (filterKeySet == null
+                || filterKeySet.isEmpty()
+                || this.keyIndexMap.isEmpty()) {
+            return reqOffset;
+        }
+        long curOffset = reqOffset;
+        for (Segment segment : this.indexSegments.getView()) {
+            if (segment == null
+                    || segment.isExpired()
+                    || segment.getStart() + segment.getCachedSize() <= curOffset) {
+                continue;
+            }
+            if (segment.isMutable() || segment.getStart() > curOffset) {
+                break;
+            }
+            SegmentKeyIndex keyIndex = this.keyIndexMap.get(segment.getStart());
+            if (keyIndex == null) {
+                break;
+            }
+            long matchedOffset =
+                    keyIndex.getNextMatchedOffset(filterKeySet, curOffset - segment.getStart());
+            if (matchedOffset >= 0) {
+                if (segment.getStart() + matchedOffset - reqOffset > MAX_FILTER_SKIP_SIZE) {
+                    break;
+                }
+                return segment.getStart() + matchedOffset;
+            }
+            if (segment.getStart() + segment.getCachedSize() - reqOffset > MAX_FILTER_SKIP_SIZE) {
+                break;
+            }
+            curOffset = segment.getStart() + segment.getCachedSize();
+        }
+        return curOffset;
+    }
+
+    private void storeKeyIndex(final Segment indexSeg, final StringBuilder sb) {
+        final SegmentKeyIndex keyIndex = this.curKeyIndex;
+        if (keyIndex == null) {
+            return;
+        }
+        this.curKeyIndex = new SegmentKeyIndex();
+        if (keyIndex.getSegmentSize() != indexSeg.getCachedSize()) {
+            return;
+        }
+        final File keyIndexFile = new File(this.indexDir,
+                DataStoreUtils.nameFromOffset(indexSeg.getStart(),
+                        DataStoreUtils.KEY_INDEX_FILE_SUFFIX));
+        try {
+            keyIndex.store(keyIndexFile);
+            this.keyIndexMap.put(indexSeg.getStart(), keyIndex);
+        } catch (Throwable e) {
+            logger.warn(sb.append("[File Store] Store key index ")
+                    .append(keyIndexFile.getAbsolutePath()).append(" failure").toString(), e);
+            sb.delete(0, sb.length());
+        }
+    }
+
+    private void loadKeyIndexes(final List<Segment> segments,
+                                final StringBuilder sBuilder) throws IOException {
+        if (!this.tubeConfig.isFilterKeyIndexEnable()) {
+            this.curKeyIndex = null;
+            return;
+        }
+        for (Segment segment : segments) {
+            if (segment.isMutable()) {
+                // rebuild the keyCode index of the last segment from its content
+                this.curKeyIndex = buildKeyIndex(segment);
+                continue;
+            }
+            final File keyIndexFile = new File(this.indexDir,
+                    DataStoreUtils.nameFromOffset(segment.getStart(),
+                            DataStoreUtils.KEY_INDEX_FILE_SUFFIX));
+            if (!keyIndexFile.exists()) {
+                continue;
+            }
+            SegmentKeyIndex keyIndex = null;
+            try {
+                keyIndex = SegmentKeyIndex.load(keyIndexFile, segment.getCachedSize());
+            } catch (Throwable e) {
+                logger.warn(sBuilder.append("[File Store] Load key index ")
+                        .append(keyIndexFile.getAbsolutePath()).append(" failure").toString(), e);
+                sBuilder.delete(0, sBuilder.length());
+            }
+            if (keyIndex == null) {
+                keyIndexFile.delete();
+            } else {
+                this.keyIndexMap.put(segment.getStart(), keyIndex);
+            }
+        }
+        if (this.curKeyIndex == null) {
+            this.curKeyIndex = new SegmentKeyIndex();
+        }
+    }
+
+    private SegmentKeyIndex buildKeyIndex(final Segment segment) throws IOException {
+        final SegmentKeyIndex keyIndex = new SegmentKeyIndex();
+        final ByteBuffer readBuffer = ByteBuffer.allocate(SegmentKeyIndex.BLOCK_SIZE);
+        final long endOffset = segment.getStart() + segment.getCachedSize();
+        long readOffset = segment.getStart();
+        while (readOffset < endOffset) {
+            readBuffer.clear();
+            if (endOffset - readOffset < readBuffer.capacity()) {
+                readBuffer.limit((int) (endOffset - readOffset));
+            }
+            segment.read(readBuffer, readOffset);
+            readBuffer.flip();
+            int readSize = readBuffer.limit()
+                    - readBuffer.limit() % DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            if (readSize <= 0) {
+                break;
+            }
+            readBuffer.limit(readSize);
+            keyIndex.addIndexItems(readBuffer, readOffset - segment.getStart());
+            readOffset += readSize;
+        }
+        return keyIndex;
+    }
+
+    private void delExpiredKeyIndexes() {
+        final Set<Long> segStarts = new HashSet<>();
+        for (Segment segment : this.indexSegments.getView()) {
+            if (segment != null) {
+                segStarts.add(segment.getStart());
+            }
+        }
+        for (Long segStart : this.keyIndexMap.keySet()) {
+            if (segStarts.contains(segStart)) {
+                continue;
+            }
+            this.keyIndexMap.remove(segStart);
+            new File(this.indexDir, DataStoreUtils.nameFromOffset(segStart,
+                    DataStoreUtils.KEY_INDEX_FILE_SUFFIX)).delete();
+        }
+    }
+
     private void loadSegments(final SegmentType segType, long offsetIfCreate,
                               StringBuilder sBuilder) throws IOException {
         String segTypeStr = "Data";
         File   segListDir = this.dataDir;
+        File   coldListDir = this.coldDataDir;
         String fileSuffix = DataStoreUtils.DATA_FILE_SUFFIX;
         if (segType == SegmentType.INDEX) {
             segTypeStr = "Index";
             segListDir = this.indexDir;
+            coldListDir = this.coldIndexDir;
             fileSuffix = DataStoreUtils.INDEX_FILE_SUFFIX;
         }
         logger.info(sBuilder.append("[File Store] begin Load ")
@@ -513,6 +872,9 @@ public class MsgFileStore implements Closeable {
                 }
             }
         }
+        if (coldListDir != null) {
+            loadColdSegments(segType, coldListDir, fileSuffix, accum, sBuilder);
+        }
         if (accum.size() == 0) {
             final File newFile =
                     new File(segListDir,
@@ -537,10 +899,12 @@ public class MsgFileStore implements Closeable {
             });
             validateSegments(segTypeStr, accum);
             Segment last = accum.get(accum.size() - 1);
-            if ((last.getCachedSize() > 0)
+            if ((last instanceof ColdFileSegment)
+                    || ((last.getCachedSize() > 0)
                     && (System.currentTimeMillis() - last.getFile().lastModified()
-                    >= DataStoreUtils.MAX_FILE_NO_WRITE_DURATION)) {
-                // If the last segment is not written for a long time, it will be aged at startup
+                    >= DataStoreUtils.MAX_FILE_NO_WRITE_DURATION))) {
+                // If the last segment is not written for a long time or has been offloaded,
+                // a new segment will be created at startup
                 final long newOffset = last.getCommitLast();
                 final File newFile =
                         new File(segListDir,
@@ -566,6 +930,7 @@ public class MsgFileStore implements Closeable {
             this.dataSegments = new FileSegmentList(accum.toArray(new Segment[accum.size()]));
         } else {
             this.indexSegments = new FileSegmentList(accum.toArray(new Segment[accum.size()]));
+            loadKeyIndexes(accum, sBuilder);
         }
         logger.info(sBuilder.append("[File Store] Loaded ")
                 .append(segTypeStr).append(" ").append(accum.size()).append(" segments from ")
@@ -573,6 +938,44 @@ public class MsgFileStore implements Closeable {
         sBuilder.delete(0, sBuilder.length());
     }
 
+    private void loadColdSegments(final SegmentType segType, final File coldListDir,
+                                  final String fileSuffix, final List<Segment> accum,
+                                  final StringBuilder sBuilder) throws IOException {
+        final File[] ls = coldListDir.listFiles();
+        if (ls == null) {
+            return;
+        }
+        final String coldSuffix = fileSuffix + DataStoreUtils.COLD_FILE_SUFFIX;
+        final Set<Long> hotStarts = new HashSet<>();
+        for (Segment segment : accum) {
+            hotStarts.add(segment.getStart());
+        }
+        for (final File file : ls) {
+            if (file == null || !file.isFile()) {
+                continue;
+            }
+            final String filename = file.getName();
+            if (!filename.endsWith(coldSuffix)) {
+                if (filename.endsWith(coldSuffix + ".tmp")) {
+                    // incomplete offload
+                    file.delete();
+                }
+                continue;
+            }
+            final long start =
+                    Long.parseLong(filename.substring(0, filename.length() - coldSuffix.length()));
+            if (hotStarts.contains(start)) {
+                // offload completed but the hot file is not deleted, keep the hot one
+                logger.info(sBuilder.append("[File Store] Delete duplicated cold segment ")
+                        .append(file.getAbsolutePath()).toString());
+                sBuilder.delete(0, sBuilder.length());
+                file.delete();
+                continue;
+            }
+            accum.add(new ColdFileSegment(start, file, segType));
+        }
+    }
+
     private void validateSegments(final String segTypeStr, final List<Segment> segments) {
         // valid segments, continuous
         for (int i = 0; i < segments.size() - 1; i++) {
@@ -60,6 +60,8 @@ public interface Segment {
 
     void setMutable(boolean mutable);
 
+    void addViewRef();
+
     void relViewRef();
 
     void read(ByteBuffer bf, long offset) throws IOException;
@@ -0,0 +1,193 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+/***
+ * Sparse keyCode index of an index segment, used to accelerate filter consume.
+ * The index segment is divided into blocks of BLOCK_INDEX_CNT index items, and
+ * for each keyCode a bitmap records which blocks contain the keyCode.
+ * It is built while messages are appended and stored beside the index segment
+ * when the segment is rolled.
+ */
+public class SegmentKeyIndex {
+    // index items count of each block
+    public static final int BLOCK_INDEX_CNT = 1024;
+    public static final int BLOCK_SIZE =
+            BLOCK_INDEX_CNT * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+    private static final int KEY_INDEX_FILE_MAGIC = 0x2C99C3A;
+    private static final int KEY_INDEX_FILE_VERSION = 1;
+    // index segment size covered by this index
+    private long segmentSize = 0L;
+    // keyCode to block bitmap
+    private final Map<Integer, BitSet> keyBlocks;
+
+    public SegmentKeyIndex() {
+        this.keyBlocks = new HashMap<>();
+    }
+
+    private SegmentKeyIndex(long segmentSize, Map<Integer, BitSet> keyBlocks) {
+        this.segmentSize = segmentSize;
+        this.keyBlocks = keyBlocks;
+    }
+
+    /***
+     * Add index items to the keyCode index.
+     *
+     * @param indexBuffer    index items, read from position to limit
+     * @param segOffset      segment relative offset of the first index item
+     */
+    public synchronized void addIndexItems(final ByteBuffer indexBuffer, final long segOffset) {
+        int itemCnt = 0;
+        for (int pos = indexBuffer.position();
+             pos + DataStoreUtils.STORE_INDEX_HEAD_LEN <= indexBuffer.limit();
+             pos += DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+            int keyCode = indexBuffer.getInt(pos + DataStoreUtils.INDEX_POS_KEY_CODE);
+            int block = (int) ((segOffset + (long) itemCnt * DataStoreUtils.STORE_INDEX_HEAD_LEN) / BLOCK_SIZE);
+            BitSet blocks = keyBlocks.get(keyCode);
+            if (blocks == null) {
+                blocks = new BitSet();
+                keyBlocks.put(keyCode, blocks);
+            }
+            blocks.set(block);
+            itemCnt++;
+        }
+        this.segmentSize = Math.max(this.segmentSize,
+                segOffset + (long) itemCnt * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+    }
+
+    public synchronized long getSegmentSize() {
+        return segmentSize;
+    }
+
+    public synchronized int getKeyCount() {
+        return keyBlocks.size();
+    }
+
+    /***
+     * Get the first segment relative offset, at or after fromOffset,
+     * where the index items may match the filter keyCodes.
+     *
+     * @param filterKeySet    filter keyCodes
+     * @param fromOffset      segment relative start offset
+     * @return the matched offset, or -1 if no item after fromOffset matches
+     */
+    public synchronized long getNextMatchedOffset(final Set<Integer> filterKeySet,
+                                                  final long fromOffset) {
+        if (fromOffset >= segmentSize) {
+            return -1L;
+        }
+        final int fromBlock = (int) (fromOffset / BLOCK_SIZE);
+        int matchedBlock = -1;
+        for (Integer keyCode : filterKeySet) {
+            if (keyCode == null) {
+                continue;
+            }
+            BitSet blocks = keyBlocks.get(keyCode);
+            if (blocks == null) {
+                continue;
+            }
+            int block = blocks.nextSetBit(fromBlock);
+            if (block >= 0 && (matchedBlock < 0 || block < matchedBlock)) {
+                matchedBlock = block;
+                if (matchedBlock == fromBlock) {
+                    break;
+                }
+            }
+        }
+        if (matchedBlock < 0) {
+            return -1L;
+        }
+        return Math.max(fromOffset, (long) matchedBlock * BLOCK_SIZE);
+    }
+
+    /***
+     * Store the keyCode index to file, write to a temporary file first then rename it.
+     *
+     * @param keyIndexFile
+     * @throws IOException
+     */
+    public synchronized void store(final File keyIndexFile) throws IOException {
+        final File tmpFile = new File(keyIndexFile.getAbsolutePath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(KEY_INDEX_FILE_MAGIC);
+            out.writeInt(KEY_INDEX_FILE_VERSION);
+            out.writeLong(segmentSize);
+            out.writeInt(keyBlocks.size());
+            for (Map.Entry<Integer, BitSet> entry : keyBlocks.entrySet()) {
+                long[] words = entry.getValue().toLongArray();
+                out.writeInt(entry.getKey());
+                out.writeInt(words.length);
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+            }
+        }
+        if (!tmpFile.renameTo(keyIndexFile)) {
+            tmpFile.delete();
+            throw new IOException(new StringBuilder(512)
+                    .append("Rename key index file failure: ")
+                    .append(keyIndexFile.getAbsolutePath()).toString());
+        }
+    }
+
+    /***
+     * Load the keyCode index from file.
+     *
+     * @param keyIndexFile
+     * @param segmentSize   size of the index segment, the file is invalid if not matched
+     * @return the keyCode index, or null if the file is invalid
+     * @throws IOException
+     */
+    public static SegmentKeyIndex load(final File keyIndexFile,
+                                       final long segmentSize) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(keyIndexFile)))) {
+            if (in.readInt() != KEY_INDEX_FILE_MAGIC
+                    || in.readInt() != KEY_INDEX_FILE_VERSION
+                    || in.readLong() != segmentSize) {
+                return null;
+            }
+            int keyCnt = in.readInt();
+            Map<Integer, BitSet> keyBlocks = new HashMap<>(Math.max(16, keyCnt * 2));
+            for (int i = 0; i < keyCnt; i++) {
+                int keyCode = in.readInt();
+                long[] words = new long[in.readInt()];
+                for (int j = 0; j < words.length; j++) {
+                    words[j] = in.readLong();
+                }
+                keyBlocks.put(keyCode, BitSet.valueOf(words));
+            }
+            return new SegmentKeyIndex(segmentSize, keyBlocks);
+        }
+    }
+}
@@ -50,6 +50,8 @@ public interface SegmentList {
 
     void delete(Segment segment);
 
+    boolean replace(Segment oldSegment, Segment newSegment);
+
     Segment getRecordSeg(long offset) throws IOException;
 
 }
@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Memory-mapped read control of immutable FileSegments.
+ * Holds the switch and the total mapped size budget shared by all segments on the broker.
+ */
+public class SegmentMmapHolder {
+    // whether immutable segments are read through memory mapping
+    private static final AtomicBoolean mmapReadEnable = new AtomicBoolean(false);
+    // max total size of mapped segments
+    private static final AtomicLong maxMappedSize = new AtomicLong(0);
+    // current total size of mapped segments
+    private static final AtomicLong curMappedSize = new AtomicLong(0);
+
+    private SegmentMmapHolder() {
+
+    }
+
+    public static void setMmapReadConfig(boolean enable, long maxSize) {
+        maxMappedSize.set(Math.max(0L, maxSize));
+        mmapReadEnable.set(enable && maxSize > 0);
+    }
+
+    public static boolean isMmapReadEnable() {
+        return mmapReadEnable.get();
+    }
+
+    public static long getMaxMappedSize() {
+        return maxMappedSize.get();
+    }
+
+    public static long getCurMappedSize() {
+        return curMappedSize.get();
+    }
+
+    /***
+     * Reserve mapped size from the budget.
+     *
+     * @param size    the size to be mapped
+     * @return true if reserved, false if the budget is exhausted
+     */
+    public static boolean tryAcquire(long size) {
+        long curSize;
+        do {
+            curSize = curMappedSize.get();
+            if (curSize + size > maxMappedSize.get()) {
+                return false;
+            }
+        } while (!curMappedSize.compareAndSet(curSize, curSize + size));
+        return true;
+    }
+
+    public static void release(long size) {
+        curMappedSize.addAndGet(-size);
+    }
+}
@@ -31,6 +31,7 @@ public class GetCacheMsgResult {
     public int dltOffset;
     public long lastRdDataOff = -2;
     public int totalMsgSize;
+    // read-only slices of memory cache, valid until the cache is cleared
     public List<ByteBuffer> cacheMsgList;
 
     public GetCacheMsgResult(boolean isSuccess, int retCode, long readOffset, String errInfo) {
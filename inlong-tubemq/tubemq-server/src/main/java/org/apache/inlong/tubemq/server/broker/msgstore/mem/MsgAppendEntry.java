@@ -0,0 +1,48 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.inlong.tubemq.server.broker.msgstore.mem;
+
+import java.nio.ByteBuffer;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+
+/***
+ * A message waiting to be appended to memory store, used by group append.
+ */
+public class MsgAppendEntry {
+    public final int partitionId;
+    public final int keyCode;
+    public final long timeRecv;
+    public final int entryLength;
+    public final ByteBuffer entry;
+    public final AppendResult appendResult;
+    // whether the entry has been handled by a batch append, and the result
+    public boolean processed = false;
+    public boolean appended = false;
+
+    public MsgAppendEntry(int partitionId, int keyCode, long timeRecv,
+                          int entryLength, ByteBuffer entry,
+                          AppendResult appendResult) {
+        this.partitionId = partitionId;
+        this.keyCode = keyCode;
+        this.timeRecv = timeRecv;
+        this.entryLength = entryLength;
+        this.entry = entry;
+        this.appendResult = appendResult;
+    }
+}
@@ -21,12 +21,12 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
-import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.server.broker.BrokerConfig;
 import org.apache.inlong.tubemq.server.broker.metadata.ClusterConfigHolder;
@@ -39,6 +39,9 @@ import sun.nio.ch.DirectBuffer;
 
 /***
  * Message's memory storage. It use direct memory store messages that received but not have been flushed to disk.
+ * Appends are serialized by writeLock, while reads are lock-free: the writer fills the cache first,
+ * then publishes cacheDataOffset, cacheIndexOffset and the position maps in that order, so a reader
+ * that loads them in the reverse order always sees fully written entries.
  */
 public class MsgMemStore implements Closeable {
     private static final Logger logger = LoggerFactory.getLogger(MsgMemStore.class);
@@ -53,12 +56,17 @@ public class MsgMemStore implements Closeable {
     // key to index position, used for filter consume
     private final ConcurrentHashMap<Integer, Integer> keysMap =
             new ConcurrentHashMap<>(100);
+    // secondary index chains by index slot(index position / index length):
+    // previous and next slot of the same partition, previous slot of the same keyCode
+    private final int[] partPrevSlots;
+    private final int[] partNextSlots;
+    private final int[] keyPrevSlots;
     // where messages in memory will sink to disk
     private int maxDataCacheSize;
-    private long writeDataStartPos = -1;
+    private volatile long writeDataStartPos = -1;
     private ByteBuffer cacheDataSegment;
     private int maxIndexCacheSize;
-    private long writeIndexStartPos = -1;
+    private volatile long writeIndexStartPos = -1;
     private ByteBuffer cachedIndexSegment;
     private int maxAllowedMsgCount;
 
@@ -68,6 +76,9 @@ public class MsgMemStore implements Closeable {
         this.maxIndexCacheSize = this.maxAllowedMsgCount * DataStoreUtils.STORE_INDEX_HEAD_LEN;
         this.cacheDataSegment = ByteBuffer.allocateDirect(this.maxDataCacheSize);
         this.cachedIndexSegment = ByteBuffer.allocateDirect(this.maxIndexCacheSize);
+        this.partPrevSlots = new int[this.maxAllowedMsgCount];
+        this.partNextSlots = new int[this.maxAllowedMsgCount];
+        this.keyPrevSlots = new int[this.maxAllowedMsgCount];
     }
 
     public void resetStartPos(long writeDataStartPos, long writeIndexStartPos) {
@@ -80,48 +91,148 @@ public class MsgMemStore implements Closeable {
                              final int partitionId, final int keyCode,
                              final long timeRecv, final int entryLength,
                              final ByteBuffer entry, final AppendResult appendResult) {
-        boolean fullDataSize = false;
-        boolean fullIndexSize = false;
-        boolean fullCount = false;
-        long indexOffset = TBaseConstants.META_VALUE_UNDEFINED;
-        long dataOffset = TBaseConstants.META_VALUE_UNDEFINED;
         this.writeLock.lock();
         try {
-            // judge whether can write to memory or not.
-            if ((fullDataSize = (this.cacheDataOffset.get() + entryLength > this.maxDataCacheSize))
-                || (fullIndexSize =
-                (this.cacheIndexOffset.get() + DataStoreUtils.STORE_INDEX_HEAD_LEN > this.maxIndexCacheSize))
-                || (fullCount = (this.curMessageCount.get() + 1 > maxAllowedMsgCount))) {
-                msgMemStatisInfo.addFullTypeCount(timeRecv, fullDataSize, fullIndexSize, fullCount);
+            return appendEntry(msgMemStatisInfo, partitionId,
+                    keyCode, timeRecv, entryLength, entry, appendResult);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /***
+     * Append a batch of messages under one lock, stop at the first message
+     * that can't be written to memory.
+     *
+     * @param msgMemStatisInfo
+     * @param appendEntries
+     * @return the count of appended messages
+     */
+    public int batchAppendMsg(final MsgMemStatisInfo msgMemStatisInfo,
+                              final List<MsgAppendEntry> appendEntries) {
+        int appendCnt = 0;
+        this.writeLock.lock();
+        try {
+            for (MsgAppendEntry item : appendEntries) {
+                if (!appendEntry(msgMemStatisInfo, item.partitionId, item.keyCode,
+                        item.timeRecv, item.entryLength, item.entry, item.appendResult)) {
+                    break;
+                }
+                item.appended = true;
+                appendCnt++;
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+        return appendCnt;
+    }
+
+    /***
+     * Append a batch of messages as one unit under one lock: either all messages
+     * are written to memory contiguously, or none of them when the cache lacks room.
+     *
+     * @param msgMemStatisInfo
+     * @param appendEntries
+     * @return whether the batch is appended
+     */
+    public boolean appendMsgUnit(final MsgMemStatisInfo msgMemStatisInfo,
+                                 final List<MsgAppendEntry> appendEntries) {
+        long totalLength = 0;
+        for (MsgAppendEntry item : appendEntries) {
+            totalLength += item.entryLength;
+        }
+        final int msgCnt = appendEntries.size();
+        this.writeLock.lock();
+        try {
+            boolean fullDataSize = false;
+            boolean fullIndexSize = false;
+            boolean fullCount = false;
+            if ((fullDataSize = (this.cacheDataOffset.get() + totalLength > this.maxDataCacheSize))
+                || (fullIndexSize = (this.cacheIndexOffset.get()
+                    + (long) msgCnt * DataStoreUtils.STORE_INDEX_HEAD_LEN > this.maxIndexCacheSize))
+                || (fullCount = (this.curMessageCount.get() + msgCnt > maxAllowedMsgCount))) {
+                msgMemStatisInfo.addFullTypeCount(appendEntries.get(0).timeRecv,
+                        fullDataSize, fullIndexSize, fullCount);
                 return false;
             }
-            // conduct message with filling process
-            indexOffset = this.writeIndexStartPos + this.cacheIndexOffset.get();
-            dataOffset = this.writeDataStartPos + this.cacheDataOffset.get();
-            entry.putLong(DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, indexOffset);
-            this.cacheDataSegment.position(this.cacheDataOffset.get());
-            this.cacheDataSegment.put(entry.array());
-            this.cachedIndexSegment.position(this.cacheIndexOffset.get());
-            this.cachedIndexSegment.putInt(partitionId);
-            this.cachedIndexSegment.putLong(dataOffset);
-            this.cachedIndexSegment.putInt(entryLength);
-            this.cachedIndexSegment.putInt(keyCode);
-            this.cachedIndexSegment.putLong(timeRecv);
-            this.cacheDataOffset.getAndAdd(entryLength);
-            Integer indexSizePos = this.cacheIndexOffset.getAndAdd(DataStoreUtils.STORE_INDEX_HEAD_LEN);
-            this.queuesMap.put(partitionId, indexSizePos);
-            this.keysMap.put(keyCode, indexSizePos);
-            this.curMessageCount.getAndAdd(1);
-            msgMemStatisInfo.addMsgSizeStatis(timeRecv, entryLength);
+            for (MsgAppendEntry item : appendEntries) {
+                appendEntry(msgMemStatisInfo, item.partitionId, item.keyCode,
+                        item.timeRecv, item.entryLength, item.entry, item.appendResult);
+                item.appended = true;
+            }
+            return true;
         } finally {
             this.writeLock.unlock();
         }
+    }
+
+    /***
+     * Check whether a batch of messages could fit in an empty cache of this store.
+     *
+     * @param msgCnt
+     * @param totalLength
+     * @return whether the batch fits
+     */
+    public boolean isUnitFitCache(int msgCnt, long totalLength) {
+        return totalLength <= this.maxDataCacheSize
+                && (long) msgCnt * DataStoreUtils.STORE_INDEX_HEAD_LEN <= this.maxIndexCacheSize
+                && msgCnt <= this.maxAllowedMsgCount;
+    }
+
+    private boolean appendEntry(final MsgMemStatisInfo msgMemStatisInfo,
+                                final int partitionId, final int keyCode,
+                                final long timeRecv, final int entryLength,
+                                final ByteBuffer entry, final AppendResult appendResult) {
+        boolean fullDataSize = false;
+        boolean fullIndexSize = false;
+        boolean fullCount = false;
+        // judge whether can write to memory or not.
+        if ((fullDataSize = (this.cacheDataOffset.get() + entryLength > this.maxDataCacheSize))
+            || (fullIndexSize =
+            (this.cacheIndexOffset.get() + DataStoreUtils.STORE_INDEX_HEAD_LEN > this.maxIndexCacheSize))
+            || (fullCount = (this.curMessageCount.get() + 1 > maxAllowedMsgCount))) {
+            msgMemStatisInfo.addFullTypeCount(timeRecv, fullDataSize, fullIndexSize, fullCount);
+            return false;
+        }
+        // conduct message with filling process
+        long indexOffset = this.writeIndexStartPos + this.cacheIndexOffset.get();
+        long dataOffset = this.writeDataStartPos + this.cacheDataOffset.get();
+        entry.putLong(DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, indexOffset);
+        this.cacheDataSegment.position(this.cacheDataOffset.get());
+        this.cacheDataSegment.put(entry.array());
+        this.cachedIndexSegment.position(this.cacheIndexOffset.get());
+        this.cachedIndexSegment.putInt(partitionId);
+        this.cachedIndexSegment.putLong(dataOffset);
+        this.cachedIndexSegment.putInt(entryLength);
+        this.cachedIndexSegment.putInt(keyCode);
+        this.cachedIndexSegment.putLong(timeRecv);
+        // link the entry into partition and keyCode chains
+        int curSlot = this.cacheIndexOffset.get() / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        Integer prevPartPos = this.queuesMap.get(partitionId);
+        Integer prevKeyPos = this.keysMap.get(keyCode);
+        this.partNextSlots[curSlot] = -1;
+        this.partPrevSlots[curSlot] = (prevPartPos == null)
+                ? -1 : prevPartPos / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        this.keyPrevSlots[curSlot] = (prevKeyPos == null)
+                ? -1 : prevKeyPos / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        if (prevPartPos != null) {
+            this.partNextSlots[prevPartPos / DataStoreUtils.STORE_INDEX_HEAD_LEN] = curSlot;
+        }
+        // publish data before index, readers load them in reverse order
+        this.cacheDataOffset.getAndAdd(entryLength);
+        Integer indexSizePos = this.cacheIndexOffset.getAndAdd(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        this.queuesMap.put(partitionId, indexSizePos);
+        this.keysMap.put(keyCode, indexSizePos);
+        this.curMessageCount.getAndAdd(1);
+        msgMemStatisInfo.addMsgSizeStatis(timeRecv, entryLength);
         appendResult.putAppendResult(indexOffset, dataOffset);
         return true;
     }
 
     /***
      * Read from memory, read index, then data.
+     * The returned messages are read-only slices of the cache, they are only valid until
+     * this store is cleared or closed, so the caller must finish using them before that.
      *
      * @param lstRdDataOffset
      * @param lstRdIndexOffset
@@ -156,32 +267,29 @@ public class MsgMemStore implements Closeable {
         int currDataOffset;
         long lastDataRdOff = lstRdDataOffset;
         int startReadOff = (int) (lstRdIndexOffset - this.writeIndexStartPos);
-        this.writeLock.lock();
-        try {
-            if (isFilterConsume) {
-                // filter conduct. accelerate by keysMap.
-                for (Integer keyCode : filterKeySet) {
-                    if (keyCode != null) {
-                        lastWritePos = this.keysMap.get(keyCode);
-                        if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
-                            hasMsg = true;
-                            break;
-                        }
+        // read without writeLock: load position maps first, then index offset, then data offset,
+        // the reverse of the publication order in appendMsg().
+        if (isFilterConsume) {
+            // filter conduct. accelerate by keysMap.
+            for (Integer keyCode : filterKeySet) {
+                if (keyCode != null) {
+                    lastWritePos = this.keysMap.get(keyCode);
+                    if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
+                        hasMsg = true;
+                        break;
                     }
                 }
-            } else {
-                // orderly consume by partition id.
-                lastWritePos = this.queuesMap.get(partitionId);
-                if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
-                    hasMsg = true;
-                }
             }
-            currDataOffset = this.cacheDataOffset.get();
-            currIndexOffset = this.cacheIndexOffset.get();
-            lastDataRdOff = this.writeDataStartPos + currDataOffset;
-        } finally {
-            this.writeLock.unlock();
+        } else {
+            // orderly consume by partition id.
+            lastWritePos = this.queuesMap.get(partitionId);
+            if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
+                hasMsg = true;
+            }
         }
+        currIndexOffset = this.cacheIndexOffset.get();
+        currDataOffset = this.cacheDataOffset.get();
+        lastDataRdOff = this.writeDataStartPos + currDataOffset;
         int limitReadSize = currIndexOffset - startReadOff;
         // cannot find message, return not found
         if (!hasMsg) {
@@ -195,25 +303,42 @@ public class MsgMemStore implements Closeable {
             }
         }
         // fetch data by index.
-        int readedSize = 0;
         int cPartitionId = 0;
         long cDataPos = 0L;
         int cDataSize = 0;
         int cKeyCode = 0;
         long cTimeRecv = 0L;
         int cDataOffset = 0;
+        int cIndexPos = 0;
+        int nextSlot = -1;
+        int filterSlotIdx = 0;
+        int[] filterSlots = null;
         ByteBuffer tmpIndexRdBuf = this.cachedIndexSegment.asReadOnlyBuffer();
         ByteBuffer tmpDataRdBuf = this.cacheDataSegment.asReadOnlyBuffer();
-        // loop read by index
-        for (int count = 0; count < maxReadCount;
-             count++, startReadOff += DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+        // locate the first candidate index slot by the secondary index chains
+        int curSlot;
+        if (isFilterConsume) {
+            filterSlots = getFilterMatchedSlots(filterKeySet, startReadOff, currIndexOffset);
+            curSlot = (filterSlots.length > 0) ? filterSlots[0] : -1;
+        } else {
+            curSlot = getFirstPartSlot(partitionId, lastWritePos, startReadOff, tmpIndexRdBuf);
+        }
+        // loop read by candidate index slots
+        for (int count = 0; count < maxReadCount; count++, curSlot = nextSlot) {
+            cIndexPos = curSlot * DataStoreUtils.STORE_INDEX_HEAD_LEN;
             // cannot find matched message, return
-            if ((startReadOff >= currIndexOffset)
-                || (startReadOff + DataStoreUtils.STORE_INDEX_HEAD_LEN > currIndexOffset)) {
+            if ((curSlot < 0)
+                || (cIndexPos + DataStoreUtils.STORE_INDEX_HEAD_LEN > currIndexOffset)) {
                 break;
             }
+            if (isFilterConsume) {
+                filterSlotIdx++;
+                nextSlot = (filterSlotIdx < filterSlots.length) ? filterSlots[filterSlotIdx] : -1;
+            } else {
+                nextSlot = this.partNextSlots[curSlot];
+            }
             // read index content.
-            tmpIndexRdBuf.position(startReadOff);
+            tmpIndexRdBuf.position(cIndexPos);
             cPartitionId = tmpIndexRdBuf.getInt();
             cDataPos = tmpIndexRdBuf.getLong();
             cDataSize = tmpIndexRdBuf.getInt();
@@ -226,34 +351,103 @@ public class MsgMemStore implements Closeable {
                     || (cDataOffset >= currDataOffset)
                     || (cDataSize > ClusterConfigHolder.getMaxMsgSize())
                     || (cDataOffset + cDataSize > currDataOffset)) {
-                readedSize += DataStoreUtils.STORE_INDEX_HEAD_LEN;
                 continue;
             }
             if ((cPartitionId != partitionId)
                     || (isFilterConsume && (!filterKeySet.contains(cKeyCode)))) {
-                readedSize += DataStoreUtils.STORE_INDEX_HEAD_LEN;
                 continue;
             }
-            // read data file.
-            byte[] tmpArray = new byte[cDataSize];
-            final ByteBuffer buffer = ByteBuffer.wrap(tmpArray);
+            // slice data from cache without copy.
+            tmpDataRdBuf.limit(cDataOffset + cDataSize);
             tmpDataRdBuf.position(cDataOffset);
-            tmpDataRdBuf.get(tmpArray);
-            buffer.rewind();
-            cacheMsgList.add(buffer);
+            cacheMsgList.add(tmpDataRdBuf.slice());
+            tmpDataRdBuf.limit(tmpDataRdBuf.capacity());
             lastDataRdOff = cDataPos + cDataSize;
-            readedSize += DataStoreUtils.STORE_INDEX_HEAD_LEN;
             totalReadSize += cDataSize;
             // break when exceed the max transfer size.
             if (totalReadSize >= maxReadSize) {
+                curSlot = nextSlot;
                 break;
             }
         }
+        // entries before the next unvisited candidate are all consumed or mismatched
+        int readedSize = limitReadSize;
+        if (curSlot >= 0
+                && curSlot * DataStoreUtils.STORE_INDEX_HEAD_LEN < currIndexOffset) {
+            readedSize = curSlot * DataStoreUtils.STORE_INDEX_HEAD_LEN - startReadOff;
+        }
         // return result
         return new GetCacheMsgResult(true, 0, "Ok1",
                 lstRdIndexOffset, readedSize, lastDataRdOff, totalReadSize, cacheMsgList);
     }
 
+    /***
+     * Get the first index slot at or after startReadOff that belongs to the partition.
+     *
+     * @param partitionId
+     * @param lastWritePos    the last index position of the partition
+     * @param startReadOff
+     * @param indexRdBuf
+     * @return
+     */
+    private int getFirstPartSlot(final int partitionId, final int lastWritePos,
+                                 final int startReadOff, final ByteBuffer indexRdBuf) {
+        // the consumer usually continues right after its last read message
+        if (startReadOff >= DataStoreUtils.STORE_INDEX_HEAD_LEN
+                && startReadOff % DataStoreUtils.STORE_INDEX_HEAD_LEN == 0) {
+            int prevPos = startReadOff - DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            if (indexRdBuf.getInt(prevPos + DataStoreUtils.INDEX_POS_PARTITIONID) == partitionId) {
+                return this.partNextSlots[prevPos / DataStoreUtils.STORE_INDEX_HEAD_LEN];
+            }
+        }
+        // otherwise walk back along the partition's chain
+        int curSlot = lastWritePos / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        int prevSlot = this.partPrevSlots[curSlot];
+        while (prevSlot >= 0
+                && prevSlot * DataStoreUtils.STORE_INDEX_HEAD_LEN >= startReadOff) {
+            curSlot = prevSlot;
+            prevSlot = this.partPrevSlots[curSlot];
+        }
+        return curSlot;
+    }
+
+    /***
+     * Get the index slots in [startReadOff, currIndexOffset) whose keyCode is in filterKeySet,
+     * in ascending order.
+     *
+     * @param filterKeySet
+     * @param startReadOff
+     * @param currIndexOffset
+     * @return
+     */
+    private int[] getFilterMatchedSlots(final Set<Integer> filterKeySet,
+                                        final int startReadOff, final int currIndexOffset) {
+        int slotCnt = 0;
+        int[] matchedSlots = new int[16];
+        for (Integer keyCode : filterKeySet) {
+            if (keyCode == null) {
+                continue;
+            }
+            Integer lastWritePos = this.keysMap.get(keyCode);
+            if (lastWritePos == null || lastWritePos < startReadOff) {
+                continue;
+            }
+            int curSlot = lastWritePos / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            while (curSlot >= 0
+                    && curSlot * DataStoreUtils.STORE_INDEX_HEAD_LEN >= startReadOff) {
+                if (curSlot * DataStoreUtils.STORE_INDEX_HEAD_LEN < currIndexOffset) {
+                    if (slotCnt >= matchedSlots.length) {
+                        matchedSlots = Arrays.copyOf(matchedSlots, slotCnt * 2);
+                    }
+                    matchedSlots[slotCnt++] = curSlot;
+                }
+                curSlot = this.keyPrevSlots[curSlot];
+            }
+        }
+        Arrays.sort(matchedSlots, 0, slotCnt);
+        return Arrays.copyOf(matchedSlots, slotCnt);
+    }
+
     /***
      * Batch flush memory data to disk.
      *
@@ -18,6 +18,7 @@
 package org.apache.inlong.tubemq.server.broker.offset;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -596,15 +597,24 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
                     || entry.getValue() == null || entry.getValue().isEmpty()) {
                 continue;
             }
+            ConcurrentHashMap<String, OffsetStorageInfo> regInfoMap =
+                    cfmOffsetMap.get(entry.getKey());
             for (Map.Entry<String, Long> topicEntry : entry.getValue().entrySet()) {
                 if (TStringUtils.isBlank(topicEntry.getKey())) {
                     continue;
                 }
-                String[] topicPartStrs = topicEntry.getKey().split("-");
-                String topic = topicPartStrs[0];
-                int partitionId = Integer.parseInt(topicPartStrs[1]);
                 try {
-                    commitOffset(entry.getKey(), topic, partitionId, true);
+                    // the confirmed offset keeps the topic and partition of the key
+                    OffsetStorageInfo regInfo = (regInfoMap == null)
+                            ? null : regInfoMap.get(topicEntry.getKey());
+                    if (regInfo != null) {
+                        commitOffset(entry.getKey(), regInfo.getTopic(),
+                                regInfo.getPartitionId(), true);
+                    } else {
+                        int sepIndex = topicEntry.getKey().lastIndexOf("-");
+                        commitOffset(entry.getKey(), topicEntry.getKey().substring(0, sepIndex),
+                                Integer.parseInt(topicEntry.getKey().substring(sepIndex + 1)), true);
+                    }
                 } catch (Exception e) {
                     logger.warn("[Offset Manager] Commit tmp offset error!", e);
                 }
@@ -613,13 +623,15 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
     }
 
     private void commitCfmOffsets(boolean retryable) {
+        Map<String, Collection<OffsetStorageInfo>> groupOffsetMap = new HashMap<>();
         for (Map.Entry<String, ConcurrentHashMap<String, OffsetStorageInfo>> entry : cfmOffsetMap.entrySet()) {
             if (TStringUtils.isBlank(entry.getKey())
                     || entry.getValue() == null || entry.getValue().isEmpty()) {
                 continue;
             }
-            zkOffsetStorage.commitOffset(entry.getKey(), entry.getValue().values(), retryable);
+            groupOffsetMap.put(entry.getKey(), entry.getValue().values());
         }
+        zkOffsetStorage.commitOffsets(groupOffsetMap, retryable);
     }
 
     /***
@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.stats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientMaster;
+import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
+import org.apache.inlong.tubemq.server.broker.utils.TopicPubStoreInfo;
+
+/**
+ * Collect the load of the partitions reported to master in the heartbeat.
+ *
+ * The data of a partition is stored with the other partitions of its store, so
+ * the append rate of the store is shared evenly by its partitions, and the lag
+ * of a consumer is the store data not read yet by it. The append rate is smoothed
+ * with an exponentially weighted moving average, so a short burst between two
+ * heartbeats doesn't make master move the partitions.
+ */
+public class PartitionLoadCollector {
+
+    // the weight percentage of the latest sample in the smoothed rate
+    private static final int RATE_SMOOTH_PERCENT = 30;
+    // the last data max offset, the sample time and the smoothed rate of each store
+    private final Map<String/* topic:storeId */, long[]> lastStoreDataMap =
+            new HashMap<>();
+
+    /**
+     * Build the load info of the partitions with ingest data or consume lag
+     *
+     * @param topicPubStoreInfoMap  the publish info of the partitions,
+     *                              topic - partition id - store info
+     * @param consumerRegisterMap   the registered consumers,
+     *                              group:topic:partitionId - consumer info
+     * @param curTime               the current time in milliseconds
+     * @return the load info of the partitions
+     */
+    public synchronized List<ClientMaster.PartitionLoadInfo> buildPartLoadInfo(
+            Map<String, Map<Integer, TopicPubStoreInfo>> topicPubStoreInfoMap,
+            Map<String, ConsumerNodeInfo> consumerRegisterMap,
+            long curTime) {
+        // count the partitions of each store
+        Map<String, Integer> storePartCntMap = new HashMap<>();
+        for (Map<Integer, TopicPubStoreInfo> storeInfoMap : topicPubStoreInfoMap.values()) {
+            for (TopicPubStoreInfo storeInfo : storeInfoMap.values()) {
+                String storeKey = getStoreKey(storeInfo);
+                Integer partCnt = storePartCntMap.get(storeKey);
+                storePartCntMap.put(storeKey, (partCnt == null) ? 1 : partCnt + 1);
+            }
+        }
+        // calculate the append rate of each store
+        Map<String, Long> storeRateMap = new HashMap<>();
+        Map<String, long[]> curStoreDataMap = new HashMap<>();
+        for (Map<Integer, TopicPubStoreInfo> storeInfoMap : topicPubStoreInfoMap.values()) {
+            for (TopicPubStoreInfo storeInfo : storeInfoMap.values()) {
+                String storeKey = getStoreKey(storeInfo);
+                if (curStoreDataMap.containsKey(storeKey)) {
+                    continue;
+                }
+                long[] lastData = lastStoreDataMap.get(storeKey);
+                long storeRate = 0L;
+                if (lastData == null) {
+                    curStoreDataMap.put(storeKey, new long[]{storeInfo.dataMax, curTime, -1L});
+                } else if (curTime > lastData[1]) {
+                    long curRate = 0L;
+                    if (storeInfo.dataMax > lastData[0]) {
+                        curRate = (storeInfo.dataMax - lastData[0]) * 1000L / (curTime - lastData[1]);
+                    }
+                    storeRate = (lastData[2] < 0) ? curRate
+                            : (curRate * RATE_SMOOTH_PERCENT
+                            + lastData[2] * (100 - RATE_SMOOTH_PERCENT)) / 100;
+                    curStoreDataMap.put(storeKey, new long[]{storeInfo.dataMax, curTime, storeRate});
+                } else {
+                    storeRate = Math.max(lastData[2], 0L);
+                    curStoreDataMap.put(storeKey, lastData);
+                }
+                storeRateMap.put(storeKey, storeRate / storePartCntMap.get(storeKey));
+            }
+        }
+        lastStoreDataMap.clear();
+        lastStoreDataMap.putAll(curStoreDataMap);
+        // collect the consume lag of each partition
+        Map<String, List<ClientMaster.GroupLagInfo>> partLagMap = new HashMap<>();
+        for (Map.Entry<String, ConsumerNodeInfo> entry : consumerRegisterMap.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                continue;
+            }
+            String[] partItems = entry.getKey().split(TokenConstants.ATTR_SEP);
+            if (partItems.length != 3) {
+                continue;
+            }
+            Map<Integer, TopicPubStoreInfo> storeInfoMap = topicPubStoreInfoMap.get(partItems[1]);
+            if (storeInfoMap == null) {
+                continue;
+            }
+            TopicPubStoreInfo storeInfo;
+            try {
+                storeInfo = storeInfoMap.get(Integer.parseInt(partItems[2]));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            long lastRdOffset = entry.getValue().getLastDataRdOffset();
+            if (storeInfo == null
+                    || lastRdOffset < 0
+                    || storeInfo.dataMax <= lastRdOffset) {
+                continue;
+            }
+            List<ClientMaster.GroupLagInfo> groupLagInfos =
+                    partLagMap.get(getPartKey(storeInfo.topicName, storeInfo.partitionId));
+            if (groupLagInfos == null) {
+                groupLagInfos = new ArrayList<>();
+                partLagMap.put(getPartKey(storeInfo.topicName, storeInfo.partitionId), groupLagInfos);
+            }
+            groupLagInfos.add(ClientMaster.GroupLagInfo.newBuilder()
+                    .setGroupName(partItems[0])
+                    .setLagDataSize(storeInfo.dataMax - lastRdOffset).build());
+        }
+        // build the load info of the partitions with load
+        List<ClientMaster.PartitionLoadInfo> partLoadInfos = new ArrayList<>();
+        for (Map<Integer, TopicPubStoreInfo> storeInfoMap : topicPubStoreInfoMap.values()) {
+            for (TopicPubStoreInfo storeInfo : storeInfoMap.values()) {
+                long inDataRate = storeRateMap.get(getStoreKey(storeInfo));
+                List<ClientMaster.GroupLagInfo> groupLagInfos =
+                        partLagMap.get(getPartKey(storeInfo.topicName, storeInfo.partitionId));
+                if (inDataRate <= 0 && groupLagInfos == null) {
+                    continue;
+                }
+                ClientMaster.PartitionLoadInfo.Builder builder =
+                        ClientMaster.PartitionLoadInfo.newBuilder();
+                builder.setTopicName(storeInfo.topicName);
+                builder.setPartitionId(storeInfo.partitionId);
+                builder.setInDataRate(inDataRate);
+                if (groupLagInfos != null) {
+                    builder.addAllGroupLagInfo(groupLagInfos);
+                }
+                partLoadInfos.add(builder.build());
+            }
+        }
+        return partLoadInfos;
+    }
+
+    private String getStoreKey(TopicPubStoreInfo storeInfo) {
+        return storeInfo.topicName + TokenConstants.ATTR_SEP + storeInfo.storeId;
+    }
+
+    private String getPartKey(String topicName, int partitionId) {
+        return topicName + TokenConstants.ATTR_SEP + partitionId;
+    }
+}
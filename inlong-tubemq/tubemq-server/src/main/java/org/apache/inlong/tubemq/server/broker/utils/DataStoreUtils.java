@@ -90,6 +90,8 @@ public class DataStoreUtils {
 
     public static final String DATA_FILE_SUFFIX = ".tube";
     public static final String INDEX_FILE_SUFFIX = ".index";
+    public static final String KEY_INDEX_FILE_SUFFIX = ".keys";
+    public static final String COLD_FILE_SUFFIX = ".cold";
 
     public static int getInt(final int offset, final byte[] data) {
         return ByteBuffer.wrap(data, offset, 4).getInt();
@@ -117,41 +119,68 @@ public class DataStoreUtils {
                                                                 final HashMap<String, CountItem> countMap,
                                                                 final String statisKeyBase,
                                                                 final StringBuilder sBuilder) {
-        if (dataBuffer.array().length < dataTotalSize) {
+        if (dataBuffer.capacity() < dataTotalSize) {
+            return null;
+        }
+        return getTransferMsg(dataBuffer, 0, dataTotalSize,
+                countMap, statisKeyBase, sBuilder);
+    }
+
+    /***
+     * Convert inner message stored at the given position of the buffer to protobuf format.
+     * The payload is copied directly from the buffer, which may be a heap buffer holding
+     * several consecutive messages or a read-only slice of the direct memory cache.
+     *
+     * @param dataBuffer
+     * @param dataOffset     the message's start position in dataBuffer
+     * @param dataTotalSize
+     * @param countMap
+     * @param statisKeyBase
+     * @param sBuilder
+     * @return
+     */
+    public static ClientBroker.TransferedMessage getTransferMsg(final ByteBuffer dataBuffer,
+                                                                int dataOffset, int dataTotalSize,
+                                                                final HashMap<String, CountItem> countMap,
+                                                                final String statisKeyBase,
+                                                                final StringBuilder sBuilder) {
+        if (dataOffset < 0 || dataBuffer.limit() < dataOffset + dataTotalSize) {
             return null;
         }
         final int msgLen =
-                dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_LENGTH);
+                dataBuffer.getInt(dataOffset + DataStoreUtils.STORE_HEADER_POS_LENGTH);
         final int msgToken =
-                dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_DATATYPE);
+                dataBuffer.getInt(dataOffset + DataStoreUtils.STORE_HEADER_POS_DATATYPE);
         final int checkSum =
-                dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_CHECKSUM);
+                dataBuffer.getInt(dataOffset + DataStoreUtils.STORE_HEADER_POS_CHECKSUM);
         int payLoadLen = msgLen - DataStoreUtils.STORE_DATA_PREFX_LEN;
-        int payLoadOffset = DataStoreUtils.STORE_DATA_HEADER_LEN;
+        int payLoadOffset = dataOffset + DataStoreUtils.STORE_DATA_HEADER_LEN;
         if ((msgToken != DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE)
                 || (payLoadLen <= 0)
                 || (payLoadLen > dataTotalSize - DataStoreUtils.STORE_DATA_HEADER_LEN)) {
             return null;
         }
-        final long msgId = dataBuffer.getLong(DataStoreUtils.STORE_HEADER_POS_MSGID);
-        final int flag = dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_MSGFLAG);
+        final long msgId = dataBuffer.getLong(dataOffset + DataStoreUtils.STORE_HEADER_POS_MSGID);
+        final int flag = dataBuffer.getInt(dataOffset + DataStoreUtils.STORE_HEADER_POS_MSGFLAG);
         final int payLoadLen2 = payLoadLen;
-        final byte[] payLoadData = new byte[payLoadLen];
-        System.arraycopy(dataBuffer.array(), payLoadOffset, payLoadData, 0, payLoadLen);
         ClientBroker.TransferedMessage.Builder dataBuilder =
                 ClientBroker.TransferedMessage.newBuilder();
         dataBuilder.setMessageId(msgId);
         dataBuilder.setCheckSum(checkSum);
         dataBuilder.setFlag(flag);
-        dataBuilder.setPayLoadData(ByteString.copyFrom(payLoadData));
+        final ByteBuffer readView = dataBuffer.duplicate();
+        readView.limit(payLoadOffset + payLoadLen);
+        readView.position(payLoadOffset);
+        dataBuilder.setPayLoadData(ByteString.copyFrom(readView));
         // get statistic data
         int attrLen = 0;
         String attribute = null;
-        if (MessageFlagUtils.hasAttribute(flag)) {
+        // compressed payload is passed through as it is, its attribute is not parsed
+        if (MessageFlagUtils.hasAttribute(flag) && !MessageFlagUtils.isCompressed(flag)) {
             if (payLoadLen < 4) {
                 return null;
             }
-            attrLen = dataBuffer.getInt(DataStoreUtils.STORE_DATA_HEADER_LEN);
+            attrLen = dataBuffer.getInt(payLoadOffset);
             payLoadOffset += 4;
             payLoadLen -= 4;
             if (attrLen > payLoadLen) {
@@ -159,7 +188,9 @@ public class DataStoreUtils {
             }
             if (attrLen > 0) {
                 final byte[] attrData = new byte[attrLen];
-                System.arraycopy(dataBuffer.array(), payLoadOffset, attrData, 0, attrLen);
+                readView.limit(payLoadOffset + attrLen);
+                readView.position(payLoadOffset);
+                readView.get(attrData);
                 try {
                     attribute = new String(attrData, TBaseConstants.META_DEFAULT_CHARSET_NAME);
                 } catch (final UnsupportedEncodingException e) {
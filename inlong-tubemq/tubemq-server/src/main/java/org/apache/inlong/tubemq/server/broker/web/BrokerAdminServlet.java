@@ -67,6 +67,9 @@ public class BrokerAdminServlet extends AbstractWebHandler {
         // get memory store status info
         innRegisterWebMethod("admin_query_broker_memstore_info",
                 "adminGetMemStoreStatisInfo", false);
+        // get flush scheduler status info
+        innRegisterWebMethod("admin_query_broker_flush_info",
+                "adminGetFlushSchedulerInfo", false);
         // query broker's all message store info
         innRegisterWebMethod("admin_query_broker_all_store_info",
                 "adminQueryBrokerAllMessageStoreInfo", false);
@@ -329,6 +332,26 @@ public class BrokerAdminServlet extends AbstractWebHandler {
         sBuffer.append("],\"totalCount\":").append(recordId).append("}");
     }
 
+    /***
+     * Get flush scheduler status info of each data directory.
+     *
+     * @param req
+     * @param sBuffer process result
+     */
+    public void adminGetFlushSchedulerInfo(HttpServletRequest req,
+                                           StringBuilder sBuffer) {
+        ProcessResult result = new ProcessResult();
+        if (!WebParameterUtils.getBooleanParamValue(req,
+                WebFieldDef.NEEDREFRESH, false, false, sBuffer, result)) {
+            WebParameterUtils.buildFailResult(sBuffer, result.getErrMsg());
+            return;
+        }
+        boolean requireRefresh = (boolean) result.getRetData();
+        sBuffer.append("{\"result\":true,\"errCode\":0,\"errMsg\":\"Success!\",\"detail\":")
+                .append(broker.getStoreManager().getFlushScheduler().getFlushStatisInfo(requireRefresh))
+                .append("}");
+    }
+
     /***
      * Manual set offset.
      *
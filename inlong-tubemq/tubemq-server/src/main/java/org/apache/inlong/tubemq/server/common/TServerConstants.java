@@ -71,6 +71,8 @@ public final class TServerConstants {
     public static final int CFG_MODAUTHTOKEN_MAX_LENGTH = 128;
     public static final int CFG_ROWLOCK_DEFAULT_DURATION = 30000;
     public static final int CFG_ZK_COMMIT_DEFAULT_RETRIES = 10;
+    public static final int CFG_ZK_COMMIT_DEFAULT_BATCH_SIZE = 200;
+    public static final int CFG_ZK_COMMIT_DEFAULT_PIPELINES = 4;
     public static final int CFG_STORE_DEFAULT_MSG_READ_UNIT = 327680;
     public static final int CFG_BATCH_BROKER_OPERATE_MAX_COUNT = 50;
     public static final int CFG_BATCH_RECORD_OPERATE_MAX_COUNT = 100;
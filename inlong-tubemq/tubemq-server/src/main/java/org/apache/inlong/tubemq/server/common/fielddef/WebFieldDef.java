@@ -251,7 +251,9 @@ public enum WebFieldDef {
     ONLYAUTOFBD(90, "onlyAutoForbidden", "oAfb",
                  WebFieldType.BOOLEAN, "only auto forbidden abnormal broker info."),
     ONLYENABLETLS(91, "onlyEnableTLS", "oEtls",
-                WebFieldType.BOOLEAN, "only enable tls broker info.");
+                WebFieldType.BOOLEAN, "only enable tls broker info."),
+    STICKYBALANCEENABLE(92, "stickyBalanceEnable", "stkBalEn",
+            WebFieldType.BOOLEAN, "Sticky balance enable status");
 
     public final int id;
     public final String name;
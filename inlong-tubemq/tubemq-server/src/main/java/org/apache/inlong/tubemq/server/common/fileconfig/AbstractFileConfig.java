@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.util.Set;
 import org.apache.commons.io.FileUtils;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
+import org.apache.inlong.tubemq.corebase.utils.MixedUtils;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.server.broker.exception.StartupException;
 import org.ini4j.Ini;
@@ -270,6 +271,14 @@ public abstract class AbstractFileConfig {
         if (TStringUtils.isNotBlank(zkeeperSect.get("zkCommitFailRetries"))) {
             zkConfig.setZkCommitFailRetries(getInt(zkeeperSect, "zkCommitFailRetries"));
         }
+        if (TStringUtils.isNotBlank(zkeeperSect.get("zkCommitBatchSize"))) {
+            zkConfig.setZkCommitBatchSize(
+                    MixedUtils.mid(getInt(zkeeperSect, "zkCommitBatchSize"), 1, 1000));
+        }
+        if (TStringUtils.isNotBlank(zkeeperSect.get("zkCommitPipelines"))) {
+            zkConfig.setZkCommitPipelines(
+                    MixedUtils.mid(getInt(zkeeperSect, "zkCommitPipelines"), 1, 20));
+        }
         return zkConfig;
     }
 
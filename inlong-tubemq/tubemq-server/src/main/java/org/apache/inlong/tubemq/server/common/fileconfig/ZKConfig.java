@@ -28,6 +28,8 @@ public class ZKConfig {
     private int zkSyncTimeMs = 1000;
     private long zkCommitPeriodMs = 5000L;
     private int zkCommitFailRetries = TServerConstants.CFG_ZK_COMMIT_DEFAULT_RETRIES;
+    private int zkCommitBatchSize = TServerConstants.CFG_ZK_COMMIT_DEFAULT_BATCH_SIZE;
+    private int zkCommitPipelines = TServerConstants.CFG_ZK_COMMIT_DEFAULT_PIPELINES;
 
     public ZKConfig() {
 
@@ -81,6 +83,22 @@ public class ZKConfig {
         this.zkCommitFailRetries = zkCommitFailRetries;
     }
 
+    public int getZkCommitBatchSize() {
+        return zkCommitBatchSize;
+    }
+
+    public void setZkCommitBatchSize(int zkCommitBatchSize) {
+        this.zkCommitBatchSize = zkCommitBatchSize;
+    }
+
+    public int getZkCommitPipelines() {
+        return zkCommitPipelines;
+    }
+
+    public void setZkCommitPipelines(int zkCommitPipelines) {
+        this.zkCommitPipelines = zkCommitPipelines;
+    }
+
     public long getZkCommitPeriodMs() {
         return zkCommitPeriodMs;
     }
@@ -99,6 +117,8 @@ public class ZKConfig {
                 .append(",\"zkSyncTimeMs\":").append(zkSyncTimeMs)
                 .append(",\"zkCommitPeriodMs\":").append(zkCommitPeriodMs)
                 .append(",\"zkCommitFailRetries\":").append(zkCommitFailRetries)
+                .append(",\"zkCommitBatchSize\":").append(zkCommitBatchSize)
+                .append(",\"zkCommitPipelines\":").append(zkCommitPipelines)
                 .append("}").toString();
     }
 }
@@ -17,16 +17,12 @@
 
 package org.apache.inlong.tubemq.server.common.heartbeat;
 
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.rv.ProcessResult;
-import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.server.common.exception.HeartbeatException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +30,9 @@ import org.slf4j.LoggerFactory;
 public class HeartbeatManager {
 
     private static final Logger logger = LoggerFactory.getLogger(HeartbeatManager.class);
+    // the time span of a timeout wheel bucket, also the expiry check interval
+    private static final long TIMEOUT_TICK_MS = 100L;
+    private static final int TIMEOUT_WHEEL_SIZE = 1024;
 
     private final ConcurrentHashMap<String, TimeoutInfo> brokerRegMap =
             new ConcurrentHashMap<>();
@@ -41,6 +40,12 @@ public class HeartbeatManager {
             new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, TimeoutInfo> consumerRegMap =
             new ConcurrentHashMap<>();
+    private final TimeoutWheel brokerTimeoutWheel =
+            new TimeoutWheel("Broker Node", brokerRegMap, TIMEOUT_TICK_MS, TIMEOUT_WHEEL_SIZE);
+    private final TimeoutWheel producerTimeoutWheel =
+            new TimeoutWheel("Producer Node", producerRegMap, TIMEOUT_TICK_MS, TIMEOUT_WHEEL_SIZE);
+    private final TimeoutWheel consumerTimeoutWheel =
+            new TimeoutWheel("Consumer Node", consumerRegMap, TIMEOUT_TICK_MS, TIMEOUT_WHEEL_SIZE);
     private final ExecutorService timeoutScanService = Executors.newCachedThreadPool();
     private long brokerTimeoutDlt = 0;
     private long producerTimeoutDlt = 0;
@@ -95,7 +100,7 @@ public class HeartbeatManager {
      */
     public void regBrokerCheckBusiness(final long timeout, final TimeoutListener listener) {
         this.brokerTimeoutDlt = timeout;
-        this.registerCheckBusiness("Broker Node", this.brokerRegMap, listener);
+        this.registerCheckBusiness("Broker Node", this.brokerTimeoutWheel, listener);
     }
 
     /**
@@ -106,7 +111,7 @@ public class HeartbeatManager {
      */
     public void regProducerCheckBusiness(final long timeout, final TimeoutListener listener) {
         this.producerTimeoutDlt = timeout;
-        this.registerCheckBusiness("Producer Node", this.producerRegMap, listener);
+        this.registerCheckBusiness("Producer Node", this.producerTimeoutWheel, listener);
     }
 
     /**
@@ -117,11 +122,11 @@ public class HeartbeatManager {
      */
     public void regConsumerCheckBusiness(final long timeout, final TimeoutListener listener) {
         this.consumerTimeoutDlt = timeout;
-        this.registerCheckBusiness("Consumer Node", this.consumerRegMap, listener);
+        this.registerCheckBusiness("Consumer Node", this.consumerTimeoutWheel, listener);
     }
 
     private void registerCheckBusiness(final String businessType,
-                                       final Map<String, TimeoutInfo> nodeMap,
+                                       final TimeoutWheel timeoutWheel,
                                        final TimeoutListener listener) {
 
         timeoutScanService.submit(new Runnable() {
@@ -129,29 +134,8 @@ public class HeartbeatManager {
             public void run() {
                 while (!isStopped) {
                     try {
-                        long currentTime = System.currentTimeMillis();
-                        Set<String> removedNodeKey = new HashSet<>();
-                        for (Map.Entry<String, TimeoutInfo> entry : nodeMap.entrySet()) {
-                            if (TStringUtils.isBlank(entry.getKey()) || entry.getValue() == null) {
-                                continue;
-                            }
-                            if (currentTime >= entry.getValue().getTimeoutTime()) {
-                                removedNodeKey.add(entry.getKey());
-                            }
-                        }
-                        if (!removedNodeKey.isEmpty()) {
-                            for (String nodeKey : removedNodeKey) {
-                                TimeoutInfo timeoutInfo = nodeMap.get(nodeKey);
-                                if (timeoutInfo == null) {
-                                    continue;
-                                }
-                                if (currentTime >= timeoutInfo.getTimeoutTime()) {
-                                    nodeMap.remove(nodeKey);
-                                    listener.onTimeout(nodeKey, timeoutInfo);
-                                }
-                            }
-                        }
-                        Thread.sleep(1000 * 1);
+                        timeoutWheel.expire(System.currentTimeMillis(), listener);
+                        Thread.sleep(TIMEOUT_TICK_MS);
                     } catch (Throwable t) {
                         logger.error(new StringBuilder(256)
                                 .append(businessType).append(" heartbeat scan error!").toString(), t);
@@ -169,8 +153,10 @@ public class HeartbeatManager {
      * @return the timeout info for the registered node
      */
     public TimeoutInfo regBrokerNode(String nodeId, String createId) {
-        return this.brokerRegMap.put(nodeId,
-                new TimeoutInfo(createId, this.brokerTimeoutDlt));
+        TimeoutInfo timeoutInfo = new TimeoutInfo(createId, this.brokerTimeoutDlt);
+        TimeoutInfo oldTimeoutInfo = this.brokerRegMap.put(nodeId, timeoutInfo);
+        this.brokerTimeoutWheel.add(nodeId, timeoutInfo);
+        return oldTimeoutInfo;
     }
 
     /**
@@ -180,7 +166,10 @@ public class HeartbeatManager {
      * @return the timeout info of the registered node
      */
     public TimeoutInfo regProducerNode(final String nodeId) {
-        return this.producerRegMap.put(nodeId, new TimeoutInfo(this.producerTimeoutDlt));
+        TimeoutInfo timeoutInfo = new TimeoutInfo(this.producerTimeoutDlt);
+        TimeoutInfo oldTimeoutInfo = this.producerRegMap.put(nodeId, timeoutInfo);
+        this.producerTimeoutWheel.add(nodeId, timeoutInfo);
+        return oldTimeoutInfo;
     }
 
     /**
@@ -190,7 +179,10 @@ public class HeartbeatManager {
      * @return the timeout info of the registered node
      */
     public TimeoutInfo regConsumerNode(final String nodeId) {
-        return this.consumerRegMap.put(nodeId, new TimeoutInfo(this.consumerTimeoutDlt));
+        TimeoutInfo timeoutInfo = new TimeoutInfo(this.consumerTimeoutDlt);
+        TimeoutInfo oldTimeoutInfo = this.consumerRegMap.put(nodeId, timeoutInfo);
+        this.consumerTimeoutWheel.add(nodeId, timeoutInfo);
+        return oldTimeoutInfo;
     }
 
     /**
@@ -204,8 +196,11 @@ public class HeartbeatManager {
     public TimeoutInfo regConsumerNode(final String nodeId,
                                        final String consumerId,
                                        final String partStr) {
-        return this.consumerRegMap.put(nodeId,
-                new TimeoutInfo(consumerId, partStr, this.consumerTimeoutDlt));
+        TimeoutInfo timeoutInfo =
+                new TimeoutInfo(consumerId, partStr, this.consumerTimeoutDlt);
+        TimeoutInfo oldTimeoutInfo = this.consumerRegMap.put(nodeId, timeoutInfo);
+        this.consumerTimeoutWheel.add(nodeId, timeoutInfo);
+        return oldTimeoutInfo;
     }
 
     /**
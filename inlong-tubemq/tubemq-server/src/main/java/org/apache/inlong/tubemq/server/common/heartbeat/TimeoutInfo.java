@@ -18,7 +18,8 @@
 package org.apache.inlong.tubemq.server.common.heartbeat;
 
 public class TimeoutInfo {
-    private long timeoutTime = 0L;
+    // updated by the heartbeats and read by the expiry check thread
+    private volatile long timeoutTime = 0L;
     private String secondKey = "";
     private String thirdKey = "";
 
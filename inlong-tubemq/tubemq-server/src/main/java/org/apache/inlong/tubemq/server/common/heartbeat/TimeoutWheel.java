@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common.heartbeat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing wheel of the registered nodes of a node type.
+ *
+ * A node is slotted into the bucket of its timeout tick when registered. The
+ * heartbeats only update the timeout time of the node, and a node found alive
+ * when its bucket is due is moved to the bucket of its current timeout time, so
+ * each expiry check only visits the nodes of the due buckets.
+ */
+class TimeoutWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimeoutWheel.class);
+
+    private final String businessType;
+    private final ConcurrentHashMap<String, TimeoutInfo> nodeMap;
+    private final long tickMs;
+    private final int mask;
+    private final List<TimeoutEntry>[] buckets;
+    // the last tick whose bucket has been checked
+    private long lastTick;
+
+    /**
+     * @param businessType  the node type, used in the logs
+     * @param nodeMap       the registered nodes of the type
+     * @param tickMs        the time span of a bucket in milliseconds
+     * @param wheelSize     the bucket count, rounded up to a power of 2
+     */
+    @SuppressWarnings("unchecked")
+    TimeoutWheel(String businessType,
+                 ConcurrentHashMap<String, TimeoutInfo> nodeMap,
+                 long tickMs, int wheelSize) {
+        this.businessType = businessType;
+        this.nodeMap = nodeMap;
+        this.tickMs = tickMs;
+        int size = 2;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            this.buckets[i] = new ArrayList<>();
+        }
+        this.lastTick = System.currentTimeMillis() / tickMs;
+    }
+
+    /**
+     * Add a registered node
+     *
+     * @param nodeKey      the key of the node
+     * @param timeoutInfo  the timeout info of the node
+     */
+    synchronized void add(String nodeKey, TimeoutInfo timeoutInfo) {
+        slot(new TimeoutEntry(nodeKey, timeoutInfo));
+    }
+
+    /**
+     * Check the buckets due up to the current time, and remove the nodes timed out
+     *
+     * @param curTime   the current time in milliseconds
+     * @param listener  the listener notified of the nodes timed out
+     * @return the count of the nodes timed out
+     */
+    int expire(long curTime, TimeoutListener listener) {
+        List<TimeoutEntry> expiredEntries = new ArrayList<>();
+        synchronized (this) {
+            long curTick = curTime / tickMs;
+            if (curTick <= lastTick) {
+                return 0;
+            }
+            // each bucket is checked once even if more than a round has passed
+            long fromTick = Math.max(lastTick + 1, curTick - mask);
+            lastTick = curTick;
+            for (long tick = fromTick; tick <= curTick; tick++) {
+                int index = (int) (tick & mask);
+                List<TimeoutEntry> dueEntries = buckets[index];
+                if (dueEntries.isEmpty()) {
+                    continue;
+                }
+                buckets[index] = new ArrayList<>();
+                for (TimeoutEntry entry : dueEntries) {
+                    // skip the nodes unregistered or registered again
+                    if (nodeMap.get(entry.nodeKey) != entry.timeoutInfo) {
+                        continue;
+                    }
+                    if (curTime >= entry.timeoutInfo.getTimeoutTime()) {
+                        expiredEntries.add(entry);
+                    } else {
+                        slot(entry);
+                    }
+                }
+            }
+        }
+        int expiredCount = 0;
+        for (TimeoutEntry entry : expiredEntries) {
+            if (curTime < entry.timeoutInfo.getTimeoutTime()
+                    || !nodeMap.remove(entry.nodeKey, entry.timeoutInfo)) {
+                if (nodeMap.get(entry.nodeKey) == entry.timeoutInfo) {
+                    add(entry.nodeKey, entry.timeoutInfo);
+                }
+                continue;
+            }
+            expiredCount++;
+            try {
+                listener.onTimeout(entry.nodeKey, entry.timeoutInfo);
+            } catch (Throwable t) {
+                logger.error(new StringBuilder(256).append(businessType)
+                        .append(" timeout process error, node is ")
+                        .append(entry.nodeKey).toString(), t);
+            }
+        }
+        return expiredCount;
+    }
+
+    private void slot(TimeoutEntry entry) {
+        long tick = Math.max(entry.timeoutInfo.getTimeoutTime() / tickMs, lastTick + 1);
+        buckets[(int) (tick & mask)].add(entry);
+    }
+
+    private static class TimeoutEntry {
+        private final String nodeKey;
+        private final TimeoutInfo timeoutInfo;
+
+        TimeoutEntry(String nodeKey, TimeoutInfo timeoutInfo) {
+            this.nodeKey = nodeKey;
+            this.timeoutInfo = timeoutInfo;
+        }
+    }
+}
@@ -32,6 +32,9 @@ public class OffsetStorageInfo implements Serializable {
     private long messageId;
     private boolean firstCreate = false;
     private boolean modified = false;
+    // the offset and message id last stored, the unchanged offset is not stored again
+    private long storedOffset = -1L;
+    private long storedMessageId = -1L;
 
     public OffsetStorageInfo(String topic, int brokerId, int partitionId,
                              long offset, long messageId) {
@@ -48,6 +51,9 @@ public class OffsetStorageInfo implements Serializable {
         this.firstCreate = firstCreate;
         if (firstCreate) {
             modified = true;
+        } else {
+            this.storedOffset = this.offset.get();
+            this.storedMessageId = messageId;
         }
     }
 
@@ -87,6 +93,15 @@ public class OffsetStorageInfo implements Serializable {
         this.modified = modified;
     }
 
+    public synchronized boolean isStored(long offset, long messageId) {
+        return storedOffset == offset && storedMessageId == messageId;
+    }
+
+    public synchronized void setStored(long offset, long messageId) {
+        this.storedOffset = offset;
+        this.storedMessageId = messageId;
+    }
+
     public long addAndGetOffset(long tmpOffset) {
         firstCreate = false;
         modified = true;
@@ -18,16 +18,20 @@
 package org.apache.inlong.tubemq.server.common.offsetstorage;
 
 import java.net.BindException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.commons.codec.binary.StringUtils;
 import org.apache.inlong.tubemq.corebase.TokenConstants;
-import org.apache.inlong.tubemq.server.broker.exception.OffsetStoreException;
-import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.apache.inlong.tubemq.server.common.fileconfig.ZKConfig;
 import org.apache.inlong.tubemq.server.common.offsetstorage.zookeeper.ZKUtil;
 import org.apache.inlong.tubemq.server.common.offsetstorage.zookeeper.ZooKeeperWatcher;
@@ -65,6 +69,7 @@ public class ZkOffsetStorage implements OffsetStorage {
     private final boolean isBroker;
     private final int brokerId;
     private final String strBrokerId;
+    private final ExecutorService commitExecutor;
     private ZKConfig zkConfig;
     private ZooKeeperWatcher zkw;
 
@@ -75,6 +80,8 @@ public class ZkOffsetStorage implements OffsetStorage {
         this.strBrokerId = String.valueOf(brokerId);
         this.tubeZkRoot = normalize(this.zkConfig.getZkNodeRoot());
         this.consumerZkDir = this.tubeZkRoot + "/consumers-v3";
+        this.commitExecutor =
+                Executors.newFixedThreadPool(this.zkConfig.getZkCommitPipelines());
         try {
             this.zkw = new ZooKeeperWatcher(zkConfig);
         } catch (Throwable e) {
@@ -90,6 +97,7 @@ public class ZkOffsetStorage implements OffsetStorage {
     public void close() {
         if (this.zkw != null) {
             logger.info("ZooKeeper Offset Storage closing .......");
+            this.commitExecutor.shutdown();
             this.zkw.close();
             this.zkw = null;
             logger.info("ZooKeeper Offset Storage closed!");
@@ -100,33 +108,52 @@ public class ZkOffsetStorage implements OffsetStorage {
     public void commitOffset(final String group,
                              final Collection<OffsetStorageInfo> offsetInfoList,
                              boolean isFailRetry) {
+        if (offsetInfoList == null || offsetInfoList.isEmpty()) {
+            return;
+        }
+        Map<String, Collection<OffsetStorageInfo>> groupOffsetMap = new HashMap<>();
+        groupOffsetMap.put(group, offsetInfoList);
+        commitOffsets(groupOffsetMap, isFailRetry);
+    }
+
+    /**
+     * Commit the offsets changed since the last commit, the offsets are
+     * committed in batches, each batch is a ZooKeeper transaction and the
+     * batches are committed in parallel.
+     *
+     * The offsets failed to commit are kept modified, they are retried
+     * in the next commit if the failure is not retried here.
+     *
+     * @param groupOffsetMap  the offsets to commit, group - offsets
+     * @param isFailRetry     whether retry the failed offsets
+     */
+    @Override
+    public void commitOffsets(final Map<String, Collection<OffsetStorageInfo>> groupOffsetMap,
+                              boolean isFailRetry) {
         if (this.zkw == null
-                || offsetInfoList == null
-                || offsetInfoList.isEmpty()) {
+                || groupOffsetMap == null
+                || groupOffsetMap.isEmpty()) {
             return;
         }
-        StringBuilder sBuilder = new StringBuilder(512);
-        if (isFailRetry) {
-            for (int i = 0; i < TServerConstants.CFG_ZK_COMMIT_DEFAULT_RETRIES; i++) {
-                try {
-                    cfmOffset(sBuilder, group, offsetInfoList);
-                    break;
-                } catch (Exception e) {
-                    logger.error("Error found when commit offsets to ZooKeeper with retry " + i, e);
-                    try {
-                        Thread.sleep(this.zkConfig.getZkSyncTimeMs());
-                    } catch (InterruptedException ie) {
-                        logger.error(
-                                "InterruptedException when commit offset to ZooKeeper with retry " + i, ie);
-                        return;
-                    }
-                }
+        int maxRetries = isFailRetry ? this.zkConfig.getZkCommitFailRetries() : 0;
+        for (int i = 0; ; i++) {
+            int failedCnt = cfmOffsets(groupOffsetMap);
+            if (failedCnt == 0) {
+                return;
+            }
+            if (i >= maxRetries) {
+                logger.warn(new StringBuilder(256)
+                        .append("[ZkOffsetStorage] Failed to commit ").append(failedCnt)
+                        .append(" offsets to ZooKeeper, retry them in the next commit")
+                        .toString());
+                return;
             }
-        } else {
             try {
-                cfmOffset(sBuilder, group, offsetInfoList);
-            } catch (OffsetStoreException e) {
-                logger.error("Error when commit offsets to ZooKeeper", e);
+                Thread.sleep(this.zkConfig.getZkSyncTimeMs());
+            } catch (InterruptedException ie) {
+                logger.error(
+                        "InterruptedException when commit offset to ZooKeeper with retry " + i, ie);
+                return;
             }
         }
     }
@@ -154,41 +181,117 @@ public class ZkOffsetStorage implements OffsetStorage {
 
     }
 
-    private void cfmOffset(final StringBuilder sb, final String group,
-                           final Collection<OffsetStorageInfo> infoList) throws OffsetStoreException {
-        sb.delete(0, sb.length());
-        for (final OffsetStorageInfo info : infoList) {
-            long newOffset = -1;
-            long msgId = -1;
-            synchronized (info) {
-                if (!info.isModified()) {
+    /**
+     * Commit the modified offsets whose value is changed since last stored
+     *
+     * @return the count of offsets failed to commit
+     */
+    private int cfmOffsets(final Map<String, Collection<OffsetStorageInfo>> groupOffsetMap) {
+        final StringBuilder sb = new StringBuilder(512);
+        List<OffsetCommitItem> commitItems = new ArrayList<>();
+        for (Map.Entry<String, Collection<OffsetStorageInfo>> entry
+                : groupOffsetMap.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                continue;
+            }
+            for (final OffsetStorageInfo info : entry.getValue()) {
+                long newOffset = -1;
+                long msgId = -1;
+                synchronized (info) {
+                    if (!info.isModified()) {
+                        continue;
+                    }
+                    newOffset = info.getOffset();
+                    msgId = info.getMessageId();
+                    info.setModified(false);
+                }
+                if (info.isStored(newOffset, msgId)) {
                     continue;
                 }
-                newOffset = info.getOffset();
-                msgId = info.getMessageId();
-                info.setModified(false);
+                String offsetPath = sb.append(this.consumerZkDir).append("/")
+                        .append(entry.getKey()).append("/offsets/").append(info.getTopic())
+                        .append("/").append(info.getBrokerId()).append(TokenConstants.HYPHEN)
+                        .append(info.getPartitionId()).toString();
+                sb.delete(0, sb.length());
+                commitItems.add(new OffsetCommitItem(info, offsetPath, newOffset, msgId));
             }
-            final String topic = info.getTopic();
-            String offsetPath = sb.append(this.consumerZkDir).append("/")
-                    .append(group).append("/offsets/").append(topic).append("/")
-                    .append(info.getBrokerId()).append(TokenConstants.HYPHEN)
-                    .append(info.getPartitionId()).toString();
-            sb.delete(0, sb.length());
-            String offsetData =
-                    sb.append(msgId).append(TokenConstants.HYPHEN).append(newOffset).toString();
-            sb.delete(0, sb.length());
+        }
+        if (commitItems.isEmpty()) {
+            return 0;
+        }
+        // split the offsets into batches
+        int batchSize = this.zkConfig.getZkCommitBatchSize();
+        List<List<OffsetCommitItem>> batches = new ArrayList<>();
+        for (int i = 0; i < commitItems.size(); i += batchSize) {
+            batches.add(commitItems.subList(i, Math.min(i + batchSize, commitItems.size())));
+        }
+        if (batches.size() == 1) {
+            return commitBatch(batches.get(0), sb);
+        }
+        List<Future<Integer>> futures = new ArrayList<>(batches.size());
+        for (final List<OffsetCommitItem> batch : batches) {
+            futures.add(this.commitExecutor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return commitBatch(batch, new StringBuilder(512));
+                }
+            }));
+        }
+        int failedCnt = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                failedCnt += futures.get(i).get();
+            } catch (Throwable t) {
+                logger.error("Exception during wait offsets committed to ZooKeeper", t);
+                failedCnt += batches.get(i).size();
+            }
+        }
+        return failedCnt;
+    }
+
+    /**
+     * Commit a batch of offsets in a ZooKeeper transaction, if some offset
+     * nodes do not exist, the offsets of the batch are committed one by one
+     *
+     * @return the count of offsets failed to commit
+     */
+    private int commitBatch(List<OffsetCommitItem> batch, StringBuilder sb) {
+        Map<String, byte[]> nodeData = new HashMap<>(batch.size());
+        for (OffsetCommitItem item : batch) {
+            nodeData.put(item.offsetPath, StringUtils.getBytesUtf8(item.getOffsetData(sb)));
+        }
+        try {
+            if (ZKUtil.multiSetData(this.zkw, nodeData)) {
+                for (OffsetCommitItem item : batch) {
+                    item.committed(sb);
+                }
+                return 0;
+            }
+        } catch (KeeperException.NoNodeException e) {
+            return commitOneByOne(batch, sb);
+        } catch (final Throwable t) {
+            logger.error("Exception during commit offsets to ZooKeeper", t);
+        }
+        for (OffsetCommitItem item : batch) {
+            item.failed();
+        }
+        return batch.size();
+    }
+
+    private int commitOneByOne(List<OffsetCommitItem> batch, StringBuilder sb) {
+        int failedCnt = 0;
+        for (OffsetCommitItem item : batch) {
             try {
-                ZKUtil.updatePersistentPath(this.zkw, offsetPath, offsetData);
+                ZKUtil.updatePersistentPath(this.zkw,
+                        item.offsetPath, item.getOffsetData(sb));
+                item.committed(sb);
             } catch (final Throwable t) {
                 logger.error("Exception during commit offsets to ZooKeeper", t);
-                throw new OffsetStoreException(t);
-            }
-            if (logger.isDebugEnabled()) {
-                logger.debug(sb.append("Committed offset, path=")
-                        .append(offsetPath).append(", data=").append(offsetData).toString());
-                sb.delete(0, sb.length());
+                item.failed();
+                failedCnt++;
             }
         }
+        return failedCnt;
     }
 
     /**
@@ -368,4 +471,41 @@ public class ZkOffsetStorage implements OffsetStorage {
         }
     }
 
+
+    private static class OffsetCommitItem {
+        private final OffsetStorageInfo info;
+        private final String offsetPath;
+        private final long offset;
+        private final long msgId;
+
+        OffsetCommitItem(OffsetStorageInfo info, String offsetPath,
+                         long offset, long msgId) {
+            this.info = info;
+            this.offsetPath = offsetPath;
+            this.offset = offset;
+            this.msgId = msgId;
+        }
+
+        String getOffsetData(StringBuilder sb) {
+            String offsetData =
+                    sb.append(msgId).append(TokenConstants.HYPHEN).append(offset).toString();
+            sb.delete(0, sb.length());
+            return offsetData;
+        }
+
+        void committed(StringBuilder sb) {
+            info.setStored(offset, msgId);
+            if (logger.isDebugEnabled()) {
+                logger.debug(sb.append("Committed offset, path=").append(offsetPath)
+                        .append(", data=").append(getOffsetData(new StringBuilder(64))).toString());
+                sb.delete(0, sb.length());
+            }
+        }
+
+        void failed() {
+            synchronized (info) {
+                info.setModified(true);
+            }
+        }
+    }
 }
@@ -24,6 +24,8 @@ import org.apache.inlong.tubemq.server.common.utils.Bytes;
 import org.apache.zookeeper.AsyncCallback;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooKeeper;
 import org.apache.zookeeper.ZooKeeper.States;
@@ -416,6 +418,38 @@ public class RecoverableZooKeeper {
         }
     }
 
+    /**
+     * multi of unconditional sets is an idempotent operation. Retry before throwing exception.
+     * It is not synchronized on this object, so the transactions of several threads are
+     * pipelined on the ZooKeeper connection.
+     *
+     * @return results of the operations
+     */
+    public List<OpResult> multi(Iterable<Op> ops) throws KeeperException,
+            InterruptedException {
+        RetryCounter retryCounter = retryCounterFactory.create();
+        while (true) {
+            try {
+                return getZooKeeper().multi(ops);
+            } catch (KeeperException e) {
+                ensureConnectivity(e);
+
+                switch (e.code()) {
+                    case CONNECTIONLOSS:
+                    case SESSIONEXPIRED:
+                    case OPERATIONTIMEOUT:
+                        retryOrThrow(retryCounter, e, "multi");
+                        break;
+
+                    default:
+                        throw e;
+                }
+            }
+            retryCounter.sleepUntilNextRetry();
+            retryCounter.useRetry();
+        }
+    }
+
     /**
      * NONSEQUENTIAL create is idempotent operation. Retry before throwing exceptions. But this
      * function will not throw the NodeExist exception back to the application. </p> <p> But
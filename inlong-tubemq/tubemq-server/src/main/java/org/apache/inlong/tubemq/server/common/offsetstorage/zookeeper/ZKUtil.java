@@ -20,6 +20,7 @@ package org.apache.inlong.tubemq.server.common.offsetstorage.zookeeper;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.codec.binary.StringUtils;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
@@ -28,6 +29,7 @@ import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.NoNodeException;
 import org.apache.zookeeper.KeeperException.NodeExistsException;
+import org.apache.zookeeper.Op;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooDefs.Ids;
 import org.apache.zookeeper.data.ACL;
@@ -257,6 +259,34 @@ public class ZKUtil {
         setData(zkw, znode, data, -1);
     }
 
+    /**
+     * Sets the data of the existing znodes in a transaction, no checks are done on the existing
+     * data or version.
+     * <p/>
+     * <p/>
+     * If any of the nodes does not exist, no data is set and a {@link NoNodeException} will be
+     * thrown.
+     *
+     * @param zkw      zk reference
+     * @param nodeData path and data of the nodes
+     * @return true if data was set, false if interrupted
+     * @throws KeeperException if unexpected zookeeper exception
+     */
+    public static boolean multiSetData(ZooKeeperWatcher zkw, Map<String, byte[]> nodeData)
+            throws KeeperException {
+        List<Op> ops = new ArrayList<>(nodeData.size());
+        for (Map.Entry<String, byte[]> entry : nodeData.entrySet()) {
+            ops.add(Op.setData(entry.getKey(), entry.getValue(), -1));
+        }
+        try {
+            zkw.getRecoverableZooKeeper().multi(ops);
+            return true;
+        } catch (InterruptedException e) {
+            zkw.interruptedException(e);
+            return false;
+        }
+    }
+
     //
     // Data setting
     //
@@ -20,6 +20,7 @@ package org.apache.inlong.tubemq.server.master;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -30,7 +31,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.codec.binary.StringUtils;
 import org.apache.commons.collections.CollectionUtils;
@@ -103,6 +103,7 @@ import org.apache.inlong.tubemq.server.common.utils.ClientSyncInfo;
 import org.apache.inlong.tubemq.server.common.utils.HasThread;
 import org.apache.inlong.tubemq.server.common.utils.RowLock;
 import org.apache.inlong.tubemq.server.common.utils.Sleeper;
+import org.apache.inlong.tubemq.server.master.balance.BalanceRoundStats;
 import org.apache.inlong.tubemq.server.master.balance.DefaultLoadBalancer;
 import org.apache.inlong.tubemq.server.master.balance.LoadBalancer;
 import org.apache.inlong.tubemq.server.master.metamanage.MetaDataManager;
@@ -130,6 +131,8 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
 
     private static final Logger logger = LoggerFactory.getLogger(TMaster.class);
     private static final int MAX_BALANCE_DELAY_TIME = 10;
+    // the count of group shards per balance thread
+    private static final int BALANCE_SHARDS_PER_THREAD = 4;
 
     private final ConcurrentHashMap<String/* consumerId */, Map<String/* topic */, Map<String, Partition>>>
             currentSubInfo = new ConcurrentHashMap<>();
@@ -139,8 +142,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
     private final BrokerRunManager brokerRunManager;       // broker run status manager
     private final ConsumerEventManager consumerEventManager;    //consumer event manager
     private final TopicPSInfoManager topicPSInfoManager;        //topic publish/subscribe info manager
-    private final ExecutorService svrExecutor;
-    private final ExecutorService cltExecutor;
+    private final ExecutorService balanceExecutor;              //balance executor
     private final ProducerInfoHolder producerHolder;            //producer holder
     private final ConsumerInfoHolder consumerHolder;            //consumer holder
     private final RowLock masterRowLock;                        //lock
@@ -159,8 +161,8 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
     private boolean initialized = false;
     private boolean startupBalance = true;
     private int balanceDelayTimes = 0;
-    private AtomicInteger curSvrBalanceParal = new AtomicInteger(0);
-    private AtomicInteger curCltBalanceParal = new AtomicInteger(0);
+    private volatile BalanceRoundStats curSvrBalanceStats = null;
+    private volatile BalanceRoundStats curCltBalanceStats = null;
     private Sleeper stopSleeper = new Sleeper(1000, this);
     private SimpleVisitTokenManager visitTokenManager;
 
@@ -177,8 +179,8 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         this.checkAndCreateBdbDataPath();
         this.masterAddInfo =
                 new NodeAddrInfo(masterConfig.getHostName(), masterConfig.getPort());
-        this.svrExecutor = Executors.newFixedThreadPool(this.masterConfig.getRebalanceParallel());
-        this.cltExecutor = Executors.newFixedThreadPool(this.masterConfig.getRebalanceParallel());
+        this.balanceExecutor =
+                Executors.newWorkStealingPool(this.masterConfig.getRebalanceParallel());
         this.visitTokenManager = new SimpleVisitTokenManager(this.masterConfig);
         this.serverAuthHandler = new SimpleCertificateMasterHandler(this.masterConfig);
         this.heartbeatManager = new HeartbeatManager();
@@ -1092,6 +1094,8 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             builder.setErrMsg(result.getErrMsg());
             return builder.build();
         }
+        brokerRunManager.getBrokerPartLoadHolder()
+                .updBrokerPartLoadInfo(brokerId, request.getPartLoadInfoList());
         if (request.getTakeConfInfo()) {
             strBuffer.append("[Broker Report] heartbeat report: brokerId=")
                 .append(request.getBrokerId()).append(", configureId=")
@@ -1655,14 +1659,15 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         logger.info(strBuffer.append("[Balance End] ").append(balanceId).toString());
     }
 
-    private void processServerBalance(TMaster tMaster,
-                                      long balanceId,
+    private void processServerBalance(final TMaster tMaster,
+                                      final long balanceId,
                                       StringBuilder sBuffer) {
-        int curDoingTasks = this.curSvrBalanceParal.get();
-        if (curDoingTasks > 0) {
+        BalanceRoundStats lastRoundStats = this.curSvrBalanceStats;
+        if (lastRoundStats != null && lastRoundStats.getUnfinishedShardCnt() > 0) {
             logger.info(sBuffer.append("[Svr-Balance End] ").append(balanceId)
-                    .append(" the Server-Balance has ").append(curDoingTasks)
-                    .append(" task(s) in progress!").toString());
+                    .append(" the Server-Balance has ")
+                    .append(lastRoundStats.getUnfinishedShardCnt())
+                    .append(" shard(s) in progress!").toString());
             sBuffer.delete(0, sBuffer.length());
             return;
         }
@@ -1670,62 +1675,39 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         List<String> groupsNeedToBalance = isStartBalance
                 ? consumerHolder.getAllServerBalanceGroups() : getNeedToBalanceGroups(sBuffer);
         sBuffer.delete(0, sBuffer.length());
-        int balanceTaskCnt = groupsNeedToBalance.size();
-        if (balanceTaskCnt > 0) {
-            // calculate process count
-            int unitNum = (balanceTaskCnt + masterConfig.getRebalanceParallel() - 1)
-                    / masterConfig.getRebalanceParallel();
-            // start processor to do balance;
-            int startIndex = 0;
-            int endIndex = 0;
-            // set parallel balance signal
-            curSvrBalanceParal.set(masterConfig.getRebalanceParallel());
-            for (int i = 0; i < masterConfig.getRebalanceParallel(); i++) {
-                // get groups need to balance
-                startIndex = Math.min((i) * unitNum, balanceTaskCnt);
-                endIndex = Math.min((i + 1) * unitNum, balanceTaskCnt);
-                final List<String> subGroups = groupsNeedToBalance.subList(startIndex, endIndex);
-                if (subGroups.isEmpty()) {
-                    curSvrBalanceParal.decrementAndGet();
-                    continue;
-                }
+        if (!groupsNeedToBalance.isEmpty()) {
+            // split the groups into shards, the shards are processed by the work-stealing
+            // pool, so a shard with slow groups does not hold up the others
+            List<List<String>> shards = BalanceRoundStats.shardGroups(groupsNeedToBalance,
+                    Math.min(groupsNeedToBalance.size(),
+                            masterConfig.getRebalanceParallel() * BALANCE_SHARDS_PER_THREAD));
+            final BalanceRoundStats roundStats = new BalanceRoundStats(balanceId,
+                    groupsNeedToBalance.size(), shards.size(), System.currentTimeMillis());
+            this.curSvrBalanceStats = roundStats;
+            for (final List<String> shardGroups : shards) {
                 // execute balance
-                this.svrExecutor.execute(new Runnable() {
+                this.balanceExecutor.execute(new Runnable() {
                     @Override
                     public void run() {
                         try {
-                            if (subGroups.isEmpty()) {
-                                return;
-                            }
-                            // first process reset rebalance task;
-                            try {
-                                tMaster.processResetbalance(balanceId,
-                                        isStartBalance, subGroups);
-                            } catch (Throwable e) {
-                                logger.warn(new StringBuilder(1024)
-                                        .append("[Svr-Balance processor] Error during reset-reb,")
-                                        .append("the groups that may be affected are ")
-                                        .append(subGroups).append(",error is ")
-                                        .append(e).toString());
-                            }
-                            if (tMaster.isStopped()) {
-                                return;
-                            }
-                            // second process normal balance task;
-                            try {
-                                tMaster.processRebalance(balanceId,
-                                        isStartBalance, subGroups);
-                            } catch (Throwable e) {
-                                logger.warn(new StringBuilder(1024)
-                                        .append("[Svr-Balance processor] Error during normal-reb,")
-                                        .append("the groups that may be affected are ")
-                                        .append(subGroups).append(",error is ")
-                                        .append(e).toString());
+                            for (String group : shardGroups) {
+                                if (tMaster.isStopped()) {
+                                    return;
+                                }
+                                long groupStart = System.currentTimeMillis();
+                                boolean isSuccess = tMaster.processGroupBalance(
+                                        balanceId, isStartBalance, group);
+                                roundStats.addGroupCost(group, groupStart,
+                                        System.currentTimeMillis(), isSuccess);
                             }
                         } catch (Throwable e) {
                             logger.warn("[Svr-Balance processor] Error during process", e);
                         } finally {
-                            curSvrBalanceParal.decrementAndGet();
+                            if (roundStats.finishShard(System.currentTimeMillis())) {
+                                logger.info(roundStats.toStrBuffer(
+                                        new StringBuilder(512).append("[Svr-Balance Stats] "))
+                                        .toString());
+                            }
                         }
                     }
                 });
@@ -1736,57 +1718,97 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         sBuffer.delete(0, sBuffer.length());
     }
 
+    /**
+     * Balance a group, the consumers of the group are not added or removed
+     * while the group is balanced
+     *
+     * @param balanceId     the balance id
+     * @param isFirstReb    whether the first balance after startup
+     * @param group         the group to balance
+     * @return whether the group was balanced without error
+     */
+    private boolean processGroupBalance(long balanceId, boolean isFirstReb, String group) {
+        Integer lid = null;
+        boolean isSuccess = true;
+        List<String> groups = Collections.singletonList(group);
+        try {
+            lid = consumerHolder.lockGroup(group);
+            // first process reset rebalance task;
+            try {
+                processResetbalance(balanceId, isFirstReb, groups);
+            } catch (Throwable e) {
+                isSuccess = false;
+                logger.warn(new StringBuilder(1024)
+                        .append("[Svr-Balance processor] Error during reset-reb,")
+                        .append("the group that may be affected is ")
+                        .append(group).append(",error is ").append(e).toString());
+            }
+            // second process normal balance task;
+            try {
+                processRebalance(balanceId, isFirstReb, groups);
+            } catch (Throwable e) {
+                isSuccess = false;
+                logger.warn(new StringBuilder(1024)
+                        .append("[Svr-Balance processor] Error during normal-reb,")
+                        .append("the group that may be affected is ")
+                        .append(group).append(",error is ").append(e).toString());
+            }
+        } catch (IOException e) {
+            isSuccess = false;
+            logger.warn(new StringBuilder(512)
+                    .append("[Svr-Balance processor] Failed to lock group ")
+                    .append(group).append(", balance it in the next round").toString(), e);
+        } finally {
+            consumerHolder.unlockGroup(lid);
+        }
+        return isSuccess;
+    }
+
     private void processClientBalanceMetaInfo(long balanceId, StringBuilder sBuffer) {
-        int curDoingTasks = this.curCltBalanceParal.get();
-        if (curDoingTasks > 0) {
+        BalanceRoundStats lastRoundStats = this.curCltBalanceStats;
+        if (lastRoundStats != null && lastRoundStats.getUnfinishedShardCnt() > 0) {
             logger.info(sBuffer.append("[Clt-Balance End] ").append(balanceId)
-                    .append(" the Client-Balance has ").append(curDoingTasks)
-                    .append(" task(s) in progress!").toString());
+                    .append(" the Client-Balance has ")
+                    .append(lastRoundStats.getUnfinishedShardCnt())
+                    .append(" shard(s) in progress!").toString());
             sBuffer.delete(0, sBuffer.length());
             return;
         }
         List<String> clientGroups = consumerHolder.getAllClientBalanceGroups();
         if (!clientGroups.isEmpty()) {
-            int balanceTaskCnt = clientGroups.size();
-            // calculate process count
-            int unitNum = (balanceTaskCnt + masterConfig.getRebalanceParallel() - 1)
-                    / masterConfig.getRebalanceParallel();
-            // start processor to do balance;
-            int startIndex = 0;
-            int endIndex = 0;
-            // set parallel balance signal
-            curCltBalanceParal.set(masterConfig.getRebalanceParallel());
-            for (int i = 0; i < masterConfig.getRebalanceParallel(); i++) {
-                // get groups need to rebalance
-                startIndex = Math.min((i) * unitNum, balanceTaskCnt);
-                endIndex = Math.min((i + 1) * unitNum, balanceTaskCnt);
-                final List<String> subGroups = clientGroups.subList(startIndex, endIndex);
-                if (subGroups.isEmpty()) {
-                    curCltBalanceParal.decrementAndGet();
-                    continue;
-                }
+            List<List<String>> shards = BalanceRoundStats.shardGroups(clientGroups,
+                    Math.min(clientGroups.size(),
+                            masterConfig.getRebalanceParallel() * BALANCE_SHARDS_PER_THREAD));
+            final BalanceRoundStats roundStats = new BalanceRoundStats(balanceId,
+                    clientGroups.size(), shards.size(), System.currentTimeMillis());
+            this.curCltBalanceStats = roundStats;
+            for (final List<String> shardGroups : shards) {
                 // execute balance
-                this.cltExecutor.execute(new Runnable() {
+                this.balanceExecutor.execute(new Runnable() {
                     @Override
                     public void run() {
                         try {
-                            if (subGroups.isEmpty()) {
-                                return;
-                            }
                             ConsumeGroupInfo consumeGroupInfo;
                             StringBuilder sBuffer2 = new StringBuilder(512);
-                            for (String groupName : subGroups) {
+                            for (String groupName : shardGroups) {
+                                long groupStart = System.currentTimeMillis();
                                 consumeGroupInfo =
                                         consumerHolder.getConsumeGroupInfo(groupName);
                                 if (consumeGroupInfo == null) {
                                     continue;
                                 }
                                 freshTopicMetaInfo(consumeGroupInfo, sBuffer2);
+                                roundStats.addGroupCost(groupName, groupStart,
+                                        System.currentTimeMillis(), true);
                             }
                         } catch (Throwable e) {
                             logger.warn("[Clt-Balance processor] Error during process", e);
                         } finally {
-                            curCltBalanceParal.decrementAndGet();
+                            if (roundStats.finishShard(System.currentTimeMillis())) {
+                                logger.info(roundStats.toStrBuffer(
+                                        new StringBuilder(512).append("[Clt-Balance Stats] "))
+                                        .toString());
+                            }
                         }
                     }
                 });
@@ -2459,8 +2481,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         try {
             webServer.stop();
             rpcServiceFactory.destroy();
-            svrExecutor.shutdown();
-            cltExecutor.shutdown();
+            balanceExecutor.shutdown();
             stopChores();
             heartbeatManager.stop();
             zkOffsetStorage.close();
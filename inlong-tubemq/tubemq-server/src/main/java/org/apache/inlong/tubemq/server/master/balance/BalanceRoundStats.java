@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The timing statistics of a balance round.
+ *
+ * The groups of a round are split into shards by the hash of the group name,
+ * the shards are processed in parallel and each group reports its cost here.
+ */
+public class BalanceRoundStats {
+    private final long balanceId;
+    private final int groupCnt;
+    private final int shardCnt;
+    private final long startTime;
+    private final AtomicInteger unfinishedShardCnt;
+    private final AtomicInteger failedGroupCnt = new AtomicInteger(0);
+    private final AtomicLong totalGroupCost = new AtomicLong(0);
+    private final AtomicLong maxGroupWait = new AtomicLong(0);
+    private long maxGroupCost = 0L;
+    private String maxCostGroup = null;
+    private volatile long endTime = 0L;
+
+    public BalanceRoundStats(long balanceId, int groupCnt,
+                             int shardCnt, long startTime) {
+        this.balanceId = balanceId;
+        this.groupCnt = groupCnt;
+        this.shardCnt = shardCnt;
+        this.startTime = startTime;
+        this.unfinishedShardCnt = new AtomicInteger(shardCnt);
+    }
+
+    /**
+     * Split the groups into shards by the hash of the group name,
+     * so a group is always processed in the same shard
+     *
+     * @param groups    the groups to split
+     * @param shardCnt  the count of shards
+     * @return the non-empty shards
+     */
+    public static List<List<String>> shardGroups(List<String> groups, int shardCnt) {
+        List<List<String>> shards = new ArrayList<>(shardCnt);
+        for (int i = 0; i < shardCnt; i++) {
+            shards.add(new ArrayList<String>());
+        }
+        for (String group : groups) {
+            if (group == null) {
+                continue;
+            }
+            shards.get((group.hashCode() & Integer.MAX_VALUE) % shardCnt).add(group);
+        }
+        List<List<String>> result = new ArrayList<>(shardCnt);
+        for (List<String> shard : shards) {
+            if (!shard.isEmpty()) {
+                result.add(shard);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Record the process of a group
+     *
+     * @param group        the group name
+     * @param groupStart   the time the group process started
+     * @param groupEnd     the time the group process ended
+     * @param isSuccess    whether the group was processed successfully
+     */
+    public void addGroupCost(String group, long groupStart,
+                             long groupEnd, boolean isSuccess) {
+        long groupCost = groupEnd - groupStart;
+        long groupWait = groupStart - startTime;
+        totalGroupCost.addAndGet(groupCost);
+        if (!isSuccess) {
+            failedGroupCnt.incrementAndGet();
+        }
+        long curMaxWait = maxGroupWait.get();
+        while (groupWait > curMaxWait) {
+            if (maxGroupWait.compareAndSet(curMaxWait, groupWait)) {
+                break;
+            }
+            curMaxWait = maxGroupWait.get();
+        }
+        synchronized (this) {
+            if (maxCostGroup == null || groupCost > maxGroupCost) {
+                maxGroupCost = groupCost;
+                maxCostGroup = group;
+            }
+        }
+    }
+
+    /**
+     * Finish a shard of the round
+     *
+     * @param curTime  the current time
+     * @return whether all the shards of the round are finished
+     */
+    public boolean finishShard(long curTime) {
+        if (unfinishedShardCnt.decrementAndGet() == 0) {
+            endTime = curTime;
+            return true;
+        }
+        return false;
+    }
+
+    public int getUnfinishedShardCnt() {
+        return unfinishedShardCnt.get();
+    }
+
+    public long getRoundCost() {
+        return (endTime == 0L) ? 0L : endTime - startTime;
+    }
+
+    public StringBuilder toStrBuffer(StringBuilder sBuffer) {
+        synchronized (this) {
+            sBuffer.append("balanceId=").append(balanceId)
+                    .append(", groupCnt=").append(groupCnt)
+                    .append(", shardCnt=").append(shardCnt)
+                    .append(", failedGroupCnt=").append(failedGroupCnt.get())
+                    .append(", roundCost=").append(getRoundCost())
+                    .append(", avgGroupCost=")
+                    .append((groupCnt == 0) ? 0L : totalGroupCost.get() / groupCnt)
+                    .append(", maxGroupWait=").append(maxGroupWait.get())
+                    .append(", maxGroupCost=").append(maxGroupCost)
+                    .append(", maxCostGroup=").append(maxCostGroup);
+        }
+        return sBuffer;
+    }
+}
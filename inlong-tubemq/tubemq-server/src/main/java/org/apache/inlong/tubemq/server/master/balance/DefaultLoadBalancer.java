@@ -79,6 +79,7 @@ public class DefaultLoadBalancer implements LoadBalancer {
         Map<String, RebProcessInfo> rejGroupClientInfoMap = new HashMap<>();
         Set<String> onlineOfflineGroupSet = new HashSet<>();
         Set<String> boundGroupSet = new HashSet<>();
+        Set<String> stickyGroupSet = new HashSet<>();
         for (String group : groupSet) {
             if (group == null) {
                 continue;
@@ -147,6 +148,13 @@ public class DefaultLoadBalancer implements LoadBalancer {
                     rejGroupClientInfoMap.put(group, rebProcessInfo);
                 }
             }
+            // sticky balance keeps the current relations and moves the fewest partitions
+            if (isStickyBalance(group, metaDataManager)) {
+                stickyGroupSet.add(group);
+                stickyBalance(group, newConsumerList, topicSet, rebProcessInfo,
+                        brokerRunManager, clusterState, finalSubInfoMap);
+                continue;
+            }
             List<ConsumerInfo> newConsumerList2 = new ArrayList<>();
             Map<String, Partition> partMap =
                     brokerRunManager.getSubBrokerAcceptSubParts(topicSet);
@@ -218,6 +226,11 @@ public class DefaultLoadBalancer implements LoadBalancer {
                 groupsNeedToBalance.remove(group);
             }
         }
+        if (!stickyGroupSet.isEmpty()) {
+            for (String group : stickyGroupSet) {
+                groupsNeedToBalance.remove(group);
+            }
+        }
         if (!groupsNeedToBalance.isEmpty()) {
             balance(finalSubInfoMap, consumerHolder, brokerRunManager,
                     groupsNeedToBalance, clusterState, rejGroupClientInfoMap);
@@ -351,6 +364,64 @@ public class DefaultLoadBalancer implements LoadBalancer {
         }
     }
 
+    private boolean isStickyBalance(String group, MetaDataManager metaDataManager) {
+        GroupResCtrlEntity groupResCtrlEntity =
+                metaDataManager.confGetGroupResCtrlConf(group);
+        return (groupResCtrlEntity != null
+                && groupResCtrlEntity.isStickyBalanceEnable());
+    }
+
+    /**
+     * Sticky balance the partitions of a group, weighted by the partition load
+     * reported by the brokers
+     *
+     * @param group             the group name
+     * @param consumerList      the consumers of the group
+     * @param topicSet          the subscribed topics of the group
+     * @param rebProcessInfo    the consumers to release their partitions
+     * @param brokerRunManager  the broker run manager
+     * @param clusterState      the current partitions of the consumers
+     * @param finalSubInfoMap   the assign result
+     */
+    private void stickyBalance(String group,
+                               List<ConsumerInfo> consumerList,
+                               Set<String> topicSet,
+                               RebProcessInfo rebProcessInfo,
+                               BrokerRunManager brokerRunManager,
+                               Map<String, Map<String, Map<String, Partition>>> clusterState,
+                               Map<String, Map<String, List<Partition>>> finalSubInfoMap) {
+        List<String> consumerIds = new ArrayList<>();
+        for (ConsumerInfo consumer : consumerList) {
+            String consumerId = consumer.getConsumerId();
+            Map<String, List<Partition>> partitions = new HashMap<>();
+            finalSubInfoMap.put(consumerId, partitions);
+            // the partitions not assigned again are released by topic
+            Map<String, Map<String, Partition>> relation = clusterState.get(consumerId);
+            if (relation != null) {
+                for (String topic : relation.keySet()) {
+                    partitions.put(topic, new ArrayList<Partition>());
+                }
+            }
+            // filter client which can not meet requirements
+            if (rebProcessInfo.needProcessList.contains(consumerId)
+                    || rebProcessInfo.needEscapeList.contains(consumerId)) {
+                continue;
+            }
+            consumerIds.add(consumerId);
+        }
+        Map<String, Partition> partMap =
+                brokerRunManager.getSubBrokerAcceptSubParts(topicSet);
+        Map<String, Long> weightMap = brokerRunManager.getBrokerPartLoadHolder()
+                .getPartLoadWeights(group, partMap.values());
+        Map<String, List<Partition>> assignMap =
+                StickyPartitionAssignor.assign(partMap, consumerIds, clusterState, weightMap);
+        for (Entry<String, List<Partition>> entry : assignMap.entrySet()) {
+            for (Partition partition : entry.getValue()) {
+                assign(partition, finalSubInfoMap, entry.getKey());
+            }
+        }
+    }
+
     private void assign(Partition partition,
                         Map<String, Map<String, List<Partition>>> clusterState,
                         String consumerId) {
@@ -0,0 +1,266 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+/**
+ * Incremental sticky assignment of the partitions of a consumer group.
+ *
+ * Each consumer keeps the partitions it holds up to its quota, the quotas are
+ * the balanced partition counts and the larger quotas go to the consumers
+ * holding the most partitions. Only the partitions over quota and the
+ * unassigned ones are moved, to the consumers under quota, so a consumer
+ * joining or leaving the group moves the minimum set of partitions.
+ *
+ * With the load weights of the partitions, the moved partitions go to the least
+ * loaded consumers, and the partitions of a consumer loaded over the average by
+ * more than the tolerance are swapped with the lighter ones of the least loaded
+ * consumer, at most one swap per consumer in a balance. A swap is only done when
+ * it brings the loaded consumer within the tolerance or at least halves the load
+ * gap of the two consumers, so the small load changes don't move partitions.
+ */
+final class StickyPartitionAssignor {
+
+    // the allowed percentage of the consumer load over the average load
+    static final int LOAD_TOLERANCE_PERCENT = 20;
+    // the min percentage of the load gap of two consumers a swap must remove
+    static final int MIN_SWAP_GAIN_PERCENT = 50;
+
+    private StickyPartitionAssignor() {
+
+    }
+
+    static Map<String, List<Partition>> assign(
+            Map<String, Partition> partMap, List<String> consumerIds,
+            Map<String, Map<String, Map<String, Partition>>> clusterState) {
+        return assign(partMap, consumerIds, clusterState,
+                Collections.<String, Long>emptyMap());
+    }
+
+    /**
+     * Assign the partitions to the consumers
+     *
+     * @param partMap        the partitions to assign, keyed by partition key
+     * @param consumerIds    the consumers to assign to
+     * @param clusterState   the current partitions of the consumers,
+     *                       consumer - topic - partition key - partition
+     * @param weightMap      the load weights of the partitions, keyed by
+     *                       partition key, the partitions absent weigh 0
+     * @return the partitions assigned to each consumer
+     */
+    static Map<String, List<Partition>> assign(
+            Map<String, Partition> partMap, List<String> consumerIds,
+            Map<String, Map<String, Map<String, Partition>>> clusterState,
+            final Map<String, Long> weightMap) {
+        Map<String, List<Partition>> assignMap = new HashMap<>();
+        if (consumerIds.isEmpty()) {
+            return assignMap;
+        }
+        List<String> consumers = new ArrayList<>(consumerIds);
+        Collections.sort(consumers);
+        // keep the current partitions which are still available
+        Map<String, Partition> unassignedMap = new HashMap<>(partMap);
+        for (String consumerId : consumers) {
+            List<Partition> heldParts = new ArrayList<>();
+            assignMap.put(consumerId, heldParts);
+            Map<String, Map<String, Partition>> relation = clusterState.get(consumerId);
+            if (relation == null) {
+                continue;
+            }
+            for (Map<String, Partition> topicPartMap : relation.values()) {
+                if (topicPartMap == null) {
+                    continue;
+                }
+                for (String partKey : topicPartMap.keySet()) {
+                    Partition curPart = unassignedMap.remove(partKey);
+                    if (curPart != null) {
+                        heldParts.add(curPart);
+                    }
+                }
+            }
+            Collections.sort(heldParts);
+        }
+        // the consumers holding the most partitions get the larger quotas
+        final Map<String, List<Partition>> heldMap = assignMap;
+        List<String> loadSortedConsumers = new ArrayList<>(consumers);
+        Collections.sort(loadSortedConsumers, new Comparator<String>() {
+            @Override
+            public int compare(String o1, String o2) {
+                return Integer.compare(heldMap.get(o2).size(), heldMap.get(o1).size());
+            }
+        });
+        int minQuota = partMap.size() / consumers.size();
+        int maxQuotaCnt = partMap.size() % consumers.size();
+        Map<String, Integer> quotaMap = new HashMap<>();
+        for (int i = 0; i < loadSortedConsumers.size(); i++) {
+            quotaMap.put(loadSortedConsumers.get(i),
+                    (i < maxQuotaCnt) ? minQuota + 1 : minQuota);
+        }
+        // release the partitions over quota
+        List<Partition> partsToMove = new ArrayList<>(unassignedMap.values());
+        for (String consumerId : consumers) {
+            List<Partition> heldParts = assignMap.get(consumerId);
+            int quota = quotaMap.get(consumerId);
+            while (heldParts.size() > quota) {
+                partsToMove.add(heldParts.remove(heldParts.size() - 1));
+            }
+        }
+        // fill the consumers under quota, the heavier partitions first
+        Collections.sort(partsToMove);
+        Collections.sort(partsToMove, new Comparator<Partition>() {
+            @Override
+            public int compare(Partition o1, Partition o2) {
+                return Long.compare(getWeight(weightMap, o2), getWeight(weightMap, o1));
+            }
+        });
+        Map<String, Long> loadMap = new HashMap<>();
+        for (String consumerId : consumers) {
+            loadMap.put(consumerId, getLoad(weightMap, assignMap.get(consumerId)));
+        }
+        for (Partition partition : partsToMove) {
+            String selConsumerId = null;
+            for (String consumerId : consumers) {
+                if (assignMap.get(consumerId).size() >= quotaMap.get(consumerId)) {
+                    continue;
+                }
+                if (selConsumerId == null
+                        || loadMap.get(consumerId) < loadMap.get(selConsumerId)) {
+                    selConsumerId = consumerId;
+                }
+            }
+            if (selConsumerId == null) {
+                break;
+            }
+            assignMap.get(selConsumerId).add(partition);
+            loadMap.put(selConsumerId,
+                    loadMap.get(selConsumerId) + getWeight(weightMap, partition));
+        }
+        if (!weightMap.isEmpty()) {
+            spreadLoad(consumers, assignMap, loadMap, weightMap);
+        }
+        return assignMap;
+    }
+
+    /**
+     * Swap the partitions of the most loaded consumer with the lighter ones of
+     * the least loaded consumer, while the most loaded one exceeds the tolerance,
+     * each consumer takes part in one swap at most
+     */
+    private static void spreadLoad(List<String> consumers,
+                                   Map<String, List<Partition>> assignMap,
+                                   Map<String, Long> loadMap,
+                                   Map<String, Long> weightMap) {
+        long totalLoad = 0L;
+        for (Long load : loadMap.values()) {
+            totalLoad += load;
+        }
+        long maxAllowedLoad =
+                totalLoad / consumers.size() * (100 + LOAD_TOLERANCE_PERCENT) / 100;
+        Set<String> swappedConsumers = new HashSet<>();
+        while (consumers.size() - swappedConsumers.size() >= 2) {
+            String maxConsumerId = null;
+            String minConsumerId = null;
+            for (String consumerId : consumers) {
+                if (swappedConsumers.contains(consumerId)) {
+                    continue;
+                }
+                if (maxConsumerId == null
+                        || loadMap.get(consumerId) > loadMap.get(maxConsumerId)) {
+                    maxConsumerId = consumerId;
+                }
+                if (minConsumerId == null
+                        || loadMap.get(consumerId) < loadMap.get(minConsumerId)) {
+                    minConsumerId = consumerId;
+                }
+            }
+            long loadDiff = loadMap.get(maxConsumerId) - loadMap.get(minConsumerId);
+            if (loadMap.get(maxConsumerId) <= maxAllowedLoad || loadDiff <= 0) {
+                return;
+            }
+            List<Partition> maxParts = assignMap.get(maxConsumerId);
+            List<Partition> minParts = assignMap.get(minConsumerId);
+            // a partition can be moved alone if the quotas are kept
+            boolean canMove = maxParts.size() > minParts.size();
+            Partition bestOutPart = null;
+            Partition bestInPart = null;
+            long bestDlt = 0L;
+            long bestGap = Long.MAX_VALUE;
+            for (Partition outPart : maxParts) {
+                long outWeight = getWeight(weightMap, outPart);
+                if (canMove && outWeight < loadDiff
+                        && Math.abs(loadDiff - 2 * outWeight) < bestGap) {
+                    bestOutPart = outPart;
+                    bestInPart = null;
+                    bestDlt = outWeight;
+                    bestGap = Math.abs(loadDiff - 2 * outWeight);
+                }
+                for (Partition inPart : minParts) {
+                    long dlt = outWeight - getWeight(weightMap, inPart);
+                    if (dlt > 0 && dlt < loadDiff
+                            && Math.abs(loadDiff - 2 * dlt) < bestGap) {
+                        bestOutPart = outPart;
+                        bestInPart = inPart;
+                        bestDlt = dlt;
+                        bestGap = Math.abs(loadDiff - 2 * dlt);
+                    }
+                }
+            }
+            if (bestOutPart == null || bestDlt <= 0) {
+                return;
+            }
+            // skip the swap which neither fixes the overload nor removes enough gap
+            if (Math.max(loadMap.get(maxConsumerId) - bestDlt,
+                    loadMap.get(minConsumerId) + bestDlt) > maxAllowedLoad
+                    && (loadDiff - bestGap) * 100 < loadDiff * MIN_SWAP_GAIN_PERCENT) {
+                return;
+            }
+            maxParts.remove(bestOutPart);
+            minParts.add(bestOutPart);
+            if (bestInPart != null) {
+                minParts.remove(bestInPart);
+                maxParts.add(bestInPart);
+            }
+            loadMap.put(maxConsumerId, loadMap.get(maxConsumerId) - bestDlt);
+            loadMap.put(minConsumerId, loadMap.get(minConsumerId) + bestDlt);
+            swappedConsumers.add(maxConsumerId);
+            swappedConsumers.add(minConsumerId);
+        }
+    }
+
+    private static long getLoad(Map<String, Long> weightMap, List<Partition> partitions) {
+        long load = 0L;
+        for (Partition partition : partitions) {
+            load += getWeight(weightMap, partition);
+        }
+        return load;
+    }
+
+    private static long getWeight(Map<String, Long> weightMap, Partition partition) {
+        Long weight = weightMap.get(partition.getPartitionKey());
+        return (weight == null) ? 0L : weight;
+    }
+}
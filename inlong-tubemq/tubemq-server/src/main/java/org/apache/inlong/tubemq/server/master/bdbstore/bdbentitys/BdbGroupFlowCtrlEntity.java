@@ -247,6 +247,23 @@ public class BdbGroupFlowCtrlEntity implements Serializable {
                         String.valueOf(allowedBrokerClientRate));
     }
 
+    public EnableStatus getStickyBalanceStatus() {
+        String atrVal =
+                TStringUtils.getAttrValFrmAttributes(this.attributes,
+                        TStoreConstants.TOKEN_STICKY_BALANCE_STATUS);
+        if (atrVal != null) {
+            return EnableStatus.valueOf(Integer.parseInt(atrVal));
+        }
+        return EnableStatus.STATUS_UNDEFINE;
+    }
+
+    public void setStickyBalanceStatus(EnableStatus stickyBalanceStatus) {
+        this.attributes =
+                TStringUtils.setAttrValToAttributes(this.attributes,
+                        TStoreConstants.TOKEN_STICKY_BALANCE_STATUS,
+                        String.valueOf(stickyBalanceStatus.getCode()));
+    }
+
     public void setCreateInfo(String createUser, Date createDate) {
         if (TStringUtils.isNotBlank(createUser)) {
             this.attributes =
@@ -40,6 +40,7 @@ import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.server.Server;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.apache.inlong.tubemq.server.common.fileconfig.MasterReplicationConfig;
+import org.apache.inlong.tubemq.server.common.statusdef.EnableStatus;
 import org.apache.inlong.tubemq.server.common.statusdef.ManageStatus;
 import org.apache.inlong.tubemq.server.common.statusdef.TopicStatus;
 import org.apache.inlong.tubemq.server.common.statusdef.TopicStsChgType;
@@ -1606,10 +1607,24 @@ public class MetaDataManager implements Server {
                                                        Boolean flowCtrlEnable, int flowRuleCnt,
                                                        String flowCtrlInfo, StringBuilder sBuffer,
                                                        ProcessResult result) {
+        return addOrUpdGroupResCtrlConf(isAddOp, opEntity, groupName, resCheckEnable,
+                allowedBClientRate, qryPriorityId, flowCtrlEnable, flowRuleCnt,
+                flowCtrlInfo, null, sBuffer, result);
+    }
+
+    public GroupProcessResult addOrUpdGroupResCtrlConf(boolean isAddOp, BaseEntity opEntity,
+                                                       String groupName, Boolean resCheckEnable,
+                                                       int allowedBClientRate, int qryPriorityId,
+                                                       Boolean flowCtrlEnable, int flowRuleCnt,
+                                                       String flowCtrlInfo,
+                                                       Boolean stickyBalanceEnable,
+                                                       StringBuilder sBuffer,
+                                                       ProcessResult result) {
         GroupResCtrlEntity entity =
                 new GroupResCtrlEntity(opEntity, groupName);
         entity.updModifyInfo(opEntity.getDataVerId(), resCheckEnable, allowedBClientRate,
                 qryPriorityId, flowCtrlEnable, flowRuleCnt, flowCtrlInfo);
+        entity.updStickyBalanceInfo(stickyBalanceEnable);
         return addOrUpdGroupResCtrlConf(isAddOp, entity, sBuffer, result);
     }
 
@@ -1641,9 +1656,15 @@ public class MetaDataManager implements Server {
             } else {
                 GroupResCtrlEntity newEntity = curEntity.clone();
                 newEntity.updBaseModifyInfo(entity);
-                if (newEntity.updModifyInfo(entity.getDataVerId(), entity.isEnableResCheck(),
-                        entity.getAllowedBrokerClientRate(), entity.getQryPriorityId(),
-                        entity.isFlowCtrlEnable(), entity.getRuleCnt(), entity.getFlowCtrlInfo())) {
+                boolean changed = newEntity.updModifyInfo(entity.getDataVerId(),
+                        entity.isEnableResCheck(), entity.getAllowedBrokerClientRate(),
+                        entity.getQryPriorityId(), entity.isFlowCtrlEnable(),
+                        entity.getRuleCnt(), entity.getFlowCtrlInfo());
+                if (entity.getStickyBalanceStatus() != EnableStatus.STATUS_UNDEFINE
+                        && newEntity.updStickyBalanceInfo(entity.isStickyBalanceEnable())) {
+                    changed = true;
+                }
+                if (changed) {
                     metaStoreService.updGroupResCtrlConf(newEntity, sBuffer, result);
                 } else {
                     result.setFailResult(DataOpErrCode.DERR_UNCHANGED.getCode(),
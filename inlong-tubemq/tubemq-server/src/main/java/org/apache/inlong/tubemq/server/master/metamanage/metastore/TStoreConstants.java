@@ -36,6 +36,7 @@ public final class TStoreConstants {
     public static final String TOKEN_FILTER_COND_STR = "filterCondStr";
     public static final String TOKEN_RES_CHECK_STATUS = "resChkStatusId";
     public static final String TOKEN_BROKER_CLIENT_RATE = "resBrokerClientRate";
+    public static final String TOKEN_STICKY_BALANCE_STATUS = "stickyBalStatusId";
     public static final String TOKEN_TOPICNAME_ID = "topicId";
     public static final String TOKEN_STORE_NUM = "storeNum";
     public static final String TOKEN_QRY_PRIORITY_ID = "qryPriorityId";
@@ -40,6 +40,8 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
     private EnableStatus flowCtrlStatus = EnableStatus.STATUS_UNDEFINE;
     private int ruleCnt = 0;           // flow control rule count
     private String flowCtrlInfo = "";  // flow control info
+    // sticky balance control
+    private EnableStatus stickyBalanceStatus = EnableStatus.STATUS_UNDEFINE;
 
     // only for query
     public GroupResCtrlEntity() {
@@ -71,6 +73,7 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
         }
         this.resCheckStatus = bdbEntity.getResCheckStatus();
         this.allowedBrokerClientRate = bdbEntity.getAllowedBrokerClientRate();
+        this.stickyBalanceStatus = bdbEntity.getStickyBalanceStatus();
         setAttributes(bdbEntity.getAttributes());
     }
 
@@ -89,6 +92,7 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
         bdbEntity.setCreateInfo(getCreateUser(), getCreateDate());
         bdbEntity.setResCheckStatus(resCheckStatus);
         bdbEntity.setAllowedBrokerClientRate(allowedBrokerClientRate);
+        bdbEntity.setStickyBalanceStatus(stickyBalanceStatus);
         return bdbEntity;
     }
 
@@ -104,6 +108,7 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
         this.flowCtrlStatus = EnableStatus.STATUS_DISABLE;
         this.ruleCnt = 0;
         this.flowCtrlInfo = TServerConstants.BLANK_FLOWCTRL_RULES;
+        this.stickyBalanceStatus = EnableStatus.STATUS_DISABLE;
         return this;
     }
 
@@ -148,6 +153,18 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
         this.allowedBrokerClientRate = allowedBrokerClientRate;
     }
 
+    public boolean isStickyBalanceEnable() {
+        return stickyBalanceStatus == EnableStatus.STATUS_ENABLE;
+    }
+
+    public EnableStatus getStickyBalanceStatus() {
+        return stickyBalanceStatus;
+    }
+
+    public void setStickyBalanceStatus(EnableStatus stickyBalanceStatus) {
+        this.stickyBalanceStatus = stickyBalanceStatus;
+    }
+
     public EnableStatus getResCheckStatus() {
         return resCheckStatus;
     }
@@ -180,6 +197,14 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
         }
     }
 
+    private void setStickyBalanceStatus(boolean enableStickyBalance) {
+        if (enableStickyBalance) {
+            this.stickyBalanceStatus = EnableStatus.STATUS_ENABLE;
+        } else {
+            this.stickyBalanceStatus = EnableStatus.STATUS_DISABLE;
+        }
+    }
+
     private void setFlowCtrlRule(int ruleCnt, String flowCtrlInfo) {
         this.ruleCnt = ruleCnt;
         this.flowCtrlInfo = flowCtrlInfo;
@@ -247,11 +272,29 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
         return changed;
     }
 
+    /**
+     * update the sticky balance status
+     *
+     * @param stickyBalanceEnable   new sticky balance status, null if unchanged
+     *
+     * @return  whether changed
+     */
+    public boolean updStickyBalanceInfo(Boolean stickyBalanceEnable) {
+        if (stickyBalanceEnable == null
+                || (this.stickyBalanceStatus != EnableStatus.STATUS_UNDEFINE
+                && this.stickyBalanceStatus.isEnable() == stickyBalanceEnable)) {
+            return false;
+        }
+        setStickyBalanceStatus(stickyBalanceEnable);
+        updSerialId();
+        return true;
+    }
+
     /**
      * Check whether the specified query item value matches
      * Allowed query items:
      *   groupName, qryPriorityId, resCheckStatus,
-     *   flowCtrlStatus, allowedBrokerClientRate
+     *   flowCtrlStatus, allowedBrokerClientRate, stickyBalanceStatus
      * @return true: matched, false: not match
      */
     public boolean isMatched(GroupResCtrlEntity target) {
@@ -269,6 +312,8 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
                 || target.getResCheckStatus() == this.resCheckStatus)
                 && (target.getFlowCtrlStatus() == EnableStatus.STATUS_UNDEFINE
                 || target.getFlowCtrlStatus() == this.flowCtrlStatus)
+                && (target.getStickyBalanceStatus() == EnableStatus.STATUS_UNDEFINE
+                || target.getStickyBalanceStatus() == this.stickyBalanceStatus)
                 && (target.getAllowedBrokerClientRate() == TBaseConstants.META_VALUE_UNDEFINED
                 || target.getAllowedBrokerClientRate() == this.allowedBrokerClientRate);
     }
@@ -291,7 +336,8 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
                     .append(",\"qryPriorityId\":").append(qryPriorityId)
                     .append(",\"flowCtrlEnable\":").append(flowCtrlStatus.isEnable())
                     .append(",\"flowCtrlRuleCount\":").append(ruleCnt)
-                    .append(",\"flowCtrlInfo\":").append(flowCtrlInfo);
+                    .append(",\"flowCtrlInfo\":").append(flowCtrlInfo)
+                    .append(",\"stickyBalanceEnable\":").append(stickyBalanceStatus.isEnable());
         } else {
             sBuffer.append("{\"group\":\"").append(groupName).append("\"")
                     .append(",\"resChkEn\":").append(resCheckStatus.isEnable())
@@ -299,7 +345,8 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
                     .append(",\"qryPriId\":").append(qryPriorityId)
                     .append(",\"fCtrlEn\":").append(flowCtrlStatus.isEnable())
                     .append(",\"fCtrlCnt\":").append(ruleCnt)
-                    .append(",\"fCtrlInfo\":").append(flowCtrlInfo);
+                    .append(",\"fCtrlInfo\":").append(flowCtrlInfo)
+                    .append(",\"stkBalEn\":").append(stickyBalanceStatus.isEnable());
         }
         super.toWebJsonStr(sBuffer, isLongName);
         if (fullFormat) {
@@ -349,6 +396,7 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
                 && groupName.equals(other.groupName)
                 && resCheckStatus == other.resCheckStatus
                 && flowCtrlStatus == other.flowCtrlStatus
+                && stickyBalanceStatus == other.stickyBalanceStatus
                 && Objects.equals(flowCtrlInfo, other.flowCtrlInfo);
     }
 
@@ -371,7 +419,8 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
     public int hashCode() {
         return Objects.hash(super.hashCode(), groupName,
                 resCheckStatus, allowedBrokerClientRate,
-                qryPriorityId, flowCtrlStatus, ruleCnt, flowCtrlInfo);
+                qryPriorityId, flowCtrlStatus, ruleCnt, flowCtrlInfo,
+                stickyBalanceStatus);
     }
 
     @Override
@@ -379,6 +428,7 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
         GroupResCtrlEntity copy = (GroupResCtrlEntity) super.clone();
         copy.setFlowCtrlStatus(getFlowCtrlStatus());
         copy.setResCheckStatus(getResCheckStatus());
+        copy.setStickyBalanceStatus(getStickyBalanceStatus());
         return copy;
     }
 
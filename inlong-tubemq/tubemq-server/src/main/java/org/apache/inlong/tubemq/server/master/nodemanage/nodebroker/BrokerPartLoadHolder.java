@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.nodemanage.nodebroker;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientMaster;
+
+/*
+ * The partition load reported by the brokers in the heartbeat
+ */
+public class BrokerPartLoadHolder {
+    // the lag of a group is weighted as the rate to consume it in this period
+    public static final long LAG_DRAIN_PERIOD_SEC = 300L;
+
+    private final ConcurrentHashMap<Integer/* brokerId */,
+            Map<String/* partitionKey */, PartLoadInfo>> brokerPartLoadMap =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Replace the partition load of a broker with the reported one
+     *
+     * @param brokerId       the broker id
+     * @param partLoadInfos  the reported partition load
+     */
+    public void updBrokerPartLoadInfo(int brokerId,
+                                      List<ClientMaster.PartitionLoadInfo> partLoadInfos) {
+        Map<String, PartLoadInfo> partLoadMap = new HashMap<>();
+        for (ClientMaster.PartitionLoadInfo loadInfo : partLoadInfos) {
+            Map<String, Long> groupLagMap = new HashMap<>();
+            for (ClientMaster.GroupLagInfo lagInfo : loadInfo.getGroupLagInfoList()) {
+                groupLagMap.put(lagInfo.getGroupName(), lagInfo.getLagDataSize());
+            }
+            partLoadMap.put(getPartitionKey(brokerId,
+                    loadInfo.getTopicName(), loadInfo.getPartitionId()),
+                    new PartLoadInfo(loadInfo.getInDataRate(), groupLagMap));
+        }
+        brokerPartLoadMap.put(brokerId, partLoadMap);
+    }
+
+    public void rmvBrokerPartLoadInfo(int brokerId) {
+        brokerPartLoadMap.remove(brokerId);
+    }
+
+    /**
+     * Get the load weight of the partitions for a group, the weight is the
+     * ingest rate of the partition plus the rate to consume the group lag
+     *
+     * @param groupName   the group name
+     * @param partitions  the partitions to query
+     * @return the weight of the partitions with load, keyed by partition key
+     */
+    public Map<String, Long> getPartLoadWeights(String groupName,
+                                                Collection<Partition> partitions) {
+        Map<String, Long> weightMap = new HashMap<>();
+        for (Partition partition : partitions) {
+            Map<String, PartLoadInfo> partLoadMap =
+                    brokerPartLoadMap.get(partition.getBrokerId());
+            if (partLoadMap == null) {
+                continue;
+            }
+            PartLoadInfo loadInfo = partLoadMap.get(partition.getPartitionKey());
+            if (loadInfo == null) {
+                continue;
+            }
+            long weight = loadInfo.inDataRate;
+            Long lagDataSize = loadInfo.groupLagMap.get(groupName);
+            if (lagDataSize != null) {
+                weight += lagDataSize / LAG_DRAIN_PERIOD_SEC;
+            }
+            if (weight > 0) {
+                weightMap.put(partition.getPartitionKey(), weight);
+            }
+        }
+        return weightMap;
+    }
+
+    private String getPartitionKey(int brokerId, String topicName, int partitionId) {
+        return new StringBuilder(256).append(brokerId)
+                .append(TokenConstants.ATTR_SEP).append(topicName)
+                .append(TokenConstants.ATTR_SEP).append(partitionId).toString();
+    }
+
+    private static class PartLoadInfo {
+        private final long inDataRate;
+        private final Map<String, Long> groupLagMap;
+
+        PartLoadInfo(long inDataRate, Map<String, Long> groupLagMap) {
+            this.inDataRate = inDataRate;
+            this.groupLagMap = groupLagMap;
+        }
+    }
+}
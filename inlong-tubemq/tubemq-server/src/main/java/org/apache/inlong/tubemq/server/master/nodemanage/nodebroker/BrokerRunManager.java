@@ -89,6 +89,8 @@ public interface BrokerRunManager {
 
     BrokerAbnHolder getBrokerAbnHolder();
 
+    BrokerPartLoadHolder getBrokerPartLoadHolder();
+
     Map<String, String> getPubBrokerAcceptPubPartInfo(Set<String> topicSet);
 
     int getSubTopicMaxBrokerCount(Set<String> topicSet);
@@ -75,6 +75,8 @@ public class DefBrokerRunManager implements BrokerRunManager, AliveObserver {
     private final BrokerAbnHolder brokerAbnHolder;
     // broker topic configure for consumer and producer
     private final BrokerPSInfoHolder brokerPubSubInfo = new BrokerPSInfoHolder();
+    // broker reported partition load
+    private final BrokerPartLoadHolder brokerPartLoadHolder = new BrokerPartLoadHolder();
 
     /**
      * Constructor by TMaster
@@ -179,6 +181,11 @@ public class DefBrokerRunManager implements BrokerRunManager, AliveObserver {
         return this.brokerAbnHolder;
     }
 
+    @Override
+    public BrokerPartLoadHolder getBrokerPartLoadHolder() {
+        return this.brokerPartLoadHolder;
+    }
+
     @Override
     public boolean brokerRegister2M(String clientId, BrokerInfo brokerInfo,
                                     long reportConfigId, int reportCheckSumId,
@@ -474,6 +481,7 @@ public class DefBrokerRunManager implements BrokerRunManager, AliveObserver {
         brokerTotalCount.decrementAndGet();
         brokerAbnHolder.removeBroker(brokerId);
         brokerPubSubInfo.rmvBrokerAllPushedInfo(brokerId);
+        brokerPartLoadHolder.rmvBrokerPartLoadInfo(brokerId);
         logger.info(sBuffer.append("[Broker Release] brokerId=").append(brokerId)
                 .append(", isTimeout=").append(isTimeout)
                 .append(", release success!").toString());
@@ -327,6 +327,23 @@ public class ConsumerInfoHolder {
         return consumerInfo;
     }
 
+    /**
+     * Lock the group, the consumers of the group are not added or
+     * removed until the lock is released
+     *
+     * @param group group name
+     * @return the lock id
+     * @throws IOException if timed out on getting the lock
+     */
+    public Integer lockGroup(String group) throws IOException {
+        return groupRowLock.getLock(null,
+                StringUtils.getBytesUtf8(group), true);
+    }
+
+    public void unlockGroup(Integer lockId) {
+        groupRowLock.releaseRowLock(lockId);
+    }
+
     /**
      * Add consumer and return group object,
      * if the consumer is the first one, then create the group object
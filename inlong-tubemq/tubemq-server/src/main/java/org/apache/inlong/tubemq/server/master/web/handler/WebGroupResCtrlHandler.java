@@ -104,9 +104,17 @@ public class WebGroupResCtrlHandler extends AbstractWebHandler {
             return sBuffer;
         }
         Boolean flowCtrlEnable = (Boolean) result.getRetData();
+        // get stickyBalanceEnable info
+        if (!WebParameterUtils.getBooleanParamValue(req,
+                WebFieldDef.STICKYBALANCEENABLE, false, null, sBuffer, result)) {
+            WebParameterUtils.buildFailResult(sBuffer, result.getErrMsg());
+            return sBuffer;
+        }
+        Boolean stickyBalanceEnable = (Boolean) result.getRetData();
         qryEntity.updModifyInfo(qryEntity.getDataVerId(),
                 resCheckEnable, TBaseConstants.META_VALUE_UNDEFINED, inQryPriorityId,
                 flowCtrlEnable, TBaseConstants.META_VALUE_UNDEFINED, null);
+        qryEntity.updStickyBalanceInfo(stickyBalanceEnable);
         Map<String, GroupResCtrlEntity> groupResCtrlEntityMap =
                 metaDataManager.confGetGroupResCtrlConf(inGroupSet, qryEntity);
         // build return result
@@ -272,12 +280,19 @@ public class WebGroupResCtrlHandler extends AbstractWebHandler {
             return sBuffer;
         }
         String flowCtrlInfo = (String) result.getRetData();
+        // get stickyBalanceEnable info
+        if (!WebParameterUtils.getBooleanParamValue(req, WebFieldDef.STICKYBALANCEENABLE,
+                false, (isAddOp ? false : null), sBuffer, result)) {
+            WebParameterUtils.buildFailResult(sBuffer, result.getErrMsg());
+            return sBuffer;
+        }
+        Boolean stickyBalanceEnable = (Boolean) result.getRetData();
         // add group resource record
         List<GroupProcessResult> retInfo = new ArrayList<>();
         for (String groupName : batchGroupNames) {
             retInfo.add(metaDataManager.addOrUpdGroupResCtrlConf(isAddOp, opEntity, groupName,
-                    resCheckEnable, allowedBClientRate, qryPriorityId,
-                    flowCtrlEnable, flowRuleCnt, flowCtrlInfo, sBuffer, result));
+                    resCheckEnable, allowedBClientRate, qryPriorityId, flowCtrlEnable,
+                    flowRuleCnt, flowCtrlInfo, stickyBalanceEnable, sBuffer, result));
         }
         return buildRetInfo(retInfo, sBuffer);
     }
@@ -374,11 +389,19 @@ public class WebGroupResCtrlHandler extends AbstractWebHandler {
                 return result.isSuccess();
             }
             String flowCtrlInfo = (String) result.getRetData();
+            // get stickyBalanceEnable info
+            if (!WebParameterUtils.getBooleanParamValue(itemValueMap,
+                    WebFieldDef.STICKYBALANCEENABLE, false,
+                    (isAddOp ? false : null), sBuffer, result)) {
+                return result.isSuccess();
+            }
+            Boolean stickyBalanceEnable = (Boolean) result.getRetData();
             itemEntity =
                     new GroupResCtrlEntity(itemOpEntity, groupName);
             itemEntity.updModifyInfo(itemEntity.getDataVerId(),
                     resCheckEnable, allowedBClientRate, qryPriorityId,
                     flowCtrlEnable, flowRuleCnt, flowCtrlInfo);
+            itemEntity.updStickyBalanceInfo(stickyBalanceEnable);
             addRecordMap.put(itemEntity.getGroupName(), itemEntity);
         }
         // check result
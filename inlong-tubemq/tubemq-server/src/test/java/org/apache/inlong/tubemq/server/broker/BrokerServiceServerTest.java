@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker;
+
+import static org.mockito.Mockito.mock;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.inlong.tubemq.server.broker.metadata.BrokerDefMetadata;
+import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStoreManager;
+import org.apache.inlong.tubemq.server.broker.msgstore.MsgWaiterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+/***
+ * BrokerServiceServer long-poll test.
+ */
+public class BrokerServiceServerTest {
+
+    @Test
+    public void longPollParkCondition() {
+        // long-poll disabled by the request or the broker
+        Assert.assertEquals(0, BrokerServiceServer.calcLongPollWaitMs(0, 5000, 10, 10, 30000));
+        Assert.assertEquals(0, BrokerServiceServer.calcLongPollWaitMs(3000, 0, 10, 10, 30000));
+        // the consumer has not read to the end of the store
+        Assert.assertEquals(0, BrokerServiceServer.calcLongPollWaitMs(3000, 5000, 9, 10, 30000));
+        // the consumer has read to the end of the store
+        Assert.assertEquals(3000, BrokerServiceServer.calcLongPollWaitMs(3000, 5000, 10, 10, 30000));
+    }
+
+    @Test
+    public void longPollWaitTimeCapped() {
+        // capped by the broker max wait time
+        Assert.assertEquals(5000, BrokerServiceServer.calcLongPollWaitMs(8000, 5000, 10, 10, 30000));
+        // capped by the remaining time of the request minus the reserved time
+        Assert.assertEquals(2000 - BrokerServiceServer.LONG_POLL_REPLY_RESERVE_MS,
+                BrokerServiceServer.calcLongPollWaitMs(3000, 5000, 10, 10, 2000));
+        // too little time left to park the request
+        Assert.assertTrue(BrokerServiceServer.calcLongPollWaitMs(3000, 5000, 10, 10,
+                BrokerServiceServer.LONG_POLL_REPLY_RESERVE_MS) <= 0);
+    }
+
+    @Test
+    public void wakeupParkedOnStoreClose() throws Exception {
+        File storeDir = Files.createTempDirectory("tubemq-store").toFile();
+        BrokerDefMetadata brokerDefMetadata =
+                new BrokerDefMetadata("1:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000");
+        TopicMetadata topicMetadata = new TopicMetadata(brokerDefMetadata,
+                "topic1:2:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        MessageStore messageStore = new MessageStore(mock(MessageStoreManager.class),
+                topicMetadata, 0, storeDir.getAbsolutePath(), new BrokerConfig(), 1024 * 1024);
+        CountWaiter waiter1 = new CountWaiter(0);
+        CountWaiter waiter2 = new CountWaiter(1);
+        MsgWaiterRegistry waiterRegistry = messageStore.getMsgWaiterRegistry();
+        waiterRegistry.register(waiter1);
+        waiterRegistry.register(waiter2);
+        Assert.assertEquals(2, waiterRegistry.getWaiterCount());
+        // parked requests reply at once when the store is closed
+        messageStore.close();
+        Assert.assertEquals(1, waiter1.wakeupCnt.get());
+        Assert.assertEquals(1, waiter2.wakeupCnt.get());
+        Assert.assertEquals(0, waiterRegistry.getWaiterCount());
+        // a woken waiter is not fired by the timeout again
+        Assert.assertFalse(waiter1.fire());
+    }
+
+    private static class CountWaiter extends MsgWaiterRegistry.MsgWaiter {
+        private final AtomicInteger wakeupCnt = new AtomicInteger(0);
+
+        CountWaiter(int partitionId) {
+            super(partitionId, null);
+        }
+
+        @Override
+        protected void onWakeup() {
+            wakeupCnt.incrementAndGet();
+        }
+    }
+}
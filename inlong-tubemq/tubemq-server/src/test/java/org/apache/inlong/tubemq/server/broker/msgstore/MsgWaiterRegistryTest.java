@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/***
+ * MsgWaiterRegistry test.
+ */
+public class MsgWaiterRegistryTest {
+
+    @Test
+    public void notifyByPartitionAndKeyCode() {
+        MsgWaiterRegistry registry = new MsgWaiterRegistry();
+        Set<Integer> filterKeys = new HashSet<>();
+        filterKeys.add(5);
+        CountWaiter anyWaiter = new CountWaiter(1, null);
+        CountWaiter filterWaiter = new CountWaiter(1, filterKeys);
+        CountWaiter otherPartWaiter = new CountWaiter(2, null);
+        registry.register(anyWaiter);
+        registry.register(filterWaiter);
+        registry.register(otherPartWaiter);
+        Assert.assertEquals(3, registry.getWaiterCount());
+        // wake up waiters of partition 1 without filter condition
+        registry.notifyArrival(1, 3);
+        Assert.assertEquals(1, anyWaiter.wakeupCnt.get());
+        Assert.assertEquals(0, filterWaiter.wakeupCnt.get());
+        Assert.assertEquals(2, registry.getWaiterCount());
+        // wake up the filter waiter by matched keyCode
+        registry.notifyArrival(1, 5);
+        Assert.assertEquals(1, anyWaiter.wakeupCnt.get());
+        Assert.assertEquals(1, filterWaiter.wakeupCnt.get());
+        Assert.assertEquals(0, otherPartWaiter.wakeupCnt.get());
+        // timeout waiter is removed and fired only once
+        Assert.assertTrue(registry.unregister(otherPartWaiter));
+        Assert.assertTrue(otherPartWaiter.fire());
+        registry.notifyArrival(2, 3);
+        otherPartWaiter.wakeup();
+        Assert.assertEquals(0, otherPartWaiter.wakeupCnt.get());
+        Assert.assertEquals(0, registry.getWaiterCount());
+    }
+
+    @Test
+    public void wakeupAll() {
+        MsgWaiterRegistry registry = new MsgWaiterRegistry();
+        CountWaiter waiter1 = new CountWaiter(1, null);
+        CountWaiter waiter2 = new CountWaiter(2, null);
+        registry.register(waiter1);
+        registry.register(waiter2);
+        registry.wakeupAll();
+        Assert.assertEquals(1, waiter1.wakeupCnt.get());
+        Assert.assertEquals(1, waiter2.wakeupCnt.get());
+        Assert.assertEquals(0, registry.getWaiterCount());
+    }
+
+    private static class CountWaiter extends MsgWaiterRegistry.MsgWaiter {
+        private final AtomicInteger wakeupCnt = new AtomicInteger(0);
+
+        CountWaiter(int partitionId, Set<Integer> filterKeySet) {
+            super(partitionId, filterKeySet);
+        }
+
+        @Override
+        protected void onWakeup() {
+            wakeupCnt.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/***
+ * StoreFlushScheduler test.
+ */
+public class StoreFlushSchedulerTest {
+
+    @Test
+    public void submitByPriority() throws Exception {
+        final String dataDir = "/data/tubemq";
+        final StoreFlushScheduler flushScheduler = new StoreFlushScheduler(1);
+        final CountDownLatch blockLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(4);
+        final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+        try {
+            // occupy the only flush thread
+            flushScheduler.submit(dataDir, false, 0, 0, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blockLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            flushScheduler.submit(dataDir, false, 100, 2000,
+                    new RecordTask("disk-small", executed, doneLatch));
+            flushScheduler.submit(dataDir, false, 100, 1000,
+                    new RecordTask("disk-small-older", executed, doneLatch));
+            flushScheduler.submit(dataDir, false, 1000, 3000,
+                    new RecordTask("disk-large", executed, doneLatch));
+            flushScheduler.submit(dataDir, true, 10, 3000,
+                    new RecordTask("mem", executed, doneLatch));
+            Assert.assertEquals(4, flushScheduler.getQueueDepth(dataDir));
+            blockLatch.countDown();
+            Assert.assertTrue(doneLatch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals("mem", executed.get(0));
+            Assert.assertEquals("disk-large", executed.get(1));
+            Assert.assertEquals("disk-small-older", executed.get(2));
+            Assert.assertEquals("disk-small", executed.get(3));
+            Assert.assertEquals(0, flushScheduler.getQueueDepth(dataDir));
+            Assert.assertTrue(flushScheduler.getFlushStatisInfo(true).contains("\"memFlushCnt\":1"));
+        } finally {
+            blockLatch.countDown();
+            flushScheduler.close();
+        }
+    }
+
+    @Test
+    public void offloadNotBlockFlush() throws Exception {
+        final String dataDir = "/data/tubemq";
+        final StoreFlushScheduler flushScheduler = new StoreFlushScheduler(1);
+        final CountDownLatch blockLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(2);
+        final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+        try {
+            // a long offload holds the offload thread of the directory
+            Assert.assertTrue(flushScheduler.submitOffload(dataDir, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blockLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    executed.add("offload");
+                    doneLatch.countDown();
+                }
+            }));
+            flushScheduler.submit(dataDir, true, 10, 1000,
+                    new RecordTask("mem", executed, doneLatch));
+            // the flush runs while the offload is still in progress
+            for (int i = 0; i < 500 && executed.isEmpty(); i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals("mem", executed.get(0));
+            Assert.assertTrue(flushScheduler.getFlushStatisInfo(false)
+                    .contains("\"offloadQueueDepth\":0"));
+            blockLatch.countDown();
+            Assert.assertTrue(doneLatch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals("offload", executed.get(1));
+        } finally {
+            blockLatch.countDown();
+            flushScheduler.close();
+        }
+        Assert.assertFalse(flushScheduler.submitOffload(dataDir, new Runnable() {
+            @Override
+            public void run() {
+            }
+        }));
+    }
+
+    private static class RecordTask implements Runnable {
+        private final String name;
+        private final List<String> executed;
+        private final CountDownLatch doneLatch;
+
+        RecordTask(String name, List<String> executed, CountDownLatch doneLatch) {
+            this.name = name;
+            this.executed = executed;
+            this.doneLatch = doneLatch;
+        }
+
+        @Override
+        public void run() {
+            executed.add(name);
+            doneLatch.countDown();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/***
+ * StorePathManager test.
+ */
+public class StorePathManagerTest {
+
+    @Test
+    public void selectAndRecordStorePath() throws Exception {
+        File baseDir = Files.createTempDirectory("tubemq-store").toFile();
+        File dataDir1 = new File(baseDir, "data1");
+        File dataDir2 = new File(baseDir, "data2");
+        Assert.assertTrue(dataDir1.mkdirs());
+        Assert.assertTrue(dataDir2.mkdirs());
+        List<String> dataPaths = new ArrayList<>();
+        dataPaths.add(dataDir1.getPath());
+        dataPaths.add(dataDir2.getPath());
+        StoreFlushScheduler flushScheduler = new StoreFlushScheduler(1);
+        try {
+            StorePathManager pathManager = new StorePathManager(dataPaths, flushScheduler);
+            // both directories are on the same disk, stores are spread by store count
+            String path1 = pathManager.selectStorePath("test-0");
+            String path2 = pathManager.selectStorePath("test-1");
+            Assert.assertNotEquals(path1, path2);
+            Assert.assertEquals(path1, pathManager.selectStorePath("test-0"));
+            Assert.assertTrue(new File(dataDir1, StorePathManager.PLACEMENT_FILE_NAME).exists());
+            // placement is kept after restart
+            StorePathManager newPathManager = new StorePathManager(dataPaths, flushScheduler);
+            Assert.assertEquals(path1, newPathManager.getStorePath("test-0"));
+            Assert.assertEquals(path2, newPathManager.getStorePath("test-1"));
+            newPathManager.removeStorePath("test-0");
+            Assert.assertNull(new StorePathManager(dataPaths, flushScheduler).getStorePath("test-0"));
+        } finally {
+            flushScheduler.close();
+            new File(dataDir1, StorePathManager.PLACEMENT_FILE_NAME).delete();
+            dataDir1.delete();
+            dataDir2.delete();
+            baseDir.delete();
+        }
+    }
+}
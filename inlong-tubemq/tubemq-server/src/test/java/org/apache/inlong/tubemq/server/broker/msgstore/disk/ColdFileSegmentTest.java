@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/***
+ * ColdFileSegment test.
+ */
+public class ColdFileSegmentTest {
+
+    @Test
+    public void offloadAndRead() throws Exception {
+        final long start = 1024L;
+        File file = File.createTempFile("testdata", null);
+        File coldFile = new File(file.getPath() + ".cold");
+        FileSegment fileSegment = null;
+        ColdFileSegment coldSegment = null;
+        try {
+            // create a FileSegment crossing several cold blocks and seal it.
+            fileSegment = new FileSegment(start, file, true, SegmentType.DATA);
+            byte[] data = new byte[ColdFileSegment.BLOCK_SIZE * 2 + 100];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) (i % 97);
+            }
+            fileSegment.append(ByteBuffer.wrap(data));
+            fileSegment.flush(true);
+            fileSegment.setMutable(false);
+            // offload to cold file.
+            coldSegment = ColdFileSegment.offload(fileSegment, SegmentType.DATA, coldFile);
+            Assert.assertTrue(coldFile.length() < data.length);
+            Assert.assertEquals(start, coldSegment.getStart());
+            Assert.assertEquals(start + data.length, coldSegment.getCommitLast());
+            Assert.assertEquals(file.lastModified(), coldFile.lastModified());
+            Assert.assertFalse(coldSegment.isMutable());
+            // read across block boundary.
+            ByteBuffer readBuffer = ByteBuffer.allocate(200);
+            long readOffset = start + ColdFileSegment.BLOCK_SIZE - 100;
+            coldSegment.read(readBuffer, readOffset);
+            Assert.assertFalse(readBuffer.hasRemaining());
+            for (int i = 0; i < readBuffer.capacity(); i++) {
+                Assert.assertEquals(data[(int) (readOffset - start) + i], readBuffer.get(i));
+            }
+            Assert.assertEquals(ColdFileSegment.BLOCK_SIZE * 2, ColdSegmentCache.getCurCacheSize());
+            // reopen the cold file and read the tail.
+            coldSegment.close();
+            ColdSegmentCache.invalidate(coldSegment);
+            Assert.assertEquals(0, ColdSegmentCache.getCurCacheSize());
+            coldSegment = new ColdFileSegment(start, coldFile, SegmentType.DATA);
+            readBuffer = ByteBuffer.allocate(200);
+            coldSegment.read(readBuffer, start + data.length - 50);
+            Assert.assertEquals(50, readBuffer.position());
+            Assert.assertEquals(data[data.length - 1], readBuffer.get(49));
+        } finally {
+            if (fileSegment != null) {
+                fileSegment.close();
+            }
+            if (coldSegment != null) {
+                coldSegment.deleteFile();
+            }
+            file.delete();
+        }
+    }
+
+    @Test
+    public void replaceSegment() throws Exception {
+        File file = File.createTempFile("testdata", null);
+        File coldFile = new File(file.getPath() + ".cold");
+        FileSegment fileSegment = new FileSegment(0, file, true, SegmentType.INDEX);
+        ColdFileSegment coldSegment = null;
+        try {
+            fileSegment.append(ByteBuffer.wrap("abcdef".getBytes()));
+            fileSegment.flush(true);
+            fileSegment.setMutable(false);
+            FileSegmentList segmentList =
+                    new FileSegmentList(new Segment[]{fileSegment});
+            coldSegment = ColdFileSegment.offload(fileSegment, SegmentType.INDEX, coldFile);
+            Assert.assertTrue(segmentList.replace(fileSegment, coldSegment));
+            Assert.assertFalse(segmentList.replace(fileSegment, coldSegment));
+            Assert.assertSame(coldSegment, segmentList.findSegment(2));
+            ByteBuffer readBuffer = ByteBuffer.allocate(3);
+            segmentList.findSegment(2).read(readBuffer, 2);
+            Assert.assertEquals("cde", new String(readBuffer.array()));
+        } finally {
+            fileSegment.close();
+            if (coldSegment != null) {
+                coldSegment.deleteFile();
+            }
+            file.delete();
+        }
+    }
+}
@@ -81,4 +81,39 @@ public class FileSegmentTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @org.junit.Test
+    public void mmapRead() {
+        long start = 0;
+        File file = null;
+        SegmentMmapHolder.setMmapReadConfig(true, 1024 * 1024);
+        try {
+            file = File.createTempFile("testdata", null);
+            // create FileSegment and seal it.
+            fileSegment = new FileSegment(start, file, true, SegmentType.DATA);
+            String data = "abcdef";
+            fileSegment.append(ByteBuffer.wrap(data.getBytes()));
+            fileSegment.flush(true);
+            fileSegment.setMutable(false);
+            // read through mapped buffer.
+            fileSegment.addViewRef();
+            ByteBuffer readBuffer = ByteBuffer.allocate(3);
+            fileSegment.read(readBuffer, 2);
+            org.junit.Assert.assertEquals("cde", new String(readBuffer.array()));
+            org.junit.Assert.assertEquals(data.length(), SegmentMmapHolder.getCurMappedSize());
+            // keep mapping until the last reference released.
+            fileSegment.close();
+            org.junit.Assert.assertEquals(data.length(), SegmentMmapHolder.getCurMappedSize());
+            fileSegment.relViewRef();
+            org.junit.Assert.assertEquals(0, SegmentMmapHolder.getCurMappedSize());
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            SegmentMmapHolder.setMmapReadConfig(false, 0);
+            fileSegment.close();
+            if (file != null) {
+                file.deleteOnExit();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/***
+ * SegmentKeyIndex test.
+ */
+public class SegmentKeyIndexTest {
+
+    @Test
+    public void getNextMatchedOffset() throws Exception {
+        final int itemCnt = SegmentKeyIndex.BLOCK_INDEX_CNT * 3;
+        ByteBuffer indexBuffer =
+                ByteBuffer.allocate(itemCnt * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        for (int i = 0; i < itemCnt; i++) {
+            // keyCode 2 only in the last block
+            int keyCode = (i == SegmentKeyIndex.BLOCK_INDEX_CNT * 2 + 5) ? 2 : 1;
+            indexBuffer.putInt(0);
+            indexBuffer.putLong(0L);
+            indexBuffer.putInt(0);
+            indexBuffer.putInt(keyCode);
+            indexBuffer.putLong(0L);
+        }
+        indexBuffer.flip();
+        SegmentKeyIndex keyIndex = new SegmentKeyIndex();
+        keyIndex.addIndexItems(indexBuffer, 0L);
+        Assert.assertEquals(indexBuffer.limit(), keyIndex.getSegmentSize());
+        Assert.assertEquals(2, keyIndex.getKeyCount());
+        Set<Integer> filterKeys = new HashSet<>();
+        filterKeys.add(2);
+        Assert.assertEquals(2L * SegmentKeyIndex.BLOCK_SIZE,
+                keyIndex.getNextMatchedOffset(filterKeys, 0L));
+        Assert.assertEquals(2L * SegmentKeyIndex.BLOCK_SIZE + 28,
+                keyIndex.getNextMatchedOffset(filterKeys, 2L * SegmentKeyIndex.BLOCK_SIZE + 28));
+        Assert.assertEquals(-1L,
+                keyIndex.getNextMatchedOffset(Collections.singleton(3), 0L));
+        // store and reload
+        File file = File.createTempFile("testkeys", DataStoreUtils.KEY_INDEX_FILE_SUFFIX);
+        try {
+            keyIndex.store(file);
+            Assert.assertNull(SegmentKeyIndex.load(file, 28L));
+            SegmentKeyIndex loaded = SegmentKeyIndex.load(file, keyIndex.getSegmentSize());
+            Assert.assertNotNull(loaded);
+            Assert.assertEquals(2, loaded.getKeyCount());
+            Assert.assertEquals(2L * SegmentKeyIndex.BLOCK_SIZE,
+                    loaded.getNextMatchedOffset(filterKeys, 0L));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -18,8 +18,13 @@
 package org.apache.inlong.tubemq.server.broker.msgstore.mem;
 
 import java.nio.ByteBuffer;
-
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.junit.Assert;
 import org.junit.Test;
 
 /***
@@ -55,4 +60,99 @@ public class MsgMemStoreTest {
         // get messages
         GetCacheMsgResult getCacheMsgResult = msgMemStore.getMessages(0, 2, 1024, 1000, 0, false, false, null);
     }
+
+    @Test
+    public void getMessagesByPartitionAndKey() {
+        int maxCacheSize = 2 * 1024 * 1024;
+        int maxMsgCount = 10000;
+        MsgMemStore msgMemStore = new MsgMemStore(maxCacheSize, maxMsgCount, null);
+        msgMemStore.resetStartPos(0L, 0L);
+        MsgMemStatisInfo msgMemStatisInfo = new MsgMemStatisInfo();
+        AppendResult appendResult = new AppendResult();
+        // append messages to partitions 0~3 in turn, keyCode is the message sequence mod 2
+        for (int i = 0; i < 40; i++) {
+            ByteBuffer bf = ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + 4);
+            msgMemStore.appendMsg(msgMemStatisInfo, i % 4, i % 2,
+                    System.currentTimeMillis(), bf.capacity(), bf, appendResult);
+        }
+        // read partition 1 from the beginning
+        GetCacheMsgResult result =
+                msgMemStore.getMessages(0, 0, 1024 * 1024, 1000, 1, false, false, null);
+        Assert.assertTrue(result.isSuccess);
+        Assert.assertEquals(10, result.cacheMsgList.size());
+        Assert.assertEquals(40 * DataStoreUtils.STORE_INDEX_HEAD_LEN, result.dltOffset);
+        // read partition 1 right after its first message, limited by read count
+        result = msgMemStore.getMessages(0, 2 * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                1024 * 1024, 3, 1, false, false, null);
+        Assert.assertEquals(3, result.cacheMsgList.size());
+        Assert.assertEquals(15 * DataStoreUtils.STORE_INDEX_HEAD_LEN, result.dltOffset);
+        // filter read partition 2 with keyCode 0
+        Set<Integer> filterKeySet = new HashSet<>();
+        filterKeySet.add(0);
+        result = msgMemStore.getMessages(0, 0, 1024 * 1024, 1000, 2, false, true, filterKeySet);
+        Assert.assertEquals(10, result.cacheMsgList.size());
+        // filter read partition 3 with keyCode 0, no message matched
+        result = msgMemStore.getMessages(0, 0, 1024 * 1024, 1000, 3, false, true, filterKeySet);
+        Assert.assertEquals(0, result.cacheMsgList.size());
+        msgMemStore.close();
+    }
+
+    @Test
+    public void batchAppendMsg() {
+        int maxCacheSize = 2 * 1024 * 1024;
+        int maxMsgCount = 3;
+        MsgMemStore msgMemStore = new MsgMemStore(maxCacheSize, maxMsgCount, null);
+        msgMemStore.resetStartPos(0L, 0L);
+        MsgMemStatisInfo msgMemStatisInfo = new MsgMemStatisInfo();
+        List<MsgAppendEntry> appendEntries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ByteBuffer bf = ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + 4);
+            appendEntries.add(new MsgAppendEntry(i % 2, i,
+                    System.currentTimeMillis(), bf.capacity(), bf, new AppendResult()));
+        }
+        // append stops when the cache is full
+        Assert.assertEquals(3, msgMemStore.batchAppendMsg(msgMemStatisInfo, appendEntries));
+        Assert.assertEquals(3, msgMemStore.getCurMsgCount());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(i < 3, appendEntries.get(i).appended);
+        }
+        Assert.assertEquals(3 * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                msgMemStore.getIndexLastWritePos());
+    }
+
+    @Test
+    public void appendMsgUnit() {
+        int maxCacheSize = 2 * 1024 * 1024;
+        int maxMsgCount = 5;
+        MsgMemStore msgMemStore = new MsgMemStore(maxCacheSize, maxMsgCount, null);
+        msgMemStore.resetStartPos(0L, 0L);
+        MsgMemStatisInfo msgMemStatisInfo = new MsgMemStatisInfo();
+        List<MsgAppendEntry> appendEntries = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ByteBuffer bf = ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + 4);
+            appendEntries.add(new MsgAppendEntry(0, i,
+                    System.currentTimeMillis(), bf.capacity(), bf, new AppendResult()));
+        }
+        Assert.assertTrue(msgMemStore.isUnitFitCache(3, 3L * appendEntries.get(0).entryLength));
+        Assert.assertTrue(msgMemStore.appendMsgUnit(msgMemStatisInfo, appendEntries));
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(appendEntries.get(i).appended);
+            Assert.assertEquals(i * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    appendEntries.get(i).appendResult.getAppendIndexOffset());
+        }
+        // the second unit doesn't fit the remaining room, none of it is appended
+        List<MsgAppendEntry> secondEntries = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ByteBuffer bf = ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + 4);
+            secondEntries.add(new MsgAppendEntry(0, i,
+                    System.currentTimeMillis(), bf.capacity(), bf, new AppendResult()));
+        }
+        Assert.assertFalse(msgMemStore.appendMsgUnit(msgMemStatisInfo, secondEntries));
+        Assert.assertEquals(3, msgMemStore.getCurMsgCount());
+        for (MsgAppendEntry entry : secondEntries) {
+            Assert.assertFalse(entry.appended);
+        }
+        Assert.assertFalse(msgMemStore.isUnitFitCache(6, 0L));
+        msgMemStore.close();
+    }
 }
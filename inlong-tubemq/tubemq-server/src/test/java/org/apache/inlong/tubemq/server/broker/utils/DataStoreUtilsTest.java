@@ -18,6 +18,9 @@
 package org.apache.inlong.tubemq.server.broker.utils;
 
 import java.nio.ByteBuffer;
+import java.util.HashMap;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.server.broker.stats.CountItem;
 import org.junit.Test;
 import org.springframework.util.Assert;
 
@@ -36,4 +39,61 @@ public class DataStoreUtilsTest {
         // get int by DataStoreUtils
         Assert.isTrue(val == 123);
     }
+
+    @Test
+    public void getTransferMsgByOffset() {
+        byte[] payLoad1 = "abc".getBytes();
+        byte[] payLoad2 = "defgh".getBytes();
+        int msgSize1 = DataStoreUtils.STORE_DATA_HEADER_LEN + payLoad1.length;
+        int msgSize2 = DataStoreUtils.STORE_DATA_HEADER_LEN + payLoad2.length;
+        ByteBuffer bf = ByteBuffer.allocate(msgSize1 + msgSize2);
+        putStoreMsg(bf, 1L, payLoad1);
+        putStoreMsg(bf, 2L, payLoad2);
+        bf.flip();
+        HashMap<String, CountItem> countMap = new HashMap<>();
+        StringBuilder sBuilder = new StringBuilder(512);
+        // convert the second message in the shared buffer
+        ClientBroker.TransferedMessage message =
+                DataStoreUtils.getTransferMsg(bf, msgSize1, msgSize2, countMap, "test", sBuilder);
+        Assert.notNull(message);
+        Assert.isTrue(message.getMessageId() == 2L);
+        Assert.isTrue("defgh".equals(message.getPayLoadData().toStringUtf8()));
+        // out of buffer range
+        Assert.isNull(DataStoreUtils.getTransferMsg(bf,
+                msgSize1 + 1, msgSize2, countMap, "test", sBuilder));
+    }
+
+    @Test
+    public void getTransferMsgFromDirectSlice() {
+        byte[] payLoad = "abc".getBytes();
+        int msgSize = DataStoreUtils.STORE_DATA_HEADER_LEN + payLoad.length;
+        ByteBuffer cache = ByteBuffer.allocateDirect(msgSize * 2);
+        cache.position(msgSize);
+        putStoreMsg(cache, 3L, payLoad);
+        // slice the second message from direct cache.
+        ByteBuffer readView = cache.asReadOnlyBuffer();
+        readView.limit(msgSize * 2);
+        readView.position(msgSize);
+        ByteBuffer slice = readView.slice();
+        ClientBroker.TransferedMessage message =
+                DataStoreUtils.getTransferMsg(slice, 0, slice.remaining(),
+                        new HashMap<String, CountItem>(), "test", new StringBuilder(512));
+        Assert.notNull(message);
+        Assert.isTrue(message.getMessageId() == 3L);
+        Assert.isTrue("abc".equals(message.getPayLoadData().toStringUtf8()));
+    }
+
+    private void putStoreMsg(ByteBuffer bf, long msgId, byte[] payLoad) {
+        bf.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + payLoad.length);
+        bf.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        bf.putInt(0);
+        bf.putInt(0);
+        bf.putLong(-1L);
+        bf.putLong(System.currentTimeMillis());
+        bf.putInt(0);
+        bf.putInt(0);
+        bf.putLong(msgId);
+        bf.putInt(0);
+        bf.put(payLoad);
+    }
 }
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common.heartbeat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimeoutWheelTest {
+
+    private final ConcurrentHashMap<String, TimeoutInfo> nodeMap =
+            new ConcurrentHashMap<>();
+    private final List<String> expiredNodes = new ArrayList<>();
+    private final TimeoutListener listener = new TimeoutListener() {
+        @Override
+        public void onTimeout(String nodeId, TimeoutInfo nodeInfo) {
+            expiredNodes.add(nodeId);
+        }
+    };
+
+    @Test
+    public void testExpire() {
+        TimeoutWheel timeoutWheel = new TimeoutWheel("Test Node", nodeMap, 100L, 16);
+        long startTime = System.currentTimeMillis();
+        register(timeoutWheel, "node1", 500L);
+        register(timeoutWheel, "node2", 5000L);
+        Assert.assertEquals(0, timeoutWheel.expire(startTime + 200L, listener));
+        Assert.assertEquals(1, timeoutWheel.expire(startTime + 1000L, listener));
+        Assert.assertEquals("node1", expiredNodes.get(0));
+        Assert.assertNull(nodeMap.get("node1"));
+        // node2 is checked each round of the wheel until it times out
+        Assert.assertEquals(0, timeoutWheel.expire(startTime + 4000L, listener));
+        Assert.assertEquals(1, timeoutWheel.expire(startTime + 6000L, listener));
+        Assert.assertEquals("node2", expiredNodes.get(1));
+        Assert.assertTrue(nodeMap.isEmpty());
+    }
+
+    @Test
+    public void testHeartbeat() {
+        TimeoutWheel timeoutWheel = new TimeoutWheel("Test Node", nodeMap, 100L, 16);
+        long startTime = System.currentTimeMillis();
+        TimeoutInfo timeoutInfo = register(timeoutWheel, "node1", 500L);
+        // the heartbeat only updates the timeout time, the node is moved when checked
+        timeoutInfo.updTimeoutTime(1500L);
+        Assert.assertEquals(0, timeoutWheel.expire(startTime + 1000L, listener));
+        Assert.assertSame(timeoutInfo, nodeMap.get("node1"));
+        Assert.assertEquals(1, timeoutWheel.expire(startTime + 2000L, listener));
+        Assert.assertEquals(1, expiredNodes.size());
+    }
+
+    @Test
+    public void testUnregister() {
+        TimeoutWheel timeoutWheel = new TimeoutWheel("Test Node", nodeMap, 100L, 16);
+        long startTime = System.currentTimeMillis();
+        register(timeoutWheel, "node1", 500L);
+        register(timeoutWheel, "node2", 500L);
+        nodeMap.remove("node1");
+        // registered again, the old entry is dropped
+        TimeoutInfo timeoutInfo = register(timeoutWheel, "node2", 1500L);
+        Assert.assertEquals(0, timeoutWheel.expire(startTime + 1000L, listener));
+        Assert.assertSame(timeoutInfo, nodeMap.get("node2"));
+        Assert.assertEquals(1, timeoutWheel.expire(startTime + 2000L, listener));
+        Assert.assertEquals(1, expiredNodes.size());
+        Assert.assertEquals("node2", expiredNodes.get(0));
+    }
+
+    private TimeoutInfo register(TimeoutWheel timeoutWheel, String nodeKey, long timeoutDlt) {
+        TimeoutInfo timeoutInfo = new TimeoutInfo(timeoutDlt);
+        nodeMap.put(nodeKey, timeoutInfo);
+        timeoutWheel.add(nodeKey, timeoutInfo);
+        return timeoutInfo;
+    }
+}
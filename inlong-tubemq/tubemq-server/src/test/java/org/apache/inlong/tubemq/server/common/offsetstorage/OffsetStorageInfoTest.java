@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common.offsetstorage;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OffsetStorageInfoTest {
+
+    @Test
+    public void testStoredOffset() {
+        long offset = DataStoreUtils.STORE_INDEX_HEAD_LEN * 10L;
+        // the offset loaded from storage is stored
+        OffsetStorageInfo loadedInfo =
+                new OffsetStorageInfo("test", 1, 0, offset, 5L, false);
+        Assert.assertFalse(loadedInfo.isModified());
+        Assert.assertTrue(loadedInfo.isStored(offset, 5L));
+        // the offset set to the same value is not stored again
+        loadedInfo.getAndSetOffset(offset);
+        Assert.assertTrue(loadedInfo.isModified());
+        Assert.assertTrue(loadedInfo.isStored(loadedInfo.getOffset(),
+                loadedInfo.getMessageId()));
+        // the offset changed is stored
+        long newOffset = loadedInfo.addAndGetOffset(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        Assert.assertFalse(loadedInfo.isStored(newOffset, loadedInfo.getMessageId()));
+        loadedInfo.setStored(newOffset, loadedInfo.getMessageId());
+        Assert.assertTrue(loadedInfo.isStored(newOffset, loadedInfo.getMessageId()));
+        // the offset created is not stored yet
+        OffsetStorageInfo createdInfo = new OffsetStorageInfo("test", 1, 1, 0L, 0L);
+        Assert.assertTrue(createdInfo.isModified());
+        Assert.assertFalse(createdInfo.isStored(createdInfo.getOffset(),
+                createdInfo.getMessageId()));
+    }
+}
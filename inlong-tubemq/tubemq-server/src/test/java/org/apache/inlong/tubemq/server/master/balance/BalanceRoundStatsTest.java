@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BalanceRoundStatsTest {
+
+    @Test
+    public void testShardGroups() {
+        List<String> groups = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            groups.add("group-" + i);
+        }
+        List<List<String>> shards = BalanceRoundStats.shardGroups(groups, 8);
+        Assert.assertTrue(shards.size() <= 8);
+        Set<String> shardedGroups = new HashSet<>();
+        for (List<String> shard : shards) {
+            Assert.assertFalse(shard.isEmpty());
+            shardedGroups.addAll(shard);
+        }
+        Assert.assertEquals(new HashSet<>(groups), shardedGroups);
+        // a group is sharded to the same shard in each round
+        Assert.assertEquals(shards, BalanceRoundStats.shardGroups(groups, 8));
+    }
+
+    @Test
+    public void testRoundStats() {
+        BalanceRoundStats roundStats = new BalanceRoundStats(1L, 3, 2, 1000L);
+        roundStats.addGroupCost("group-1", 1000L, 1010L, true);
+        roundStats.addGroupCost("group-2", 1000L, 1050L, false);
+        Assert.assertFalse(roundStats.finishShard(1050L));
+        Assert.assertEquals(1, roundStats.getUnfinishedShardCnt());
+        Assert.assertEquals(0L, roundStats.getRoundCost());
+        roundStats.addGroupCost("group-3", 1010L, 1040L, true);
+        Assert.assertTrue(roundStats.finishShard(1060L));
+        Assert.assertEquals(0, roundStats.getUnfinishedShardCnt());
+        Assert.assertEquals(60L, roundStats.getRoundCost());
+        String statsInfo = roundStats.toStrBuffer(new StringBuilder(512)).toString();
+        Assert.assertTrue(statsInfo.contains("failedGroupCnt=1"));
+        Assert.assertTrue(statsInfo.contains("avgGroupCost=30"));
+        Assert.assertTrue(statsInfo.contains("maxGroupWait=10"));
+        Assert.assertTrue(statsInfo.contains("maxCostGroup=group-2"));
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StickyPartitionAssignorTest {
+
+    @Test
+    public void testInitialAssign() {
+        Map<String, Partition> partMap = buildPartitions(10);
+        Map<String, List<Partition>> assignMap = StickyPartitionAssignor.assign(partMap,
+                Arrays.asList("c1", "c2", "c3"),
+                new HashMap<String, Map<String, Map<String, Partition>>>());
+        checkBalanced(partMap, assignMap);
+    }
+
+    @Test
+    public void testConsumerJoin() {
+        Map<String, Partition> partMap = buildPartitions(12);
+        Map<String, Map<String, Map<String, Partition>>> clusterState =
+                toClusterState(StickyPartitionAssignor.assign(partMap,
+                        Arrays.asList("c1", "c2", "c3"),
+                        new HashMap<String, Map<String, Map<String, Partition>>>()));
+        Map<String, List<Partition>> assignMap = StickyPartitionAssignor.assign(partMap,
+                Arrays.asList("c1", "c2", "c3", "c4"), clusterState);
+        checkBalanced(partMap, assignMap);
+        // only the partitions taken by the new consumer are moved
+        Assert.assertEquals(3, countMoved(clusterState, assignMap));
+        Assert.assertEquals(3, assignMap.get("c4").size());
+    }
+
+    @Test
+    public void testConsumerLeave() {
+        Map<String, Partition> partMap = buildPartitions(10);
+        Map<String, Map<String, Map<String, Partition>>> clusterState =
+                toClusterState(StickyPartitionAssignor.assign(partMap,
+                        Arrays.asList("c1", "c2", "c3", "c4"),
+                        new HashMap<String, Map<String, Map<String, Partition>>>()));
+        int leftCnt = clusterState.get("c2").get("test").size();
+        clusterState.remove("c2");
+        Map<String, List<Partition>> assignMap = StickyPartitionAssignor.assign(partMap,
+                Arrays.asList("c1", "c3", "c4"), clusterState);
+        checkBalanced(partMap, assignMap);
+        // only the partitions of the consumer left are moved
+        Assert.assertEquals(leftCnt, countMoved(clusterState, assignMap));
+    }
+
+    @Test
+    public void testPartitionChange() {
+        Map<String, Partition> partMap = buildPartitions(6);
+        Map<String, Map<String, Map<String, Partition>>> clusterState =
+                toClusterState(StickyPartitionAssignor.assign(partMap,
+                        Arrays.asList("c1", "c2"),
+                        new HashMap<String, Map<String, Map<String, Partition>>>()));
+        // a partition removed and two partitions added
+        Map<String, Partition> newPartMap = buildPartitions(8);
+        newPartMap.remove(partMap.values().iterator().next().getPartitionKey());
+        Map<String, List<Partition>> assignMap = StickyPartitionAssignor.assign(newPartMap,
+                Arrays.asList("c1", "c2"), clusterState);
+        checkBalanced(newPartMap, assignMap);
+        // only the partitions added are assigned
+        Assert.assertEquals(2, countMoved(clusterState, assignMap));
+    }
+
+    @Test
+    public void testSpreadHotPartitions() {
+        Map<String, Partition> partMap = buildPartitions(6);
+        List<Partition> partitions = new ArrayList<>(partMap.values());
+        Collections.sort(partitions);
+        Map<String, Long> weightMap = new HashMap<>();
+        Map<String, List<Partition>> curAssignMap = new HashMap<>();
+        curAssignMap.put("c1", new ArrayList<Partition>());
+        curAssignMap.put("c2", new ArrayList<Partition>());
+        curAssignMap.put("c3", new ArrayList<Partition>());
+        // c1 holds two hot partitions, c2 holds one
+        for (int i = 0; i < partitions.size(); i++) {
+            weightMap.put(partitions.get(i).getPartitionKey(), (i < 3) ? 100L : 1L);
+            curAssignMap.get("c" + (i / 2 + 1)).add(partitions.get(i));
+        }
+        Map<String, Map<String, Map<String, Partition>>> clusterState =
+                toClusterState(curAssignMap);
+        Map<String, List<Partition>> assignMap = StickyPartitionAssignor.assign(partMap,
+                Arrays.asList("c1", "c2", "c3"), clusterState, weightMap);
+        checkBalanced(partMap, assignMap);
+        // a hot partition of c1 is swapped with a cold one of c3
+        Assert.assertEquals(2, countMoved(clusterState, assignMap));
+        for (List<Partition> assignedParts : assignMap.values()) {
+            long load = 0L;
+            for (Partition partition : assignedParts) {
+                load += weightMap.get(partition.getPartitionKey());
+            }
+            Assert.assertEquals(101L, load);
+        }
+    }
+
+    @Test
+    public void testSpreadAtMostOneSwapPerConsumer() {
+        Map<String, Partition> partMap = buildPartitions(9);
+        List<Partition> partitions = new ArrayList<>(partMap.values());
+        Collections.sort(partitions);
+        Map<String, Long> weightMap = new HashMap<>();
+        Map<String, List<Partition>> curAssignMap = new HashMap<>();
+        curAssignMap.put("c1", new ArrayList<Partition>());
+        curAssignMap.put("c2", new ArrayList<Partition>());
+        curAssignMap.put("c3", new ArrayList<Partition>());
+        // c1 holds all the three hot partitions
+        for (int i = 0; i < partitions.size(); i++) {
+            weightMap.put(partitions.get(i).getPartitionKey(), (i < 3) ? 100L : 1L);
+            curAssignMap.get("c" + (i / 3 + 1)).add(partitions.get(i));
+        }
+        Map<String, Map<String, Map<String, Partition>>> clusterState =
+                toClusterState(curAssignMap);
+        Map<String, List<Partition>> assignMap = StickyPartitionAssignor.assign(partMap,
+                Arrays.asList("c1", "c2", "c3"), clusterState, weightMap);
+        checkBalanced(partMap, assignMap);
+        // c1 swaps one hot partition only, the rest is left to the next balance
+        Assert.assertEquals(2, countMoved(clusterState, assignMap));
+        Assert.assertEquals(201L, getLoad(weightMap, assignMap.get("c1")));
+    }
+
+    @Test
+    public void testSpreadSkipSmallGain() {
+        Map<String, Partition> partMap = buildPartitions(4);
+        List<Partition> partitions = new ArrayList<>(partMap.values());
+        Collections.sort(partitions);
+        long[] weights = {100L, 100L, 95L, 1L};
+        Map<String, Long> weightMap = new HashMap<>();
+        Map<String, List<Partition>> curAssignMap = new HashMap<>();
+        curAssignMap.put("c1", new ArrayList<Partition>());
+        curAssignMap.put("c2", new ArrayList<Partition>());
+        for (int i = 0; i < partitions.size(); i++) {
+            weightMap.put(partitions.get(i).getPartitionKey(), weights[i]);
+            curAssignMap.get("c" + (i / 2 + 1)).add(partitions.get(i));
+        }
+        Map<String, Map<String, Map<String, Partition>>> clusterState =
+                toClusterState(curAssignMap);
+        Map<String, List<Partition>> assignMap = StickyPartitionAssignor.assign(partMap,
+                Arrays.asList("c1", "c2"), clusterState, weightMap);
+        // no swap brings c1 within the tolerance or halves the load gap
+        Assert.assertEquals(0, countMoved(clusterState, assignMap));
+    }
+
+    private long getLoad(Map<String, Long> weightMap, List<Partition> partitions) {
+        long load = 0L;
+        for (Partition partition : partitions) {
+            load += weightMap.get(partition.getPartitionKey());
+        }
+        return load;
+    }
+
+    private Map<String, Partition> buildPartitions(int count) {
+        Map<String, Partition> partMap = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            Partition partition = new Partition(
+                    new BrokerInfo(i % 3 + 1, "127.0.0." + (i % 3 + 1), 8123), "test", i);
+            partMap.put(partition.getPartitionKey(), partition);
+        }
+        return partMap;
+    }
+
+    private Map<String, Map<String, Map<String, Partition>>> toClusterState(
+            Map<String, List<Partition>> assignMap) {
+        Map<String, Map<String, Map<String, Partition>>> clusterState = new HashMap<>();
+        for (Map.Entry<String, List<Partition>> entry : assignMap.entrySet()) {
+            Map<String, Partition> partMap = new HashMap<>();
+            for (Partition partition : entry.getValue()) {
+                partMap.put(partition.getPartitionKey(), partition);
+            }
+            Map<String, Map<String, Partition>> topicMap = new HashMap<>();
+            topicMap.put("test", partMap);
+            clusterState.put(entry.getKey(), topicMap);
+        }
+        return clusterState;
+    }
+
+    private void checkBalanced(Map<String, Partition> partMap,
+                               Map<String, List<Partition>> assignMap) {
+        int minCnt = partMap.size() / assignMap.size();
+        Set<String> assignedKeys = new HashSet<>();
+        for (List<Partition> partitions : assignMap.values()) {
+            Assert.assertTrue(partitions.size() >= minCnt);
+            Assert.assertTrue(partitions.size() <= minCnt + 1);
+            for (Partition partition : partitions) {
+                Assert.assertTrue(assignedKeys.add(partition.getPartitionKey()));
+            }
+        }
+        Assert.assertEquals(partMap.keySet(), assignedKeys);
+    }
+
+    private int countMoved(Map<String, Map<String, Map<String, Partition>>> clusterState,
+                           Map<String, List<Partition>> assignMap) {
+        int movedCnt = 0;
+        for (Map.Entry<String, List<Partition>> entry : assignMap.entrySet()) {
+            Map<String, Map<String, Partition>> relation = clusterState.get(entry.getKey());
+            List<String> heldKeys = new ArrayList<>();
+            if (relation != null) {
+                heldKeys.addAll(relation.get("test").keySet());
+            }
+            for (Partition partition : entry.getValue()) {
+                if (!heldKeys.contains(partition.getPartitionKey())) {
+                    movedCnt++;
+                }
+            }
+        }
+        return movedCnt;
+    }
+}
@@ -41,6 +41,7 @@ public class GroupResCtrlEntityTest {
         Assert.assertEquals(resEntry.getFlowCtrlStatus(), EnableStatus.STATUS_DISABLE);
         Assert.assertEquals(resEntry.getFlowCtrlInfo(), TServerConstants.BLANK_FLOWCTRL_RULES);
         Assert.assertEquals(resEntry.getRuleCnt(), 0);
+        Assert.assertEquals(resEntry.getStickyBalanceStatus(), EnableStatus.STATUS_DISABLE);
         // case 2
         long dataVerId = 55;
         String groupName2 = "group_2";
@@ -113,8 +114,13 @@ public class GroupResCtrlEntityTest {
         Assert.assertEquals(resEntry4.getModifyUser(), resEntry3.getModifyUser());
         Assert.assertEquals(resEntry4.getModifyDate(), resEntry3.getModifyDate());
         Assert.assertNotEquals(resEntry4.getDataVerId(), resEntry3.getDataVerId());
+        Assert.assertTrue(resEntry4.updStickyBalanceInfo(true));
+        Assert.assertFalse(resEntry4.updStickyBalanceInfo(true));
+        Assert.assertTrue(resEntry4.isStickyBalanceEnable());
         // case 5
         BdbGroupFlowCtrlEntity bdbEntity5 = resEntry4.buildBdbGroupFlowCtrlEntity();
+        Assert.assertEquals(bdbEntity5.getStickyBalanceStatus(), EnableStatus.STATUS_ENABLE);
+        Assert.assertTrue(new GroupResCtrlEntity(bdbEntity5).isStickyBalanceEnable());
         Assert.assertEquals(bdbEntity5.getSerialId(), newDataVerId);
         Assert.assertEquals(bdbEntity5.getResCheckStatus().isEnable(), resChkEnable);
         Assert.assertEquals(bdbEntity5.getAllowedBrokerClientRate(), newAllowedB2CRate);